@@ -0,0 +1,31 @@
+package applications;
+
+import data.reader.BinaryDataSetWriter;
+
+public class MainConvertArff 
+{
+    public static void main(String[] args)
+    {
+        /*
+         * Print useage if not enough arguments
+         */
+        if (args.length != 2)
+        {
+            printUsage();
+            return;
+        }
+        
+        /*
+         *  Convert the ARFF file to a binary data set file
+         */
+        BinaryDataSetWriter.convertArff(args[0], args[1]);
+    }
+    
+    /**
+     * Prints this program's usage to standard output
+     */
+    public static void printUsage()
+    {
+        System.out.println("\nUsage: convert <arff-file> <binary-file>\n");
+    }
+}
@@ -8,7 +8,7 @@ import java.util.List;
 
 import data.DataSet;
 import data.fold.KFoldCreator;
-import data.reader.ArffReader;
+import data.reader.DataSetReader;
 
 
 import pair.Pair;
@@ -28,10 +28,9 @@ public class MainHillClimbing
             PrintWriter out = new PrintWriter(args[1]);
             
             /*
-             *  Read the training data from the arff file
+             *  Read the training data from the ARFF or binary data set file
              */
-            ArffReader reader = new ArffReader();
-            DataSet data = reader.readFile(args[0]);
+            DataSet data = DataSetReader.readFile(args[0]);
             
             /*
              * Scoring function
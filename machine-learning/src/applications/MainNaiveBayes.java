@@ -5,7 +5,7 @@ package applications;
 import classify.ClassificationResult;
 
 import data.DataSet;
-import data.reader.ArffReader;
+import data.reader.DataSetReader;
 import bayes.classifiers.NaiveBayesClassifier;
 
 public class MainNaiveBayes 
@@ -44,10 +44,9 @@ public class MainNaiveBayes
         }
         
         /*
-         *  Read the training data from the arff file
+         *  Read the training data from the ARFF or binary data set file
          */
-        ArffReader reader = new ArffReader();
-        DataSet data = reader.readFile(args[0]);
+        DataSet data = DataSetReader.readFile(args[0]);
         data.setClassAttribute(CLASS_ATTR_NAME);
         
         /*
@@ -62,9 +61,9 @@ public class MainNaiveBayes
         System.out.println(nbClassifier);
         
         /*
-         *  Read the training data from the arff file
+         *  Read the training data from the ARFF or binary data set file
          */
-        DataSet testData = reader.readFile(args[1]);
+        DataSet testData = DataSetReader.readFile(args[1]);
         testData.setClassAttribute(CLASS_ATTR_NAME);
         
         /*
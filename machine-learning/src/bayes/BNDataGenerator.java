@@ -11,6 +11,8 @@ import java.util.Random;
 import pair.Pair;
 import bayes.cpd.CPDQuery;
 import data.Attribute;
+import data.AttributeSet;
+import data.ColumnStore;
 import data.DataSet;
 import data.Instance;
 import data.InstanceSet;
@@ -33,21 +35,23 @@ public class BNDataGenerator
      */
     public static DataSet generateDataSet(BayesianNetwork net, int numInstances)
     {
+        List<Attribute> attributes = net.network.getAttributes();
+        
         /*
-         * Build instance set and set the instance set to the new data set
+         * Generate each instance directly into a row of a column store so
+         * that the data set's counts can be read from its AD-tree
          */
-        InstanceSet instances = new InstanceSet();
+        ColumnStore store = new ColumnStore(attributes, numInstances);
         for (int i = 0; i < numInstances; i++)
         {
-            Instance newInst = new Instance();
+            Instance newInst = new Instance(store, store.addRow());
             for (BNNode node : net.network.topologicallySorted())
             {                              
                 setAttrInstance(node, newInst); 
             }       
-            instances.addInstance(newInst);
         } 
         
-        return new DataSet(null, instances);   
+        return new DataSet(new AttributeSet(attributes), new InstanceSet(store));   
     }
     
     
@@ -1,21 +1,27 @@
 package bayes;
 
 import java.util.ArrayList;
+import java.util.List;
 
-
+import bayes.cpd.CPDQuery;
 import data.Attribute;
 import data.DataSet;
 import data.Instance;
+import data.count.ContingencyTable;
+import data.source.DataSetSource;
 
 public class BNEvaluator 
 {
 
     /**
      * 
-     * For each instance in the data, calculate the log-probability of the 
-     * bayes net producing this data.  Sum the resulting log-probability
-     * of each instance to get the total log-likelihood of the network 
-     * generating the data.  Tha  
+     * Calculate the negative log-likelihood of the bayes net producing the
+     * data.  For each node, the log-probability of each instance is 
+     * log P(node | parents), so the total log-likelihood is a sum over each 
+     * node's family of the family's joint counts times the log of the 
+     * node's conditional probabilities.  The counts of every family are 
+     * made in a single pass over the data.  An instance missing a value of a
+     * family contributes nothing to that family.
      *
      * @param net the Bayes net used to calcuate the likelihood of the data
      * @param data the data for which we want to know the likelihood
@@ -23,25 +29,82 @@ public class BNEvaluator
      */
     public static Double calculateLogLikelihood(BayesianNetwork net, DataSet data)
     {
+        List<BNNode> nodes = net.getNodes();
+        
+        List<List<Attribute>> families = new ArrayList<List<Attribute>>();
+        for (BNNode node : nodes)
+        {
+            families.add(getFamilyAttributes(node));
+        }
+        List<ContingencyTable> counts = 
+                ContingencyTable.countAll(new DataSetSource(data), families);
+        
         Double logProduct = 0.0;
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            logProduct += calculateFamilyLogLikelihood(nodes.get(i), counts.get(i));
+        }
+        
+        return logProduct;
+    }
+    
+    /**
+     * Calculate the negative log-likelihood of a node's family from its 
+     * joint counts
+     * 
+     * @param node the node, whose CPD gives the conditional probabilities
+     * @param counts the joint counts of the attributes returned by 
+     * {@code getFamilyAttributes} for the node
+     * @return the sum over the family's instances of -log P(node | parents)
+     */
+    public static Double calculateFamilyLogLikelihood(BNNode node, 
+                                                      ContingencyTable counts)
+    {
+        List<Attribute> family = counts.getAttributes();
         
-        for (Instance instance : data.getInstanceSet().getInstances())
-        {        
-            ArrayList<BNConditionalQuery> queries = createQueries(instance, net, data);
+        double logProduct = 0.0;
+        for (int cell = 0; cell < counts.getNumCells(); cell++)
+        {
+            int count = counts.getCount(cell);
+            if (count == 0)
+            {
+                continue;
+            }
             
             /*
-             * Sum over the probability of each instance 
+             *  Decode the cell's joint assignment of values
              */
-            for (BNConditionalQuery query : queries)
-            {     
-                Double p = net.queryConditionalProbability(query);
-                logProduct += -Math.log(p);
-            }    
+            CPDQuery query = new CPDQuery();
+            for (int a = 0; a < family.size(); a++)
+            {
+                int value = (cell / counts.getStride(a)) % counts.getNumValues(a);
+                query.addQueryItem(family.get(a), value);
+            }
+            
+            logProduct += -count * Math.log(node.query(query));
         }
         
         return logProduct;
     }
     
+    /**
+     * Get the attributes of a node's family: the attributes of the node's 
+     * parents followed by the node's own attribute
+     * 
+     * @param node the node
+     * @return the attributes of the node's family
+     */
+    public static List<Attribute> getFamilyAttributes(BNNode node)
+    {
+        List<Attribute> family = new ArrayList<Attribute>();
+        for (BNNode parent : node.getParents())
+        {
+            family.add(parent.getAttribute());
+        }
+        family.add(node.getAttribute());
+        return family;
+    }
+    
     /**
      * For each instance we need to create a conditional probability 
      * query on the value of each instance's attributes given the values of the
@@ -66,13 +129,17 @@ public class BNEvaluator
              * Set target attribute/value 
              */
             Attribute targetAttr = targetNode.getAttribute();
-            Integer targetAttrValue 
-                        = instance.getAttributeValue(targetAttr).intValue();
-            query.setTargetVariable(targetAttr, targetAttrValue);
+            Double targetValue = instance.getAttributeValue(targetAttr);
+            if (targetValue == null)
+            {
+                continue;
+            }
+            query.setTargetVariable(targetAttr, targetValue.intValue());
             
             /*
              * Set each condition attribute/value
              */
+            boolean isComplete = true;
             for (BNNode conditionNode : net.getNodes())
             {
                 Attribute conditionAttr = conditionNode.getAttribute();
@@ -81,14 +148,24 @@ public class BNEvaluator
                 
                 if (!conditionNode.equals(targetNode) && isChildOfTarget)
                 {
-                    Integer conditionAttrValue
-                           = instance.getAttributeValue(conditionAttr).intValue();
+                    Double conditionValue = instance.getAttributeValue(conditionAttr);
+                    if (conditionValue == null)
+                    {
+                        isComplete = false;
+                        break;
+                    }
                                         
-                    query.addConditionVariable(conditionAttr, conditionAttrValue);
+                    query.addConditionVariable(conditionAttr, conditionValue.intValue());
                 }
             }
            
-           queries.add(query);
+            /*
+             *  A family with a missing value contributes no query
+             */
+            if (isComplete)
+            {
+                queries.add(query);
+            }
         } 
          
         return queries;
@@ -1,9 +1,10 @@
 package bayes;
 
-import graph.dag.DetectCycles;
 import graph.dag.TopologicalSort;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,7 @@ import bayes.cpd.CPDTreeBuilder;
 import data.Attribute;
 import data.AttributeSet;
 import data.DataSet;
+import data.count.ContingencyTable;
 
 /**
  * Manages the nodes and all node and edge operations in a Bayesian network
@@ -39,11 +41,33 @@ public class BNStructure
      */
     private Map<Attribute, BNNode> nodeMap;
     
+    /**
+     * The node representing each attribute indexed by the attribute's 
+     * ordinal.  Lookups by attribute use this array and only fall back to
+     * {@code nodeMap} for attributes without an ordinal or from a different
+     * schema.
+     */
+    private BNNode[] ordinalNodes;
+    
     /**
      * A sorted list of the nodes in the network.  Sorted topologically.
      */
     private List<BNNode> nodeList;
     
+    /**
+     * The index of each node in {@code reachable}, in the order the nodes 
+     * were added
+     */
+    private Map<BNNode, Integer> nodeIndices;
+    
+    /**
+     * The transitive closure of the network.  The bits of the set at a 
+     * node's index are the indices of the nodes reachable from the node by a
+     * directed path of one or more edges.  The closure is updated with every
+     * edge operation, so edge validity is tested without touching the graph.
+     */
+    private List<BitSet> reachable;
+    
     /**
      * Constructor
      */
@@ -51,7 +75,10 @@ public class BNStructure
     {
         attributes = new ArrayList<>();
         nodeMap = new HashMap<Attribute, BNNode>();
+        ordinalNodes = new BNNode[0];
         nodeList = new ArrayList<BNNode>();
+        nodeIndices = new HashMap<BNNode, Integer>();
+        reachable = new ArrayList<BitSet>();
     }
     
     /**
@@ -62,9 +89,30 @@ public class BNStructure
      */
     public BNNode getNode(Attribute attr)
     {   
+        BNNode node = getNode(attr.getOrdinal());
+        if (node != null && node.getAttribute() == attr)
+        {
+            return node;
+        }
         return nodeMap.get(attr);
     }
     
+    /**
+     * Get a node by the ordinal of the attribute it represents
+     * 
+     * @param ordinal the ordinal of the attribute the target node represents
+     * @return the node or null if no node represents an attribute with this
+     * ordinal
+     */
+    public BNNode getNode(int ordinal)
+    {
+        if (ordinal < 0 || ordinal >= ordinalNodes.length)
+        {
+            return null;
+        }
+        return ordinalNodes[ordinal];
+    }
+    
     /**
      * @return a list of all attributes that are represented by nodes in the
      * network
@@ -102,24 +150,10 @@ public class BNStructure
         }
         
         /*
-         * Add edge
-         */
-        parent.addChild(child);
-        child.addParent(parent);
-        
-        /*
-         * Check for cycle
-         */
-        Double[][] graph = BNUtility.convertToAdjacencyMatrix(nodeList);
-        Boolean cycle = DetectCycles.run(graph);
-        
-        /*
-         * Remove edge
+         * The edge creates a cycle exactly when the parent is reachable from
+         * the child
          */
-        child.removeParent(parent);
-        parent.removeChild(child);
-        
-        return !cycle;
+        return !pathExists(child, parent);
     }
 
     /**
@@ -135,46 +169,38 @@ public class BNStructure
      */
     public Boolean isValidReverseEdge(BNNode parent, BNNode child)
     {
-        Boolean result;
-        
         if (!edgeExists(parent, child) || parent.equals(child))
         {
             return false;
         }
-        else
+        
+        /*
+         * The reversed edge creates a cycle exactly when the child is 
+         * reachable from the parent by a path other than the edge itself,
+         * which must leave the parent through another of its children
+         */
+        for (BNNode other : parent.getChildren())
         {
-            /*
-             * Remove parent -> child
-             */
-            parent.removeChild(child);
-            child.removeParent(parent);
-            
-            /*
-             * Create child -> parent
-             */
-            child.addChild(parent);
-            parent.addParent(child);
-            
-            /*
-             * Check for cycle
-             */
-            Double[][] graph = BNUtility.convertToAdjacencyMatrix(nodeList);
-            result = !DetectCycles.run(graph);
-            
-            /*
-             * Remove child -> parent
-             */
-            child.removeChild(parent);
-            parent.removeParent(child);
-            
-            /*
-             * Restore parent -> child
-             */
-            parent.addChild(child);
-            child.addParent(parent);
+            if (!other.equals(child) && pathExists(other, child))
+            {
+                return false;
+            }
         }
         
-        return result;
+        return true;
+    }
+    
+    /**
+     * Test if a directed path of one or more edges leads from one node to 
+     * another.  The test reads the network's maintained transitive closure.
+     * 
+     * @param from the node the path starts at
+     * @param to the node the path ends at
+     * @return true if the path exists, false otherwise
+     */
+    public Boolean pathExists(BNNode from, BNNode to)
+    {
+        return reachable.get(nodeIndices.get(from)).get(nodeIndices.get(to));
     }
     
     /**
@@ -223,6 +249,23 @@ public class BNStructure
                            BNNode child, 
                            DataSet data, 
                            Integer laplaceCount)
+    {
+        createEdge(parent, child);
+                
+        /*
+         *  Rebuild the child's CPD 
+         */
+        buildCPD( child, data, laplaceCount );
+    }
+    
+    /**
+     * Create a directed edge between two nodes without rebuilding the
+     * child's CPD.  The CPD must be rebuilt before the network is queried.
+     * 
+     * @param parent the parent node
+     * @param child the child node
+     */
+    public void createEdge(BNNode parent, BNNode child)
     {
         /*
          * Check if the edge is valid 
@@ -246,11 +289,7 @@ public class BNStructure
         
         parent.addChild(child);
         child.addParent(parent);
-                
-        /*
-         *  Rebuild the child's CPD 
-         */
-        buildCPD( child, data, laplaceCount );
+        addReachability(parent, child);
         
         /*
          * Resort the nodes topologically 
@@ -271,6 +310,7 @@ public class BNStructure
     {
         parent.removeChild(child);
         child.removeParent(parent);
+        removeReachability(parent);
         
         /*
          *  Rebuild the child's CPD
@@ -299,6 +339,7 @@ public class BNStructure
          */
         parent.removeChild(child);
         child.removeParent(parent);
+        removeReachability(parent);
         
         /*
          * Check if (child -> parent) already exists
@@ -327,6 +368,7 @@ public class BNStructure
          */
         child.addChild(parent);
         parent.addParent(child);
+        addReachability(child, parent);
                 
         /*
          *  Rebuild the  both nodes' CPD
@@ -346,17 +388,42 @@ public class BNStructure
      * @param newNode the new node
      */
     public void addNode(BNNode newNode, DataSet data, Integer laplaceCount)
+    {
+        addNode(newNode);
+        
+        buildCPD( newNode, data, laplaceCount);
+    }
+    
+    /**
+     * Add a node to the network without building its CPD.  The CPD must be
+     * built before the network is queried.
+     * 
+     * @param newNode the new node
+     */
+    public void addNode(BNNode newNode)
     {
         attributes.add(newNode.getAttribute());
         nodeMap.put(newNode.getAttribute(), newNode);
         nodeList.add(newNode);
         
+        int ordinal = newNode.getAttribute().getOrdinal();
+        if (ordinal >= ordinalNodes.length)
+        {
+            ordinalNodes = Arrays.copyOf(ordinalNodes, ordinal + 1);
+        }
+        if (ordinal >= 0)
+        {
+            ordinalNodes[ordinal] = newNode;
+        }
+        
+        nodeIndices.put(newNode, reachable.size());
+        reachable.add(new BitSet());
+        
         /*
          * Resort the nodes topologically
          */
         topologicalSort();
-        
-        buildCPD( newNode, data, laplaceCount);
+        rebuildReachability(nodeList);
     }
     
     /**
@@ -375,7 +442,50 @@ public class BNStructure
      */
     public void buildCPD(BNNode node, DataSet data, Integer laplaceCount)
     { 
+        buildCPD(node, 
+                 data.getCounts().getContingencyTable(getFamilyAttributes(node)), 
+                 laplaceCount);
+    }
+    
+    /**
+     * Build the CPD Tree for a single node from the joint counts of the 
+     * node's family
+     * 
+     * @param node the node for which we need to build the CPD tree
+     * @param counts the joint counts of the attributes returned by 
+     * {@code getFamilyAttributes} for this node
+     */
+    public void buildCPD(BNNode node, ContingencyTable counts, Integer laplaceCount)
+    {
+        /*
+         *  Build the CPD at this node
+         */
+        CPDTreeBuilder treeBuilder = new CPDTreeBuilder();
+        CPDTree cpdTree = treeBuilder.buildCPDTree(counts, laplaceCount);
         
+        /*
+         *  Set the CPD Tree
+         */
+        node.setCPDTree( cpdTree );   
+
+        if (verbose > 0)
+        {
+            System.out.println("Building CPD for node: " + node.getName());
+            System.out.println(cpdTree);
+        }
+       
+    }
+    
+    /**
+     * Get the attributes of a node's family in the order used by the node's
+     * CPD tree: the attributes of the node's parents followed by the node's 
+     * own attribute.
+     * 
+     * @param node the node
+     * @return the attributes of the node's family
+     */
+    public ArrayList<Attribute> getFamilyAttributes(BNNode node)
+    {
         ArrayList<Attribute> cpdAttributes = new ArrayList<Attribute>();
 
         /*
@@ -390,26 +500,84 @@ public class BNStructure
          *  Add the current node's attribute
          */
         cpdAttributes.add(node.getAttribute());
-
-        /*
-         *  Build the CPD at this node
-         */
-        CPDTreeBuilder treeBuilder = new CPDTreeBuilder();
-        CPDTree cpdTree = treeBuilder.buildCPDTree(data, 
-                                                   cpdAttributes,
-                                                   laplaceCount);
+        
+        return cpdAttributes;
+    }
+    
+    /**
+     * Update the transitive closure for a new edge.  Every node that reaches
+     * the parent, and the parent itself, now reaches the child and every 
+     * node the child reaches.
+     * 
+     * @param parent the parent node of the new edge
+     * @param child the child node of the new edge
+     */
+    private void addReachability(BNNode parent, BNNode child)
+    {
+        int parentIndex = nodeIndices.get(parent);
+        int childIndex = nodeIndices.get(child);
+        
+        BitSet added = (BitSet) reachable.get(childIndex).clone();
+        added.set(childIndex);
+        
+        for (BitSet nodeReachable : reachable)
+        {
+            if (nodeReachable.get(parentIndex))
+            {
+                nodeReachable.or(added);
+            }
+        }
+        reachable.get(parentIndex).or(added);
+    }
+    
+    /**
+     * Update the transitive closure for a removed edge.  Only the nodes that
+     * reach the edge's parent, and the parent itself, can lose reachable 
+     * nodes, so only their sets are recomputed.
+     * 
+     * @param parent the parent node of the removed edge
+     */
+    private void removeReachability(BNNode parent)
+    {
+        int parentIndex = nodeIndices.get(parent);
+        
+        List<BNNode> affected = new ArrayList<BNNode>();
+        for (BNNode node : nodeList)
+        {
+            if (node.equals(parent) || reachable.get(nodeIndices.get(node)).get(parentIndex))
+            {
+                affected.add(node);
+            }
+        }
         
         /*
-         *  Set the CPD Tree
+         * Removing an edge keeps the current topological order valid
          */
-        node.setCPDTree( cpdTree );   
-
-        if (verbose > 0)
+        rebuildReachability(affected);
+    }
+    
+    /**
+     * Recompute the reachable set of each of a list of nodes from the sets 
+     * of their children
+     * 
+     * @param nodes the nodes to recompute, in topological order.  The 
+     * reachable set of every child of these nodes that is not in the list
+     * must be current.
+     */
+    private void rebuildReachability(List<BNNode> nodes)
+    {
+        for (int i = nodes.size() - 1; i >= 0; i--)
         {
-            System.out.println("Building CPD for node: " + node.getName());
-            System.out.println(cpdTree);
+            BNNode node = nodes.get(i);
+            BitSet nodeReachable = new BitSet();
+            for (BNNode child : node.getChildren())
+            {
+                int childIndex = nodeIndices.get(child);
+                nodeReachable.set(childIndex);
+                nodeReachable.or(reachable.get(childIndex));
+            }
+            reachable.set(nodeIndices.get(node), nodeReachable);
         }
-       
     }
     
     /**
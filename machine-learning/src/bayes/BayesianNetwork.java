@@ -1,15 +1,15 @@
 package bayes;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import bayes.cpd.CPDQuery;
-import pair.Pair;
 import data.Attribute;
 import data.DataSet;
+import data.count.ContingencyTable;
+import data.source.RewindableInstanceSource;
+import bayes.inference.VariableElimination;
 
 /**
  * A generic Bayesian Network.
@@ -83,6 +83,19 @@ public class BayesianNetwork
         this.network.addNode(newNode, data, laplaceCount);
         calculateFreeParameters();
     }
+    
+    /**
+     * Add a new Node to the network without building its CPD.  The 
+     * parameters of the network must be fit with {@code fitParameters} before
+     * the network is queried.
+     * 
+     * @param newNode the new Node
+     */
+    public void addNode(BNNode newNode)
+    {
+        this.network.addNode(newNode);
+        calculateFreeParameters();
+    }
 
     /**
      * Retrieve a Node according to the Attribute this Node represents
@@ -182,6 +195,44 @@ public class BayesianNetwork
         calculateFreeParameters();
     }
     
+    /**
+     * Create a directed edge in the network without rebuilding the child's 
+     * CPD.  The parameters of the network must be fit with 
+     * {@code fitParameters} before the network is queried.
+     * 
+     * @param parent the parent Node of the edge
+     * @param child the child Node of the edge
+     */
+    public void createEdge(BNNode parent, BNNode child)
+    {   
+        network.createEdge(parent, child);
+        calculateFreeParameters();
+    }
+    
+    /**
+     * Build the CPD of every node in the network from a single pass over a
+     * source of instances
+     * 
+     * @param source the source of training instances
+     * @param laplaceCount the laplace count to use in parameter estimation
+     */
+    public void fitParameters(RewindableInstanceSource source, Integer laplaceCount)
+    {
+        List<BNNode> nodes = network.topologicallySorted();
+        
+        List<List<Attribute>> families = new ArrayList<List<Attribute>>();
+        for (BNNode node : nodes)
+        {
+            families.add(network.getFamilyAttributes(node));
+        }
+        
+        List<ContingencyTable> counts = ContingencyTable.countAll(source, families);
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            network.buildCPD(nodes.get(i), counts.get(i), laplaceCount);
+        }
+    }
+    
     /**
      * @return the number of free parameters in this model
      */
@@ -239,96 +290,38 @@ public class BayesianNetwork
      * returns the probability for the value of a specific attribute in the 
      * network conditioned on a set of values for other variables in the
      * network.  For example, this method is used for calculated probabilities
-     * of the form P(A = a | E = e, D = d).
+     * of the form P(A = a | E = e, D = d).  The numerator P(A = a, E = e, 
+     * D = d) and the denominator P(E = e, D = d) are both read from a single
+     * variable elimination.
      *   
-     * @param query
-     * @return
+     * @param query the conditional probability query
+     * @return the resulting probability
      */
     public Double queryConditionalProbability(BNConditionalQuery query)
     {        
-        /*
-         * The conditional probability P(A = a | E = e, D = d) is found by
-         * calculating:
-         * 
-         *  P(B = b, E = e, D = d) / P(E = e, D = d).  
-         */
+        Double probability = new VariableElimination(this).queryConditionalProbability(query);
         
         if (verbose > 2)
         {
-            System.out.println("\n\n--- BEGIN conditional query " + query + "----\n");
-        }
-            
-        /*
-         * Calculate the numerator.
-         */
-        BNJointQuery allVarJointQuery 
-                      = new BNJointQuery( query.getAllVariableSet() );                                      
-        Double numerator = queryJointProbability(allVarJointQuery);
-        
-        /*
-         * Calculate the denominator.
-         */
-        BNJointQuery conditionVarJointQuery 
-                       = new BNJointQuery( query.getConditionalVariableSet() );
-        Double denominator = queryJointProbability(conditionVarJointQuery);
-        
-        if (verbose > 2)
-        {
-            System.out.println("Numerator: " + allVarJointQuery + " = "+ numerator);
-            System.out.println("Denominator: " + conditionVarJointQuery + " = " + denominator);
-            System.out.println("\n--- END conditional query " + query + "----\n\n");
+            System.out.println("Result of query " + query + " = " 
+                                + probability + "\n");
         }
         
-        return numerator / denominator;
+        return probability;
     }
     
    /**
     * Query for a joint probability in the bayes net.  This method computes a 
-    * probability of the form P(A = a, E = e, D = d).
+    * probability of the form P(A = a, E = e, D = d) by variable elimination
+    * over the nodes of the query and their ancestors.
     *  
     * @param query the joint probability query
     * @return the resulting probability
     */
     public Double queryJointProbability(BNJointQuery query)
     {        
-        /*
-         * Contains all nodes for which we need to make a query into their
-         * CPD table
-         */
-        Set<BNNode> allNodes = new HashSet<BNNode>();
+        Double jointProbability = new VariableElimination(this).queryJointProbability(query);
         
-        /*
-         * Retrieve all nodes we need to consider in the calculation
-         */
-        for (Pair<Attribute, Integer> variable : query.getVariables())
-        {
-            BNNode queryNode = this.getNode(variable.getFirst());
-            
-            /*
-             *  Get a list of all nodes that precede each variable node in the 
-             *  network's DAG structure
-             */
-            allNodes.addAll( getNodesAbove(queryNode)  );          
-        }
-        
-        /*
-         * Parition all of the nodes under consideration into a set of nodes
-         * for which we need to iterate over all values and nodes for which
-         * the values are specified in the query.
-         */
-        Pair<ArrayList<BNNode>, ArrayList<BNNode>> partition
-                = separateSpecifiedUnspecified(allNodes, query);
-       
-        ArrayList<BNNode> unspecified = partition.getSecond();
-       
-        /*
-         * Run enumeration to get the joint probability
-         */
-        if (verbose > 4)
-        {
-            System.out.println("Enumeration for joint query " + query + ":");
-        }
-        Double jointProbability = runEnumeration(query.getVariables(), unspecified);
         if (verbose > 2)
         {
             System.out.println("Result of query " + query + " = " 
@@ -338,147 +331,6 @@ public class BayesianNetwork
         return jointProbability;
     }
     
-    /**
-     * A recursive algorithm that runs the inference by enumeration to get
-     * the joint probability of a query.
-     * <br>
-     * <br>
-     * For example, if we have a network with the following adjacency-list:
-     * <br>
-     * <br>
-     * B -> A
-     * C -> A
-     * C -> D
-     * <br>
-     * <br>
-     * And we wish to query P(A = a, D = d), the enumeration we must perform
-     * is:
-     * <br>
-     * &Sigma; b &isin; B &Sigma; c &isin; C P(A = a | B = b) * P(B = b) * 
-     * P(A = a | C = c) * P(C = c) * P(D = d | C = d) 
-     * 
-     * @param currValues a list of attribute/value pairs that have already 
-     * been assigned in the current enumeration
-     * @param toIterate a list of nodes for which we still need to enumerate
-     * over their values
-     * @return return the joint probability result of the enumeration
-     */
-    @SuppressWarnings("unchecked")
-    private Double runEnumeration(ArrayList<Pair<Attribute, Integer>> currValues, 
-                                  ArrayList<BNNode> toIterate)
-    {
-        if (toIterate.size() == 0)  // Stopping condition
-        {
-            /*
-             * Calculate a single term in the enumeration
-             */
-            return calculateProbability(currValues);
-        }
-        else
-        {
-            Double sum = 0.0;
-            
-            /*
-             * Get the current attribute we are iterating over
-             */
-            Attribute attr = toIterate.get(0).getAttribute();
-            toIterate.remove(0);
-                        
-            for (Integer nominalValue : attr.getNominalValueMap().values())
-            {      
-                /*
-                 * Current attribute/value pair of the current attribute 
-                 */
-                Pair<Attribute, Integer> newPair 
-                        = new Pair<Attribute, Integer>(attr, nominalValue);
-                
-                currValues.add( newPair );
-                
-                /*
-                 * Recursive call
-                 */
-                sum += runEnumeration(currValues, (ArrayList<BNNode>) toIterate.clone());
-                
-                currValues.remove( newPair );
-            }
-            
-            return sum;
-        }
-        
-    }
-    
-    /**
-     * Calculate a single term in the enumeration
-     * 
-     * @param values attribute/value pairs in the term of the enumeration
-     * @return the resulting term
-     */
-    private Double calculateProbability(ArrayList<Pair<Attribute, Integer>> values)
-    {          
-        Double product = 1.0;
-         
-        /*
-         * For each attribute, create a CPD for the node of this attribute. We
-         * use the assignments to its parents for creating this CPD.
-         */
-        for (Pair<Attribute, Integer> pair : values)
-        {
-            BNNode node = this.getNode(pair.getFirst());
-            
-            Integer nodeValue = pair.getSecond();
-            CPDQuery cpdQuery = buildCPDQuery(node, nodeValue, values);
-            
-            if (verbose > 4)
-            {
-                System.out.println(node.getName() + " : " + cpdQuery 
-                                   + " = " + node.query(cpdQuery));
-            }
-                
-            product *= node.query(cpdQuery);
-        }
-                       
-        return product;
-    }
-    
-    /**
-     * Given a node and a set of attribute/value pairs, this method constructs
-     * the proper CPDQuery object where the query object queries for a 
-     * conditional probability of the target node given as assignemtn of this
-     * node's parents
-     * 
-     * @param node the target node
-     * @param queryDetails a list of attribute/value pairs
-     * @return a query object querying for the conditional probability on the
-     * target node given an assignment of its parents variables.
-     */
-    private CPDQuery buildCPDQuery(BNNode node, 
-                                   Integer nodeValue,
-                                   ArrayList<Pair<Attribute, Integer>> queryDetails )
-    {         
-        /*
-         * Create the query with the target node's attribute and assigned value
-         */
-        CPDQuery query = new CPDQuery();
-        query.addQueryItem(node.getAttribute(), nodeValue);
-        
-        /*
-         * Find all parent assignments in the list of attribute/value pairs
-         * and add them to the query object
-         */
-        for (BNNode parent : node.getParents())
-        {
-            for (Pair<Attribute, Integer> q : queryDetails)
-            {
-                if (q.getFirst().equals(parent.getAttribute()))
-                {
-                    query.addQueryItem(q.getFirst(), q.getSecond());                    
-                }
-            }
-        }
-                
-        return query;
-    }
-    
     /**
      * Gets all nodes above a certain node in the network DAG structure
      * including the node itself.
@@ -585,52 +437,5 @@ public class BayesianNetwork
     {
         this.structureAlgorithm = netInference;
     }
-
-    /**
-     * A helper method for separating a set of nodes into two partitions based
-     * on a joint probability query.  Say we have a query (A = a, B = b), both
-     * of these nodes may form the total set of nodes (A, B, C, D, E) that must
-     * be considered in the probability calculation.  This method separates 
-     * (A, B, C, D, E) -> (A, B) + (C, D, E) the nodes specified in the query
-     * and the nodes not specified in the query but must be considered.
-     * 
-     * @param nodes all nodes considered in the probability calculation
-     * @param query the query for the probability
-     * @return the partition of all nodes to be considered into a list of nodes
-     * specified in the query (first element) and those that are not specified
-     * (second element).
-     */
-    private Pair<ArrayList<BNNode>, ArrayList<BNNode>> 
-    separateSpecifiedUnspecified(Collection<BNNode> nodes, BNJointQuery query)
-    {
-
-        /*
-         * Create array lists for holding each partition
-         */
-        ArrayList<BNNode> specified = new ArrayList<BNNode>();
-        ArrayList<BNNode> unspecified = new ArrayList<BNNode>(nodes);
-        
-        /*
-         * Separate the collection into the two partitions
-         */
-        for (Pair<Attribute, Integer> variable : query.getVariables())
-        {
-            BNNode specifiedNode = this.getNode(variable.getFirst());
-            
-            int index = unspecified.indexOf( specifiedNode );
-            specified.add( unspecified.get(index) );
-            unspecified.remove(index);
-        }
-        
-        /*
-         * Build result pair
-         */
-        Pair<ArrayList<BNNode>, ArrayList<BNNode>> result 
-                    = new Pair<ArrayList<BNNode>, ArrayList<BNNode>>();
-        result.setFirst(specified);
-        result.setSecond(unspecified);
-        
-        return result;
-    }
     
 }
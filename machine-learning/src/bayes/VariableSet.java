@@ -1,6 +1,7 @@
 package bayes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import pair.Pair;
 import data.Attribute;
@@ -18,6 +19,13 @@ public class VariableSet
      * of the attribute of all of the variables in this set.
      */
     private ArrayList<Pair<Attribute, Integer>> variables;
+    
+    /**
+     * The position in {@code variables} of the variable of each attribute
+     * indexed by the attribute's ordinal, or -1 for ordinals of attributes 
+     * not in this set
+     */
+    private int[] ordinalPositions;
 
     /**
      * Constructor
@@ -25,6 +33,7 @@ public class VariableSet
     public VariableSet()
     {
         this.variables = new ArrayList<Pair<Attribute, Integer>>();
+        this.ordinalPositions = new int[0];
     }
 
     /**
@@ -39,6 +48,23 @@ public class VariableSet
         Pair<Attribute, Integer> newItem = 
                 new Pair<Attribute, Integer>(attr, nomValueId);
 
+        /*
+         *  The first variable added for an attribute is the one found by 
+         *  lookups
+         */
+        int ordinal = attr.getOrdinal();
+        if (ordinal >= ordinalPositions.length)
+        {
+            int oldLength = ordinalPositions.length;
+            ordinalPositions = Arrays.copyOf(ordinalPositions, 
+                    Math.max(ordinal + 1, 2 * oldLength));
+            Arrays.fill(ordinalPositions, oldLength, ordinalPositions.length, -1);
+        }
+        if (ordinal >= 0 && ordinalPositions[ordinal] < 0)
+        {
+            ordinalPositions[ordinal] = variables.size();
+        }
+
         variables.add(newItem);
     }
 
@@ -51,16 +77,7 @@ public class VariableSet
      */
     public Boolean containsAttribute(Attribute attr)
     {
-        // Linear Search for a match in Attribute ID's
-        for (Pair<Attribute, Integer> item : variables)
-        {
-            if (item.getFirst().equals(attr))
-            {
-                return true;
-            }
-        }
-
-        return false;
+        return find(attr) != null;
     }
 
     /**
@@ -73,12 +90,47 @@ public class VariableSet
      * of the query.  null if this Attribute is not specified in this query
      */
     public Integer getValueForAttribute(Attribute attr)
+    {
+        Pair<Attribute, Integer> item = find(attr);
+        return item == null ? null : item.getSecond();
+    }
+    
+    /**
+     * Find the first variable of an attribute.  The attribute's ordinal 
+     * locates the variable directly.  A linear search is only made for an 
+     * attribute without an ordinal or whose ordinal slot holds a different
+     * attribute.
+     * 
+     * @param attr the target Attribute
+     * @return the attribute/value pair of the attribute or null if this set
+     * has no value for the attribute
+     */
+    private Pair<Attribute, Integer> find(Attribute attr)
     {
         if (attr == null)
         {
             return null;
         }
 
+        int ordinal = attr.getOrdinal();
+        if (ordinal >= 0 && ordinal < ordinalPositions.length)
+        {
+            int position = ordinalPositions[ordinal];
+            if (position < 0)
+            {
+                return null;
+            }
+            if (position < variables.size() 
+                    && variables.get(position).getFirst().equals(attr))
+            {
+                return variables.get(position);
+            }
+        }
+        else if (ordinal >= 0)
+        {
+            return null;
+        }
+
         /*
          *  Linear search for the attribute
          */
@@ -86,7 +138,7 @@ public class VariableSet
         {
             if (item.getFirst().equals(attr))
             {
-                return item.getSecond();
+                return item;
             }
         }
 
@@ -96,7 +148,8 @@ public class VariableSet
     /**
      * @return the list of attribute/value pairs in this joint probability 
      * query.  Each pair is the ID of the attribute and the nominal value ID
-     * of the value of this attribute.
+     * of the value of this attribute.  Changes made to the list must be
+     * undone before the set's values are looked up again.
      */
     public ArrayList<Pair<Attribute, Integer>> getVariables()
     {
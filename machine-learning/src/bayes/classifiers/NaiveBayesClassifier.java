@@ -1,10 +1,11 @@
 package bayes.classifiers;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
 
 import classify.ClassificationResult;
 import classify.Classifier;
+import classify.ParallelClassification;
 
 
 
@@ -14,6 +15,7 @@ import pair.Pair;
 import data.Attribute;
 import data.DataSet;
 import data.Instance;
+import data.source.RewindableInstanceSource;
 import bayes.BNNode;
 import bayes.BayesianNetwork;
 import bayes.cpd.CPDQuery;
@@ -66,38 +68,89 @@ public class NaiveBayesClassifier implements Classifier
         this.classNode = bayesNet.getNode(data.getClassAttribute());	
     }
 
+    /**
+     * Constructor for a classifier trained from a source of instances rather
+     * than an in-memory data set.  Naive Bayes requires one pass over the 
+     * source and TAN requires two.
+     * 
+     * @param source the source of training instances
+     * @param classAttrName the name of the class attribute
+     * @param laplaceCount the Laplace count to use when generating the
+     * Bayesian network
+     * @param tan true if we want to use the TAN algorithm for creating
+     * a maximal spanning tree among the attributes that are not the class
+     * attribute
+     */
+    public NaiveBayesClassifier(RewindableInstanceSource source, 
+                                String classAttrName,
+                                Integer laplaceCount, 
+                                boolean tan)
+    {
+        Attribute classAttr = 
+                source.getAttributeSet().getAttributeByName(classAttrName);
+
+        if (tan) 	// Build with tree augmentation
+        {
+            TANBuilder tBuilder = new TANBuilder();
+            this.bayesNet = tBuilder.buildNetwork(source, classAttr, laplaceCount);
+        }
+        else		// Build standard bayes net
+        {
+            NaiveBayesBuilder nBuilder = new NaiveBayesBuilder();
+            this.bayesNet = nBuilder.buildNetwork(source, classAttr, laplaceCount);
+        }
+
+        this.classNode = bayesNet.getNode(classAttr);
+    }
+
     /**
      * Classify all of the instances in a data set containing test instances
      * 
      * @param testData the DataSet object storing all Instance objects we wish
      * to classify
      * 
-     * @return an ArrayList storing the results of the classification.  The
-     * ith element of this list is a Pair object whose first element is the 
-     * nominal value ID of the class Attribute for which the classifier 
-     * predicted the ith Instance to be.  The second value is the probability
-     * the ith instance is the predicted value.
+     * @return the results of the classification
      */
+    @Override
     public ClassificationResult classifyData(DataSet testData)
     {
-        ArrayList<Pair<Integer, Double>> resultList = 
-                new ArrayList<Pair<Integer, Double>>();
-
-        /*
-         *	Classify each instance in the test dataset 
-         */
-        for (Instance instance : testData.getInstanceSet().getInstances())
-        {
-            resultList.add( this.classifyInstance(instance) );
-        }
+        int[] classes = new int[testData.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        classifyData(testData, classes, confidences);
 
         /*
          *	Process the results 
          */
-        ClassificationResult result = new ClassificationResult(resultList,
-                testData);
+        return new ClassificationResult(classes, confidences, testData);
+    }
 
-        return result;
+    /**
+     * Classify all of the instances in a data set containing test instances.
+     * Blocks of instances are classified concurrently on the common 
+     * fork-join pool.
+     * 
+     * @param testData the DataSet object storing all Instance objects we wish
+     * to classify
+     * @param classes receives the nominal value ID of the class Attribute 
+     * the classifier predicted for each Instance, indexed by instance ID
+     * @param confidences receives the probability of each predicted value,
+     * indexed by instance ID
+     */
+    @Override
+    public void classifyData(DataSet testData, int[] classes, double[] confidences)
+    {
+        ParallelClassification.classifyData(testData, 
+                new ParallelClassification.InstanceClassifier()
+                {
+                    @Override
+                    public Pair<Integer, Double> classifyInstance(Instance instance)
+                    {
+                        return NaiveBayesClassifier.this.classifyInstance(instance);
+                    }
+                }, 
+                ForkJoinPool.commonPool(), 
+                classes, 
+                confidences);
     }
 
     /**
@@ -269,13 +322,19 @@ public class NaiveBayesClassifier implements Classifier
                 // Get current Node attribute and the instances value for this
                 // node's attribute
                 Attribute nodeAttr = node.getAttribute();
-                Integer instValue = 
-                        instance.getAttributeValue(nodeAttr).intValue();
+                Double instValue = instance.getAttributeValue(nodeAttr);
+                
+                // A missing value is marginalized out, which leaves this 
+                // factor out of the product
+                if (instValue == null || isAnyParentMissing(node, instance))
+                {
+                    continue;
+                }
 
                 // Create a new query with this node's attribute and the 
                 // instant's value for that attribute
                 query = new CPDQuery();
-                query.addQueryItem(nodeAttr, instValue);
+                query.addQueryItem(nodeAttr, instValue.intValue());
 
                 // Iterate over this node's parents in order to build the query 
                 // for P( A | B_1 ... B_n)
@@ -302,6 +361,25 @@ public class NaiveBayesClassifier implements Classifier
         return result;	
     }
 
+    /**
+     * @param node a node of the network
+     * @param instance an instance
+     * @return true if the instance is missing the value of any parent of the
+     * node other than the class node
+     */
+    private boolean isAnyParentMissing(BNNode node, Instance instance)
+    {
+        for (BNNode parent : node.getParents())
+        {
+            if (!parent.equals(classNode) && 
+                    instance.getAttributeValue(parent.getAttribute()) == null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * A helper method for checking that a given nominal value ID is a valid 
      * nominal value ID for the class Attribute
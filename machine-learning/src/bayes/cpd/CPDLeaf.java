@@ -57,7 +57,7 @@ public class CPDLeaf extends CPDNode
         /*
          *  Get the query value for this node's attribute
          */
-        Integer queryValue = query.getValueForQueryAttribute(this.attribute);
+        int queryValue = query.getValue(this.attribute);
 
         /*
          *  Return this leaf's probability if no specific value for this 
@@ -65,7 +65,7 @@ public class CPDLeaf extends CPDNode
          *  matches this CPDNode's attribute in the query.  Otherwise, we
          *  return null.
          */
-        if (queryValue == null || queryValue == this.nodeValue)
+        if (queryValue < 0 || queryValue == this.nodeValue)
         {
             return this.probability;
         }
@@ -135,12 +135,12 @@ public class CPDNode
         /*
          *  Get the query value for this node's attribute
          */
-        Integer queryValue = query.getValueForQueryAttribute(this.attribute);
+        int queryValue = query.getValue(this.attribute);
 
         /*
          *  Determine whether to sum over children or to return zero
          */
-        if (queryValue == null || queryValue == this.nodeValue)
+        if (queryValue < 0 || queryValue == this.nodeValue)
         {
             for (CPDNode child : this.children.values())
             {
@@ -1,8 +1,10 @@
 package bayes.cpd;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import data.Attribute;
 
@@ -16,16 +18,43 @@ import data.Attribute;
 public class CPDQuery 
 {
     /**
-     * Maps an attribute to the value of this attribute specified in the query
+     * The initial length of the arrays indexed by attribute ordinal
      */
-    private Map<Attribute, Integer> queryItems;
+    private static final int INITIAL_ORDINALS = 8;
+    
+    /**
+     * The attributes specified in this query in the order they were added
+     */
+    private List<Attribute> queryAttributes;
+    
+    /**
+     * The attribute specified in the query indexed by its ordinal, or null
+     * for ordinals of attributes not in the query
+     */
+    private Attribute[] ordinalAttributes;
+    
+    /**
+     * The value specified in the query of each attribute in 
+     * {@code ordinalAttributes}, indexed by the attribute's ordinal
+     */
+    private int[] ordinalValues;
+    
+    /**
+     * The values specified in the query of attributes that cannot be stored
+     * by ordinal, because they have no ordinal or because their ordinal's 
+     * slot holds a different attribute.  This is null until the first such
+     * attribute is added.
+     */
+    private Map<Attribute, Integer> otherValues;
         
     /**
      * Constructor
      */
     public CPDQuery()
     {
-        this.queryItems = new HashMap<Attribute, Integer>();
+        this.queryAttributes = new ArrayList<Attribute>();
+        this.ordinalAttributes = new Attribute[INITIAL_ORDINALS];
+        this.ordinalValues = new int[INITIAL_ORDINALS];
     }
 
     /**
@@ -36,16 +65,41 @@ public class CPDQuery
      */
     public void addQueryItem(Attribute attr, Integer nomValueId)
     {	
-        if (attr.isValidNominalValueId(nomValueId))
-        {
-            queryItems.put(attr, nomValueId);
-        }
-        else
+        if (!attr.isValidNominalValueId(nomValueId))
         {
             throw new RuntimeException(nomValueId + " is not a valid nominal" +
                                         " value ID for the attribute " + 
                                         attr.getName());
         }
+        
+        /*
+         *  An attribute already in the query has its value replaced
+         */
+        Attribute existing = find(attr);
+        if (existing != null)
+        {
+            setValue(existing, nomValueId);
+            return;
+        }
+        queryAttributes.add(attr);
+        
+        int ordinal = attr.getOrdinal();
+        if (ordinal >= ordinalAttributes.length)
+        {
+            int length = Math.max(ordinal + 1, 2 * ordinalAttributes.length);
+            ordinalAttributes = Arrays.copyOf(ordinalAttributes, length);
+            ordinalValues = Arrays.copyOf(ordinalValues, length);
+        }
+        
+        if (ordinal >= 0 && ordinalAttributes[ordinal] == null)
+        {
+            ordinalAttributes[ordinal] = attr;
+        }
+        else if (otherValues == null)
+        {
+            otherValues = new HashMap<Attribute, Integer>();
+        }
+        setValue(attr, nomValueId);
     }
 
     /**
@@ -58,7 +112,7 @@ public class CPDQuery
      */
     public Boolean containsAttribute(Attribute attr)
     {
-        return queryItems.keySet().contains(attr);
+        return getValue(attr) >= 0;
     }
 
     /**
@@ -71,7 +125,89 @@ public class CPDQuery
      */
     public Integer getValueForQueryAttribute(Attribute attr)
     {
-        return queryItems.get(attr);
+        int value = getValue(attr);
+        return value < 0 ? null : value;
+    }
+    
+    /**
+     * Gets the value for a specific query attribute without boxing.
+     * 
+     * @param attr the target Attribute or null
+     * @return the value of target Attribute specified in this query or -1 if
+     * this Attribute is null or is not specified in this query
+     */
+    public int getValue(Attribute attr)
+    {
+        if (attr == null)
+        {
+            return -1;
+        }
+        
+        int ordinal = attr.getOrdinal();
+        if (ordinal >= 0 && ordinal < ordinalAttributes.length
+                && ordinalAttributes[ordinal] != null 
+                && ordinalAttributes[ordinal].equals(attr))
+        {
+            return ordinalValues[ordinal];
+        }
+        
+        Attribute existing = find(attr);
+        return existing == null ? -1 : getStoredValue(existing);
+    }
+    
+    /**
+     * Find the attribute of this query equal to an attribute
+     * 
+     * @param attr the target Attribute
+     * @return the attribute of this query equal to the target Attribute or 
+     * null if the query does not specify it
+     */
+    private Attribute find(Attribute attr)
+    {
+        for (Attribute queryAttr : queryAttributes)
+        {
+            if (queryAttr.equals(attr))
+            {
+                return queryAttr;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * @param queryAttr an attribute of this query
+     * @return the value specified for the attribute
+     */
+    private int getStoredValue(Attribute queryAttr)
+    {
+        int ordinal = queryAttr.getOrdinal();
+        if (ordinal >= 0 && ordinal < ordinalAttributes.length 
+                && ordinalAttributes[ordinal] == queryAttr)
+        {
+            return ordinalValues[ordinal];
+        }
+        return otherValues.get(queryAttr);
+    }
+    
+    /**
+     * Set the value of an attribute of this query in the slot of its ordinal
+     * or, if the slot holds a different attribute, in the map
+     * 
+     * @param queryAttr an attribute of this query
+     * @param nomValueId the value specified for the attribute
+     */
+    private void setValue(Attribute queryAttr, int nomValueId)
+    {
+        int ordinal = queryAttr.getOrdinal();
+        if (ordinal >= 0 && ordinal < ordinalAttributes.length 
+                && ordinalAttributes[ordinal] == queryAttr)
+        {
+            ordinalValues[ordinal] = nomValueId;
+        }
+        else
+        {
+            otherValues.put(queryAttr, nomValueId);
+        }
     }
     
     @Override
@@ -79,10 +215,9 @@ public class CPDQuery
     {
         String result = "CPD(";
 
-        for (Entry<Attribute, Integer> entry : queryItems.entrySet())
+        for (Attribute attr : queryAttributes)
         {
-            Attribute attr = entry.getKey();
-            Integer attrValue = entry.getValue();
+            int attrValue = getStoredValue(attr);
             result += attr.getName() + " = " 
                     + attr.getNominalValueName(attrValue) + ", ";
         }
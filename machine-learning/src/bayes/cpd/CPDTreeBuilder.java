@@ -5,6 +5,7 @@ import java.util.ArrayList;
 
 import data.Attribute;
 import data.DataSet;
+import data.count.ContingencyTable;
 
 /**
  * Used for creating a new {@code CPDTree} object
@@ -26,6 +27,22 @@ public class CPDTreeBuilder
     public CPDTree buildCPDTree(DataSet data, 
                                 ArrayList<Attribute> cpdAttrs,
                                 Integer laplaceCount)
+    {
+        return buildCPDTree(data.getCounts().getContingencyTable(cpdAttrs), laplaceCount);
+    }
+
+    /**
+     * Build a CPD tree from the joint counts of its attributes.  The tree 
+     * splits on the attributes in the order of the table's attributes. 
+     * 
+     * @param counts the joint counts of the attributes in the CPD tree.  The
+     * last attribute of the table is the attribute whose distribution is
+     * given at the leaves.
+     * @param laplaceCount the Laplace count used when calculating each 
+     * probability
+     * @return the constructed CPD tree
+     */
+    public CPDTree buildCPDTree(ContingencyTable counts, Integer laplaceCount)
     {
         /*
          *  Create tree
@@ -35,15 +52,14 @@ public class CPDTreeBuilder
         /*
          *  Set total instances
          */
-        CPDTree.totalInstances = data.getInstanceSet().getInstances().size();
+        CPDTree.totalInstances = counts.getTotal();
 
         /*
          * Build the tree
          */
-        tree.root = makeSubTree(data,
-                                null,
-                                null,
-                                cpdAttrs,
+        tree.root = makeSubTree(counts,
+                                -1,
+                                0,
                                 laplaceCount);
 
         return tree;
@@ -53,123 +69,66 @@ public class CPDTreeBuilder
      * A recursive method that returns a subtree of the CPD 
      * tree rooted at a specific attribute.  
      * 
-     * @param data - a data set of training instances that will be used to
-     * 	construct the subtree
+     * @param counts the joint counts of the attributes in the CPD tree
      * 
-     * @param attribute - the attribute that the root node should test
-     * 	 
-     * @param relation - how an instances attribute is compared to the root 
-     *  node's value.  See {@DtNode} for valid relations 
+     * @param depth the position in the table of the attribute that the root
+     * node tests or -1 for the root of the tree
      * 
-     * @param availAttributes - a list of available attributes that are 
-     * 	available to split the training instances
+     * @param firstCell the index of the first cell of the table consistent
+     * with the values tested on the path to this node
      * 
      * @return the root of the subtree
      */
-    private CPDNode makeSubTree(DataSet data,
-                                Attribute attribute,
-                                Integer value,
-                                ArrayList<Attribute> availAttributes,
+    private CPDNode makeSubTree(ContingencyTable counts,
+                                int depth,
+                                int firstCell,
                                 Integer laplaceCount)
     {
-        CPDNode newNode = null;
+        int numAttributes = counts.getAttributes().size();
 
         /*
-         *  Check for stopping criteria
+         *  The cells consistent with this node form a contiguous range
          */
-        boolean stoppingCriteria = checkStoppingCriteria(data,  
-                availAttributes
-                );
+        int numCells = depth < 0 ? counts.getNumCells() : counts.getStride(depth);
+        int numInstances = 0;
+        for (int cell = firstCell; cell < firstCell + numCells; cell++)
+        {
+            numInstances += counts.getCount(cell);
+        }
 
+        Attribute attribute = depth < 0 ? null : counts.getAttributes().get(depth);
+        Integer value = depth < 0 ? null : (firstCell / counts.getStride(depth)) % counts.getNumValues(depth);
 
         /*
-         *  If the stopping criteria is met, create a leaf node with a 
-         *	probability of the condition being met
+         *  If there are no more attributes to split on, create a leaf node 
+         *  with a probability of the condition being met
          */
-        int numInstances = data.getInstanceSet().getInstances().size();
-        if (stoppingCriteria)
-        {
-            CPDLeaf leaf = new CPDLeaf(attribute, 
-                                       value, 
-                                       numInstances,
-                                       laplaceCount);
-            newNode = leaf;
-        }
-        else
+        if (depth == numAttributes - 1)
         {
-            newNode = new CPDNode(attribute, value, numInstances);
-
-            /*
-             *  Create the split on the current attribute
-             */
-            Split split = Split.createSplitNominal(availAttributes.get(0),
-                                                   data);
-
-            /*
-             *  For each branch of the best split, create a new node that 
-             *	roots a subtree
-             */
-            for (SplitBranch branch : split.getSplitBranches())
-            {	
-                /*
-                 * Create a subset of the data with only the instances that
-                 * have filtered down to this node
-                 */
-                DataSet subsetData = new DataSet(data.getAttributeSet(), branch.getInstanceSet());
-
-                /*
-                 *  Remove the attribute we just split on
-                 */
-                availAttributes.remove(split.getAttribute());
-                
-                /*
-                 *  Make the recursive call to make a subtree at each child node
-                 */
-                CPDNode child = makeSubTree(subsetData,
-                                            split.getAttribute(),
-                                            branch.getValue().intValue(),
-                                            availAttributes,
-                                            laplaceCount);
-
-                child.setParent(newNode);
-                newNode.addChild(child);
-            }
+            return new CPDLeaf(attribute, 
+                               value, 
+                               numInstances,
+                               laplaceCount);
         }
 
-        return newNode;
-    }
+        CPDNode newNode = new CPDNode(attribute, value, numInstances);
 
-    /**
-     * Check for the tree stopping criteria given a data set of instances.
-     * The stopping criteria is achieved if one of the following holds true:
-     * 
-     * 1. There are no more available attributes to split on
-     * 2. The number of instances at the node is zero
-     * 
-     * @param data	- a data set that holds a subset of the training set
-     * @param minInstances - if the number of instances in the data set at the 
-     * current node is
-     * less than or equal to the this argument, than the stopping criteria has 
-     * been reached
-     * @return true if the stopping criteria has been met, false otherwise
-     */
-    private Boolean checkStoppingCriteria(DataSet data, 
-            ArrayList<Attribute> availableAttributes
-            )
-    {
         /*
-         * Check that we still have available attributes 
-         * to split on	
+         *  For each value of the next attribute, create a new node that 
+         *  roots a subtree
          */
-        if (availableAttributes.size() < 1)
+        int childDepth = depth + 1;
+        for (int childValue = 0; childValue < counts.getNumValues(childDepth); childValue++)
         {
-            return true;
+            CPDNode child = makeSubTree(counts,
+                                        childDepth,
+                                        firstCell + childValue * counts.getStride(childDepth),
+                                        laplaceCount);
+
+            child.setParent(newNode);
+            newNode.addChild(child);
         }
 
-        /*
-         *  If none of the conditions are met, we have not met the stopping 
-         *	criteria
-         */
-        return false;
+        return newNode;
     }
 }
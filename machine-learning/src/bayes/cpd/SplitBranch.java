@@ -93,7 +93,8 @@ public class SplitBranch
         Double instanceAttrValue = 
                 instance.getAttributeValue(this.attribute);
 
-        return (instanceAttrValue.doubleValue() == branchValue.doubleValue());
+        return instanceAttrValue != null && 
+                instanceAttrValue.doubleValue() == branchValue.doubleValue();
     }
 
 }
@@ -0,0 +1,256 @@
+package bayes.inference;
+
+import java.util.Arrays;
+
+/**
+ * A table of non-negative values over the joint assignments of a set of 
+ * discrete variables.  Variables are identified by integer indices.  The 
+ * values are stored in a single array indexed in mixed radix, with the 
+ * first variable being the most significant digit.
+ *
+ */
+public class Factor
+{
+    /**
+     * The variables of the factor
+     */
+    private final int[] variables;
+
+    /**
+     * The number of values of each variable
+     */
+    private final int[] cardinalities;
+
+    /**
+     * The step in the value array between consecutive values of each 
+     * variable
+     */
+    private final int[] strides;
+
+    /**
+     * The value of each joint assignment
+     */
+    private final double[] values;
+
+    /**
+     * Constructor
+     *
+     * @param variables the variables of the factor
+     * @param cardinalities the number of values of each variable
+     * @param values the value of each joint assignment, indexed in mixed 
+     * radix with the first variable being the most significant digit
+     */
+    public Factor(int[] variables, int[] cardinalities, double[] values)
+    {
+        this.variables = variables;
+        this.cardinalities = cardinalities;
+        this.strides = new int[variables.length];
+
+        int size = 1;
+        for (int i = variables.length - 1; i >= 0; i--)
+        {
+            strides[i] = size;
+            size *= cardinalities[i];
+        }
+
+        if (values.length != size)
+        {
+            throw new RuntimeException("Error creating factor. Expected " +
+                    size + " values but found " + values.length + ".");
+        }
+        this.values = values;
+    }
+
+    /**
+     * @return the variables of the factor
+     */
+    public int[] getVariables()
+    {
+        return variables;
+    }
+
+    /**
+     * @return the value of each joint assignment
+     */
+    public double[] getValues()
+    {
+        return values;
+    }
+
+    /**
+     * @param variable a variable
+     * @return the position of the variable in this factor, or -1 if the
+     * factor is not over the variable
+     */
+    public int indexOf(int variable)
+    {
+        for (int i = 0; i < variables.length; i++)
+        {
+            if (variables[i] == variable)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Multiply this factor by another.  The product is over the variables of
+     * this factor followed by the variables of the other factor that are not
+     * in this one.
+     *
+     * @param other the other factor
+     * @return the product
+     */
+    public Factor multiply(Factor other)
+    {
+        /*
+         *  Scope of the product
+         */
+        int[] productVariables = Arrays.copyOf(variables, variables.length + other.variables.length);
+        int[] productCardinalities = Arrays.copyOf(cardinalities, productVariables.length);
+        int numVariables = variables.length;
+        for (int i = 0; i < other.variables.length; i++)
+        {
+            if (indexOf(other.variables[i]) < 0)
+            {
+                productVariables[numVariables] = other.variables[i];
+                productCardinalities[numVariables] = other.cardinalities[i];
+                numVariables++;
+            }
+        }
+        productVariables = Arrays.copyOf(productVariables, numVariables);
+        productCardinalities = Arrays.copyOf(productCardinalities, numVariables);
+
+        /*
+         *  The stride of each product variable in each factor, or 0 if the
+         *  factor is not over the variable
+         */
+        int[] thisStrides = new int[numVariables];
+        int[] otherStrides = new int[numVariables];
+        int size = 1;
+        for (int i = 0; i < numVariables; i++)
+        {
+            int thisIndex = indexOf(productVariables[i]);
+            int otherIndex = other.indexOf(productVariables[i]);
+            thisStrides[i] = thisIndex < 0 ? 0 : strides[thisIndex];
+            otherStrides[i] = otherIndex < 0 ? 0 : other.strides[otherIndex];
+            size *= productCardinalities[i];
+        }
+
+        /*
+         *  Step through the product's assignments in index order, tracking 
+         *  the matching entry of each factor
+         */
+        double[] productValues = new double[size];
+        int[] assignment = new int[numVariables];
+        int thisEntry = 0;
+        int otherEntry = 0;
+        for (int entry = 0; entry < size; entry++)
+        {
+            productValues[entry] = values[thisEntry] * other.values[otherEntry];
+
+            for (int i = numVariables - 1; i >= 0; i--)
+            {
+                assignment[i]++;
+                thisEntry += thisStrides[i];
+                otherEntry += otherStrides[i];
+                if (assignment[i] < productCardinalities[i])
+                {
+                    break;
+                }
+                assignment[i] = 0;
+                thisEntry -= productCardinalities[i] * thisStrides[i];
+                otherEntry -= productCardinalities[i] * otherStrides[i];
+            }
+        }
+
+        return new Factor(productVariables, productCardinalities, productValues);
+    }
+
+    /**
+     * Sum a variable out of this factor
+     *
+     * @param variable a variable of this factor
+     * @return the factor over the remaining variables
+     */
+    public Factor sumOut(int variable)
+    {
+        return project(variable, -1);
+    }
+
+    /**
+     * Reduce this factor to the assignments in which a variable takes a 
+     * given value
+     *
+     * @param variable a variable of this factor
+     * @param value the value of the variable
+     * @return the factor over the remaining variables
+     */
+    public Factor reduce(int variable, int value)
+    {
+        return project(variable, value);
+    }
+
+    /**
+     * @return the sum of the values of this factor
+     */
+    public double sum()
+    {
+        double total = 0.0;
+        for (double value : values)
+        {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Remove a variable from this factor by summing over its values or by
+     * keeping only one of its values
+     *
+     * @param variable a variable of this factor
+     * @param value the value to keep, or -1 to sum over every value
+     * @return the factor over the remaining variables
+     */
+    private Factor project(int variable, int value)
+    {
+        int position = indexOf(variable);
+        if (position < 0)
+        {
+            throw new RuntimeException("Error eliminating variable " + variable +
+                    ". The factor is not over the variable.");
+        }
+
+        int[] remainingVariables = new int[variables.length - 1];
+        int[] remainingCardinalities = new int[variables.length - 1];
+        for (int i = 0, j = 0; i < variables.length; i++)
+        {
+            if (i != position)
+            {
+                remainingVariables[j] = variables[i];
+                remainingCardinalities[j] = cardinalities[i];
+                j++;
+            }
+        }
+
+        /*
+         *  An entry i = (high * card + v) * stride + low maps to the entry 
+         *  high * stride + low of the remaining variables
+         */
+        int stride = strides[position];
+        int card = cardinalities[position];
+        double[] remainingValues = new double[values.length / card];
+        for (int entry = 0; entry < values.length; entry++)
+        {
+            if (value >= 0 && (entry / stride) % card != value)
+            {
+                continue;
+            }
+            int remaining = (entry / (stride * card)) * stride + entry % stride;
+            remainingValues[remaining] += values[entry];
+        }
+
+        return new Factor(remainingVariables, remainingCardinalities, remainingValues);
+    }
+}
@@ -0,0 +1,335 @@
+package bayes.inference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import pair.Pair;
+import data.Attribute;
+import bayes.BNConditionalQuery;
+import bayes.BNJointQuery;
+import bayes.BNNode;
+import bayes.BayesianNetwork;
+import bayes.cpd.CPDQuery;
+
+/**
+ * Answers probability queries on a Bayesian network by variable 
+ * elimination.  Only the nodes of the query and their ancestors are 
+ * relevant to a query; every other node sums out to one.  The CPD of each 
+ * relevant node becomes a factor, the factors are reduced by the query's 
+ * values, and the remaining hidden variables are summed out one at a time 
+ * in a greedy min-fill order, with ties broken by min-degree.
+ * <br>
+ * <br>
+ * A conditional query P(A = a | E = e) is answered from a single 
+ * elimination that keeps A: the numerator is the entry of the resulting 
+ * factor for A = a and the denominator is the sum of its entries.
+ *
+ */
+public class VariableElimination
+{
+    /**
+     * The network being queried
+     */
+    private final BayesianNetwork net;
+
+    /**
+     * Constructor
+     *
+     * @param net the network being queried
+     */
+    public VariableElimination(BayesianNetwork net)
+    {
+        this.net = net;
+    }
+
+    /**
+     * Calculate a probability of the form P(A = a, E = e, D = d)
+     *
+     * @param query the joint probability query
+     * @return the probability
+     */
+    public Double queryJointProbability(BNJointQuery query)
+    {
+        return eliminate(query.getVariables(), null).sum();
+    }
+
+    /**
+     * Calculate a probability of the form P(A = a | E = e, D = d)
+     *
+     * @param query the conditional probability query
+     * @return the probability
+     */
+    public Double queryConditionalProbability(BNConditionalQuery query)
+    {
+        Pair<Attribute, Integer> target = query.getTargetVariable();
+        Factor targetFactor = eliminate(query.getConditionVariableList(), target.getFirst());
+
+        double numerator = targetFactor.getValues()[target.getSecond()];
+        double denominator = targetFactor.sum();
+        return numerator / denominator;
+    }
+
+    /**
+     * Eliminate every variable relevant to a query except the evidence 
+     * variables and a kept variable
+     *
+     * @param evidence the attribute/value pairs whose values are fixed
+     * @param keep the attribute of a variable that is not eliminated, or 
+     * null to eliminate every variable without evidence
+     * @return the factor over the kept variable, or a factor over no 
+     * variables holding the probability of the evidence
+     */
+    private Factor eliminate(List<Pair<Attribute, Integer>> evidence, Attribute keep)
+    {
+        /*
+         *  The relevant nodes are the query's nodes and their ancestors
+         */
+        Set<BNNode> relevant = new HashSet<BNNode>();
+        for (Pair<Attribute, Integer> variable : evidence)
+        {
+            relevant.addAll(net.getNodesAbove(net.getNode(variable.getFirst())));
+        }
+        if (keep != null)
+        {
+            relevant.addAll(net.getNodesAbove(net.getNode(keep)));
+        }
+
+        /*
+         *  Number the relevant nodes in topological order
+         */
+        List<BNNode> nodes = new ArrayList<BNNode>();
+        Map<BNNode, Integer> indices = new HashMap<BNNode, Integer>();
+        for (BNNode node : net.getNodes())
+        {
+            if (relevant.contains(node))
+            {
+                indices.put(node, nodes.size());
+                nodes.add(node);
+            }
+        }
+
+        /*
+         *  Build and reduce the factor of each relevant node
+         */
+        int[] evidenceValues = new int[nodes.size()];
+        for (int i = 0; i < evidenceValues.length; i++)
+        {
+            evidenceValues[i] = -1;
+        }
+        for (Pair<Attribute, Integer> variable : evidence)
+        {
+            evidenceValues[indices.get(net.getNode(variable.getFirst()))] = variable.getSecond();
+        }
+
+        List<Factor> factors = new ArrayList<Factor>();
+        for (BNNode node : nodes)
+        {
+            Factor factor = createFactor(node, indices);
+            for (int variable : factor.getVariables())
+            {
+                if (evidenceValues[variable] >= 0)
+                {
+                    factor = factor.reduce(variable, evidenceValues[variable]);
+                }
+            }
+            factors.add(factor);
+        }
+
+        /*
+         *  Sum out each hidden variable
+         */
+        int keepIndex = keep == null ? -1 : indices.get(net.getNode(keep));
+        boolean[] hidden = new boolean[nodes.size()];
+        for (int i = 0; i < hidden.length; i++)
+        {
+            hidden[i] = evidenceValues[i] < 0 && i != keepIndex;
+        }
+
+        for (int variable : getEliminationOrder(factors, hidden))
+        {
+            Factor product = null;
+            List<Factor> remaining = new ArrayList<Factor>();
+            for (Factor factor : factors)
+            {
+                if (factor.indexOf(variable) >= 0)
+                {
+                    product = product == null ? factor : product.multiply(factor);
+                }
+                else
+                {
+                    remaining.add(factor);
+                }
+            }
+            if (product != null)
+            {
+                remaining.add(product.sumOut(variable));
+            }
+            factors = remaining;
+        }
+
+        /*
+         *  Multiply what is left into a factor over the kept variable
+         */
+        Factor result = new Factor(new int[0], new int[0], new double[] {1.0});
+        for (Factor factor : factors)
+        {
+            result = result.multiply(factor);
+        }
+        return result;
+    }
+
+    /**
+     * Create the factor of a node's CPD, over the node's parents followed by
+     * the node
+     *
+     * @param node the node
+     * @param indices the variable index of each relevant node
+     * @return the factor
+     */
+    private Factor createFactor(BNNode node, Map<BNNode, Integer> indices)
+    {
+        List<BNNode> family = new ArrayList<BNNode>(node.getParents());
+        family.add(node);
+
+        int[] variables = new int[family.size()];
+        int[] cardinalities = new int[family.size()];
+        int size = 1;
+        for (int i = 0; i < family.size(); i++)
+        {
+            variables[i] = indices.get(family.get(i));
+            cardinalities[i] = family.get(i).getNumNominalValues();
+            size *= cardinalities[i];
+        }
+
+        double[] values = new double[size];
+        int[] assignment = new int[family.size()];
+        for (int entry = 0; entry < size; entry++)
+        {
+            CPDQuery query = new CPDQuery();
+            for (int i = 0; i < family.size(); i++)
+            {
+                query.addQueryItem(family.get(i).getAttribute(), assignment[i]);
+            }
+            values[entry] = node.query(query);
+
+            for (int i = family.size() - 1; i >= 0; i--)
+            {
+                if (++assignment[i] < cardinalities[i])
+                {
+                    break;
+                }
+                assignment[i] = 0;
+            }
+        }
+
+        return new Factor(variables, cardinalities, values);
+    }
+
+    /**
+     * Order the hidden variables for elimination.  Each step picks the 
+     * variable whose elimination adds the fewest edges to the interaction 
+     * graph of the factors, breaking ties by the fewest neighbors and then 
+     * by the lowest index.
+     *
+     * @param factors the factors
+     * @param hidden whether each variable is to be eliminated
+     * @return the elimination order
+     */
+    private static List<Integer> getEliminationOrder(List<Factor> factors, boolean[] hidden)
+    {
+        int numVariables = hidden.length;
+
+        /*
+         *  Variables are neighbors if they share a factor
+         */
+        boolean[][] adjacent = new boolean[numVariables][numVariables];
+        for (Factor factor : factors)
+        {
+            for (int v1 : factor.getVariables())
+            {
+                for (int v2 : factor.getVariables())
+                {
+                    if (v1 != v2)
+                    {
+                        adjacent[v1][v2] = true;
+                    }
+                }
+            }
+        }
+
+        boolean[] pending = hidden.clone();
+        boolean[] eliminated = new boolean[numVariables];
+        List<Integer> order = new ArrayList<Integer>();
+        while (true)
+        {
+            int best = -1;
+            int bestFill = 0;
+            int bestDegree = 0;
+            List<Integer> bestNeighbors = null;
+
+            for (int v = 0; v < numVariables; v++)
+            {
+                if (!pending[v])
+                {
+                    continue;
+                }
+
+                List<Integer> neighbors = new ArrayList<Integer>();
+                for (int u = 0; u < numVariables; u++)
+                {
+                    if (adjacent[v][u] && !eliminated[u])
+                    {
+                        neighbors.add(u);
+                    }
+                }
+
+                int fill = 0;
+                for (int i = 0; i < neighbors.size(); i++)
+                {
+                    for (int j = i + 1; j < neighbors.size(); j++)
+                    {
+                        if (!adjacent[neighbors.get(i)][neighbors.get(j)])
+                        {
+                            fill++;
+                        }
+                    }
+                }
+
+                if (best < 0 || fill < bestFill 
+                        || (fill == bestFill && neighbors.size() < bestDegree))
+                {
+                    best = v;
+                    bestFill = fill;
+                    bestDegree = neighbors.size();
+                    bestNeighbors = neighbors;
+                }
+            }
+
+            if (best < 0)
+            {
+                return order;
+            }
+
+            /*
+             *  Eliminating the variable connects all of its neighbors
+             */
+            for (int u1 : bestNeighbors)
+            {
+                for (int u2 : bestNeighbors)
+                {
+                    if (u1 != u2)
+                    {
+                        adjacent[u1][u2] = true;
+                    }
+                }
+            }
+            pending[best] = false;
+            eliminated[best] = true;
+            order.add(best);
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package bayes.information;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 import data.Attribute;
 import data.DataSet;
-import data.Instance;
+import data.count.ContingencyTable;
 
 /**
  * This class is used to calculate the Kullback-Leibler Divergence 
@@ -39,6 +39,8 @@ public class KLDivergence {
 	private static double[] pProbabilities = null;
 	private static double[] qProbabilities = null;
 	private static int[] offsets = null;
+	private static ContingencyTable pCounts = null;
+	private static ContingencyTable qCounts = null;
 	private static Attribute[] conditions = new Attribute[2];
 	
 	/**
@@ -54,6 +56,7 @@ public class KLDivergence {
 		setConditions(a,b);
 		resetProbabilities(dataP, dataQ);
 		resetOffsets();
+		countAttributeValues(dataP, dataQ);
 		setEpsilonValues(dataP, dataQ);
 		calculateAttributeValueProbabilities(dataP, dataQ);
 		
@@ -117,28 +120,26 @@ public class KLDivergence {
 		}
 	}
 	
+	/*
+	 * Reads the joint counts of the conditions from the AD-tree of each
+	 * data set.  The last condition is the most significant attribute of
+	 * the tables so that their cell indices match the offset table.
+	 */
+	private static void countAttributeValues(DataSet dataP, DataSet dataQ) {
+		List<Attribute> attrs = Arrays.asList(conditions[1], conditions[0]);
+		pCounts = dataP.getCounts().getContingencyTable(attrs);
+		qCounts = dataQ.getCounts().getContingencyTable(attrs);
+	}
+	
 	private static void calculateAttributeValueProbabilities(DataSet dataP,
 			DataSet dataQ) {
 				
-		//iterate through instances and update count of relevant entry in
-		//the probability table
-		for(Instance inst: dataP.getInstanceSet().getInstances()){
-			int[] indices = convertInstanceToIndices(inst);
-			pProbabilities[convertIndicesToIndex(indices)]++;
-		}
-		
-		for(Instance inst: dataQ.getInstanceSet().getInstances()){
-			int[] indices = convertInstanceToIndices(inst);
-			qProbabilities[convertIndicesToIndex(indices)]++;
-		}
-		
-		
 		//divide each count by num instances to get probability
-		int numPInstances = dataP.getInstanceSet().getInstances().size();
-		int numQInstances = dataQ.getInstanceSet().getInstances().size();;
+		int numPInstances = dataP.getInstanceSet().size();
+		int numQInstances = dataQ.getInstanceSet().size();
 		for(int i = 0; i < pProbabilities.length; i++){
-			pProbabilities[i] /= numPInstances;
-			qProbabilities[i] /= numQInstances;
+			pProbabilities[i] = (double) pCounts.getCount(i) / numPInstances;
+			qProbabilities[i] = (double) qCounts.getCount(i) / numQInstances;
 		}
 		
 		if(verbose > 1){
@@ -148,14 +149,6 @@ public class KLDivergence {
 		}
 	}
 
-	private static int[] convertInstanceToIndices(Instance inst) {
-		int[] indices = new int[conditions.length];
-		for(int i = 0; i < indices.length; i++){
-			indices[i] = inst.getAttributeValue(conditions[i]).intValue();
-		}
-		return indices;
-	}
-
 	/**
 	 * Sets pValue and qValue. Used to prevent probabilities of zero,
 	 * which would cause infinite divergence.
@@ -165,35 +158,31 @@ public class KLDivergence {
 	 * @param dataQ
 	 */
 	private static void setEpsilonValues(DataSet dataP, DataSet dataQ){
-		ArrayList<Instance> union = new ArrayList<Instance>();
-		ArrayList<Instance> uniqueP = new ArrayList<Instance>();
-		ArrayList<Instance> uniqueQ = new ArrayList<Instance>();
+		int union = 0;
+		int uniqueP = 0;
+		int uniqueQ = 0;
 		
-		for(Instance inst: dataP.getInstanceSet().getInstances()){
-			//If not yet seen, can add to both lists.
-			if(!contains(uniqueP, inst)){
-				uniqueP.add(inst);
-				union.add(inst);
+		//Each nonzero cell is a distinct combination of attribute values
+		for(int i = 0; i < pCounts.getNumCells(); i++){
+			boolean inP = pCounts.getCount(i) > 0;
+			boolean inQ = qCounts.getCount(i) > 0;
+			if(inP){
+				uniqueP++;
+			}
+			if(inQ){
+				uniqueQ++;
+			}
+			if(inP || inQ){
+				union++;
 			}
 		}
-		
-		for(Instance inst: dataQ.getInstanceSet().getInstances()){
-			//If not yet seen in uniqueQ, may still be in union
-			if(!contains(uniqueQ,inst)){
-				uniqueQ.add(inst);
-				
-				if(!contains(union, inst)){
-					union.add(inst);
-				}
-			} 
-		}
-		pValue = EPSILON * (union.size() - uniqueP.size()) / uniqueP.size();
-		qValue = EPSILON * (union.size() - uniqueQ.size()) / uniqueQ.size();
+		pValue = EPSILON * (union - uniqueP) / uniqueP;
+		qValue = EPSILON * (union - uniqueQ) / uniqueQ;
 		
 		if(verbose > 0){
-			System.out.println("Union: " + union.size() + 
-							   "\tP: " + uniqueP.size() + 
-							   "\tQ: " + uniqueQ.size());	
+			System.out.println("Union: " + union + 
+							   "\tP: " + uniqueP + 
+							   "\tQ: " + uniqueQ);	
 			System.out.println("pValue: " + pValue + "\tqValue: " + qValue);
 		}
 	}
@@ -219,25 +208,4 @@ public class KLDivergence {
 		}
 		return hasMoreCombinations;
 	}
-	
-	private static boolean contains(ArrayList<Instance> list, Instance inst){
-		for(Instance currInstance: list){
-			if(instancesAreEqual(currInstance, inst)){
-				return true;
-			}
-		}
-		return false;
-	}
-	
-	/*
-	 * Checks if a and b are equals for the relevant attributes
-	 */
-	private static boolean instancesAreEqual(Instance a, Instance b){
-		for(Attribute attr: conditions){
-			if(!a.getAttributeValue(attr).equals(b.getAttributeValue(attr))){
-				return false;
-			}
-		}
-		return true;
-	}
 }
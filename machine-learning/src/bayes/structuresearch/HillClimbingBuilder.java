@@ -2,11 +2,15 @@ package bayes.structuresearch;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import data.DataSet;
 import pair.Pair;
 import bayes.BNNode;
 import bayes.BayesianNetwork;
+import bayes.structuresearch.score.DecomposableScoringFunction;
+import bayes.structuresearch.score.FamilyScoreCache;
 import bayes.structuresearch.score.ScoringFunction;
 
 /**
@@ -44,6 +48,28 @@ public class HillClimbingBuilder extends NetworkBuilder
      */
     protected ScoringFunction scoringFunction = null;
     
+    /**
+     * The cached family scores of a decomposable scoring function, or null 
+     * if the scoring function is not decomposable
+     */
+    protected FamilyScoreCache familyScores = null;
+    
+    /**
+     * The pool scoring operations in parallel, or null to score serially
+     */
+    private ForkJoinPool pool = null;
+    
+    /**
+     * Ranges of at most this many operations are scored by a single task
+     */
+    private int minTaskOperations = 1;
+    
+    /**
+     * The score of the current network as the sum of its family scores, or
+     * null if the network has changed since it was last summed
+     */
+    private Double netFamilyScore = null;
+    
     /**
      * The Bayes net under construction
      */
@@ -78,6 +104,7 @@ public class HillClimbingBuilder extends NetworkBuilder
         this.data = data;
         this.scoringFunction = function;
         this.net = super.setupNetwork(data, laplaceCount);
+        setupFamilyScores();
        
         /*
          * Run the hill climbing search
@@ -101,6 +128,42 @@ public class HillClimbingBuilder extends NetworkBuilder
         return this.net;   
     }
     
+    /**
+     * Score the candidate operations of each iteration in parallel on a 
+     * fork-join pool.  Operations are scored in parallel only with a 
+     * decomposable scoring function, whose scores leave the network 
+     * untouched.  Otherwise they are scored serially.
+     * 
+     * @param pool the pool scoring the operations, or null to score serially
+     * @param minTaskOperations ranges of at most this many operations are 
+     * scored by a single task
+     */
+    public void setParallelScoring(ForkJoinPool pool, int minTaskOperations)
+    {
+        this.pool = pool;
+        this.minTaskOperations = Math.max(1, minTaskOperations);
+    }
+    
+    /**
+     * Cache the family scores of the scoring function if it is decomposable.
+     * Must be called after the network is set up.
+     */
+    protected void setupFamilyScores()
+    {
+        if (scoringFunction instanceof DecomposableScoringFunction)
+        {
+            this.familyScores = new FamilyScoreCache(
+                    (DecomposableScoringFunction) scoringFunction, 
+                    data, 
+                    laplaceCount);
+        }
+        else
+        {
+            this.familyScores = null;
+        }
+        this.netFamilyScore = null;
+    }
+    
     /**
      * Checks whether the search's stopping criteria has been met.  
      * 
@@ -126,36 +189,13 @@ public class HillClimbingBuilder extends NetworkBuilder
         this.numIterations++;
        
         List<Operation> validOperations = getValidOperations(net.getNodes());
-        List<Double> operationScores = new ArrayList<>();
-        
-        for (int i = 0; i < validOperations.size(); i++)
-        {
-            Operation operation = validOperations.get(i);
-           
-            Double score =  scoreOperation(operation);
-            
-            if (verbose > 4)
-            {
-                System.out.println("Score for operation (" + operation + 
-                                    ") = " + score);
-            }
-   
-            operationScores.add( score ); 
-        }
         
         /*
          * Find the operation that yields the minimum score
          */
-        Operation minOperation = null;
-        double minScore = Double.MAX_VALUE;
-        for (int i = 0; i < operationScores.size(); i++)
-        {
-            if (operationScores.get(i) < minScore)
-            {
-                minOperation = validOperations.get(i);
-                minScore = operationScores.get(i);
-            }
-        }  
+        Pair<Operation, Double> min = findMinOperation(validOperations);
+        Operation minOperation = min.getFirst();
+        double minScore = min.getSecond();
         
         /*
          * Execute the operation only if this raises the previous net score
@@ -176,6 +216,125 @@ public class HillClimbingBuilder extends NetworkBuilder
         }
     }
     
+    /**
+     * Score every operation and find the operation yielding the minimum 
+     * score.  Of operations with equal scores, the first in the list is 
+     * chosen.  When the scoring function is decomposable and a pool has been
+     * set, the operations are scored and compared in parallel, which does 
+     * not change the operation chosen.
+     * 
+     * @param operations the operations to be scored
+     * @return the operation yielding the minimum score, or null if no 
+     * operation scores below {@code Double.MAX_VALUE}, and the minimum score
+     */
+    protected Pair<Operation, Double> findMinOperation(List<Operation> operations)
+    {
+        double[] scores = new double[operations.size()];
+        int minIndex;
+        if (pool != null && familyScores != null)
+        {
+            if (netFamilyScore == null)
+            {
+                netFamilyScore = familyScores.scoreNet(net.getNodes());
+            }
+            minIndex = pool.invoke(new ScoreTask(operations, scores, 0, operations.size()));
+        }
+        else
+        {
+            minIndex = scoreRange(operations, scores, 0, operations.size());
+        }
+        
+        if (verbose > 4)
+        {
+            for (int i = 0; i < operations.size(); i++)
+            {
+                System.out.println("Score for operation (" + operations.get(i) + 
+                                    ") = " + scores[i]);
+            }
+        }
+        
+        Pair<Operation, Double> result = new Pair<Operation, Double>();
+        if (minIndex < 0 || scores[minIndex] >= Double.MAX_VALUE)
+        {
+            result.setFirst(null);
+            result.setSecond(Double.MAX_VALUE);
+        }
+        else
+        {
+            result.setFirst(operations.get(minIndex));
+            result.setSecond(scores[minIndex]);
+        }
+        return result;
+    }
+    
+    /**
+     * Score a range of operations
+     * 
+     * @param operations the operations
+     * @param scores receives the score of each operation in the range
+     * @param start the first operation of the range
+     * @param end one past the last operation of the range
+     * @return the index of the first operation of the range with the minimum
+     * score, or -1 if no operation of the range has a score
+     */
+    private int scoreRange(List<Operation> operations, double[] scores, int start, int end)
+    {
+        int minIndex = -1;
+        for (int i = start; i < end; i++)
+        {
+            scores[i] = scoreOperation(operations.get(i));
+            if (!Double.isNaN(scores[i]) && (minIndex < 0 || scores[i] < scores[minIndex]))
+            {
+                minIndex = i;
+            }
+        }
+        return minIndex;
+    }
+    
+    /**
+     * Scores a range of operations by splitting it in halves that are scored
+     * in parallel.  The minimum of each half is combined preferring the 
+     * lower index, so the result is that of a serial scan.
+     */
+    private class ScoreTask extends RecursiveTask<Integer>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<Operation> operations;
+        private final double[] scores;
+        private final int start;
+        private final int end;
+        
+        public ScoreTask(List<Operation> operations, double[] scores, int start, int end)
+        {
+            this.operations = operations;
+            this.scores = scores;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected Integer compute()
+        {
+            if (end - start <= minTaskOperations)
+            {
+                return scoreRange(operations, scores, start, end);
+            }
+            
+            int mid = (start + end) >>> 1;
+            ScoreTask left = new ScoreTask(operations, scores, start, mid);
+            left.fork();
+            int rightMin = new ScoreTask(operations, scores, mid, end).compute();
+            int leftMin = left.join();
+            
+            if (leftMin < 0 || (rightMin >= 0 && scores[rightMin] < scores[leftMin]))
+            {
+                return rightMin;
+            }
+            return leftMin;
+        }
+    }
+    
     /**
      * Calculate the score for an operation on the network
      * 
@@ -184,6 +343,19 @@ public class HillClimbingBuilder extends NetworkBuilder
      */
     protected Double scoreOperation(Operation operation)
     {   
+        /*
+         * A decomposable score changes only in the families whose parents
+         * the operation changes, so the network is left untouched
+         */
+        if (familyScores != null)
+        {
+            if (netFamilyScore == null)
+            {
+                netFamilyScore = familyScores.scoreNet(net.getNodes());
+            }
+            return netFamilyScore + scoreOperationDelta(operation);
+        }
+        
         Double score = null;
         
         // Execute the operation
@@ -198,6 +370,41 @@ public class HillClimbingBuilder extends NetworkBuilder
         return score;
     }
     
+    /**
+     * Calculate the change an operation makes to a decomposable score.  Only
+     * the families of the operation's child and, for a reversal, its parent
+     * are rescored.
+     * 
+     * @param operation the operation to be scored
+     * @return the score of the network after the operation minus its score
+     * before
+     */
+    protected Double scoreOperationDelta(Operation operation)
+    {
+        BNNode parent = operation.getParent();
+        BNNode child = operation.getChild();
+        
+        double delta = 0.0;
+        switch(operation.getType())
+        {
+        case ADD:
+            delta = familyScores.getScore(child, parent, true) 
+                    - familyScores.getScore(child);
+            break;
+        case REMOVE:
+            delta = familyScores.getScore(child, parent, false) 
+                    - familyScores.getScore(child);
+            break;
+        case REVERSE:
+            delta = familyScores.getScore(child, parent, false) 
+                    - familyScores.getScore(child)
+                    + familyScores.getScore(parent, child, true) 
+                    - familyScores.getScore(parent);
+            break;
+        }
+        return delta;
+    }
+    
     /**
      * Execute an operation on the network
      * 
@@ -205,6 +412,8 @@ public class HillClimbingBuilder extends NetworkBuilder
      */
     protected void executeOperation(Operation operation)
     {
+        netFamilyScore = null;
+        
         switch(operation.getType())
         {
         case ADD:
@@ -238,6 +447,8 @@ public class HillClimbingBuilder extends NetworkBuilder
      */
     protected void undoOperation(Operation operation)
     {
+        netFamilyScore = null;
+        
         switch(operation.getType())
         {
         case ADD:
@@ -7,6 +7,8 @@ import bayes.BayesianNetwork;
 
 import data.Attribute;
 import data.DataSet;
+import data.source.DataSetSource;
+import data.source.RewindableInstanceSource;
 
 /**
  * Builds a Bayesian Network with a Naive Bayes Structure
@@ -23,21 +25,44 @@ public class NaiveBayesBuilder extends NetworkBuilder
     @Override
     public BayesianNetwork buildNetwork(DataSet data, Integer laplaceCount)
     {
-        BayesianNetwork net = super.setupNetwork(data, laplaceCount);
+        return buildNetwork(new DataSetSource(data), 
+                            data.getClassAttribute(), 
+                            laplaceCount);
+    }
+    
+    /**
+     * Builds Bayesian network with a Naive bayes structure from a single 
+     * pass over a source of instances.
+     * 
+     * @param source the source of instances used to construct the parameters
+     * @param classAttr the class attribute
+     * @param laplaceCount the Laplace count used when generating all
+     * parameters in the network
+     */
+    public BayesianNetwork buildNetwork(RewindableInstanceSource source,
+                                        Attribute classAttr,
+                                        Integer laplaceCount)
+    {
+        BayesianNetwork net = super.setupStructure(source.getAttributeSet(), laplaceCount);
         net.setNetStructureAlgorithm(BayesianNetwork.StructureAlgorithm.NAIVE_BAYES);
 
         /*
          *  Create edges from the class Node to all other nodes
          */
-        BNNode classAttrNode = net.getNode(data.getClassAttribute());
+        BNNode classAttrNode = net.getNode(classAttr);
         for (BNNode node : net.getNodes())
         {
             if (!node.equals( classAttrNode ))
             {
-                net.createEdge(classAttrNode, node, data, laplaceCount);
+                net.createEdge(classAttrNode, node);
             }
         }
         
+        /*
+         *  Fit the parameters of every node in one pass
+         */
+        net.fitParameters(source, laplaceCount);
+        
         return net;
     }
     
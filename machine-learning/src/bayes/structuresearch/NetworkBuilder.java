@@ -4,6 +4,7 @@ package bayes.structuresearch;
 import bayes.BNNode;
 import bayes.BayesianNetwork;
 import data.Attribute;
+import data.AttributeSet;
 import data.DataSet;
 
 /**
@@ -48,4 +49,35 @@ abstract class NetworkBuilder
 
         return net;
     }
+    
+    /**
+     * Builds a new Bayesian network with a node for each nominal attribute 
+     * but without any parameters.  The parameters must be fit with 
+     * {@code BayesianNetwork.fitParameters} once the structure is complete.
+     * 
+     * @param attributeSet the attributes represented in the network
+     * @param laplaceCount the Laplace count used when generating all
+     * parameters in the network
+     * @return a network with no edges
+     */
+    public BayesianNetwork setupStructure(AttributeSet attributeSet, Integer laplaceCount)
+    {
+        this.laplaceCount = laplaceCount;
+
+        BayesianNetwork net = new BayesianNetwork();
+
+        /*
+         *  Create a node corresponding to each nominal attribute. Continuous 
+         *  attributes are ignored.
+         */
+        for (Attribute attr : attributeSet.getAttributes())
+        {
+            if (attr.getType() == Attribute.Type.NOMINAL)
+            {
+                net.addNode( new BNNode(attr) );
+            }
+        }
+
+        return net;
+    }
 }
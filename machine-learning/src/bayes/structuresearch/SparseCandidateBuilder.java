@@ -42,6 +42,7 @@ public class SparseCandidateBuilder extends HillClimbingBuilder
         this.data = data;
         this.scoringFunction = function;
         this.net = super.setupNetwork(data, laplaceCount);
+        setupFamilyScores();
        
         /*
          * Run the hill climbing search
@@ -133,38 +134,12 @@ public class SparseCandidateBuilder extends HillClimbingBuilder
         
         filterOperations(validOperations);
         
-        /*
-         *  Calculate the score for each operation 
-         */
-        ArrayList<Double> operationScores = new ArrayList<Double>();
-        for (int i = 0; i < validOperations.size(); i++)
-        {
-            Operation operation = validOperations.get(i);
-           
-            Double score =  scoreOperation(operation);
-            
-            if (verbose > 4)
-            {
-                System.out.println("Score for operation (" + operation + 
-                                    ") = " + score);
-            }
-   
-            operationScores.add( score ); 
-        }
-        
         /*
          * Find the operation that yields the minimum score
          */
-        Operation minOperation = null;
-        double minScore = Double.MAX_VALUE;
-        for (int i = 0; i < operationScores.size(); i++)
-        {
-            if (operationScores.get(i) < minScore)
-            {
-                minOperation = validOperations.get(i);
-                minScore = operationScores.get(i);
-            }
-        } 
+        Pair<Operation, Double> min = findMinOperation(validOperations);
+        Operation minOperation = min.getFirst();
+        double minScore = min.getSecond();
 
         prevMaximizeScore = currMaximizeScore;
         currMaximizeScore = minScore;
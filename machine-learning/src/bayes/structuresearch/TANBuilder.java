@@ -4,6 +4,8 @@ import graph.prim.Edge;
 import graph.prim.Prim;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -12,7 +14,10 @@ import bayes.BNNode;
 import bayes.BayesianNetwork;
 import data.Attribute;
 import data.DataSet;
-import data.Instance;
+import data.count.ADTree;
+import data.count.ContingencyTable;
+import data.source.DataSetSource;
+import data.source.RewindableInstanceSource;
 
 public class TANBuilder extends NetworkBuilder
 {
@@ -40,12 +45,66 @@ public class TANBuilder extends NetworkBuilder
     {
         this.Initialize(data, laplaceCount);
 
+        return buildNetwork(new DataSetSource(data), 
+                            data.getClassAttribute(), 
+                            laplaceCount,
+                            data.getCounts());
+    }
+
+    /**
+     * Build a TAN network in two passes over a source of instances.  The 
+     * first pass counts the joint values of every pair of non-class 
+     * attributes with the class attribute, from which the conditional mutual
+     * information matrix is computed.  The second pass fits the parameters of
+     * the finished structure.
+     * 
+     * @param source the source of training instances
+     * @param classAttr the class attribute
+     * @param laplaceCount the Laplace count used when generating all
+     * parameters in the network
+     * @return the TAN network
+     */
+    public BayesianNetwork buildNetwork(RewindableInstanceSource source,
+                                        Attribute classAttr,
+                                        Integer laplaceCount)
+    {
+        return buildNetwork(source, classAttr, laplaceCount, null);
+    }
+
+    /**
+     * Build a TAN network over a source of instances, reading the pairwise
+     * counts from an AD-tree when the instances are held in memory
+     * 
+     * @param source the source of training instances
+     * @param classAttr the class attribute
+     * @param laplaceCount the Laplace count used when generating all
+     * parameters in the network
+     * @param counts the AD-tree over the instances of the source or null to
+     * count the pairs in one pass over the source
+     * @return the TAN network
+     */
+    private BayesianNetwork buildNetwork(RewindableInstanceSource source,
+                                         Attribute classAttr,
+                                         Integer laplaceCount,
+                                         ADTree counts)
+    {
+        this.laplaceCount = laplaceCount;
+
+        // Build list of all nominal non-class attributes
+        nonClassAttributes = new ArrayList<>();
+        for (Attribute attr : source.getAttributeSet().getAttributes())
+        {
+            if (attr.getType() == Attribute.Type.NOMINAL && !attr.equals(classAttr))
+            {
+                nonClassAttributes.add(attr);
+            }
+        }
+
         // Create the Bayesian Network
-        BayesianNetwork net = super.setupNetwork(data, laplaceCount);
+        BayesianNetwork net = super.setupStructure(source.getAttributeSet(), laplaceCount);
         net.setNetStructureAlgorithm(BayesianNetwork.StructureAlgorithm.TAN);
 
         // Get the Node that represents the class attribute
-        Attribute classAttr = data.getClassAttribute();
         BNNode classAttrNode = net.getNode(classAttr);
 
         // Create edges from the class Node to all other nodes
@@ -53,12 +112,12 @@ public class TANBuilder extends NetworkBuilder
         {
             if (!node.equals( classAttrNode ))
             {
-                net.createEdge(classAttrNode, node, data, laplaceCount);
+                net.createEdge(classAttrNode, node);
             }
         }
 
         // Build the conditional mutual information matrix
-        buildConditionalMutualInfoMatrix(data);
+        buildConditionalMutualInfoMatrix(source, classAttr, counts);
 
         // Run Prim's Algorithm
         List<Edge> edges = Prim.runPrims(condMutualInfo);
@@ -75,13 +134,18 @@ public class TANBuilder extends NetworkBuilder
             BNNode parent = net.getNode(parentAttr);
             BNNode child = net.getNode(childAttr);
 
-            net.createEdge(parent, child, data, laplaceCount);
+            net.createEdge(parent, child);
         }
 
+        // Fit the parameters of every node in one pass
+        net.fitParameters(source, laplaceCount);
+
         return net;
     }
 
-    private void buildConditionalMutualInfoMatrix(DataSet data)
+    private void buildConditionalMutualInfoMatrix(RewindableInstanceSource source,
+                                                  Attribute classAttr,
+                                                  ADTree adTree)
     {
         // Calculate number of non-class attributes
         int numAttributes = nonClassAttributes.size();
@@ -89,23 +153,43 @@ public class TANBuilder extends NetworkBuilder
         // Create conditional mutual information matrix
         condMutualInfo = new Double[numAttributes][numAttributes];
 
+        // Read the joint counts of the class and each pair of attributes
+        // from the AD-tree, or count them all in a single pass over a
+        // source that is not held in memory
+        List<List<Attribute>> pairs = new ArrayList<>();
+        for (int r = 0; r < numAttributes; r++)
+        {
+            for (int c = r + 1; c < numAttributes; c++)
+            {
+                pairs.add(Arrays.asList(classAttr, 
+                                        nonClassAttributes.get(r),
+                                        nonClassAttributes.get(c)));
+            }
+        }
+        List<ContingencyTable> tables;
+        if (adTree != null)
+        {
+            tables = new ArrayList<>(pairs.size());
+            for (List<Attribute> pair : pairs)
+            {
+                tables.add(adTree.getContingencyTable(pair));
+            }
+        }
+        else
+        {
+            tables = ContingencyTable.countAll(source, pairs);
+        }
+        Iterator<ContingencyTable> counts = tables.iterator();
+
         // Calculate each element of the matrix
         for (int r = 0; r < numAttributes; r++)
         {
-            for (int c = 0; c < numAttributes; c++)
+            for (int c = r + 1; c < numAttributes; c++)
             {
-                if (r != c)
-                {
-                    Attribute attr1 = nonClassAttributes.get(r);
-                    Attribute attr2 = nonClassAttributes.get(c);
+                ContingencyTable pairCounts = counts.next();
 
-                    condMutualInfo[r][c] = 
-                            conditionalMutualInfo(attr1, attr2);
-                }
-                else
-                {
-                    condMutualInfo[r][c] = null;
-                }
+                condMutualInfo[r][c] = conditionalMutualInfo(pairCounts, 1, 2);
+                condMutualInfo[c][r] = conditionalMutualInfo(pairCounts, 2, 1);
             }
         }
     }
@@ -126,70 +210,88 @@ public class TANBuilder extends NetworkBuilder
      * &Sigma; y &isin; Y &Sigma; x1 &isin; X1 &Sigma; x2 &isin; X2 
      * P(x1, x2 | y) / ( P(x1 | y) * P(x2 | y) )  
      * 
-     * @param attr1	the first Attribute
-     * @param attr2 the second Attribute
-     * @param classAttr the class Attribute for which the mutual information
-     * of the first two attributes are conditioned on
+     * @param counts the joint counts of the class attribute, at position 0,
+     * and the two attributes
+     * @param pos1 the position of the first Attribute in the counts
+     * @param pos2 the position of the second Attribute in the counts
      * @return the conditional mutual information in bits
      */
-    private Double conditionalMutualInfo(Attribute attr1, Attribute attr2)
+    private Double conditionalMutualInfo(ContingencyTable counts, int pos1, int pos2)
     {
         Double result = 0.0;
 
-        Attribute classAttr = data.getClassAttribute();
+        Attribute classAttr = counts.getAttributes().get(0);
+        Attribute attr1 = counts.getAttributes().get(pos1);
+        Attribute attr2 = counts.getAttributes().get(pos2);
 
-        for (Integer classValue : classAttr.getNominalValueMap().values())
+        Integer numValuesAttr1 = attr1.getNominalValueMap().size();
+        Integer numValuesAttr2 = attr2.getNominalValueMap().size();
+        Integer numValuesClass = classAttr.getNominalValueMap().size();
+
+        // Marginal counts of the class and of each attribute with the class
+        int[] classCounts = new int[numValuesClass];
+        int[][] attr1Counts = new int[numValuesClass][numValuesAttr1];
+        int[][] attr2Counts = new int[numValuesClass][numValuesAttr2];
+        int[] values = new int[3];
+        for (int classValue = 0; classValue < numValuesClass; classValue++)
         {
-            for (Integer val1 : attr1.getNominalValueMap().values())
+            values[0] = classValue;
+            for (int val1 = 0; val1 < numValuesAttr1; val1++)
             {
-                for (Integer val2 : attr2.getNominalValueMap().values())
+                values[pos1] = val1;
+                for (int val2 = 0; val2 < numValuesAttr2; val2++)
                 {
+                    values[pos2] = val2;
+                    int count = counts.getCount(values);
 
-                    // Build the first Attribute, nominal value ID pair
-                    // to be passed to the methods used for calculating the
-                    // numerator and denominator used in the calculation
-                    Pair<Attribute, Integer> attrVal1
-                    = new Pair<Attribute, Integer>();
-
-                    attrVal1.setFirst(attr1);
-                    attrVal1.setSecond(val1);
-
-
-                    // Build the second Attribute, nominal value ID pair
-                    Pair<Attribute, Integer> attrVal2
-                    = new Pair<Attribute, Integer>();
+                    classCounts[classValue] += count;
+                    attr1Counts[classValue][val1] += count;
+                    attr2Counts[classValue][val2] += count;
+                }
+            }
+        }
 
-                    attrVal2.setFirst(attr2);
-                    attrVal2.setSecond(val2);
+        double laplace = (double) laplaceCount;
 
-                    /*
-                     *  Calculate each component of the calculation
-                     */
+        for (Integer classValue : classAttr.getNominalValueMap().values())
+        {
+            for (Integer val1 : attr1.getNominalValueMap().values())
+            {
+                for (Integer val2 : attr2.getNominalValueMap().values())
+                {
+                    values[0] = classValue;
+                    values[pos1] = val1;
+                    values[pos2] = val2;
+                    int jointCount = counts.getCount(values);
 
                     /*
                      *  P(X1 = x1, X2 = x2, Y = y)
                      */
-                    Double jointProb = 
-                            jointProbability(attrVal1, attrVal2, classValue);
+                    Double jointProb = (jointCount + laplace) / 
+                            (counts.getTotal() + (laplace *
+                                    numValuesAttr1 *
+                                    numValuesAttr2 * 
+                                    numValuesClass ));
 
                     /*
                      *  P(X1 = x1, X2 = x2 | Y = y)
                      */
-                    Double conditionalJointProb = 
-                            conditionalJointProbability(attrVal1, attrVal2,
-                                    classValue);
+                    Double conditionalJointProb = (jointCount + laplace) /
+                            (classCounts[classValue] + (laplace * 
+                                    numValuesAttr1 *
+                                    numValuesAttr2));
 
                     /*
                      *  P(X1 = x1 | Y = y) 
                      */
-                    Double condProb1 = conditionalProbability(attrVal1, 
-                            classValue);
+                    Double condProb1 = (attr1Counts[classValue][val1] + laplace) /
+                            (classCounts[classValue] + (laplace * numValuesAttr1));
 
                     /*
                      *  P(X2 = x2 | Y = y) 
                      */
-                    Double condProb2 = conditionalProbability(attrVal2, 
-                            classValue);
+                    Double condProb2 = (attr2Counts[classValue][val2] + laplace) /
+                            (classCounts[classValue] + (laplace * numValuesAttr2));
 
                     // Calculate numerator and denominator
                     Double logTerm = Math.log(conditionalJointProb / (condProb1 * condProb2)) /
@@ -220,38 +322,13 @@ public class TANBuilder extends NetworkBuilder
             Pair<Attribute, Integer> attrValPair2,
             Integer classVal)
     {
+        Attribute classAttr = data.getClassAttribute();
+        ADTree counts = data.getCounts();
 
-        Attribute classAttrId = data.getClassAttribute();
-
-        int numeratorCount = 0;
-        int denomCount = 0;
-
-        for (Instance instance : data.getInstanceSet().getInstances())
-        {
-            Attribute attr1 = attrValPair1.getFirst();
-            Attribute attr2 = attrValPair2.getFirst();
-
-            Integer instanceClassAttrVal = 
-                    instance.getAttributeValue(classAttrId).intValue();
-
-            Integer instanceAttrVal1 =
-                    instance.getAttributeValue(attr1).intValue();
-
-            Integer instanceAttrVal2 =
-                    instance.getAttributeValue(attr2).intValue();	
-
-            if (instanceClassAttrVal == classVal)
-            {
-                denomCount++;
-            }
-
-            if (instanceClassAttrVal == classVal &&
-                    instanceAttrVal1 == attrValPair1.getSecond() &&
-                    instanceAttrVal2 == attrValPair2.getSecond())
-            {
-                numeratorCount++;
-            }
-        }
+        int numeratorCount = counts.getCount(
+                Arrays.asList(classAttr, attrValPair1.getFirst(), attrValPair2.getFirst()),
+                classVal, attrValPair1.getSecond(), attrValPair2.getSecond());
+        int denomCount = counts.getCount(classAttr, classVal);
 
         Integer numValuesAttr1 = attrValPair1.getFirst().getNominalValueMap().size();
         Integer numValuesAttr2 = attrValPair2.getFirst().getNominalValueMap().size();
@@ -281,34 +358,12 @@ public class TANBuilder extends NetworkBuilder
             Integer classVal)
     {
         Attribute classAttr = data.getClassAttribute();
+        ADTree counts = data.getCounts();
 
-        int numeratorCount = 0;
-        int denomCount = 0;
-
-        for (Instance instance : data.getInstanceSet().getInstances())
-        {
-            // Get the IDs of the two non-class Attributes
-            Attribute attr = attrValPair.getFirst();
-
-            // Get the value of the current instance's class attribute
-            Integer instanceClassAttrValue = 
-                    instance.getAttributeValue(classAttr).intValue();
-
-            // Get the value of the current instance's first attribute
-            Integer instanceAttrValue =
-                    instance.getAttributeValue(attr).intValue();
-
-            if (instanceClassAttrValue == classVal)
-            {
-                denomCount++;
-            }
-
-            if (instanceClassAttrValue == classVal &&
-                    instanceAttrValue == attrValPair.getSecond())
-            {
-                numeratorCount++;
-            }
-        }
+        int numeratorCount = counts.getCount(
+                Arrays.asList(classAttr, attrValPair.getFirst()),
+                classVal, attrValPair.getSecond());
+        int denomCount = counts.getCount(classAttr, classVal);
 
         Integer numValuesAttr = attrValPair.getFirst().getNominalValueMap().size();		
 
@@ -338,33 +393,13 @@ public class TANBuilder extends NetworkBuilder
             Pair<Attribute, Integer> attrValPair2,
             Integer classVal)
     {
-
         Attribute classAttr = data.getClassAttribute();
+        ADTree counts = data.getCounts();
 
-        int numeratorCount = 0;
-        int denomCount = data.getInstanceSet().getInstances().size();
-
-        for (Instance instance : data.getInstanceSet().getInstances())
-        {
-            Attribute attr1 = attrValPair1.getFirst();
-            Attribute attr2 = attrValPair2.getFirst();
-
-            Integer instanceClassAttrValue = 
-                    instance.getAttributeValue(classAttr).intValue();
-
-            Integer instanceAttrVal1 =
-                    instance.getAttributeValue(attr1).intValue();
-
-            Integer instanceAttrVal2 =
-                    instance.getAttributeValue(attr2).intValue();	
-
-            if (instanceClassAttrValue == classVal &&
-                    instanceAttrVal1 == attrValPair1.getSecond() &&
-                    instanceAttrVal2 == attrValPair2.getSecond())
-            {
-                numeratorCount++;
-            }
-        }
+        int numeratorCount = counts.getCount(
+                Arrays.asList(classAttr, attrValPair1.getFirst(), attrValPair2.getFirst()),
+                classVal, attrValPair1.getSecond(), attrValPair2.getSecond());
+        int denomCount = data.getInstanceSet().size();
 
         Integer numValuesAttr1 = attrValPair1.getFirst().getNominalValueMap().size();
         Integer numValuesAttr2 = attrValPair2.getFirst().getNominalValueMap().size();
@@ -1,12 +1,14 @@
 package bayes.structuresearch.score;
 
 import java.util.ArrayList;
-
+import java.util.List;
 
 import data.Attribute;
 import data.DataSet;
 import data.Instance;
+import data.count.ContingencyTable;
 import bayes.BNConditionalQuery;
+import bayes.BNEvaluator;
 import bayes.BNNode;
 import bayes.BayesianNetwork;
 
@@ -18,7 +20,7 @@ import bayes.BayesianNetwork;
  * @author Matthew Bernstein - matthewb@cs.wisc.edu
  *
  */
-public class BIC implements ScoringFunction
+public class BIC implements DecomposableScoringFunction
 {    
     private int verbose = 0;
     
@@ -47,6 +49,69 @@ public class BIC implements ScoringFunction
         return score;
     }
     
+    /**
+     * Score a single family against the data.  The score of a network is the
+     * sum of the scores of its families.  The negative log-likelihood of the
+     * family is computed from the family's joint counts using the 
+     * conditional probabilities the node's CPD would hold, so the family is
+     * scored without building the CPD.
+     * 
+     * @param child the attribute of the family's node
+     * @param parents the attributes of the node's parents
+     * @param data the data set for which the family is scored against
+     * @param laplaceCount the Laplace count used in the node's CPD
+     * @return the family's negative log-likelihood plus its penalty term
+     */
+    @Override
+    public Double scoreFamily(Attribute child, 
+                              List<Attribute> parents, 
+                              DataSet data,
+                              Integer laplaceCount)
+    {
+        ArrayList<Attribute> family = new ArrayList<Attribute>(parents);
+        family.add(child);
+        ContingencyTable counts = data.getCounts().getContingencyTable(family);
+        
+        /*
+         *  The child is the last attribute of the table, so the cells of 
+         *  each assignment of the parents are consecutive
+         */
+        int numChildValues = counts.getNumValues(parents.size());
+        double logLikelihood = 0.0;
+        for (int first = 0; first < counts.getNumCells(); first += numChildValues)
+        {
+            int parentCount = 0;
+            for (int cell = first; cell < first + numChildValues; cell++)
+            {
+                parentCount += counts.getCount(cell);
+            }
+            
+            double denominator = parentCount + laplaceCount * numChildValues;
+            for (int cell = first; cell < first + numChildValues; cell++)
+            {
+                int count = counts.getCount(cell);
+                if (count > 0)
+                {
+                    logLikelihood += -count * Math.log((count + laplaceCount) / denominator);
+                }
+            }
+        }
+        
+        /*
+         *  Penalty term for the free parameters of the family
+         */
+        int freeParameters = numChildValues - 1;
+        for (Attribute parent : parents)
+        {
+            freeParameters *= parent.getNominalValueMap().size();
+        }
+        int numInstances = data.getInstanceSet().getInstances().size();
+        Double dataPointsWeight = Math.log(numInstances) / 
+                                  (Math.log(2));
+        
+        return logLikelihood + freeParameters * dataPointsWeight * 0.5;
+    }
+    
     /**
      * Calculate the penalty term in the BIC calculation. 
      * 
@@ -66,11 +131,10 @@ public class BIC implements ScoringFunction
     }
     
     /**
-     * 
-     * For each instance in the data, calculate the log-probability of the 
-     * bayes net producing this data.  Sum the resulting log-probability
-     * of each instance to get the total log-likelihood of the network 
-     * generating the data.  Tha  
+     * Calculate the negative log-likelihood of the network generating the 
+     * data.  The log-likelihood is computed from the joint counts of each 
+     * node's family, counted in a single pass over the data, rather than by
+     * querying the network once per node per instance.
      *
      * @param net the Bayes net used to calcuate the likelihood of the data
      * @param data the data for which we want to know the likelihood
@@ -78,23 +142,7 @@ public class BIC implements ScoringFunction
      */
     public Double calculateLogLikelihood(BayesianNetwork net, DataSet data)
     {
-        Double logProduct = 0.0;
-        
-        for (Instance instance : data.getInstanceSet().getInstances())
-        {        
-            ArrayList<BNConditionalQuery> queries = createQueries(instance, net, data);
-            
-            /*
-             * Sum over the probability of each instance 
-             */
-            for (BNConditionalQuery query : queries)
-            {     
-                Double p = net.queryConditionalProbability(query);
-                logProduct += -Math.log(p);
-            }    
-        }
-        
-        return logProduct;
+        return BNEvaluator.calculateLogLikelihood(net, data);
     }
     
     /**
@@ -121,13 +169,17 @@ public class BIC implements ScoringFunction
              * Set target attribute/value 
              */
             Attribute targetAttr = targetNode.getAttribute();
-            Integer targetAttrValue 
-                        = instance.getAttributeValue(targetAttr).intValue();
-            query.setTargetVariable(targetAttr, targetAttrValue);
+            Double targetValue = instance.getAttributeValue(targetAttr);
+            if (targetValue == null)
+            {
+                continue;
+            }
+            query.setTargetVariable(targetAttr, targetValue.intValue());
             
             /*
              * Set each condition attribute/value
              */
+            boolean isComplete = true;
             for (BNNode conditionNode : net.getNodes())
             {
                 Attribute conditionAttr = conditionNode.getAttribute();
@@ -136,14 +188,24 @@ public class BIC implements ScoringFunction
                 
                 if (!conditionNode.equals(targetNode) && isChildOfTarget)
                 {
-                    Integer conditionAttrValue
-                           = instance.getAttributeValue(conditionAttr).intValue();
+                    Double conditionValue = instance.getAttributeValue(conditionAttr);
+                    if (conditionValue == null)
+                    {
+                        isComplete = false;
+                        break;
+                    }
                                         
-                    query.addConditionVariable(conditionAttr, conditionAttrValue);
+                    query.addConditionVariable(conditionAttr, conditionValue.intValue());
                 }
             }
            
-           queries.add(query);
+            /*
+             *  A family with a missing value contributes no query
+             */
+            if (isComplete)
+            {
+                queries.add(query);
+            }
         } 
          
         return queries;
@@ -0,0 +1,32 @@
+package bayes.structuresearch.score;
+
+import java.util.List;
+
+import data.Attribute;
+import data.DataSet;
+
+/**
+ * A scoring function whose score of a network is the sum of a score for each
+ * node's family: the node together with its parents.  A change to the 
+ * parents of a node changes only the score of that node's family, so a 
+ * search can score a change to the structure without rebuilding or 
+ * rescoring the network.
+ * 
+ */
+public interface DecomposableScoringFunction extends ScoringFunction
+{
+    /**
+     * Score the family of a node with a given set of parents
+     * 
+     * @param child the attribute of the node
+     * @param parents the attributes of the node's parents
+     * @param data the data set for which the family is scored against
+     * @param laplaceCount the Laplace count used when estimating the node's
+     * conditional probabilities
+     * @return the score of the family
+     */
+    public Double scoreFamily(Attribute child, 
+                              List<Attribute> parents, 
+                              DataSet data,
+                              Integer laplaceCount);
+}
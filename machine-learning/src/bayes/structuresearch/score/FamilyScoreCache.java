@@ -0,0 +1,164 @@
+package bayes.structuresearch.score;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import data.Attribute;
+import data.DataSet;
+import bayes.BNNode;
+
+/**
+ * Caches the score of each family of a decomposable scoring function against
+ * a data set.  A family is keyed by its node's attribute and the set of its
+ * parents' attributes, so a family revisited by a search is scored only 
+ * once.  The cache may be read and filled by several threads at once.  The
+ * parents of a family are always passed to the scoring function in the same
+ * order, so a family's score does not depend on which thread scored it.
+ * 
+ */
+public class FamilyScoreCache 
+{
+    /**
+     * The scoring function
+     */
+    private final DecomposableScoringFunction function;
+    
+    /**
+     * The data set the families are scored against
+     */
+    private final DataSet data;
+    
+    /**
+     * The Laplace count used when estimating conditional probabilities
+     */
+    private final Integer laplaceCount;
+    
+    /**
+     * The score of each family scored so far, keyed by the family's node 
+     * attribute and then by the set of its parents' attributes
+     */
+    private final ConcurrentMap<Attribute, ConcurrentMap<Set<Attribute>, Double>> scores;
+
+    /**
+     * Orders the parents of a family by name
+     */
+    private static final Comparator<Attribute> NAME_ORDER = new Comparator<Attribute>()
+    {
+        @Override
+        public int compare(Attribute a1, Attribute a2)
+        {
+            return a1.getName().compareTo(a2.getName());
+        }
+    };
+    
+    /**
+     * Constructor
+     * 
+     * @param function the scoring function
+     * @param data the data set the families are scored against
+     * @param laplaceCount the Laplace count used when estimating conditional
+     * probabilities
+     */
+    public FamilyScoreCache(DecomposableScoringFunction function, 
+                            DataSet data, 
+                            Integer laplaceCount)
+    {
+        this.function = function;
+        this.data = data;
+        this.laplaceCount = laplaceCount;
+        this.scores = new ConcurrentHashMap<Attribute, ConcurrentMap<Set<Attribute>, Double>>();
+    }
+    
+    /**
+     * Get the score of a node's family with a given set of parents
+     * 
+     * @param child the node
+     * @param parents the parents of the node
+     * @return the score of the family
+     */
+    public Double getScore(BNNode child, Collection<BNNode> parents)
+    {
+        Set<Attribute> parentAttrs = new HashSet<Attribute>();
+        for (BNNode parent : parents)
+        {
+            parentAttrs.add(parent.getAttribute());
+        }
+        
+        ConcurrentMap<Set<Attribute>, Double> childScores = scores.get(child.getAttribute());
+        if (childScores == null)
+        {
+            scores.putIfAbsent(child.getAttribute(), 
+                               new ConcurrentHashMap<Set<Attribute>, Double>());
+            childScores = scores.get(child.getAttribute());
+        }
+        
+        Double score = childScores.get(parentAttrs);
+        if (score == null)
+        {
+            List<Attribute> parentList = new ArrayList<Attribute>(parentAttrs);
+            Collections.sort(parentList, NAME_ORDER);
+            score = function.scoreFamily(child.getAttribute(), 
+                                         parentList, 
+                                         data, 
+                                         laplaceCount);
+            childScores.putIfAbsent(parentAttrs, score);
+        }
+        return score;
+    }
+    
+    /**
+     * Get the score of a node's family with its current parents
+     * 
+     * @param child the node
+     * @return the score of the family
+     */
+    public Double getScore(BNNode child)
+    {
+        return getScore(child, child.getParents());
+    }
+    
+    /**
+     * Get the score of a node's family with one parent added to or removed 
+     * from its current parents
+     * 
+     * @param child the node
+     * @param parent the parent to add or remove
+     * @param add true to add the parent, false to remove it
+     * @return the score of the changed family
+     */
+    public Double getScore(BNNode child, BNNode parent, boolean add)
+    {
+        List<BNNode> parents = new ArrayList<BNNode>(child.getParents());
+        if (add)
+        {
+            parents.add(parent);
+        }
+        else
+        {
+            parents.remove(parent);
+        }
+        return getScore(child, parents);
+    }
+    
+    /**
+     * @param nodes the nodes of a network
+     * @return the score of the network, the sum of the scores of its 
+     * families
+     */
+    public Double scoreNet(Collection<BNNode> nodes)
+    {
+        double score = 0.0;
+        for (BNNode node : nodes)
+        {
+            score += getScore(node);
+        }
+        return score;
+    }
+}
@@ -1,6 +1,5 @@
 package classify;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import data.Attribute;
@@ -29,6 +28,11 @@ public class ClassificationResult
      * Size of the test set used in the classification
      */
     private Integer testDataSize; 
+    
+    /**
+     * The number of test instances classified correctly
+     */
+    private int correctCount;
 
     /**
      * Constructor
@@ -43,41 +47,136 @@ public class ClassificationResult
      */
     public ClassificationResult(List<Pair<Integer, Double>> resultList,
             DataSet testData)
+    {
+        this(getClasses(resultList), getConfidences(resultList), testData);
+    }
+    
+    /**
+     * Constructor
+     * 
+     * @param classes the predicted nominal value ID of the class attribute 
+     * of each instance in the test data, indexed by instance ID
+     * @param confidences the confidence of the classifier in each 
+     * prediction, indexed by instance ID
+     * @param testData the DataSet object containing all test instances
+     */
+    public ClassificationResult(int[] classes, 
+            double[] confidences, 
+            DataSet testData)
     {
         Attribute classAttr = testData.getClassAttribute();
+        StringBuilder result = new StringBuilder();
         
         int correctCount = 0;
 
-        for (int i = 0; i < resultList.size(); i++)
+        for (int i = 0; i < classes.length; i++)
         {			
-            Integer classification = resultList.get(i).getFirst();            
-            Integer truth = testData.getInstanceSet()
+            int classification = classes[i];            
+            Double truth = testData.getInstanceSet()
                     .getInstanceById(i)
-                    .getAttributeValue(classAttr).intValue();
+                    .getAttributeValue(classAttr);
 
             /*
-             *  Check for correct classification
+             *  Check for correct classification.  An instance with a missing
+             *  class is never counted as correct.
              */
-            if (classification == truth)
+            if (truth != null && classification == truth.intValue())
             {
                 correctCount++;
             }
 
-            resultStr += classAttr.getNominalValueName(classification);
-            resultStr += " ";
-            resultStr += classAttr.getNominalValueName(truth);
-            resultStr += " ";
-            resultStr += resultList.get(i).getSecond();
-            resultStr += "\n";
+            result.append(classAttr.getNominalValueName(classification));
+            result.append(" ");
+            result.append(truth == null ? "?" : classAttr.getNominalValueName(truth.intValue()));
+            result.append(" ");
+            result.append(confidences[i]);
+            result.append("\n");
         }
 
-        resultStr += "\n";
-        resultStr += correctCount;
+        result.append("\n");
+        result.append(correctCount);
+        this.resultStr = result.toString();
 
         // Set metrics
-        this.testDataSize = testData.getInstanceSet().getInstances().size();
+        this.correctCount = correctCount;
+        this.testDataSize = testData.getInstanceSet().size();
         this.accuracy = (double) correctCount / this.testDataSize;
     }
+    
+    /**
+     * Constructor for the combined result of several classification 
+     * experiments on disjoint test sets, such as the folds of a 
+     * cross-validation.  The accuracy is that of all test instances pooled.
+     * 
+     * @param results the results of the experiments
+     */
+    public ClassificationResult(List<ClassificationResult> results)
+    {
+        StringBuilder result = new StringBuilder();
+        
+        int correctCount = 0;
+        int testDataSize = 0;
+        for (ClassificationResult part : results)
+        {
+            correctCount += part.correctCount;
+            testDataSize += part.testDataSize;
+            
+            result.append(part.resultStr);
+            result.append("\n");
+        }
+        
+        result.append("\n");
+        result.append(correctCount);
+        this.resultStr = result.toString();
+        
+        this.correctCount = correctCount;
+        this.testDataSize = testDataSize;
+        this.accuracy = (double) correctCount / testDataSize;
+    }
+
+    /**
+     * @param resultList a list of predictions
+     * @return the predicted nominal value ID of each prediction
+     */
+    private static int[] getClasses(List<Pair<Integer, Double>> resultList)
+    {
+        int[] classes = new int[resultList.size()];
+        for (int i = 0; i < classes.length; i++)
+        {
+            classes[i] = resultList.get(i).getFirst();
+        }
+        return classes;
+    }
+    
+    /**
+     * @param resultList a list of predictions
+     * @return the confidence of each prediction
+     */
+    private static double[] getConfidences(List<Pair<Integer, Double>> resultList)
+    {
+        double[] confidences = new double[resultList.size()];
+        for (int i = 0; i < confidences.length; i++)
+        {
+            confidences[i] = resultList.get(i).getSecond();
+        }
+        return confidences;
+    }
+
+    /**
+     * @return the number of test instances classified correctly
+     */
+    public int getCorrectCount()
+    {
+        return this.correctCount;
+    }
+    
+    /**
+     * @return the number of instances in the test set
+     */
+    public Integer getTestDataSize()
+    {
+        return this.testDataSize;
+    }
 
     /**
      * @return the classification accuracy from this experiment
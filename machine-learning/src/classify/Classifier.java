@@ -11,5 +11,17 @@ public interface Classifier
 {
     public ClassificationResult classifyData(DataSet testData); 
     
+    /**
+     * Classify every instance of a test set into primitive outputs.  
+     * Implementations may classify blocks of instances concurrently.
+     * 
+     * @param testData the test instances
+     * @param classes receives the predicted nominal value ID of the class of
+     * each instance, indexed by instance ID
+     * @param confidences receives the confidence of each prediction, indexed
+     * by instance ID
+     */
+    public void classifyData(DataSet testData, int[] classes, double[] confidences);
+    
     public Object getModel();
 }
@@ -0,0 +1,14 @@
+package classify;
+
+import data.DataSet;
+
+/**
+ * Trains a classifier on a training data set.  Evaluation procedures such as
+ * cross-validation use a trainer to learn a new model on each training set.
+ * A trainer may be called concurrently from several threads.
+ * 
+ */
+public interface ClassifierTrainer 
+{
+    public Classifier train(DataSet trainData);
+}
@@ -0,0 +1,165 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import pair.Pair;
+import data.DataSet;
+import data.Instance;
+
+/**
+ * Classifies a test set in blocks of consecutive instances that run as
+ * separate tasks.  Each block writes its predictions into its own range of
+ * primitive output arrays, so no list of per-instance results is kept and
+ * the blocks share no mutable state.  Models with a primitive batch path
+ * classify each block directly; other models classify the instances of a
+ * block one at a time.
+ *
+ */
+public final class ParallelClassification
+{
+    /**
+     * The number of blocks of test instances per available processor
+     */
+    private static final int BLOCKS_PER_PROCESSOR = 4;
+
+    /**
+     * A model that classifies a range of test instances at once, writing
+     * its predictions directly into primitive arrays
+     */
+    public static interface BatchClassifier
+    {
+        /**
+         * Classify the test instances with IDs from start up to end.
+         * Implementations are called from several threads at once, on
+         * disjoint ranges, and must not modify the model.
+         *
+         * @param start the ID of the first instance of the range
+         * @param end the ID after the last instance of the range
+         * @param classes receives the predicted nominal value ID of the
+         * class of each instance, indexed by instance ID
+         * @param confidences receives the confidence of each prediction,
+         * indexed by instance ID
+         */
+        public void classifyRange(int start, int end, int[] classes, double[] confidences);
+    }
+
+    /**
+     * A model that classifies one instance at a time.  This is the fallback
+     * for models that have no {@code BatchClassifier} path.  Implementations
+     * are called from several threads at once and must not modify the model.
+     */
+    public static interface InstanceClassifier
+    {
+        /**
+         * @param instance an instance
+         * @return a pair whose first element is the predicted nominal value
+         * ID of the class attribute and whose second element is the
+         * confidence of the prediction
+         */
+        public Pair<Integer, Double> classifyInstance(Instance instance);
+    }
+
+    private ParallelClassification()
+    {
+    }
+
+    /**
+     * Classify every instance of a test set one instance at a time
+     *
+     * @param testData the test instances
+     * @param classifier the model classifying each instance
+     * @param executor the executor classifying the blocks of instances
+     * @param classes receives the predicted nominal value ID of the class
+     * of each instance, indexed by instance ID
+     * @param confidences receives the confidence of each prediction,
+     * indexed by instance ID
+     */
+    public static void classifyData(DataSet testData,
+                                    final InstanceClassifier classifier,
+                                    ExecutorService executor,
+                                    int[] classes,
+                                    double[] confidences)
+    {
+        final List<Instance> instances = testData.getInstanceSet().getInstances();
+        classifyData(instances.size(),
+                new BatchClassifier()
+                {
+                    @Override
+                    public void classifyRange(int start, int end, int[] classes, double[] confidences)
+                    {
+                        for (int id = start; id < end; id++)
+                        {
+                            Pair<Integer, Double> result = classifier.classifyInstance(instances.get(id));
+                            classes[id] = result.getFirst();
+                            confidences[id] = result.getSecond();
+                        }
+                    }
+                },
+                executor,
+                classes,
+                confidences);
+    }
+
+    /**
+     * Classify every instance of a test set a block of instances at a time
+     *
+     * @param numInstances the number of test instances
+     * @param classifier the model classifying each block of instances
+     * @param executor the executor classifying the blocks of instances
+     * @param classes receives the predicted nominal value ID of the class
+     * of each instance, indexed by instance ID
+     * @param confidences receives the confidence of each prediction,
+     * indexed by instance ID
+     */
+    public static void classifyData(int numInstances,
+                                    final BatchClassifier classifier,
+                                    ExecutorService executor,
+                                    final int[] classes,
+                                    final double[] confidences)
+    {
+        /*
+         *  Classify each block of test instances as a separate task
+         */
+        int numBlocks = Math.max(1, Math.min(numInstances,
+                BLOCKS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors()));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int b = 0; b < numBlocks; b++)
+        {
+            final int start = (int) ((long) numInstances * b / numBlocks);
+            final int end = (int) ((long) numInstances * (b + 1) / numBlocks);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    classifier.classifyRange(start, end, classes, confidences);
+                    return null;
+                }
+            });
+        }
+
+        try
+        {
+            for (Future<Void> future : executor.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error classifying test data. " +
+                    "The classification was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Error classifying test data. " +
+                    "A block of instances failed.", e.getCause());
+        }
+    }
+}
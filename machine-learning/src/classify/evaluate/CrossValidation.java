@@ -0,0 +1,139 @@
+package classify.evaluate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import pair.Pair;
+import classify.ClassificationResult;
+import classify.Classifier;
+import classify.ClassifierTrainer;
+import data.DataSet;
+import data.fold.KFoldCreator;
+
+/**
+ * Runs a stratified k-fold cross-validation of a classifier.  The folds are
+ * index views of the data set, so no instances are copied.  Each fold is
+ * trained and evaluated as a separate task on an executor, and the results 
+ * of the folds are combined in fold order.  The folds depend only on the
+ * data set, the number of folds and the seed, so a run is reproducible 
+ * regardless of the executor.
+ * 
+ */
+public class CrossValidation 
+{
+    /**
+     * The number of folds
+     */
+    private final int numFolds;
+    
+    /**
+     * The seed used to assign instances to folds
+     */
+    private final long seed;
+    
+    /**
+     * The executor running the folds
+     */
+    private final ExecutorService executor;
+    
+    /**
+     * Constructor for a cross-validation that runs its folds on the common
+     * fork-join pool
+     * 
+     * @param numFolds the number of folds
+     * @param seed the seed used to assign instances to folds
+     */
+    public CrossValidation(int numFolds, long seed)
+    {
+        this(numFolds, seed, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Constructor
+     * 
+     * @param numFolds the number of folds
+     * @param seed the seed used to assign instances to folds
+     * @param executor the executor running the folds.  A single-threaded
+     * executor runs the folds serially.
+     */
+    public CrossValidation(int numFolds, long seed, ExecutorService executor)
+    {
+        if (numFolds < 2)
+        {
+            throw new RuntimeException("Error creating cross-validation. " +
+                    "The number of folds must be at least 2.");
+        }
+        
+        this.numFolds = numFolds;
+        this.seed = seed;
+        this.executor = executor;
+    }
+    
+    /**
+     * Cross-validate a classifier and combine the results of the folds
+     * 
+     * @param data the data set.  Its class attribute must be set.
+     * @param trainer trains the classifier on the training data of each fold
+     * @return the combined result of classifying the test data of every fold
+     */
+    public ClassificationResult run(DataSet data, ClassifierTrainer trainer)
+    {
+        return new ClassificationResult(runFolds(data, trainer));
+    }
+    
+    /**
+     * Cross-validate a classifier
+     * 
+     * @param data the data set.  Its class attribute must be set.
+     * @param trainer trains the classifier on the training data of each fold
+     * @return the result of classifying the test data of each fold, in fold
+     * order
+     */
+    public List<ClassificationResult> runFolds(DataSet data, 
+                                               final ClassifierTrainer trainer)
+    {
+        List<Pair<DataSet, DataSet>> folds = 
+                KFoldCreator.createStratified(data, numFolds, seed);
+        
+        List<Callable<ClassificationResult>> tasks = new ArrayList<>();
+        for (final Pair<DataSet, DataSet> fold : folds)
+        {
+            tasks.add(new Callable<ClassificationResult>()
+            {
+                @Override
+                public ClassificationResult call()
+                {
+                    Classifier classifier = trainer.train(fold.getFirst());
+                    return classifier.classifyData(fold.getSecond());
+                }
+            });
+        }
+        
+        List<ClassificationResult> results = new ArrayList<>();
+        try
+        {
+            for (Future<ClassificationResult> future : executor.invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error running cross-validation. " +
+                    "The run was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Error running cross-validation. " +
+                    "A fold failed.", e.getCause());
+        }
+        
+        return results;
+    }
+}
@@ -1,5 +1,6 @@
 package data;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,6 +33,16 @@ public class Attribute
 	 */
 	private final Type type;
 	
+	/**
+	 * A small non-negative integer identifying this attribute within its 
+	 * schema, or -1 until one is assigned.  The ordinal is assigned by the
+	 * first {@code AttributeSet} or {@code ColumnStore} that holds this 
+	 * attribute, normally as the attribute's position in it, and never 
+	 * changes afterwards.  Attributes read from the same schema therefore 
+	 * have dense ordinals that can index arrays in place of hash lookups.
+	 */
+	private volatile int ordinal = -1;
+	
 	/**
 	 * Constructor
 	 * 
@@ -70,6 +81,78 @@ public class Attribute
 		return type;
 	}
 	
+	/**
+	 * @return this attribute's ordinal or -1 if it has not been assigned one
+	 */
+	public int getOrdinal()
+	{
+		return ordinal;
+	}
+	
+	/**
+	 * Assign this attribute's ordinal if it does not have one yet
+	 * 
+	 * @param position the attribute's position in the set that holds it
+	 */
+	synchronized void assignOrdinal(int position)
+	{
+		if (ordinal < 0)
+		{
+			ordinal = position;
+		}
+	}
+	
+	/**
+	 * Assign an ordinal to each attribute of a schema that does not have one
+	 * yet.  A new attribute takes its position in the list unless another 
+	 * attribute of the list already holds that ordinal, in which case it 
+	 * takes the smallest ordinal not held by any attribute of the list.
+	 * 
+	 * @param attributes the attributes of a schema
+	 * @return the attributes of the schema indexed by ordinal.  Slots for
+	 * ordinals not used by the schema are null.
+	 */
+	static Attribute[] assignOrdinals(List<Attribute> attributes)
+	{
+		BitSet held = new BitSet();
+		for (Attribute attr : attributes)
+		{
+			if (attr.getOrdinal() >= 0)
+			{
+				held.set(attr.getOrdinal());
+			}
+		}
+		
+		for (int i = 0; i < attributes.size(); i++)
+		{
+			Attribute attr = attributes.get(i);
+			if (attr.getOrdinal() < 0)
+			{
+				attr.assignOrdinal(held.get(i) ? held.nextClearBit(0) : i);
+				held.set(attr.getOrdinal());
+			}
+		}
+		
+		/*
+		 *  Attributes that were given their ordinals by different schemas
+		 *  may still collide
+		 */
+		Attribute[] ordinalAttrs = new Attribute[held.length()];
+		for (Attribute attr : attributes)
+		{
+			Attribute other = ordinalAttrs[attr.getOrdinal()];
+			if (other != null && other != attr)
+			{
+				throw new RuntimeException("Error assigning attribute " +
+						"ordinals. The attributes " + other.getName() + 
+						" and " + attr.getName() + " have the same ordinal " +
+						attr.getOrdinal() + ".");
+			}
+			ordinalAttrs[attr.getOrdinal()] = attr;
+		}
+		return ordinalAttrs;
+	}
+	
 	/**
 	 * @return the attribute's name
 	 */
@@ -87,7 +170,12 @@ public class Attribute
 	 */
 	public Boolean isValidNominalValueId(Integer nomValueId)
 	{
-	    return nominalValueMap.values().contains(nomValueId);
+	    /*
+	     *  Nominal value IDs are assigned consecutively from zero
+	     */
+	    return nomValueId != null 
+	            && nomValueId >= 0 
+	            && nomValueId < nominalValueMap.size();
 	}
 	
 	/**
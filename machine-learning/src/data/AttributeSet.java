@@ -20,24 +20,32 @@ public class AttributeSet
 	 */
 	private final Map<String, Attribute> nameAttrMap;
 	
+	/**
+	 * The attributes of this set indexed by ordinal.  Slots for ordinals not
+	 * used by this set are null.
+	 */
+	private final Attribute[] ordinalAttrs;
+	
 	/**
 	 * The attribute that denotes the "class" or "concept"
 	 */
 	private String classAttribute;
 	
 	/**
-	 * Constructor
+	 * Constructor.  Each attribute that does not yet have an ordinal is 
+	 * assigned its position in the list, or the smallest free ordinal if an
+	 * attribute of the list already holds that position.
 	 */
 	public AttributeSet(List<Attribute> attributes)
 	{
 	    ImmutableMap.Builder<String, Attribute> builder = new ImmutableMap.Builder<>();
-	    
 	    for (Attribute attr : attributes)
 	    {
 	        builder.put(attr.getName(), attr);
 	    }
 	    
 	    this.nameAttrMap = builder.build();
+	    this.ordinalAttrs = Attribute.assignOrdinals(attributes);
 	}
 	
 	/**
@@ -51,6 +59,32 @@ public class AttributeSet
 		return nameAttrMap.get(attrName);
 	}
 	
+	/**
+	 * Get an attribute by its ordinal
+	 * 
+	 * @param ordinal the attribute's ordinal
+	 * @return the attribute of this set with this ordinal or null if there is
+	 * none
+	 */
+	public Attribute getAttributeByOrdinal(int ordinal)
+	{
+		if (ordinal < 0 || ordinal >= ordinalAttrs.length)
+		{
+			return null;
+		}
+		return ordinalAttrs[ordinal];
+	}
+	
+	/**
+	 * @return one more than the largest ordinal of an attribute in this set.
+	 * This is the number of attributes in the set when the set assigned the
+	 * ordinals, and is the length of an array indexed by ordinal.
+	 */
+	public int getNumOrdinals()
+	{
+		return ordinalAttrs.length;
+	}
+	
 	/**
 	 * Get the nominal value ID for a specific attribute name and nominal
 	 * value of that attribute
@@ -0,0 +1,445 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the values of a set of instances column by column.  Each continuous
+ * attribute is stored in its own {@code double[]}, each nominal attribute is
+ * stored in its own {@code int[]} of nominal value IDs, and missing values
+ * are tracked per column in a {@code BitSet}.
+ * <br>
+ * <br>
+ * Rows are appended to the store and are addressed by their integer row
+ * index.  An {@code Instance} backed by a store is a lightweight view of a
+ * single row.
+ *
+ */
+public class ColumnStore
+{
+    /**
+     * The initial number of rows allocated for each column
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The attributes stored in this column store.  The index of an attribute
+     * in this list is the index of its column.
+     */
+    private final List<Attribute> attributes;
+
+    /**
+     * Maps each attribute to the index of its column
+     */
+    private final Map<Attribute, Integer> columnIndices;
+
+    /**
+     * The index of the column of each attribute indexed by the attribute's
+     * ordinal, or -1 for ordinals of attributes not stored here
+     */
+    private final int[] ordinalColumns;
+
+    /**
+     * The column of each continuous attribute. The entry for a nominal
+     * attribute is null.
+     */
+    private final double[][] continuousColumns;
+
+    /**
+     * The column of each nominal attribute. The entry for a continuous
+     * attribute is null.
+     */
+    private final int[][] nominalColumns;
+
+    /**
+     * The missing values of each column.  An entry is null until the first
+     * missing value is recorded in the column.
+     */
+    private final BitSet[] missing;
+
+    /**
+     * The number of rows in the store
+     */
+    private int numRows = 0;
+
+    /**
+     * The number of rows allocated in each column
+     */
+    private int capacity;
+
+    /**
+     * Constructor
+     *
+     * @param attributes the attributes stored in this column store
+     */
+    public ColumnStore(List<Attribute> attributes)
+    {
+        this(attributes, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param attributes the attributes stored in this column store
+     * @param capacity the number of rows to initially allocate in each column
+     */
+    public ColumnStore(List<Attribute> attributes, int capacity)
+    {
+        this(attributes, capacity, true);
+    }
+
+    /**
+     * Constructor for subclasses that hold their values outside of this
+     * class's column arrays.  Such subclasses must override every accessor
+     * and mutator of values.  Each attribute that does not yet have an
+     * ordinal is assigned the index of its column, or the smallest free
+     * ordinal if another attribute of the store already holds that index.
+     *
+     * @param attributes the attributes stored in this column store
+     * @param capacity the number of rows to initially allocate in each column
+     * @param allocateColumns whether to allocate this class's column arrays
+     */
+    protected ColumnStore(List<Attribute> attributes, int capacity, boolean allocateColumns)
+    {
+        int numColumns = attributes.size();
+
+        this.attributes = new ArrayList<>(attributes);
+        this.columnIndices = new HashMap<>();
+        this.continuousColumns = new double[numColumns][];
+        this.nominalColumns = new int[numColumns][];
+        this.missing = new BitSet[numColumns];
+        this.capacity = Math.max(capacity, 1);
+
+        this.ordinalColumns = new int[Attribute.assignOrdinals(attributes).length];
+        Arrays.fill(ordinalColumns, -1);
+
+        for (int col = 0; col < numColumns; col++)
+        {
+            Attribute attr = attributes.get(col);
+            columnIndices.put(attr, col);
+            ordinalColumns[attr.getOrdinal()] = col;
+
+            if (!allocateColumns)
+            {
+                continue;
+            }
+
+            if (attr.getType() == Attribute.Type.CONTINUOUS)
+            {
+                continuousColumns[col] = new double[this.capacity];
+            }
+            else
+            {
+                nominalColumns[col] = new int[this.capacity];
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows in this store
+     */
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+    /**
+     * @return the number of columns in this store
+     */
+    public int getNumColumns()
+    {
+        return attributes.size();
+    }
+
+    /**
+     * @return the attributes stored in this column store, ordered by column
+     */
+    public List<Attribute> getAttributes()
+    {
+        return attributes;
+    }
+
+    /**
+     * @param col a column index
+     * @return the attribute stored in this column
+     */
+    public Attribute getAttribute(int col)
+    {
+        return attributes.get(col);
+    }
+
+    /**
+     * Get the index of the column that stores an attribute.
+     *
+     * @param attr the attribute
+     * @return the column index of the attribute or -1 if the attribute is not
+     * stored in this column store
+     */
+    public int getColumnIndex(Attribute attr)
+    {
+        /*
+         *  The column of the attribute's ordinal holds this very attribute
+         *  unless the attribute comes from a different schema
+         */
+        int col = getColumnIndex(attr.getOrdinal());
+        if (col >= 0 && attributes.get(col) == attr)
+        {
+            return col;
+        }
+
+        Integer index = columnIndices.get(attr);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the index of the column that stores the attribute with an ordinal.
+     *
+     * @param ordinal the ordinal of the attribute
+     * @return the column index of the attribute or -1 if no attribute with
+     * this ordinal is stored in this column store
+     */
+    public int getColumnIndex(int ordinal)
+    {
+        if (ordinal < 0 || ordinal >= ordinalColumns.length)
+        {
+            return -1;
+        }
+        return ordinalColumns[ordinal];
+    }
+
+    /**
+     * Append a new row to the store.  Every value of the new row must be
+     * either set or marked missing by the caller.
+     *
+     * @return the row index of the new row
+     */
+    public int addRow()
+    {
+        ensureCapacity(numRows + 1);
+        return numRows++;
+    }
+
+    /**
+     * Append a block of new rows to the store.  Every value of the new rows
+     * must be either set or marked missing by the caller.  Values in distinct
+     * rows of the block may be set concurrently by different threads,
+     * provided missing values are only marked by a single thread.
+     *
+     * @param count the number of rows to append
+     * @return the row index of the first new row
+     */
+    public int addRows(int count)
+    {
+        ensureCapacity(numRows + count);
+
+        int firstRow = numRows;
+        numRows += count;
+        return firstRow;
+    }
+
+    /**
+     * Append a row holding the values of an instance.  Attributes of this
+     * store that the instance has no value for are marked missing.
+     *
+     * @param instance the instance
+     * @return the row index of the new row
+     */
+    public int addInstance(Instance instance)
+    {
+        int row = addRow();
+
+        for (int col = 0; col < attributes.size(); col++)
+        {
+            Double value = instance.getAttributeValue(attributes.get(col));
+            if (value != null)
+            {
+                setValue(row, col, value);
+            }
+            else
+            {
+                setMissing(row, col);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * @param row a row index
+     * @param col a column index
+     * @return true if the value at this row and column is missing
+     */
+    public boolean isMissing(int row, int col)
+    {
+        BitSet colMissing = missing[col];
+        return colMissing != null && colMissing.get(row);
+    }
+
+    /**
+     * Mark the value at a row and column as missing
+     *
+     * @param row a row index
+     * @param col a column index
+     */
+    public void setMissing(int row, int col)
+    {
+        if (missing[col] == null)
+        {
+            missing[col] = new BitSet();
+        }
+        missing[col].set(row);
+    }
+
+    /**
+     * Get the nominal value ID at a row of a nominal column.  The result is
+     * undefined if the value is missing.
+     *
+     * @param row a row index
+     * @param col the column index of a nominal attribute
+     * @return the nominal value ID
+     */
+    public int getNominal(int row, int col)
+    {
+        return nominalColumns[col][row];
+    }
+
+    /**
+     * Get the value at a row of a continuous column.  The result is undefined
+     * if the value is missing.
+     *
+     * @param row a row index
+     * @param col the column index of a continuous attribute
+     * @return the continuous value
+     */
+    public double getContinuous(int row, int col)
+    {
+        return continuousColumns[col][row];
+    }
+
+    /**
+     * Get the value at a row and column.  Nominal values are returned as
+     * their nominal value ID.  The result is undefined if the value is
+     * missing.
+     *
+     * @param row a row index
+     * @param col a column index
+     * @return the value
+     */
+    public double getValue(int row, int col)
+    {
+        int[] nominalColumn = nominalColumns[col];
+        if (nominalColumn != null)
+        {
+            return nominalColumn[row];
+        }
+        return continuousColumns[col][row];
+    }
+
+    /**
+     * Set a nominal value ID at a row of a nominal column
+     *
+     * @param row a row index
+     * @param col the column index of a nominal attribute
+     * @param nominalValueId the nominal value ID
+     */
+    public void setNominal(int row, int col, int nominalValueId)
+    {
+        nominalColumns[col][row] = nominalValueId;
+        clearMissing(row, col);
+    }
+
+    /**
+     * Set a value at a row of a continuous column
+     *
+     * @param row a row index
+     * @param col the column index of a continuous attribute
+     * @param value the value
+     */
+    public void setContinuous(int row, int col, double value)
+    {
+        continuousColumns[col][row] = value;
+        clearMissing(row, col);
+    }
+
+    /**
+     * Set the value at a row and column.  Nominal values are given as their
+     * nominal value ID.
+     *
+     * @param row a row index
+     * @param col a column index
+     * @param value the value
+     */
+    public void setValue(int row, int col, double value)
+    {
+        if (nominalColumns[col] != null)
+        {
+            setNominal(row, col, (int) value);
+        }
+        else
+        {
+            setContinuous(row, col, value);
+        }
+    }
+
+    /**
+     * Release any capacity allocated beyond the current number of rows
+     */
+    public void trimToSize()
+    {
+        resize(numRows);
+    }
+
+    /**
+     * Clear the missing mark at a row and column
+     *
+     * @param row a row index
+     * @param col a column index
+     */
+    private void clearMissing(int row, int col)
+    {
+        BitSet colMissing = missing[col];
+        if (colMissing != null)
+        {
+            colMissing.clear(row);
+        }
+    }
+
+    /**
+     * Grow every column so that it can hold at least the given number of rows
+     *
+     * @param minCapacity the number of rows required
+     */
+    private void ensureCapacity(int minCapacity)
+    {
+        if (minCapacity > capacity)
+        {
+            resize(Math.max(minCapacity, capacity * 2));
+        }
+    }
+
+    /**
+     * Reallocate every column to hold exactly the given number of rows
+     *
+     * @param newCapacity the new number of rows allocated in each column
+     */
+    private void resize(int newCapacity)
+    {
+        newCapacity = Math.max(newCapacity, 1);
+
+        for (int col = 0; col < attributes.size(); col++)
+        {
+            if (continuousColumns[col] != null)
+            {
+                continuousColumns[col] = Arrays.copyOf(continuousColumns[col], newCapacity);
+            }
+            else
+            {
+                nominalColumns[col] = Arrays.copyOf(nominalColumns[col], newCapacity);
+            }
+        }
+        capacity = newCapacity;
+    }
+}
@@ -3,7 +3,8 @@ package data;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+
+import data.count.ADTree;
 
 
 
@@ -26,21 +27,84 @@ public class DataSet
 	
 	/**
 	 * Maps each nominal value ID of the class attribute to the number of
-	 * instances in the data set that are of that class
+	 * instances in the data set that are of that class.  For a subset view
+	 * this is calculated the first time it is requested.  The map is 
+	 * published only once it is filled, so it may be requested from several
+	 * threads.
+	 */
+	protected volatile Map<Integer, Integer> classCounts;
+	
+	/**
+	 * The total weight of the instances of each class, indexed by nominal
+	 * value ID of the class attribute.  Instances missing the class value 
+	 * are not included.  This is calculated the first time it is requested.
 	 */
-	protected Map<Integer, Integer> classCounts;
+	private volatile double[] classWeights;
+	
+	/**
+	 * The total weight, weighted sum and weighted sum of squares of the 
+	 * values of a continuous class attribute.  Instances missing the class
+	 * value are not included.  This is calculated the first time it is 
+	 * requested.
+	 */
+	private volatile double[] classMoments;
 	
 	/**
 	 * The attribute representing the class attribute
 	 */
 	protected Attribute classAttr = null;
 	
+	/**
+	 * The counts of the nominal attributes of the instances in this data
+	 * set.  This is built the first time it is requested.
+	 */
+	private volatile ADTree counts = null;
+	
 	public DataSet(AttributeSet attributes, InstanceSet instances)
 	{
 		this.attributeSet = attributes;
 		this.instanceSet = instances;
 	}
 	
+	/**
+	 * Create a data set that is a view of a subset of this data set's 
+	 * instances.  The view shares this data set's attributes and class 
+	 * attribute.  No instances are copied, and the class counts of the view 
+	 * are not calculated until they are first requested.
+	 * 
+	 * @param ids the IDs in this data set's instance set of the instances in
+	 * the subset.  The array is owned by the view and must not be modified
+	 * afterwards.
+	 * @return the subset view
+	 */
+	public DataSet subset(int[] ids)
+	{
+		DataSet subset = new DataSet(attributeSet, instanceSet.subset(ids));
+		subset.classAttr = classAttr;
+		return subset;
+	}
+	
+	/**
+	 * Create a data set that is a view of a subset of this data set's 
+	 * instances in which each instance has a weight.  Fractional weights
+	 * represent instances divided among several subsets.
+	 * 
+	 * @param ids the IDs in this data set's instance set of the instances in
+	 * the subset.  The array is owned by the view and must not be modified
+	 * afterwards.
+	 * @param weights the weight of each instance in the subset, or null if 
+	 * every instance has weight one.  The array is owned by the view and 
+	 * must not be modified afterwards.
+	 * @return the subset view
+	 */
+	public DataSet subset(int[] ids, double[] weights)
+	{
+		DataSet subset = new DataSet(attributeSet, 
+				new InstanceSet(instanceSet, ids, weights));
+		subset.classAttr = classAttr;
+		return subset;
+	}
+	
 	/**
 	 * Assign the Attribute that labels the class of each instance in the data
 	 * set.
@@ -60,7 +124,12 @@ public class DataSet
 					" is not an attribute name in this dataset" );
 		}
 		
-		this.calculateClassCounts();
+		this.classWeights = null;
+		this.classMoments = null;
+		if (classAttr != null && classAttr.getType() == Attribute.Type.NOMINAL)
+		{
+			this.calculateClassCounts();
+		}
 	}
 	
 	/**
@@ -80,7 +149,21 @@ public class DataSet
 	 */
 	public Map<Integer, Integer> getClassCounts()
 	{
-		if (classCounts == null)
+		Map<Integer, Integer> result = classCounts;
+		if (result == null && classAttr != null && 
+		    classAttr.getType() == Attribute.Type.NOMINAL)
+		{
+			synchronized (this)
+			{
+				if (classCounts == null)
+				{
+					calculateClassCounts();
+				}
+				result = classCounts;
+			}
+		}
+		
+		if (result == null)
 		{
 			throw new RuntimeException("Error. Trying to retrieve class " +
 					"counts from DataSet, but class counts Map has not been " +
@@ -88,8 +171,172 @@ public class DataSet
 		}
 		else
 		{
-			return classCounts;
+			return result;
+		}
+	}
+
+	/**
+	 * @return the total weight of the instances of each class, indexed by 
+	 * nominal value ID of the class attribute.  Instances missing the class
+	 * value are not included.  Unless this data set is a weighted view, the
+	 * weights are the class counts.  The array must not be modified.
+	 */
+	public double[] getClassWeights()
+	{
+		double[] result = classWeights;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = classWeights;
+				if (result == null)
+				{
+					result = calculateClassWeights();
+					classWeights = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the total weight of the instances of each class
+	 */
+	private double[] calculateClassWeights()
+	{
+		if (classAttr == null)
+		{
+			throw new RuntimeException("Error. Trying to retrieve class " +
+					"weights from DataSet, but the class attribute has " +
+					"not been set.");
+		}
+		if (classAttr.getType() != Attribute.Type.NOMINAL)
+		{
+			throw new RuntimeException("Error. Trying to retrieve class " +
+					"weights from DataSet, but the class attribute, " + 
+					classAttr.getName() + ", is not nominal.");
+		}
+		
+		double[] weights = new double[classAttr.getNominalValueMap().size()];
+		
+		ColumnStore store = instanceSet.getBase().getColumnStore();
+		if (store != null && store.getColumnIndex(classAttr) >= 0)
+		{
+			/*
+			 *  Read the class labels directly from the class column
+			 */
+			int classCol = store.getColumnIndex(classAttr);
+			int[] rows = instanceSet.getRows();
+			for (int id = 0; id < instanceSet.size(); id++)
+			{
+				int row = rows == null ? id : rows[id];
+				if (!store.isMissing(row, classCol))
+				{
+					weights[store.getNominal(row, classCol)] += instanceSet.getWeight(id);
+				}
+			}
+		}
+		else
+		{
+			List<Instance> instances = instanceSet.getInstances();
+			for (int id = 0; id < instances.size(); id++)
+			{
+				Double classValue = instances.get(id).getAttributeValue(classAttr);
+				if (classValue != null)
+				{
+					weights[classValue.intValue()] += instanceSet.getWeight(id);
+				}
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * @return the total weight, the weighted sum and the weighted sum of 
+	 * squares of the values of the continuous class attribute, in that 
+	 * order.  Instances missing the class value are not included.  The 
+	 * array must not be modified.
+	 */
+	public double[] getClassMoments()
+	{
+		double[] result = classMoments;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = classMoments;
+				if (result == null)
+				{
+					result = calculateClassMoments();
+					classMoments = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the total weight, weighted sum and weighted sum of squares of
+	 * the class values
+	 */
+	private double[] calculateClassMoments()
+	{
+		if (classAttr == null || classAttr.getType() != Attribute.Type.CONTINUOUS)
+		{
+			throw new RuntimeException("Error. Trying to retrieve class " +
+					"moments from DataSet, but the class attribute is " +
+					"not continuous.");
+		}
+		
+		double[] moments = new double[3];
+		List<Instance> instances = instanceSet.getInstances();
+		for (int id = 0; id < instances.size(); id++)
+		{
+			Double classValue = instances.get(id).getAttributeValue(classAttr);
+			if (classValue != null)
+			{
+				double weight = instanceSet.getWeight(id);
+				moments[0] += weight;
+				moments[1] += weight * classValue;
+				moments[2] += weight * classValue * classValue;
+			}
+		}
+		return moments;
+	}
+	
+	/**
+	 * @return the weighted mean value of the continuous class attribute, or
+	 * NaN if no instance has a class value
+	 */
+	public double getClassMean()
+	{
+		double[] moments = getClassMoments();
+		return moments[0] > 0 ? moments[1] / moments[0] : Double.NaN;
+	}
+
+	/**
+	 * Get the counts engine of this data set, building it on first use.  The
+	 * counts reflect the instances in the data set at the time it was built.
+	 * 
+	 * @return an AD-tree caching the counts of the nominal attributes of the
+	 * instances in this data set
+	 */
+	public ADTree getCounts()
+	{
+		ADTree result = counts;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = counts;
+				if (result == null)
+				{
+					result = new ADTree(this);
+					counts = result;
+				}
+			}
 		}
+		return result;
 	}
 
 	/**
@@ -154,11 +401,12 @@ public class DataSet
 	/**
 	 * This method calculates how many instances are of each class label.  
 	 * It stores the results in a map that maps a nominal value ID of each
-	 * nominal value of the class attribute to a count 
+	 * nominal value of the class attribute to a count.  The map is filled
+	 * before it replaces the stored class counts.
 	 */
 	public void calculateClassCounts()
 	{
-		classCounts = new HashMap<Integer, Integer>();
+		Map<Integer, Integer> result = new HashMap<Integer, Integer>();
 
 
         /*
@@ -167,24 +415,59 @@ public class DataSet
          */
 		for (Integer classLabelValue : classAttr.getNominalValueMap().values())
 		{
-			classCounts.put(new Integer(classLabelValue), new Integer(0));
+			result.put(new Integer(classLabelValue), new Integer(0));
 		}
 		
+		/*
+		 *  If the instances are rows of a column store, count the class
+		 *  labels directly from the class attribute's column
+		 */
+		ColumnStore store = instanceSet.getBase().getColumnStore();
+		if (store != null && store.getColumnIndex(classAttr) >= 0)
+		{
+			int classCol = store.getColumnIndex(classAttr);
+			int[] rows = instanceSet.getRows();
+			int numRows = instanceSet.size();
+			int[] counts = new int[result.size()];
+			for (int i = 0; i < numRows; i++)
+			{
+				int row = rows == null ? i : rows[i];
+				if (!store.isMissing(row, classCol))
+				{
+					counts[store.getNominal(row, classCol)]++;
+				}
+			}
+			for (int classLabelValue = 0; classLabelValue < counts.length; classLabelValue++)
+			{
+				result.put(classLabelValue, counts[classLabelValue]);
+			}
+			classCounts = result;
+			return;
+		}
+
 		/*
 		 *  For each instance in the instance set, increment the count of the class label
 		 *  for each instance of that class
 		 */
 		for (Instance instance : instanceSet.getInstances())
 		{
-			classCounts.put(
-					new Integer( instance.getAttributeValue(classAttr).intValue() ),
-					new Integer(classCounts.get(instance.getAttributeValue(classAttr).intValue()) + 1)
+			Double classValue = instance.getAttributeValue(classAttr);
+			if (classValue == null)
+			{
+				continue;
+			}
+			
+			result.put(
+					new Integer( classValue.intValue() ),
+					new Integer(result.get(classValue.intValue()) + 1)
 					);
 		}
+		classCounts = result;
 	}
 	
 	/**
-	 * Get the class value most represented in a data set.
+	 * Get the class value most represented in a data set.  Instances are
+	 * weighted by their weight in the data set.
 	 * 
 	 * @param data the data set 
 	 * @return the nominal value ID of the class attribute most represented in
@@ -192,15 +475,16 @@ public class DataSet
 	 */
 	public Integer getMajorityClass()
 	{
-		int largestCount = 0;
+		double largestWeight = 0;
 		Integer currMajorityId = 0;
 
-		for (Entry<Integer, Integer> entry : getClassCounts().entrySet())
+		double[] weights = getClassWeights();
+		for (int classValue = 0; classValue < weights.length; classValue++)
 		{
-			if (entry.getValue() > largestCount)
+			if (weights[classValue] > largestWeight)
 			{
-				currMajorityId = entry.getKey();
-				largestCount = entry.getValue();
+				currMajorityId = classValue;
+				largestWeight = weights[classValue];
 			}
 		}
 
@@ -1,77 +1,242 @@
 package data;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
 
 /**
- * Represents an instance.
- * 
+ * Represents an instance.  An instance either stores its own attribute values
+ * in arrays indexed by attribute ordinal or is a lightweight view of a single
+ * row of a {@code ColumnStore}.
+ *
  */
-public class Instance 
-{	
+public class Instance
+{
 	/**
-	 * This instance's attribute value.  The map maps an attribute ID
-	 * to a valid value for that attribute
+	 * The initial length of the value arrays of an instance that stores its
+	 * own values
 	 */
-	private final Map<Attribute, Double> attributesToValues;
-	
+	private static final int INITIAL_ORDINALS = 8;
+
+	/**
+	 * The attribute having a value in this instance, indexed by the
+	 * attribute's ordinal.  A slot is null if this instance has no value for
+	 * the attribute with that ordinal.  This array is null if this instance
+	 * is a view of a row in a column store.
+	 */
+	private Attribute[] attributes;
+
+	/**
+	 * This instance's value of each attribute in {@code attributes}, indexed
+	 * by the attribute's ordinal
+	 */
+	private double[] values;
+
+	/**
+	 * This instance's values of attributes that cannot be stored by ordinal,
+	 * because they have no ordinal or because their ordinal's slot holds a
+	 * different attribute.  This is null until the first such value is
+	 * added.
+	 */
+	private Map<Attribute, Double> otherValues;
+
+	/**
+	 * The column store holding this instance's values.  This is null if this
+	 * instance stores its own values.
+	 */
+	private final ColumnStore store;
+
+	/**
+	 * The row of the column store holding this instance's values
+	 */
+	private final int row;
+
 	/**
 	 * Constructor
 	 */
 	public Instance()
 	{
-		attributesToValues = new HashMap<>();
+		attributes = new Attribute[INITIAL_ORDINALS];
+		values = new double[INITIAL_ORDINALS];
+		store = null;
+		row = -1;
+	}
+
+	/**
+	 * Constructor for an instance that views a row of a column store
+	 *
+	 * @param store the column store
+	 * @param row the row of the column store holding this instance's values
+	 */
+	public Instance(ColumnStore store, int row)
+	{
+		this.attributes = null;
+		this.values = null;
+		this.store = store;
+		this.row = row;
 	}
-	
-	
+
 	/**
 	 * Get the value for an attribute.
-	 * 
+	 *
 	 * @param attr the specified attribute
-	 * @return this instance's value of the specified attribute
+	 * @return this instance's value of the specified attribute or null if the
+	 * value is missing
 	 */
 	public Double getAttributeValue(Attribute attr)
 	{
-	    return attributesToValues.get(attr);
+		if (store == null)
+		{
+			int ordinal = findOrdinal(attr);
+			if (ordinal >= 0)
+			{
+				return values[ordinal];
+			}
+			return otherValues == null ? null : otherValues.get(attr);
+		}
+
+		int col = store.getColumnIndex(attr);
+		if (col < 0 || store.isMissing(row, col))
+		{
+			return null;
+		}
+		return store.getValue(row, col);
 	}
-	
+
 	/**
 	 * Add an attribute-value pair to the instance.
-	 * 
+	 *
 	 * @param attrId the attribute ID of the attribute being added
 	 * @param value the value of the corresponding attribute
 	 */
 	public void addAttributeValue(Attribute attr, Double value)
 	{
-		attributesToValues.put(attr, value);
+		if (store == null)
+		{
+			/*
+			 *  A value is stored in the slot of the attribute's ordinal 
+			 *  unless the attribute has no ordinal, the slot holds a 
+			 *  different attribute, or the value is already stored in the
+			 *  map
+			 */
+			int ordinal = findOrdinal(attr);
+			if (ordinal < 0 && (otherValues == null || !otherValues.containsKey(attr)))
+			{
+				ordinal = attr.getOrdinal();
+				if (ordinal >= attributes.length)
+				{
+					int length = Math.max(ordinal + 1, 2 * attributes.length);
+					attributes = Arrays.copyOf(attributes, length);
+					values = Arrays.copyOf(values, length);
+				}
+				if (ordinal >= 0 && attributes[ordinal] != null)
+				{
+					ordinal = -1;
+				}
+			}
+
+			if (ordinal < 0)
+			{
+				if (otherValues == null)
+				{
+					otherValues = new HashMap<>();
+				}
+				if (value == null)
+				{
+					otherValues.remove(attr);
+				}
+				else
+				{
+					otherValues.put(attr, value);
+				}
+			}
+			else if (value == null)
+			{
+				attributes[ordinal] = null;
+			}
+			else
+			{
+				attributes[ordinal] = attr;
+				values[ordinal] = value;
+			}
+			return;
+		}
+
+		int col = store.getColumnIndex(attr);
+		if (col < 0)
+		{
+			throw new RuntimeException("Error adding value for attribute " +
+					attr.getName() + ". The instance's column store has no " +
+					"column for this attribute.");
+		}
+
+		if (value == null)
+		{
+			store.setMissing(row, col);
+		}
+		else
+		{
+			store.setValue(row, col, value);
+		}
 	}
-	
+
+	/**
+	 * Find the slot holding the value of an attribute.  The attribute's 
+	 * ordinal locates the slot directly.  The slots are only searched for an
+	 * equal attribute when the attribute's own slot does not hold it.
+	 *
+	 * @param attr the attribute
+	 * @return the ordinal of the slot holding an attribute equal to this 
+	 * attribute, or -1 if no slot holds one
+	 */
+	private int findOrdinal(Attribute attr)
+	{
+		int ordinal = attr.getOrdinal();
+		if (ordinal >= 0 && ordinal < attributes.length 
+				&& attributes[ordinal] != null 
+				&& attributes[ordinal].equals(attr))
+		{
+			return ordinal;
+		}
+
+		for (int other = 0; other < attributes.length; other++)
+		{
+			if (attributes[other] != null && attributes[other].equals(attr))
+			{
+				return other;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Checks if this Instance is equal to another Instance.
-	 * 
+	 *
 	 * @param o the other Instance
 	 * @return
 	 */
 	@Override
 	public boolean equals(Object o)
 	{
-		Map<Attribute, Double> other = ((Instance)o).attributesToValues;
-		for(Entry<Attribute, Double> attr: attributesToValues.entrySet())
+		Instance other = (Instance) o;
+		for(Entry<Attribute, Double> attr: getAttributeValues().entrySet())
 		{
-			if(!other.get(attr.getKey()).equals(attr.getValue()))
+			Double otherValue = other.getAttributeValue(attr.getKey());
+			if(otherValue == null || !otherValue.equals(attr.getValue()))
 			{
 				return false;
 			}
 		}
 		return true;
 	}
-	
+
 	public String toString()
 	{
 		String result = "";
-		for(Entry<Attribute, Double> entry: attributesToValues.entrySet())
+		for(Entry<Attribute, Double> entry: getAttributeValues().entrySet())
 		{
 		    if (entry.getKey().getType() == Attribute.Type.NOMINAL)
 		    {
@@ -84,4 +249,37 @@ public class Instance
 		}
 		return result;
 	}
+
+	/**
+	 * @return a mapping of each attribute with a value in this instance to
+	 * that value
+	 */
+	private Map<Attribute, Double> getAttributeValues()
+	{
+		Map<Attribute, Double> values = new LinkedHashMap<>();
+		if (store == null)
+		{
+			for (int ordinal = 0; ordinal < attributes.length; ordinal++)
+			{
+				if (attributes[ordinal] != null)
+				{
+					values.put(attributes[ordinal], this.values[ordinal]);
+				}
+			}
+			if (otherValues != null)
+			{
+				values.putAll(otherValues);
+			}
+			return values;
+		}
+
+		for (int col = 0; col < store.getNumColumns(); col++)
+		{
+			if (!store.isMissing(row, col))
+			{
+				values.put(store.getAttribute(col), store.getValue(row, col));
+			}
+		}
+		return values;
+	}
 }
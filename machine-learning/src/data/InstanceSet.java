@@ -1,57 +1,312 @@
 package data;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
- * This class represents a set of {@code Instance} objects.
- * 
+ * This class represents a set of {@code Instance} objects.  The instances are
+ * either held in a list, are the rows of a {@code ColumnStore}, or are a
+ * subset of the instances of another instance set selected by an array of
+ * instance IDs.  A subset view shares the instances of its base set and
+ * copies nothing but the array of IDs.  A view may also give each of its
+ * instances a weight, so that an instance can be divided among several 
+ * views as a set of fractional instances.
+ *
  * @author Matthew Bernstein - matthewb@cs.wisc.edu
  *
  */
-public class InstanceSet 
+public class InstanceSet
 {
 	/**
-	 * All instances in this instance set
+	 * All instances in this instance set.  This is null if this instance set
+	 * is backed by a column store.
 	 */
 	private final List<Instance> instances;
-	
+
+	/**
+	 * The column store whose rows are the instances in this instance set.
+	 * This is null if the instances are held in a list.
+	 */
+	private final ColumnStore store;
+
+	/**
+	 * The instance set that this instance set is a subset view of.  This is
+	 * null if this instance set is not a view.  The base set is never itself
+	 * a view.
+	 */
+	private final InstanceSet base;
+
+	/**
+	 * The IDs in the base set of the instances in this view, in order.  This
+	 * is null if this instance set is not a view.
+	 */
+	private final int[] rows;
+
+	/**
+	 * The weight of each instance in this view, in the order of
+	 * {@code rows}.  This is null if every instance has weight one.
+	 */
+	private final double[] weights;
+
 	/**
 	 * Constructor
 	 */
 	public InstanceSet()
 	{
 		instances = new ArrayList<Instance>();
+		store = null;
+		base = null;
+		rows = null;
+		weights = null;
+	}
+
+	/**
+	 * Constructor for an instance set whose instances are the rows of a
+	 * column store
+	 *
+	 * @param store the column store
+	 */
+	public InstanceSet(ColumnStore store)
+	{
+		this.instances = null;
+		this.store = store;
+		this.base = null;
+		this.rows = null;
+		this.weights = null;
+	}
+
+	/**
+	 * Constructor for a view of a subset of another instance set's
+	 * instances.  A view of a view refers directly to the base set of the
+	 * other view.
+	 *
+	 * @param parent the instance set holding the instances
+	 * @param ids the IDs in the parent set of the instances in the view.
+	 * The array is owned by the view and must not be modified afterwards.
+	 */
+	public InstanceSet(InstanceSet parent, int[] ids)
+	{
+		this(parent, ids, parent.getWeights(ids));
 	}
-	
+
 	/**
-	 * @return a list of all instances in this instance set
+	 * Constructor for a view of a subset of another instance set's
+	 * instances in which each instance has a weight.  A view of a view
+	 * refers directly to the base set of the other view.
+	 *
+	 * @param parent the instance set holding the instances
+	 * @param ids the IDs in the parent set of the instances in the view.
+	 * The array is owned by the view and must not be modified afterwards.
+	 * @param weights the weight of each instance in the view, in the order
+	 * of the IDs, or null if every instance has weight one.  The array is
+	 * owned by the view and must not be modified afterwards.
+	 */
+	public InstanceSet(InstanceSet parent, int[] ids, double[] weights)
+	{
+		this.instances = null;
+		this.store = null;
+
+		if (parent.base == null)
+		{
+			this.base = parent;
+			this.rows = ids;
+		}
+		else
+		{
+			this.base = parent.base;
+			this.rows = new int[ids.length];
+			for (int i = 0; i < ids.length; i++)
+			{
+				this.rows[i] = parent.rows[ids[i]];
+			}
+		}
+		this.weights = weights;
+	}
+
+	/**
+	 * @return a list of all instances in this instance set.  If this instance
+	 * set is backed by a column store or is a subset view, the list is a
+	 * read-only view of the instances.
 	 */
 	public List<Instance> getInstances()
 	{
-		return instances;
+		if (instances != null)
+		{
+			return instances;
+		}
+		return new RowList();
+	}
+
+	/**
+	 * @return the number of instances in this instance set
+	 */
+	public int size()
+	{
+		if (rows != null)
+		{
+			return rows.length;
+		}
+		return store == null ? instances.size() : store.getNumRows();
 	}
-	
+
+	/**
+	 * @return the column store whose rows are exactly the instances of this
+	 * instance set, or null if the instances are held in a list or this
+	 * instance set is a subset view
+	 */
+	public ColumnStore getColumnStore()
+	{
+		return store;
+	}
+
+	/**
+	 * @return true if this instance set is a subset view of another
+	 * instance set
+	 */
+	public boolean isView()
+	{
+		return rows != null;
+	}
+
+	/**
+	 * @return the instance set holding the instances of this view, or this
+	 * instance set if it is not a view
+	 */
+	public InstanceSet getBase()
+	{
+		return rows == null ? this : base;
+	}
+
+	/**
+	 * @return the IDs in the base set of the instances in this view, in
+	 * order, or null if this instance set is not a view.  The array must not
+	 * be modified.
+	 */
+	public int[] getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * @param id the ID of an instance in this instance set
+	 * @return the weight of the instance.  This is one unless this instance 
+	 * set is a weighted view.
+	 */
+	public double getWeight(int id)
+	{
+		return weights == null ? 1.0 : weights[id];
+	}
+
+	/**
+	 * @return the weight of each instance in this instance set, in order, or
+	 * null if every instance has weight one.  The array must not be 
+	 * modified.
+	 */
+	public double[] getWeights()
+	{
+		return weights;
+	}
+
+	/**
+	 * @param ids the IDs of instances in this instance set
+	 * @return the weights of the instances, or null if they all have weight
+	 * one
+	 */
+	private double[] getWeights(int[] ids)
+	{
+		if (weights == null)
+		{
+			return null;
+		}
+
+		double[] result = new double[ids.length];
+		for (int i = 0; i < ids.length; i++)
+		{
+			result[i] = weights[ids[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * Create a view of a subset of this instance set's instances
+	 *
+	 * @param ids the IDs in this instance set of the instances in the view.
+	 * The array is owned by the view and must not be modified afterwards.
+	 * @return the view
+	 */
+	public InstanceSet subset(int[] ids)
+	{
+		return new InstanceSet(this, ids);
+	}
+
 	/**
 	 * Add an instance to this instance set
-	 * 
+	 *
 	 * @param newInstance the new instance
 	 */
 	public void addInstance(Instance newInstance)
 	{
-		instances.add(newInstance);
+		if (rows != null)
+		{
+			throw new UnsupportedOperationException("Error adding instance. " +
+					"A subset view of an instance set cannot be modified.");
+		}
+		else if (store == null)
+		{
+			instances.add(newInstance);
+		}
+		else
+		{
+			store.addInstance(newInstance);
+		}
 	}
-	
+
 	/**
 	 * @param id the unique ID of a specific instance
 	 * @return the instance with specified ID
 	 */
 	public Instance getInstanceById(int id)
 	{
-		return instances.get(id);
+		if (rows != null)
+		{
+			return base.getInstanceById(rows[id]);
+		}
+		else if (store == null)
+		{
+			return instances.get(id);
+		}
+
+		if (id < 0 || id >= store.getNumRows())
+		{
+			throw new IndexOutOfBoundsException("Instance ID " + id +
+					" is out of range for an instance set of size " +
+					store.getNumRows());
+		}
+		return new Instance(store, id);
 	}
-	
+
 	public String toString(){
-		return instances.toString();
+		return getInstances().toString();
+	}
+
+	/**
+	 * A list view of the rows of the backing column store or of the
+	 * instances selected by a subset view
+	 */
+	private class RowList extends AbstractList<Instance> implements RandomAccess
+	{
+		@Override
+		public Instance get(int index)
+		{
+			return getInstanceById(index);
+		}
+
+		@Override
+		public int size()
+		{
+			return InstanceSet.this.size();
+		}
 	}
 }
@@ -0,0 +1,136 @@
+package data;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * A read-only {@code ColumnStore} whose columns are views of buffers, such as
+ * the memory-mapped column blocks of a binary data set file.  No values are
+ * copied onto the heap.  Missing values of each column are stored as a
+ * bitmap of 64-bit words.
+ *
+ */
+public class MappedColumnStore extends ColumnStore
+{
+    /**
+     * The number of rows in the store
+     */
+    private final int numRows;
+
+    /**
+     * The column of each continuous attribute. The entry for a nominal
+     * attribute is null.
+     */
+    private final DoubleBuffer[] continuousColumns;
+
+    /**
+     * The column of each nominal attribute. The entry for a continuous
+     * attribute is null.
+     */
+    private final IntBuffer[] nominalColumns;
+
+    /**
+     * The missing value bitmap of each column.  An entry is null if the
+     * column has no missing values.
+     */
+    private final LongBuffer[] missing;
+
+    /**
+     * Constructor
+     *
+     * @param attributes the attributes stored in this column store
+     * @param numRows the number of rows in the store
+     * @param continuousColumns the column of each continuous attribute
+     * @param nominalColumns the column of each nominal attribute
+     * @param missing the missing value bitmap of each column
+     */
+    public MappedColumnStore(List<Attribute> attributes,
+                             int numRows,
+                             DoubleBuffer[] continuousColumns,
+                             IntBuffer[] nominalColumns,
+                             LongBuffer[] missing)
+    {
+        super(attributes, 0, false);
+
+        this.numRows = numRows;
+        this.continuousColumns = continuousColumns;
+        this.nominalColumns = nominalColumns;
+        this.missing = missing;
+    }
+
+    @Override
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+    @Override
+    public boolean isMissing(int row, int col)
+    {
+        LongBuffer colMissing = missing[col];
+        return colMissing != null && (colMissing.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    @Override
+    public int getNominal(int row, int col)
+    {
+        return nominalColumns[col].get(row);
+    }
+
+    @Override
+    public double getContinuous(int row, int col)
+    {
+        return continuousColumns[col].get(row);
+    }
+
+    @Override
+    public double getValue(int row, int col)
+    {
+        IntBuffer nominalColumn = nominalColumns[col];
+        if (nominalColumn != null)
+        {
+            return nominalColumn.get(row);
+        }
+        return continuousColumns[col].get(row);
+    }
+
+    @Override
+    public int addRow()
+    {
+        throw new UnsupportedOperationException("Error. Cannot add rows to a mapped column store.");
+    }
+
+    @Override
+    public int addRows(int count)
+    {
+        throw new UnsupportedOperationException("Error. Cannot add rows to a mapped column store.");
+    }
+
+    @Override
+    public void setMissing(int row, int col)
+    {
+        throw new UnsupportedOperationException("Error. Cannot modify a mapped column store.");
+    }
+
+    @Override
+    public void setNominal(int row, int col, int nominalValueId)
+    {
+        throw new UnsupportedOperationException("Error. Cannot modify a mapped column store.");
+    }
+
+    @Override
+    public void setContinuous(int row, int col, double value)
+    {
+        throw new UnsupportedOperationException("Error. Cannot modify a mapped column store.");
+    }
+
+    @Override
+    public void trimToSize()
+    {
+        /*
+         * A mapped store holds no spare capacity
+         */
+    }
+}
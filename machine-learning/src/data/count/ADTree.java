@@ -0,0 +1,646 @@
+package data.count;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import data.Attribute;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+
+/**
+ * An all-dimensions tree (AD-tree) caching the sufficient statistics of the
+ * nominal attributes of a data set.  The tree answers conjunctive count
+ * queries, such as the number of instances with A = a and C = c, and builds
+ * contingency tables over any list of nominal attributes without rescanning
+ * the data.
+ * <br>
+ * <br>
+ * The tree follows Moore and Lee's construction with two refinements.  Nodes
+ * are expanded lazily, the first time a query needs them, so that only the
+ * parts of the tree that are used are ever built.  Nodes with few instances
+ * are not expanded at all; their rows are kept in a leaf-list and scanned.
+ * Below each vary node, the child for the most common value is never built;
+ * its counts are recovered by subtracting the counts of its siblings from
+ * the counts of the parent.
+ * <br>
+ * <br>
+ * Missing values are kept in an extra bucket after the last nominal value of
+ * each attribute.  Instances missing a value of a queried attribute are
+ * never counted.
+ *
+ */
+public class ADTree
+{
+    /**
+     * Nodes with at most this many instances are not expanded.  Queries on
+     * these nodes scan their rows instead.
+     */
+    private final static int LEAF_LIST_SIZE = 16;
+
+    /**
+     * The store holding the instances
+     */
+    private final ColumnStore store;
+
+    /**
+     * The nominal attributes in the tree, in the order in which the tree
+     * splits on them
+     */
+    private final List<Attribute> attributes;
+
+    /**
+     * Maps each attribute in the tree to its position in the tree
+     */
+    private final Map<Attribute, Integer> positions;
+
+    /**
+     * The column of the store holding each attribute
+     */
+    private final int[] columns;
+
+    /**
+     * The number of buckets of each attribute: one for each nominal value
+     * and one for missing values
+     */
+    private final int[] arity;
+
+    /**
+     * The root of the tree, which covers every instance
+     */
+    private final ADNode root;
+
+    /**
+     * Constructor
+     *
+     * @param data the data set whose counts are cached.  If the data set is
+     * a subset view of a data set backed by a column store, the tree covers
+     * the view's rows of that store.  If neither the data set nor its base is
+     * backed by a column store, its instances are copied into one.
+     */
+    public ADTree(DataSet data)
+    {
+        this(getColumnStore(data), getRows(data));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param store the store holding the instances whose counts are cached
+     */
+    public ADTree(ColumnStore store)
+    {
+        this(store, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param store the store holding the instances whose counts are cached
+     * @param rows the rows of the store whose counts are cached, or null to
+     * cache the counts of every row.  The array must not be modified.
+     */
+    public ADTree(ColumnStore store, int[] rows)
+    {
+        this.store = store;
+        this.attributes = new ArrayList<>();
+        this.positions = new HashMap<>();
+
+        for (Attribute attr : store.getAttributes())
+        {
+            if (attr.getType() == Attribute.Type.NOMINAL)
+            {
+                positions.put(attr, attributes.size());
+                attributes.add(attr);
+            }
+        }
+
+        this.columns = new int[attributes.size()];
+        this.arity = new int[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++)
+        {
+            columns[i] = store.getColumnIndex(attributes.get(i));
+            arity[i] = attributes.get(i).getNominalValueMap().size() + 1;
+        }
+
+        if (rows == null)
+        {
+            rows = new int[store.getNumRows()];
+            for (int row = 0; row < rows.length; row++)
+            {
+                rows[row] = row;
+            }
+        }
+        this.root = new ADNode(rows, 0);
+    }
+
+    /**
+     * @return the number of instances in the tree
+     */
+    public int getNumInstances()
+    {
+        return root.count;
+    }
+
+    /**
+     * @return the nominal attributes in the tree
+     */
+    public List<Attribute> getAttributes()
+    {
+        return attributes;
+    }
+
+    /**
+     * Count the instances that have every given value
+     *
+     * @param attrs the attributes in the query
+     * @param values a nominal value ID for each attribute, in the same order
+     * @return the number of instances with all of these values
+     */
+    public int getCount(List<Attribute> attrs, int... values)
+    {
+        /*
+         *  Sort the query by position in the tree
+         */
+        int[][] query = new int[attrs.size()][];
+        for (int i = 0; i < query.length; i++)
+        {
+            query[i] = new int[] {getPosition(attrs.get(i)), values[i]};
+        }
+        Arrays.sort(query, new Comparator<int[]>()
+        {
+            @Override
+            public int compare(int[] a, int[] b)
+            {
+                return Integer.compare(a[0], b[0]);
+            }
+        });
+
+        /*
+         *  Conflicting values for the same attribute match nothing.  Repeated
+         *  values for the same attribute are dropped.
+         */
+        int length = 0;
+        for (int i = 0; i < query.length; i++)
+        {
+            if (length > 0 && query[length - 1][0] == query[i][0])
+            {
+                if (query[length - 1][1] != query[i][1])
+                {
+                    return 0;
+                }
+                continue;
+            }
+            query[length++] = query[i];
+        }
+
+        int[] queryPositions = new int[length];
+        int[] queryValues = new int[length];
+        for (int i = 0; i < length; i++)
+        {
+            queryPositions[i] = query[i][0];
+            queryValues[i] = query[i][1];
+        }
+
+        return count(root, queryPositions, queryValues, 0);
+    }
+
+    /**
+     * Count the instances that have a value
+     *
+     * @param attr the attribute in the query
+     * @param value a nominal value ID of the attribute
+     * @return the number of instances with this value
+     */
+    public int getCount(Attribute attr, int value)
+    {
+        return count(root, new int[] {getPosition(attr)}, new int[] {value}, 0);
+    }
+
+    /**
+     * Build the contingency table of a list of attributes
+     *
+     * @param attrs the nominal attributes of the table
+     * @return the joint counts of the attributes
+     */
+    public ContingencyTable getContingencyTable(List<Attribute> attrs)
+    {
+        /*
+         *  Build the table over the distinct attributes in tree order,
+         *  including the missing value buckets
+         */
+        int[] sorted = new int[attrs.size()];
+        for (int i = 0; i < sorted.length; i++)
+        {
+            sorted[i] = getPosition(attrs.get(i));
+        }
+        Arrays.sort(sorted);
+
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if (length == 0 || sorted[length - 1] != sorted[i])
+            {
+                sorted[length++] = sorted[i];
+            }
+        }
+        int[] tablePositions = Arrays.copyOf(sorted, length);
+
+        int[] full = contingencyTable(root, tablePositions, 0);
+
+        int[] fullStrides = new int[length];
+        int stride = 1;
+        for (int i = length - 1; i >= 0; i--)
+        {
+            fullStrides[i] = stride;
+            stride *= arity[tablePositions[i]];
+        }
+
+        /*
+         *  Map each cell of the requested table, in the requested attribute
+         *  order, to its cell in the full table
+         */
+        ContingencyTable table = new ContingencyTable(attrs);
+        int[] requestedStrides = new int[attrs.size()];
+        for (int i = 0; i < attrs.size(); i++)
+        {
+            int position = Arrays.binarySearch(tablePositions, getPosition(attrs.get(i)));
+            requestedStrides[i] = fullStrides[position];
+        }
+
+        int[] counts = new int[table.getNumCells()];
+        int[] values = new int[attrs.size()];
+        for (int cell = 0; cell < counts.length; cell++)
+        {
+            int fullIndex = 0;
+            boolean consistent = true;
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = (cell / table.getStride(i)) % table.getNumValues(i);
+                fullIndex += values[i] * requestedStrides[i];
+
+                /*
+                 *  An attribute repeated in the request must take the same
+                 *  value at each of its positions
+                 */
+                for (int j = 0; j < i; j++)
+                {
+                    if (attrs.get(j).equals(attrs.get(i)) && values[j] != values[i])
+                    {
+                        consistent = false;
+                    }
+                }
+            }
+
+            if (consistent && full != null)
+            {
+                counts[cell] = full[fullIndex];
+            }
+        }
+        table.setCounts(counts);
+
+        return table;
+    }
+
+    /**
+     * @param attr an attribute
+     * @return the position of the attribute in the tree
+     */
+    private int getPosition(Attribute attr)
+    {
+        Integer position = positions.get(attr);
+        if (position == null)
+        {
+            throw new RuntimeException("Error querying counts. The attribute " +
+                    attr.getName() + " is not a nominal attribute of the data.");
+        }
+        return position;
+    }
+
+    /**
+     * @param row a row of the store
+     * @param position the position of an attribute in the tree
+     * @return the bucket of the row's value of the attribute
+     */
+    private int getBucket(int row, int position)
+    {
+        int col = columns[position];
+        if (store.isMissing(row, col))
+        {
+            return arity[position] - 1;
+        }
+        return store.getNominal(row, col);
+    }
+
+    /**
+     * Count the instances below a node that have the remaining values of a
+     * query
+     *
+     * @param node the node or null for an empty node
+     * @param queryPositions the positions of the query's attributes, sorted
+     * @param queryValues the query's values
+     * @param k the index of the next condition of the query
+     * @return the count
+     */
+    private int count(ADNode node, int[] queryPositions, int[] queryValues, int k)
+    {
+        if (node == null)
+        {
+            return 0;
+        }
+        if (k == queryPositions.length)
+        {
+            return node.count;
+        }
+
+        /*
+         *  Scan the rows of small nodes
+         */
+        if (node.isLeafList())
+        {
+            int count = 0;
+            rows:
+            for (int row : node.rows)
+            {
+                for (int i = k; i < queryPositions.length; i++)
+                {
+                    if (getBucket(row, queryPositions[i]) != queryValues[i])
+                    {
+                        continue rows;
+                    }
+                }
+                count++;
+            }
+            return count;
+        }
+
+        VaryNode vary = node.getVaryNode(queryPositions[k]);
+        int value = queryValues[k];
+
+        if (value != vary.mcv)
+        {
+            return count(vary.children[value], queryPositions, queryValues, k + 1);
+        }
+
+        /*
+         *  The most common value's count is the parent's count minus the
+         *  counts of every other value
+         */
+        int count = count(node, queryPositions, queryValues, k + 1);
+        for (int other = 0; other < vary.children.length; other++)
+        {
+            if (other != vary.mcv)
+            {
+                count -= count(vary.children[other], queryPositions, queryValues, k + 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Build the contingency table, including missing value buckets, of the
+     * remaining attributes of a table below a node
+     *
+     * @param node the node or null for an empty node
+     * @param tablePositions the positions of the table's attributes, sorted
+     * @param k the index of the next attribute of the table
+     * @return the counts or null if the node is empty
+     */
+    private int[] contingencyTable(ADNode node, int[] tablePositions, int k)
+    {
+        if (node == null)
+        {
+            return null;
+        }
+        if (k == tablePositions.length)
+        {
+            return new int[] {node.count};
+        }
+
+        int subSize = 1;
+        for (int i = k + 1; i < tablePositions.length; i++)
+        {
+            subSize *= arity[tablePositions[i]];
+        }
+        int[] result = new int[arity[tablePositions[k]] * subSize];
+
+        /*
+         *  Scan the rows of small nodes
+         */
+        if (node.isLeafList())
+        {
+            for (int row : node.rows)
+            {
+                int index = 0;
+                for (int i = k; i < tablePositions.length; i++)
+                {
+                    index = index * arity[tablePositions[i]] + getBucket(row, tablePositions[i]);
+                }
+                result[index]++;
+            }
+            return result;
+        }
+
+        VaryNode vary = node.getVaryNode(tablePositions[k]);
+
+        /*
+         *  The most common value's table is the parent's table minus the
+         *  tables of every other value
+         */
+        int[] mcvTable = contingencyTable(node, tablePositions, k + 1);
+        for (int value = 0; value < vary.children.length; value++)
+        {
+            if (value == vary.mcv)
+            {
+                continue;
+            }
+
+            int[] childTable = contingencyTable(vary.children[value], tablePositions, k + 1);
+            if (childTable != null)
+            {
+                System.arraycopy(childTable, 0, result, value * subSize, subSize);
+                for (int i = 0; i < subSize; i++)
+                {
+                    mcvTable[i] -= childTable[i];
+                }
+            }
+        }
+        System.arraycopy(mcvTable, 0, result, vary.mcv * subSize, subSize);
+
+        return result;
+    }
+
+    /**
+     * @param data a data set
+     * @return the column store holding the data set's instances.  If neither
+     * the data set nor the base of a subset view is backed by a column
+     * store, the instances are copied into a new one.
+     */
+    private static ColumnStore getColumnStore(DataSet data)
+    {
+        ColumnStore store = data.getInstanceSet().getBase().getColumnStore();
+        if (store != null)
+        {
+            return store;
+        }
+
+        store = new ColumnStore(data.getAttributeSet().getAttributes(),
+                                data.getInstanceSet().size());
+        for (Instance instance : data.getInstanceSet().getInstances())
+        {
+            store.addInstance(instance);
+        }
+        return store;
+    }
+
+    /**
+     * @param data a data set
+     * @return the rows of the store returned by {@code getColumnStore} that
+     * hold the data set's instances, or null if they are all of its rows
+     */
+    private static int[] getRows(DataSet data)
+    {
+        if (data.getInstanceSet().getBase().getColumnStore() == null)
+        {
+            return null;
+        }
+        return data.getInstanceSet().getRows();
+    }
+
+    /**
+     * A node of the tree covering the instances that have the values tested
+     * on the path from the root.  Its vary nodes are built on demand.
+     */
+    private class ADNode
+    {
+        /**
+         * The number of instances covered by this node
+         */
+        private final int count;
+
+        /**
+         * The rows of the instances covered by this node
+         */
+        private final int[] rows;
+
+        /**
+         * The position of the first attribute this node may vary on.  Nodes
+         * only vary on attributes after those tested on their path.
+         */
+        private final int firstPosition;
+
+        /**
+         * The vary node of each attribute from the first position on.  An
+         * entry is null until it is first needed.
+         */
+        private final VaryNode[] varyNodes;
+
+        public ADNode(int[] rows, int firstPosition)
+        {
+            this.count = rows.length;
+            this.rows = rows;
+            this.firstPosition = firstPosition;
+            this.varyNodes = isLeafList() ? null
+                                          : new VaryNode[attributes.size() - firstPosition];
+        }
+
+        public boolean isLeafList()
+        {
+            return count <= LEAF_LIST_SIZE;
+        }
+
+        /**
+         * @param position the position of an attribute at or after this
+         * node's first position
+         * @return the vary node splitting this node's instances on the
+         * attribute
+         */
+        public synchronized VaryNode getVaryNode(int position)
+        {
+            VaryNode vary = varyNodes[position - firstPosition];
+            if (vary == null)
+            {
+                vary = new VaryNode(this, position);
+                varyNodes[position - firstPosition] = vary;
+            }
+            return vary;
+        }
+    }
+
+    /**
+     * Splits the instances of a node on each value of an attribute.  The child
+     * for the most common value is not built.
+     */
+    private class VaryNode
+    {
+        /**
+         * The most common bucket of the attribute among the node's instances
+         */
+        private final int mcv;
+
+        /**
+         * The child node for each bucket.  The entry for the most common
+         * bucket and for empty buckets is null.
+         */
+        private final ADNode[] children;
+
+        public VaryNode(ADNode node, int position)
+        {
+            int numBuckets = arity[position];
+
+            /*
+             *  Count each bucket and find the most common
+             */
+            int[] bucketCounts = new int[numBuckets];
+            for (int row : node.rows)
+            {
+                bucketCounts[getBucket(row, position)]++;
+            }
+
+            int mostCommon = 0;
+            for (int bucket = 1; bucket < numBuckets; bucket++)
+            {
+                if (bucketCounts[bucket] > bucketCounts[mostCommon])
+                {
+                    mostCommon = bucket;
+                }
+            }
+            this.mcv = mostCommon;
+
+            /*
+             *  Partition the rows of every other non-empty bucket
+             */
+            int[][] bucketRows = new int[numBuckets][];
+            for (int bucket = 0; bucket < numBuckets; bucket++)
+            {
+                if (bucket != mcv && bucketCounts[bucket] > 0)
+                {
+                    bucketRows[bucket] = new int[bucketCounts[bucket]];
+                }
+            }
+
+            int[] filled = new int[numBuckets];
+            for (int row : node.rows)
+            {
+                int bucket = getBucket(row, position);
+                if (bucketRows[bucket] != null)
+                {
+                    bucketRows[bucket][filled[bucket]++] = row;
+                }
+            }
+
+            this.children = new ADNode[numBuckets];
+            for (int bucket = 0; bucket < numBuckets; bucket++)
+            {
+                if (bucketRows[bucket] != null)
+                {
+                    children[bucket] = new ADNode(bucketRows[bucket], position + 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package data.count;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Attribute;
+import data.ColumnStore;
+import data.DataSet;
+import data.source.DataSetSource;
+import data.source.InstanceSource;
+import data.source.RewindableInstanceSource;
+
+/**
+ * Counts the number of instances having each joint assignment of values to a
+ * list of nominal attributes.  The counts are stored in a single array
+ * indexed in mixed radix, with the first attribute being the most
+ * significant digit.  Instances missing a value of any of the attributes are
+ * not counted.
+ *
+ */
+public class ContingencyTable
+{
+    /**
+     * The attributes whose joint values are counted
+     */
+    private final List<Attribute> attributes;
+
+    /**
+     * The number of nominal values of each attribute
+     */
+    private final int[] numValues;
+
+    /**
+     * The step in the count array between consecutive values of each
+     * attribute
+     */
+    private final int[] strides;
+
+    /**
+     * The count of each joint assignment of values
+     */
+    private final int[] counts;
+
+    /**
+     * The total number of instances counted
+     */
+    private int total;
+
+    /**
+     * Constructor for an empty table
+     *
+     * @param attributes the nominal attributes whose joint values are counted
+     */
+    public ContingencyTable(List<Attribute> attributes)
+    {
+        this.attributes = new ArrayList<>(attributes);
+        this.numValues = new int[attributes.size()];
+        this.strides = new int[attributes.size()];
+
+        int numCells = 1;
+        for (int i = attributes.size() - 1; i >= 0; i--)
+        {
+            Attribute attr = attributes.get(i);
+            if (attr.getType() != Attribute.Type.NOMINAL)
+            {
+                throw new RuntimeException("Error creating contingency table. " +
+                        "The attribute " + attr.getName() + " is not nominal.");
+            }
+
+            numValues[i] = attr.getNominalValueMap().size();
+            strides[i] = numCells;
+            numCells *= numValues[i];
+        }
+
+        this.counts = new int[numCells];
+        this.total = 0;
+    }
+
+    /**
+     * Count the joint values of a list of attributes over a data set
+     *
+     * @param data the data set
+     * @param attributes the nominal attributes whose joint values are counted
+     * @return the table of counts
+     */
+    public static ContingencyTable count(DataSet data, List<Attribute> attributes)
+    {
+        return count(new DataSetSource(data), attributes);
+    }
+
+    /**
+     * Count the joint values of a list of attributes over every remaining
+     * instance of a source
+     *
+     * @param source the source of instances
+     * @param attributes the nominal attributes whose joint values are counted
+     * @return the table of counts
+     */
+    public static ContingencyTable count(InstanceSource source, List<Attribute> attributes)
+    {
+        ContingencyTable table = new ContingencyTable(attributes);
+
+        ColumnStore block;
+        while ((block = source.nextBlock()) != null)
+        {
+            table.add(block);
+        }
+
+        return table;
+    }
+
+    /**
+     * Count the joint values of several lists of attributes in a single pass
+     * over a source.  The source is rewound before it is read.
+     *
+     * @param source the source of instances
+     * @param attributeLists the lists of nominal attributes to count
+     * @return a table of counts for each list of attributes, in the same order
+     */
+    public static List<ContingencyTable> countAll(RewindableInstanceSource source,
+                                                  List<List<Attribute>> attributeLists)
+    {
+        List<ContingencyTable> tables = new ArrayList<>(attributeLists.size());
+        for (List<Attribute> attributes : attributeLists)
+        {
+            tables.add(new ContingencyTable(attributes));
+        }
+
+        source.rewind();
+
+        ColumnStore block;
+        while ((block = source.nextBlock()) != null)
+        {
+            for (ContingencyTable table : tables)
+            {
+                table.add(block);
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Add the instances in a block to this table's counts
+     *
+     * @param block a block of instances
+     */
+    public void add(ColumnStore block)
+    {
+        int[] columns = new int[attributes.size()];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = block.getColumnIndex(attributes.get(i));
+            if (columns[i] < 0)
+            {
+                throw new RuntimeException("Error counting instances. The " +
+                        "attribute " + attributes.get(i).getName() +
+                        " is not stored in the block.");
+            }
+        }
+
+        int numRows = block.getNumRows();
+        rows:
+        for (int row = 0; row < numRows; row++)
+        {
+            int index = 0;
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (block.isMissing(row, columns[i]))
+                {
+                    continue rows;
+                }
+                index += block.getNominal(row, columns[i]) * strides[i];
+            }
+            counts[index]++;
+            total++;
+        }
+    }
+
+    /**
+     * Replace the counts of this table
+     *
+     * @param newCounts the count of each cell
+     */
+    void setCounts(int[] newCounts)
+    {
+        System.arraycopy(newCounts, 0, counts, 0, counts.length);
+
+        total = 0;
+        for (int count : counts)
+        {
+            total += count;
+        }
+    }
+
+    /**
+     * @return the attributes whose joint values are counted
+     */
+    public List<Attribute> getAttributes()
+    {
+        return attributes;
+    }
+
+    /**
+     * @return the total number of instances counted
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * @return the number of cells in this table
+     */
+    public int getNumCells()
+    {
+        return counts.length;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return the count of the cell
+     */
+    public int getCount(int index)
+    {
+        return counts[index];
+    }
+
+    /**
+     * @param values a nominal value ID for each attribute, in attribute order
+     * @return the number of instances having this joint assignment of values
+     */
+    public int getCount(int... values)
+    {
+        return counts[getIndex(values)];
+    }
+
+    /**
+     * @param values a nominal value ID for each attribute, in attribute order
+     * @return the index of the cell of this joint assignment of values
+     */
+    public int getIndex(int... values)
+    {
+        int index = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            index += values[i] * strides[i];
+        }
+        return index;
+    }
+
+    /**
+     * @param attrIndex the position of an attribute in this table
+     * @return the number of nominal values of the attribute
+     */
+    public int getNumValues(int attrIndex)
+    {
+        return numValues[attrIndex];
+    }
+
+    /**
+     * @param attrIndex the position of an attribute in this table
+     * @return the step in cell index between consecutive values of the
+     * attribute
+     */
+    public int getStride(int attrIndex)
+    {
+        return strides[attrIndex];
+    }
+
+    /**
+     * Sum this table's counts over every attribute not in a given list
+     *
+     * @param keep the attributes of the marginal table.  Each must be an
+     * attribute of this table.
+     * @return the marginal table
+     */
+    public ContingencyTable marginalize(List<Attribute> keep)
+    {
+        ContingencyTable marginal = new ContingencyTable(keep);
+
+        int[] keepStrides = new int[attributes.size()];
+        for (int k = 0; k < keep.size(); k++)
+        {
+            int i = attributes.indexOf(keep.get(k));
+            if (i < 0)
+            {
+                throw new RuntimeException("Error marginalizing contingency " +
+                        "table. The attribute " + keep.get(k).getName() +
+                        " is not in the table.");
+            }
+            keepStrides[i] = marginal.strides[k];
+        }
+
+        for (int index = 0; index < counts.length; index++)
+        {
+            if (counts[index] == 0)
+            {
+                continue;
+            }
+
+            int marginalIndex = 0;
+            for (int i = 0; i < attributes.size(); i++)
+            {
+                marginalIndex += ((index / strides[i]) % numValues[i]) * keepStrides[i];
+            }
+            marginal.counts[marginalIndex] += counts[index];
+        }
+        marginal.total = total;
+
+        return marginal;
+    }
+}
@@ -1,9 +1,11 @@
 package data.fold;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
+import data.Attribute;
+import data.ColumnStore;
 import data.DataSet;
 import data.Instance;
 import data.InstanceSet;
@@ -27,51 +29,157 @@ public class KFoldCreator {
 		}
 	}
 	
+	/**
+	 * Splits a data set into K folds of shuffled instances. Each fold is
+	 * a pair of index views of the data set: the training data followed by
+	 * the test data. No instances are copied.
+	 * @param data the data set
+	 * @param K the number of folds
+	 * @return the training/test pair of each fold
+	 */
 	public static List<Pair<DataSet, DataSet>> create(DataSet data, int K) {
-
-		InstanceSet is = data.getInstanceSet();
-		
-		List<Instance> instances = is.getInstances();
-		Collections.shuffle(instances);
+		return create(data, K, new Random());
+	}
+	
+	/**
+	 * Splits a data set into K folds of instances shuffled with a seeded
+	 * random number generator, so the same seed gives the same folds.
+	 * @param data the data set
+	 * @param K the number of folds
+	 * @param seed the seed of the shuffle
+	 * @return the training/test pair of each fold
+	 */
+	public static List<Pair<DataSet, DataSet>> create(DataSet data, int K, long seed) {
+		return create(data, K, new Random(seed));
+	}
+	
+	private static List<Pair<DataSet, DataSet>> create(DataSet data, int K, Random random) {
+		int[] ids = new int[data.getInstanceSet().size()];
+		for(int i = 0; i < ids.length; i++){
+			ids[i] = i;
+		}
+		shuffle(ids, 0, ids.length, random);
 		
+		//Contiguous splices of the shuffled IDs, the last taking the remainder
+		int numPerSplice = ids.length/K;
+		int[] foldOfInstance = new int[ids.length];
+		for(int i = 0; i < ids.length; i++){
+			foldOfInstance[ids[i]] = numPerSplice == 0 ? K - 1 : Math.min(i / numPerSplice, K - 1);
+		}
 		
-		int numPerSplice = instances.size()/K;
-		List<Pair<DataSet, DataSet>> pairs = new ArrayList<>();
+		return createViews(data, K, foldOfInstance);
+	}
+	
+	/**
+	 * Splits a data set into K stratified folds. The instances of each
+	 * class are shuffled with a seeded random number generator and dealt
+	 * to the folds in turn, so every fold has close to the data set's class
+	 * distribution and the same seed gives the same folds. Instances
+	 * missing the class value are dealt as a class of their own. Each fold
+	 * is a pair of index views of the data set: the training data followed
+	 * by the test data.
+	 * @param data the data set. Its class attribute must be set and 
+	 * nominal.
+	 * @param K the number of folds
+	 * @param seed the seed of the shuffle
+	 * @return the training/test pair of each fold
+	 */
+	public static List<Pair<DataSet, DataSet>> createStratified(DataSet data, int K, long seed) {
+		Attribute classAttr = data.getClassAttribute();
+		if(classAttr == null){
+			throw new RuntimeException("Error creating stratified folds. " +
+					"The data set's class attribute is not set.");
+		}
+		if(classAttr.getType() != Attribute.Type.NOMINAL){
+			throw new RuntimeException("Error creating stratified folds. " +
+					"The class attribute " + classAttr.getName() + " is not nominal.");
+		}
 		
-		//For each fold
-		for(int i = 0; i < K; i++){
-			//fill training and testing lists
-			List<Instance> trainInst = new ArrayList<>();
-			List<Instance> testInst = new ArrayList<>();
-			int left = i * numPerSplice;
-			int right = i * numPerSplice + numPerSplice;
-			trainInst.addAll(instances.subList(0, left));
-			if(i + 1 == K){
-				testInst.addAll(instances.subList(left, instances.size()));
+		//Group instance IDs by class, the last group holding missing values.
+		//The class values are read straight from the column store when the
+		//instances are rows of one.
+		InstanceSet instanceSet = data.getInstanceSet();
+		ColumnStore store = instanceSet.getBase().getColumnStore();
+		int classCol = store == null ? -1 : store.getColumnIndex(classAttr);
+		int[] rows = instanceSet.getRows();
+		List<Instance> instances = classCol < 0 ? instanceSet.getInstances() : null;
+		int numClasses = classAttr.getNominalValueMap().size();
+		int[] classOfInstance = new int[instanceSet.size()];
+		int[] groupStarts = new int[numClasses + 2];
+		for(int i = 0; i < classOfInstance.length; i++){
+			if(classCol >= 0){
+				int row = rows == null ? i : rows[i];
+				classOfInstance[i] = store.isMissing(row, classCol) ? numClasses
+				                                                    : store.getNominal(row, classCol);
 			} else {
-				testInst.addAll(instances.subList(left, right));
-				trainInst.addAll(instances.subList(right, instances.size()));
+				Double value = instances.get(i).getAttributeValue(classAttr);
+				classOfInstance[i] = value == null ? numClasses : value.intValue();
 			}
-			
-			//put in sets
-			InstanceSet trainSet = new InstanceSet();
-			for(Instance inst: trainInst){
-				trainSet.addInstance(inst);
+			groupStarts[classOfInstance[i] + 1]++;
+		}
+		for(int c = 1; c < groupStarts.length; c++){
+			groupStarts[c] += groupStarts[c - 1];
+		}
+		int[] grouped = new int[classOfInstance.length];
+		int[] filled = groupStarts.clone();
+		for(int i = 0; i < classOfInstance.length; i++){
+			grouped[filled[classOfInstance[i]]++] = i;
+		}
+		
+		//Shuffle each group and deal it to the folds, continuing the turn
+		//from the previous group so that fold sizes differ by at most one
+		Random random = new Random(seed);
+		int[] foldOfInstance = new int[classOfInstance.length];
+		int turn = 0;
+		for(int c = 0; c <= numClasses; c++){
+			shuffle(grouped, groupStarts[c], groupStarts[c + 1], random);
+			for(int i = groupStarts[c]; i < groupStarts[c + 1]; i++){
+				foldOfInstance[grouped[i]] = turn;
+				turn = (turn + 1) % K;
 			}
-			
-			InstanceSet testSet = new InstanceSet();
-			for(Instance inst: testInst){
-				testSet.addInstance(inst);
+		}
+		
+		return createViews(data, K, foldOfInstance);
+	}
+	
+	/*
+	 * Creates the training and test views of each fold. The IDs in each
+	 * view are in increasing order.
+	 */
+	private static List<Pair<DataSet, DataSet>> createViews(DataSet data, int K, int[] foldOfInstance) {
+		int[] foldSizes = new int[K];
+		for(int fold: foldOfInstance){
+			foldSizes[fold]++;
+		}
+		
+		List<Pair<DataSet, DataSet>> pairs = new ArrayList<>();
+		for(int i = 0; i < K; i++){
+			int[] trainIds = new int[foldOfInstance.length - foldSizes[i]];
+			int[] testIds = new int[foldSizes[i]];
+			int numTrain = 0;
+			int numTest = 0;
+			for(int id = 0; id < foldOfInstance.length; id++){
+				if(foldOfInstance[id] == i){
+					testIds[numTest++] = id;
+				} else {
+					trainIds[numTrain++] = id;
+				}
 			}
-			//create data sets
-			DataSet trainData = new DataSet(data.getAttributeSet(), trainSet);
-			DataSet testData = new DataSet(data.getAttributeSet(),testSet); 
-			
-			//Add to list of pairs
-			pairs.add(new Pair<DataSet, DataSet>(trainData, testData));
-			
+			pairs.add(new Pair<DataSet, DataSet>(data.subset(trainIds), data.subset(testIds)));
 		}
 		return pairs;
 	}
+	
+	/*
+	 * Fisher-Yates shuffle of a range of an array
+	 */
+	private static void shuffle(int[] ids, int start, int end, Random random) {
+		for(int i = end - 1; i > start; i--){
+			int j = start + random.nextInt(i - start + 1);
+			int tmp = ids[i];
+			ids[i] = ids[j];
+			ids[j] = tmp;
+		}
+	}
 
 }
@@ -1,222 +1,550 @@
 package data.reader;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 
 import data.Attribute;
 import data.AttributeSet;
+import data.ColumnStore;
 import data.DataSet;
-import data.Instance;
 import data.InstanceSet;
-import data.Attribute.Type;
+import data.source.RewindableInstanceSource;
 
 
 /**
  * Reads an Attribute-Relation File Format (ARFF) file and extracts the
  * attributes and instances in the file.
- * 
+ * <br>
+ * <br>
+ * The header is parsed once.  The data section is then memory-mapped in
+ * chunks that each end on a line boundary.  The chunks are processed in two
+ * parallel passes on a fork-join pool: the first pass counts the instances in
+ * each chunk so that every chunk knows the row at which its instances begin,
+ * and the second pass tokenizes each chunk and writes its values directly
+ * into the columns of a single {@code ColumnStore}.
+ *
  */
-public class ArffReader 
+public class ArffReader
 {
     private final static char ARFF_HEADER_CHAR = '@';
     private final static char ARFF_COMMENT_CHAR = '%';
-    private final static String REAL_VALUED_ATTRIBUTE = "real";
-    
+    private final static char MISSING_VALUE_CHAR = '?';
+    private final static char VALUE_SEPARATOR = ',';
+    private final static String ATTRIBUTE_DECLARATION = "@attribute";
+    private final static String DATA_DECLARATION = "@data";
+    private final static String[] REAL_VALUED_ATTRIBUTES = {"real", "numeric", "integer"};
+
+    /**
+     * The target size in bytes of each chunk of the data section
+     */
+    private final static int CHUNK_SIZE = 1 << 22;
+
+    /**
+     * The size in bytes of the buffer used for reading the header
+     */
+    private final static int HEADER_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Powers of ten that are exactly representable as a double
+     */
+    private final static double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
 	/**
 	 * Read and extract a data set from an ARFF file
-	 * 
+	 *
 	 * @param file a path to the ARFF file
 	 * @return a data set storing all data in the file
 	 */
-	public static DataSet readFile(String file) 
+	public static DataSet readFile(String file)
 	{
-	    InstanceSet instanceSet = new InstanceSet();
-	    ImmutableList.Builder<Attribute> attributeListBuilder = new ImmutableList.Builder<>();	
-		
-		try
-		{
-			Scanner scan = new Scanner(new FileInputStream(file));
-		    while (scan.hasNextLine()) 
-		    {
-	    		parseLine(scan.nextLine(), instanceSet, attributeListBuilder);
-		    }    
-		    scan.close();	    
-		} 
-		catch (FileNotFoundException x) 
-		{
-		    System.err.format("FileNotFountException: %s%n", x);
-		}
-		
-		return new DataSet(new AttributeSet(attributeListBuilder.build()), instanceSet);		
+	    return readFile(file, CHUNK_SIZE);
 	}
-	
+
 	/**
-	 * Processes a single line in an ARFF file.  This method should be called 
-	 * on each line of the ARFF file being read.
-	 * 
-	 * @param arffLine - any line from the ARFF file 
+	 * Read and extract a data set from an ARFF file whose data section is
+	 * split into chunks of a given size
+	 *
+	 * @param file a path to the ARFF file
+	 * @param chunkSize the target size in bytes of each chunk of the data
+	 * section
+	 * @return a data set storing all data in the file
 	 */
-	private static void parseLine(String arffLine, InstanceSet instanceSet, ImmutableList.Builder<Attribute> attrListBuilder)
+	static DataSet readFile(String file, int chunkSize)
 	{
-		if (arffLine.length() < 2)
+	    ImmutableList.Builder<Attribute> attributeListBuilder = new ImmutableList.Builder<>();
+	    ColumnStore store = null;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ))
 		{
-			return;
+		    long dataStart = readHeader(channel, attributeListBuilder);
+		    store = readData(channel, dataStart, attributeListBuilder.build(), chunkSize);
 		}
-		
-		if (arffLine.charAt(0) == ARFF_HEADER_CHAR) 
+		catch (NoSuchFileException x)
 		{
-			parseHeaderLine(arffLine, attrListBuilder);
+		    System.err.format("FileNotFountException: %s%n", x);
 		}
-		else if (arffLine.charAt(0) != ARFF_COMMENT_CHAR) 
-		{			
-		    Instance newInstance = createInstanceFromArffLine(arffLine, attrListBuilder);
-			instanceSet.addInstance(newInstance);
+		catch (IOException x)
+		{
+		    throw new RuntimeException("Error reading ARFF file " + file + ".", x);
 		}
+
+		List<Attribute> attributes = attributeListBuilder.build();
+		if (store == null)
+		{
+		    store = new ColumnStore(attributes);
+		}
+
+		return new DataSet(new AttributeSet(attributes), new InstanceSet(store));
 	}
-	
+
+	/**
+	 * Open an ARFF file as a source of instances that are read lazily, one
+	 * block at a time.  Only the header and the current block are held in
+	 * memory, so files larger than the heap can be read.
+	 *
+	 * @param file a path to the ARFF file
+	 * @return a rewindable source of the instances in the file
+	 */
+	public static RewindableInstanceSource openSource(String file)
+	{
+	    try
+	    {
+	        return new ArffSource(FileChannel.open(Paths.get(file), StandardOpenOption.READ));
+	    }
+	    catch (IOException x)
+	    {
+	        throw new RuntimeException("Error opening ARFF file " + file + ".", x);
+	    }
+	}
+
+	/**
+	 * Read the header of an ARFF file.  Each "@attribute" line is parsed into
+	 * an attribute.  Reading stops after the "@data" line.
+	 *
+	 * @param channel the channel of the ARFF file
+	 * @param attrListBuilder the builder receiving each parsed attribute
+	 * @return the position in the file at which the data section begins
+	 */
+	private static long readHeader(FileChannel channel,
+	                               ImmutableList.Builder<Attribute> attrListBuilder)
+	                               throws IOException
+	{
+	    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BUFFER_SIZE);
+	    byte[] line = new byte[HEADER_BUFFER_SIZE];
+	    int lineLength = 0;
+	    long position = 0;
+
+	    while (channel.read(buffer, position) > 0 || buffer.position() > 0)
+	    {
+	        buffer.flip();
+	        while (buffer.hasRemaining())
+	        {
+	            byte b = buffer.get();
+	            position++;
+
+	            if (b != '\n')
+	            {
+	                if (lineLength == line.length)
+	                {
+	                    line = Arrays.copyOf(line, line.length * 2);
+	                }
+	                line[lineLength++] = b;
+	                continue;
+	            }
+
+	            String arffLine = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+	            lineLength = 0;
+
+	            if (arffLine.length() > 0 && arffLine.charAt(0) == ARFF_HEADER_CHAR)
+	            {
+	                if (arffLine.toLowerCase().startsWith(DATA_DECLARATION))
+	                {
+	                    return position;
+	                }
+	                parseHeaderLine(arffLine, attrListBuilder);
+	            }
+	        }
+	        buffer.clear();
+	    }
+
+	    return position;
+	}
+
 	/**
 	 * This function is called on all lines that begin with the '@' symbol
 	 * and is used for parsing all header lines.
-	 * 
+	 *
 	 */
 	private static void parseHeaderLine(String arffLine, ImmutableList.Builder<Attribute> attrListBuilder)
 	{
-		String[] tokens = arffLine.split(" ");
-		
-		if (tokens[0].toLowerCase().equals("@attribute"))
+		String[] tokens = arffLine.split("\\s+");
+
+		if (tokens[0].toLowerCase().equals(ATTRIBUTE_DECLARATION))
 		{
 			Attribute newAttr = parseAttribute(arffLine);
 			attrListBuilder.add(newAttr);
 		}
 	}
-	
+
 	/**
 	 * Helper method for adding an attribute to the attribute set.
 	 * This method is called to process a line in a ARFF file with the
 	 * first token being "@attribute"
-	 * 
-	 * @param arffLine - A line from the ARFF file where the first token is 
+	 *
+	 * @param arffLine - A line from the ARFF file where the first token is
 	 * "@attribute"
 	 */
 	private static Attribute parseAttribute(String arffLine)
 	{
-		String[] tokens = arffLine.split(" ");
-		
 		String attrName = null;
 		Attribute.Type attrType;
 		String[] attributeValues = null;
-		
+
 		/*
-		 * Parse attribute name
+		 * Parse attribute name.  The name may be quoted, in which case it may
+		 * contain white space.
 		 */
-		if (tokens[1].charAt(0) == '"')
+		String rest = arffLine.substring(ATTRIBUTE_DECLARATION.length()).trim();
+		char quote = rest.charAt(0);
+		if (quote == '"' || quote == '\'')
 		{
-		    attrName = tokens[1].split("\"")[1];
+		    int closing = rest.indexOf(quote, 1);
+		    attrName = rest.substring(1, closing);
+		    rest = rest.substring(closing + 1).trim();
 		}
-		else if (tokens[1].charAt(0) == '\'')
+		else
 		{
-		    attrName = tokens[1].split("'")[1];
+		    String[] nameAndType = rest.split("\\s+", 2);
+		    attrName = nameAndType[0];
+		    rest = nameAndType.length > 1 ? nameAndType[1].trim() : "";
 		}
-		
+
 		/*
 		 *  Parse attribute type (continuous or nominal)
 		 */
-		if (tokens[2].equals(REAL_VALUED_ATTRIBUTE))
+		attrType = Attribute.Type.NOMINAL;
+		for (String realValued : REAL_VALUED_ATTRIBUTES)
 		{
-			attrType =  Attribute.Type.CONTINUOUS;
-		}
-		else 
-		{
-			attrType = Attribute.Type.NOMINAL;
+		    if (rest.toLowerCase().startsWith(realValued))
+		    {
+		        attrType = Attribute.Type.CONTINUOUS;
+		    }
 		}
-	
+
 		/*
 		 *  Get nominal values for this attribute if it is nominal
 		 */
 		if (attrType == Attribute.Type.NOMINAL)
 		{
-			attributeValues = getNominalAttributeValues(arffLine);
+			attributeValues = getNominalAttributeValues(rest);
 		}
-				
+
 		return new Attribute(attrName, attrType, attributeValues);
 	}
-	
+
 	/**
 	 * A helper method that returns an array of strings where each string
-	 * is a value of a nominal attribute in a given "@attribute" line in 
+	 * is a value of a nominal attribute in a given "@attribute" line in
 	 * the ARFF file
-	 * 
-	 * @param arffline - A line in the ARFF file that begins with "@attribute"
+	 *
+	 * @param typeDeclaration - The type declaration of an "@attribute" line,
+	 * which for nominal attributes is the list of values in curly braces
 	 * @return The values of the nominal attributes in this line
 	 */
-	private static String[] getNominalAttributeValues(String arffLine)
+	private static String[] getNominalAttributeValues(String typeDeclaration)
 	{
-		/*
-		 *  REGEX find string in curly braces
-		 */
-		String pattern = "\\{(.*)\\}";
-		Pattern regexPattern = Pattern.compile(pattern);
-		Matcher regexMatcher = regexPattern.matcher(arffLine);
-		regexMatcher.find();
-		
-		return trimAllStrings( regexMatcher.group(1).split(",") );
-	}
-	
-	/**
-	 * Create an Instance object from a line in the ARFF file that corresponds 
-	 * to an instance
-	 * 
-	 * @param arffLine a line in the ARFF file that corresponds to an instance
-	 * @return
-	 */
-	private static Instance createInstanceFromArffLine(String arffLine, ImmutableList.Builder<Attribute> attrListBuilder)
-	{		    
-		String[] tokens = trimAllStrings( arffLine.split(",") );
-		Instance newInstance = new Instance();
-		
-		for (int index = 0; index < tokens.length; index++)
+		int open = typeDeclaration.indexOf('{');
+		int close = typeDeclaration.lastIndexOf('}');
+
+		if (open < 0 || close < open)
 		{
-			/*
-			 *  Find attribute at this index
-			 */
-			Attribute currAttribute = attrListBuilder.build().get(index);
-						
-			if (tokens[index].equals("?")) // Missing value
-			{
-				//TODO: Figure out how to handle missing values
-			}
-			else
-			{			
-				if (currAttribute.getType() == Attribute.Type.CONTINUOUS)
-				{
-					newInstance.addAttributeValue(currAttribute, Double.parseDouble(tokens[index]));
-				}
-				else if (currAttribute.getType() == Attribute.Type.NOMINAL)
-				{
-					Integer nominalValueId 
-							= currAttribute.getNominalValueId(tokens[index]);
-					newInstance.addAttributeValue(currAttribute, nominalValueId.doubleValue());
-				}
-			}			
+		    throw new RuntimeException("Error parsing ARFF attribute type " +
+		            typeDeclaration + ". Expected a list of nominal values.");
 		}
-		
-		return newInstance;
+
+		return trimAllStrings( typeDeclaration.substring(open + 1, close).split(",") );
+	}
+
+	/**
+	 * Read the data section of an ARFF file into a column store
+	 *
+	 * @param channel the channel of the ARFF file
+	 * @param dataStart the position in the file at which the data section
+	 * begins
+	 * @param attributes the attributes declared in the file's header
+	 * @param chunkSize the target size in bytes of each chunk
+	 * @return a column store holding every instance in the file
+	 */
+	private static ColumnStore readData(FileChannel channel,
+	                                    long dataStart,
+	                                    List<Attribute> attributes,
+	                                    int chunkSize)
+	                                    throws IOException
+	{
+	    List<DataChunk> chunks = createChunks(channel, dataStart, attributes, chunkSize);
+	    ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	    /*
+	     * First pass: count the instances in each chunk
+	     */
+	    pool.invoke(new ChunkTask(chunks, 0, chunks.size(), null));
+
+	    int numRows = 0;
+	    for (DataChunk chunk : chunks)
+	    {
+	        chunk.firstRow = numRows;
+	        numRows += chunk.numRows;
+	    }
+
+	    /*
+	     * Second pass: parse each chunk directly into the column store
+	     */
+	    ColumnStore store = new ColumnStore(attributes, numRows);
+	    store.addRows(numRows);
+	    pool.invoke(new ChunkTask(chunks, 0, chunks.size(), store));
+
+	    /*
+	     * Missing values are recorded serially once all chunks are parsed
+	     */
+	    for (DataChunk chunk : chunks)
+	    {
+	        chunk.markMissing(store);
+	    }
+
+	    return store;
+	}
+
+	/**
+	 * Split the data section of an ARFF file into memory-mapped chunks that
+	 * each end on a line boundary
+	 *
+	 * @param channel the channel of the ARFF file
+	 * @param dataStart the position in the file at which the data section
+	 * begins
+	 * @param attributes the attributes declared in the file's header
+	 * @param chunkSize the target size in bytes of each chunk
+	 * @return the chunks in file order
+	 */
+	private static List<DataChunk> createChunks(FileChannel channel,
+	                                            long dataStart,
+	                                            List<Attribute> attributes,
+	                                            int chunkSize)
+	                                            throws IOException
+	{
+	    List<DataChunk> chunks = new ArrayList<>();
+	    NominalDictionary[] dictionaries = createDictionaries(attributes);
+	    long fileSize = channel.size();
+	    long start = dataStart;
+
+	    while (start < fileSize)
+	    {
+	        long end = Math.min(start + chunkSize, fileSize);
+	        if (end < fileSize)
+	        {
+	            end = findLineEnd(channel, end);
+	        }
+
+	        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+	                                              start,
+	                                              end - start);
+	        chunks.add(new DataChunk(buffer, attributes, dictionaries));
+	        start = end;
+	    }
+
+	    return chunks;
+	}
+
+	/**
+	 * Find the end of the line containing a position in the file
+	 *
+	 * @param channel the channel of the ARFF file
+	 * @param position a position in the file
+	 * @return the position just after the next newline at or after the given
+	 * position, or the size of the file if there is no such newline
+	 */
+	private static long findLineEnd(FileChannel channel, long position) throws IOException
+	{
+	    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BUFFER_SIZE);
+
+	    while (channel.read(buffer, position) > 0)
+	    {
+	        buffer.flip();
+	        while (buffer.hasRemaining())
+	        {
+	            position++;
+	            if (buffer.get() == '\n')
+	            {
+	                return position;
+	            }
+	        }
+	        buffer.clear();
+	    }
+
+	    return channel.size();
+	}
+
+	/**
+	 * @param attributes the attributes declared in the file's header
+	 * @return a dictionary for each nominal attribute mapping the bytes of
+	 * each nominal value name to its nominal value ID.  The entry for each
+	 * continuous attribute is null.
+	 */
+	private static NominalDictionary[] createDictionaries(List<Attribute> attributes)
+	{
+	    NominalDictionary[] dictionaries = new NominalDictionary[attributes.size()];
+
+	    for (int col = 0; col < attributes.size(); col++)
+	    {
+	        Attribute attr = attributes.get(col);
+	        if (attr.getType() == Attribute.Type.NOMINAL)
+	        {
+	            dictionaries[col] = new NominalDictionary(attr.getNominalValueMap());
+	        }
+	    }
+
+	    return dictionaries;
+	}
+
+	/**
+	 * Parse a continuous value from a range of bytes.  Values with at most
+	 * 15 significant digits and a small decimal exponent are converted
+	 * exactly with a single floating point operation.  All other values are
+	 * converted with {@code Double.parseDouble}.
+	 *
+	 * @param buffer the buffer holding the value
+	 * @param start the position of the first byte of the value
+	 * @param end the position after the last byte of the value
+	 * @return the parsed value
+	 */
+	private static double parseDouble(ByteBuffer buffer, int start, int end)
+	{
+	    int i = start;
+	    boolean negative = false;
+
+	    if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+	    {
+	        negative = buffer.get(i) == '-';
+	        i++;
+	    }
+
+	    long mantissa = 0;
+	    int significantDigits = 0;
+	    int exponent = 0;
+	    boolean seenDigit = false;
+	    boolean seenPoint = false;
+
+	    for (; i < end; i++)
+	    {
+	        byte b = buffer.get(i);
+	        if (b >= '0' && b <= '9')
+	        {
+	            seenDigit = true;
+	            mantissa = mantissa * 10 + (b - '0');
+	            if (mantissa != 0)
+	            {
+	                significantDigits++;
+	            }
+	            if (seenPoint)
+	            {
+	                exponent--;
+	            }
+	        }
+	        else if (b == '.' && !seenPoint)
+	        {
+	            seenPoint = true;
+	        }
+	        else
+	        {
+	            break;
+	        }
+	    }
+
+	    if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E'))
+	    {
+	        i++;
+	        boolean negativeExponent = false;
+	        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+	        {
+	            negativeExponent = buffer.get(i) == '-';
+	            i++;
+	        }
+
+	        int explicitExponent = 0;
+	        int exponentStart = i;
+	        for (; i < end && i - exponentStart < 4; i++)
+	        {
+	            byte b = buffer.get(i);
+	            if (b < '0' || b > '9')
+	            {
+	                break;
+	            }
+	            explicitExponent = explicitExponent * 10 + (b - '0');
+	        }
+	        if (i == exponentStart)
+	        {
+	            seenDigit = false;
+	        }
+	        exponent += negativeExponent ? -explicitExponent : explicitExponent;
+	    }
+
+	    if (i != end || !seenDigit || significantDigits > 15 ||
+	        exponent < -22 || exponent > 22)
+	    {
+	        return Double.parseDouble(decode(buffer, start, end));
+	    }
+
+	    double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+	                                : mantissa * POWERS_OF_TEN[exponent];
+	    return negative ? -value : value;
+	}
+
+	/**
+	 * @param buffer a buffer
+	 * @param start the position of the first byte
+	 * @param end the position after the last byte
+	 * @return the range of bytes decoded as a UTF-8 string
+	 */
+	private static String decode(ByteBuffer buffer, int start, int end)
+	{
+	    byte[] bytes = new byte[end - start];
+	    for (int i = start; i < end; i++)
+	    {
+	        bytes[i - start] = buffer.get(i);
+	    }
+	    return new String(bytes, StandardCharsets.UTF_8);
 	}
-	
+
 	/**
-	 * Trim all Strings in an array of Strings of any proceeding and 
+	 * @param b a byte
+	 * @return true if the byte is a space or a tab
+	 */
+	private static boolean isBlank(byte b)
+	{
+	    return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * Trim all Strings in an array of Strings of any proceeding and
 	 * preceding white space.
-	 * 
+	 *
 	 * @param rawStrings the array of Strings
 	 * @return an array of these trimmed Strings
 	 */
@@ -227,6 +555,485 @@ public class ArffReader
 		{
 			trimmedStrings[i] = rawStrings[i].trim();
 		}
-		return trimmedStrings;	
+		return trimmedStrings;
+	}
+
+	/**
+	 * A memory-mapped chunk of the data section of an ARFF file.  Each chunk
+	 * begins at the start of a line and ends at the end of a line.
+	 */
+	private static class DataChunk
+	{
+	    private final ByteBuffer buffer;
+	    private final List<Attribute> attributes;
+	    private final NominalDictionary[] dictionaries;
+
+	    /**
+	     * The number of instances in this chunk
+	     */
+	    private int numRows = 0;
+
+	    /**
+	     * The row of the column store at which this chunk's instances begin
+	     */
+	    private int firstRow = 0;
+
+	    /**
+	     * The missing values in each column, indexed relative to the first
+	     * instance in this chunk
+	     */
+	    private final BitSet[] missing;
+
+	    public DataChunk(ByteBuffer buffer,
+	                     List<Attribute> attributes,
+	                     NominalDictionary[] dictionaries)
+	    {
+	        this.buffer = buffer;
+	        this.attributes = attributes;
+	        this.dictionaries = dictionaries;
+	        this.missing = new BitSet[attributes.size()];
+	        for (int col = 0; col < missing.length; col++)
+	        {
+	            missing[col] = new BitSet();
+	        }
+	    }
+
+	    /**
+	     * Count the instances in this chunk
+	     */
+	    public void countRows()
+	    {
+	        int count = 0;
+	        int position = 0;
+	        int limit = buffer.limit();
+
+	        while (position < limit)
+	        {
+	            int lineEnd = findNewline(position);
+	            if (isDataLine(position, lineEnd))
+	            {
+	                count++;
+	            }
+	            position = lineEnd + 1;
+	        }
+
+	        this.numRows = count;
+	    }
+
+	    /**
+	     * Parse every instance in this chunk into the column store
+	     *
+	     * @param store the column store
+	     */
+	    public void parseRows(ColumnStore store)
+	    {
+	        int row = 0;
+	        int position = 0;
+	        int limit = buffer.limit();
+
+	        while (position < limit)
+	        {
+	            int lineEnd = findNewline(position);
+	            if (isDataLine(position, lineEnd))
+	            {
+	                parseLine(position, lineEnd, row, store);
+	                row++;
+	            }
+	            position = lineEnd + 1;
+	        }
+	    }
+
+	    /**
+	     * Mark the missing values found while parsing this chunk in the column
+	     * store.  This must not be called concurrently with any other
+	     * modification of the store.
+	     *
+	     * @param store the column store
+	     */
+	    public void markMissing(ColumnStore store)
+	    {
+	        for (int col = 0; col < missing.length; col++)
+	        {
+	            BitSet chunkMissing = missing[col];
+	            for (int i = chunkMissing.nextSetBit(0); i >= 0; i = chunkMissing.nextSetBit(i + 1))
+	            {
+	                store.setMissing(firstRow + i, col);
+	            }
+	        }
+	    }
+
+	    /**
+	     * Tokenize a single data line and write its values to the column store
+	     *
+	     * @param position the position of the first byte of the line
+	     * @param lineEnd the position of the end of the line
+	     * @param row the index of the line's instance relative to the first
+	     * instance in this chunk
+	     * @param store the column store
+	     */
+	    private void parseLine(int position, int lineEnd, int row, ColumnStore store)
+	    {
+	        int storeRow = firstRow + row;
+
+	        for (int col = 0; col < attributes.size(); col++)
+	        {
+	            /*
+	             *  Find the token for this column, trimmed of white space
+	             */
+	            while (position < lineEnd && isBlank(buffer.get(position)))
+	            {
+	                position++;
+	            }
+	            int tokenEnd = position;
+	            while (tokenEnd < lineEnd && buffer.get(tokenEnd) != VALUE_SEPARATOR)
+	            {
+	                tokenEnd++;
+	            }
+	            int nextPosition = tokenEnd + 1;
+	            while (tokenEnd > position && isBlank(buffer.get(tokenEnd - 1)))
+	            {
+	                tokenEnd--;
+	            }
+
+	            if (position >= lineEnd ||
+	                (tokenEnd - position == 1 && buffer.get(position) == MISSING_VALUE_CHAR))
+	            {
+	                missing[col].set(row);
+	            }
+	            else if (dictionaries[col] == null)
+	            {
+	                store.setContinuous(storeRow, col, parseDouble(buffer, position, tokenEnd));
+	            }
+	            else
+	            {
+	                int nominalValueId = dictionaries[col].lookup(buffer, position, tokenEnd);
+	                if (nominalValueId < 0)
+	                {
+	                    throw new RuntimeException("Error reading ARFF file. " +
+	                            decode(buffer, position, tokenEnd) + " is not a " +
+	                            "possible value for the attribute " +
+	                            attributes.get(col).getName() + ".");
+	                }
+	                store.setNominal(storeRow, col, nominalValueId);
+	            }
+
+	            position = nextPosition;
+	        }
+	    }
+
+	    /**
+	     * @param position a position in this chunk
+	     * @return the position of the next newline or the end of this chunk
+	     */
+	    private int findNewline(int position)
+	    {
+	        int limit = buffer.limit();
+	        while (position < limit && buffer.get(position) != '\n')
+	        {
+	            position++;
+	        }
+	        return position;
+	    }
+
+	    /**
+	     * @param position the position of the first byte of a line
+	     * @param lineEnd the position of the end of the line
+	     * @return true if the line holds an instance.  Blank lines, comments
+	     * and header lines do not.
+	     */
+	    private boolean isDataLine(int position, int lineEnd)
+	    {
+	        while (position < lineEnd && isBlank(buffer.get(position)))
+	        {
+	            position++;
+	        }
+
+	        if (position == lineEnd)
+	        {
+	            return false;
+	        }
+
+	        byte first = buffer.get(position);
+	        return first != ARFF_COMMENT_CHAR && first != ARFF_HEADER_CHAR;
+	    }
+	}
+
+	/**
+	 * Reads the data section of an ARFF file sequentially.  Each block holds
+	 * the instances of one chunk of lines.
+	 */
+	private static class ArffSource implements RewindableInstanceSource
+	{
+	    private final FileChannel channel;
+	    private final List<Attribute> attributes;
+	    private final AttributeSet attributeSet;
+	    private final NominalDictionary[] dictionaries;
+
+	    /**
+	     * The position in the file at which the data section begins
+	     */
+	    private final long dataStart;
+
+	    /**
+	     * The position in the file of the next byte to read into the buffer
+	     */
+	    private long position;
+
+	    /**
+	     * Holds the bytes read from the file but not yet parsed, from index
+	     * zero to the buffer's position
+	     */
+	    private ByteBuffer buffer;
+
+	    /**
+	     * True once every byte of the file has been read into the buffer
+	     */
+	    private boolean endOfFile;
+
+	    public ArffSource(FileChannel channel) throws IOException
+	    {
+	        ImmutableList.Builder<Attribute> attributeListBuilder = new ImmutableList.Builder<>();
+
+	        this.channel = channel;
+	        this.dataStart = readHeader(channel, attributeListBuilder);
+	        this.attributes = attributeListBuilder.build();
+	        this.attributeSet = new AttributeSet(attributes);
+	        this.dictionaries = createDictionaries(attributes);
+	        this.buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+	        rewind();
+	    }
+
+	    @Override
+	    public AttributeSet getAttributeSet()
+	    {
+	        return attributeSet;
+	    }
+
+	    @Override
+	    public ColumnStore nextBlock()
+	    {
+	        try
+	        {
+	            while (!endOfFile || buffer.position() > 0)
+	            {
+	                /*
+	                 *  Fill the buffer
+	                 */
+	                while (!endOfFile && buffer.hasRemaining())
+	                {
+	                    int read = channel.read(buffer, position);
+	                    if (read < 0)
+	                    {
+	                        endOfFile = true;
+	                    }
+	                    else
+	                    {
+	                        position += read;
+	                    }
+	                }
+
+	                /*
+	                 *  Parse up to the end of the last complete line.  If the
+	                 *  buffer holds no complete line, grow it.
+	                 */
+	                int end = buffer.position();
+	                if (!endOfFile)
+	                {
+	                    while (end > 0 && buffer.get(end - 1) != '\n')
+	                    {
+	                        end--;
+	                    }
+	                    if (end == 0)
+	                    {
+	                        buffer = ByteBuffer.allocate(buffer.capacity() * 2)
+	                                           .put(buffer.flip());
+	                        continue;
+	                    }
+	                }
+
+	                ByteBuffer lines = buffer.duplicate();
+	                lines.position(0);
+	                lines.limit(end);
+	                DataChunk chunk = new DataChunk(lines.slice(), attributes, dictionaries);
+	                chunk.countRows();
+
+	                ColumnStore block = null;
+	                if (chunk.numRows > 0)
+	                {
+	                    block = new ColumnStore(attributes, chunk.numRows);
+	                    block.addRows(chunk.numRows);
+	                    chunk.parseRows(block);
+	                    chunk.markMissing(block);
+	                }
+
+	                /*
+	                 *  Keep the unparsed bytes at the front of the buffer
+	                 */
+	                buffer.flip();
+	                buffer.position(end);
+	                buffer.compact();
+
+	                if (block != null)
+	                {
+	                    return block;
+	                }
+	            }
+	        }
+	        catch (IOException x)
+	        {
+	            throw new RuntimeException("Error reading ARFF file.", x);
+	        }
+
+	        return null;
+	    }
+
+	    @Override
+	    public void rewind()
+	    {
+	        position = dataStart;
+	        endOfFile = false;
+	        buffer.clear();
+	    }
+
+	    @Override
+	    public void close()
+	    {
+	        try
+	        {
+	            channel.close();
+	        }
+	        catch (IOException x)
+	        {
+	            throw new RuntimeException("Error closing ARFF file.", x);
+	        }
+	    }
+	}
+
+	/**
+	 * Processes a range of chunks in parallel.  If no column store is given,
+	 * the instances in each chunk are counted.  Otherwise, each chunk is
+	 * parsed into the column store.
+	 */
+	private static class ChunkTask extends RecursiveAction
+	{
+	    private static final long serialVersionUID = 1L;
+
+	    private final List<DataChunk> chunks;
+	    private final int from;
+	    private final int to;
+	    private final ColumnStore store;
+
+	    public ChunkTask(List<DataChunk> chunks, int from, int to, ColumnStore store)
+	    {
+	        this.chunks = chunks;
+	        this.from = from;
+	        this.to = to;
+	        this.store = store;
+	    }
+
+	    @Override
+	    protected void compute()
+	    {
+	        if (to - from > 1)
+	        {
+	            int mid = (from + to) >>> 1;
+	            invokeAll(new ChunkTask(chunks, from, mid, store),
+	                      new ChunkTask(chunks, mid, to, store));
+	        }
+	        else if (to - from == 1)
+	        {
+	            if (store == null)
+	            {
+	                chunks.get(from).countRows();
+	            }
+	            else
+	            {
+	                chunks.get(from).parseRows(store);
+	            }
+	        }
+	    }
+	}
+
+	/**
+	 * An open-addressing hash table mapping the UTF-8 bytes of each nominal
+	 * value name of an attribute to its nominal value ID.  Lookups are made
+	 * directly against the bytes of a buffer so that no strings are created
+	 * while parsing.
+	 */
+	private static class NominalDictionary
+	{
+	    private final byte[][] keys;
+	    private final int[] ids;
+	    private final int mask;
+
+	    public NominalDictionary(Map<String, Integer> nominalValueMap)
+	    {
+	        int size = Integer.highestOneBit(Math.max(nominalValueMap.size(), 1) * 4);
+	        keys = new byte[size][];
+	        ids = new int[size];
+	        mask = size - 1;
+
+	        for (Map.Entry<String, Integer> entry : nominalValueMap.entrySet())
+	        {
+	            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+	            int slot = hash(ByteBuffer.wrap(key), 0, key.length) & mask;
+	            while (keys[slot] != null)
+	            {
+	                slot = (slot + 1) & mask;
+	            }
+	            keys[slot] = key;
+	            ids[slot] = entry.getValue();
+	        }
+	    }
+
+	    /**
+	     * @param buffer the buffer holding a nominal value name
+	     * @param start the position of the first byte of the name
+	     * @param end the position after the last byte of the name
+	     * @return the nominal value ID of the name or -1 if the name is not a
+	     * nominal value of this attribute
+	     */
+	    public int lookup(ByteBuffer buffer, int start, int end)
+	    {
+	        int slot = hash(buffer, start, end) & mask;
+
+	        while (keys[slot] != null)
+	        {
+	            if (matches(keys[slot], buffer, start, end))
+	            {
+	                return ids[slot];
+	            }
+	            slot = (slot + 1) & mask;
+	        }
+
+	        return -1;
+	    }
+
+	    private static int hash(ByteBuffer buffer, int start, int end)
+	    {
+	        int h = 0;
+	        for (int i = start; i < end; i++)
+	        {
+	            h = 31 * h + buffer.get(i);
+	        }
+	        return h ^ (h >>> 16);
+	    }
+
+	    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end)
+	    {
+	        if (key.length != end - start)
+	        {
+	            return false;
+	        }
+	        for (int i = 0; i < key.length; i++)
+	        {
+	            if (key[i] != buffer.get(start + i))
+	            {
+	                return false;
+	            }
+	        }
+	        return true;
+	    }
 	}
 }
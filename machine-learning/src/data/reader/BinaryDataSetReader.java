@@ -0,0 +1,173 @@
+package data.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Attribute;
+import data.AttributeSet;
+import data.ColumnStore;
+import data.DataSet;
+import data.InstanceSet;
+import data.MappedColumnStore;
+
+/**
+ * Reads a file in the binary data set format described in
+ * {@code DataSetFormat}.  Only the schema block is decoded onto the heap.
+ * Each column block is memory-mapped and viewed in place by a
+ * {@code MappedColumnStore}, so loading takes time independent of the
+ * number of instances in the file.
+ *
+ */
+public class BinaryDataSetReader
+{
+    /**
+     * Read a data set from a binary data set file
+     *
+     * @param file a path to the binary data set file
+     * @return a data set viewing the data in the file.  As with
+     * {@code ArffReader}, a file that does not exist yields an empty data
+     * set with no attributes.
+     */
+    public static DataSet readFile(String file)
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ))
+        {
+            /*
+             * Header
+             */
+            ByteBuffer header = map(channel, 0, DataSetFormat.DATA_SET_HEADER_LENGTH);
+            if (header.getInt() != DataSetFormat.DATA_SET_MAGIC)
+            {
+                throw new RuntimeException("Error reading binary data set " +
+                        "file " + file + ". The file is not a binary data set file.");
+            }
+
+            int version = header.getInt();
+            if (version != DataSetFormat.DATA_SET_VERSION)
+            {
+                throw new RuntimeException("Error reading binary data set " +
+                        "file " + file + ". Unsupported format version " +
+                        version + ".");
+            }
+
+            int numRows = header.getInt();
+            int numColumns = header.getInt();
+            int schemaLength = header.getInt();
+
+            /*
+             * Schema block
+             */
+            List<Attribute> attributes = DataSetFormat.decodeAttributes(
+                    map(channel, DataSetFormat.DATA_SET_HEADER_LENGTH, schemaLength));
+            if (attributes.size() != numColumns)
+            {
+                throw new RuntimeException("Error reading binary data set " +
+                        "file " + file + ". The schema does not match the " +
+                        "number of columns.");
+            }
+
+            /*
+             * Column blocks
+             */
+            DoubleBuffer[] continuousColumns = new DoubleBuffer[numColumns];
+            IntBuffer[] nominalColumns = new IntBuffer[numColumns];
+            LongBuffer[] missing = new LongBuffer[numColumns];
+
+            long position = DataSetFormat.align(DataSetFormat.DATA_SET_HEADER_LENGTH + schemaLength);
+            for (int col = 0; col < numColumns; col++)
+            {
+                boolean hasMissing = map(channel, position, DataSetFormat.COLUMN_HEADER_LENGTH).getInt() != 0;
+                position += DataSetFormat.COLUMN_HEADER_LENGTH;
+
+                if (attributes.get(col).getType() == Attribute.Type.NOMINAL)
+                {
+                    long length = 4L * numRows;
+                    nominalColumns[col] = map(channel, position, length).asIntBuffer();
+                    position = DataSetFormat.align(position + length);
+                }
+                else
+                {
+                    long length = 8L * numRows;
+                    continuousColumns[col] = map(channel, position, length).asDoubleBuffer();
+                    position += length;
+                }
+
+                if (hasMissing)
+                {
+                    long length = 8L * ((numRows + 63) / 64);
+                    missing[col] = map(channel, position, length).asLongBuffer();
+                    position += length;
+                }
+            }
+
+            ColumnStore store = new MappedColumnStore(attributes,
+                                                      numRows,
+                                                      continuousColumns,
+                                                      nominalColumns,
+                                                      missing);
+
+            return new DataSet(new AttributeSet(attributes), new InstanceSet(store));
+        }
+        catch (NoSuchFileException x)
+        {
+            System.err.format("FileNotFountException: %s%n", x);
+            List<Attribute> attributes = new ArrayList<>();
+            return new DataSet(new AttributeSet(attributes), new InstanceSet(new ColumnStore(attributes)));
+        }
+        catch (IOException x)
+        {
+            throw new RuntimeException("Error reading binary data set file " + file + ".", x);
+        }
+    }
+
+    /**
+     * Determine whether a file is a binary data set file by checking its
+     * magic number
+     *
+     * @param file a path to a file
+     * @return true if the file begins with the magic number of a binary data
+     * set file
+     */
+    public static boolean isBinaryFile(String file)
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ))
+        {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(DataSetFormat.BYTE_ORDER);
+            while (magic.hasRemaining() && channel.read(magic) > 0);
+            return !magic.hasRemaining() && magic.getInt(0) == DataSetFormat.DATA_SET_MAGIC;
+        }
+        catch (IOException x)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Memory-map a region of a file.  The mapping remains valid after the
+     * channel is closed.
+     *
+     * @param channel the channel of the file
+     * @param position the position of the region
+     * @param length the length of the region in bytes
+     * @return a little-endian buffer viewing the region
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException
+    {
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new RuntimeException("Error reading binary data set file. " +
+                    "A column block exceeds the maximum mappable size.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                      .order(DataSetFormat.BYTE_ORDER);
+    }
+}
@@ -0,0 +1,196 @@
+package data.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import data.Attribute;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+
+/**
+ * Writes a data set to a file in the binary data set format described in
+ * {@code DataSetFormat}.  A file written by this class can be loaded with
+ * {@code BinaryDataSetReader} without parsing any text.
+ *
+ */
+public class BinaryDataSetWriter
+{
+    /**
+     * The size in bytes of the buffer used for writing column blocks
+     */
+    private final static int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Convert an ARFF file to a binary data set file
+     *
+     * @param arffFile a path to the ARFF file
+     * @param binaryFile a path to the binary data set file to write
+     */
+    public static void convertArff(String arffFile, String binaryFile)
+    {
+        writeFile(ArffReader.readFile(arffFile), binaryFile);
+    }
+
+    /**
+     * Write a data set to a binary data set file
+     *
+     * @param data the data set
+     * @param file a path to the binary data set file to write
+     */
+    public static void writeFile(DataSet data, String file)
+    {
+        ColumnStore store = getColumnStore(data);
+        List<Attribute> attributes = store.getAttributes();
+        int numRows = store.getNumRows();
+        byte[] schema = DataSetFormat.encodeAttributes(attributes);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+                                          .order(DataSetFormat.BYTE_ORDER);
+
+            /*
+             * Header and schema block
+             */
+            ByteBuffer header = ByteBuffer.allocate(DataSetFormat.DATA_SET_HEADER_LENGTH)
+                                          .order(DataSetFormat.BYTE_ORDER);
+            header.putInt(DataSetFormat.DATA_SET_MAGIC);
+            header.putInt(DataSetFormat.DATA_SET_VERSION);
+            header.putInt(numRows);
+            header.putInt(attributes.size());
+            header.putInt(schema.length);
+            header.flip();
+            writeFully(channel, header);
+            writeFully(channel, ByteBuffer.wrap(schema));
+
+            /*
+             * One block per column
+             */
+            for (int col = 0; col < attributes.size(); col++)
+            {
+                pad(channel);
+
+                boolean hasMissing = false;
+                for (int row = 0; row < numRows && !hasMissing; row++)
+                {
+                    hasMissing = store.isMissing(row, col);
+                }
+
+                buffer.clear();
+                buffer.putInt(hasMissing ? 1 : 0);
+                buffer.putInt(0);
+
+                boolean nominal = attributes.get(col).getType() == Attribute.Type.NOMINAL;
+                for (int row = 0; row < numRows; row++)
+                {
+                    if (buffer.remaining() < 8)
+                    {
+                        flush(channel, buffer);
+                    }
+
+                    /*
+                     *  Missing values are written as zero
+                     */
+                    boolean isMissing = hasMissing && store.isMissing(row, col);
+                    if (nominal)
+                    {
+                        buffer.putInt(isMissing ? 0 : store.getNominal(row, col));
+                    }
+                    else
+                    {
+                        buffer.putDouble(isMissing ? 0.0 : store.getContinuous(row, col));
+                    }
+                }
+                flush(channel, buffer);
+
+                if (hasMissing)
+                {
+                    pad(channel);
+                    for (int wordStart = 0; wordStart < numRows; wordStart += 64)
+                    {
+                        if (buffer.remaining() < 8)
+                        {
+                            flush(channel, buffer);
+                        }
+
+                        long word = 0;
+                        int wordEnd = Math.min(wordStart + 64, numRows);
+                        for (int row = wordStart; row < wordEnd; row++)
+                        {
+                            if (store.isMissing(row, col))
+                            {
+                                word |= 1L << row;
+                            }
+                        }
+                        buffer.putLong(word);
+                    }
+                    flush(channel, buffer);
+                }
+            }
+            pad(channel);
+        }
+        catch (IOException x)
+        {
+            throw new RuntimeException("Error writing binary data set file " + file + ".", x);
+        }
+    }
+
+    /**
+     * @param data a data set
+     * @return the column store holding the data set's instances.  If the
+     * data set is not backed by a column store, its instances are copied
+     * into a new one.
+     */
+    private static ColumnStore getColumnStore(DataSet data)
+    {
+        ColumnStore store = data.getInstanceSet().getColumnStore();
+        if (store != null)
+        {
+            return store;
+        }
+
+        store = new ColumnStore(data.getAttributeSet().getAttributes(),
+                                data.getInstanceSet().size());
+        for (Instance instance : data.getInstanceSet().getInstances())
+        {
+            store.addInstance(instance);
+        }
+        return store;
+    }
+
+    /**
+     * Write the bytes remaining in a buffer and clear the buffer
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Pad a file with zeros up to the next 8-byte boundary
+     */
+    private static void pad(FileChannel channel) throws IOException
+    {
+        long position = channel.position();
+        int padding = (int) (DataSetFormat.align(position) - position);
+        writeFully(channel, ByteBuffer.allocate(padding));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package data.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Attribute;
+
+/**
+ * Constants and the schema codec shared by the readers and writers of this
+ * library's binary file formats.
+ * <br>
+ * <br>
+ * All binary files are little-endian.  A binary data set file is laid out as
+ * follows:
+ * <ul>
+ * <li>header: magic number, format version, number of rows, number of
+ * columns and the length of the schema block, each a 32-bit integer</li>
+ * <li>schema block: each attribute's name, type and nominal dictionary</li>
+ * <li>one block per column, in attribute order, each beginning on an 8-byte
+ * boundary: a 32-bit flag that is 1 if the column has a missing value
+ * bitmap, 4 bytes of padding, the column's values as 32-bit nominal value
+ * IDs or 64-bit doubles padded to 8 bytes and, if flagged, the missing value
+ * bitmap as 64-bit words</li>
+ * </ul>
+ * A binary tree model file is laid out as follows:
+ * <ul>
+ * <li>header: magic number, format version, model kind, number of trees,
+ * length of the schema block, ordinal of the class attribute, ordinal of
+ * the loss and 4 bytes of padding, each a 32-bit integer, followed by the
+ * base score and shrinkage of a boosted model as 64-bit doubles</li>
+ * <li>schema block: each attribute's name, type and nominal dictionary, in
+ * ordinal order</li>
+ * <li>one block per tree, each beginning on an 8-byte boundary: the number
+ * of nodes, the length of the child table, the number of classes and a
+ * regression flag, each a 32-bit integer, followed by the compiled node
+ * arrays of the tree, each beginning on an 8-byte boundary</li>
+ * </ul>
+ *
+ */
+public final class DataSetFormat
+{
+    /**
+     * The magic number that begins a binary data set file ("MLDS")
+     */
+    public final static int DATA_SET_MAGIC = 0x4D4C4453;
+
+    /**
+     * The current version of the binary data set format
+     */
+    public final static int DATA_SET_VERSION = 1;
+
+    /**
+     * The byte order of all binary files
+     */
+    public final static ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * The length in bytes of the header of a binary data set file
+     */
+    public final static int DATA_SET_HEADER_LENGTH = 20;
+
+    /**
+     * The length in bytes of the header of each column block
+     */
+    public final static int COLUMN_HEADER_LENGTH = 8;
+
+    /**
+     * The magic number that begins a binary tree model file ("MLTM")
+     */
+    public final static int MODEL_MAGIC = 0x4D4C544D;
+
+    /**
+     * The current version of the binary tree model format
+     */
+    public final static int MODEL_VERSION = 1;
+
+    /**
+     * The length in bytes of the header of a binary tree model file
+     */
+    public final static int MODEL_HEADER_LENGTH = 48;
+
+    /**
+     * The model kind of a file holding a single decision tree
+     */
+    public final static int TREE_MODEL = 0;
+
+    /**
+     * The model kind of a file holding a random forest
+     */
+    public final static int FOREST_MODEL = 1;
+
+    /**
+     * The model kind of a file holding gradient-boosted trees
+     */
+    public final static int BOOSTED_MODEL = 2;
+
+    private final static byte NOMINAL_TYPE = 0;
+    private final static byte CONTINUOUS_TYPE = 1;
+
+    private DataSetFormat()
+    {
+    }
+
+    /**
+     * Encode the names, types and nominal dictionaries of a list of
+     * attributes.  The nominal values of each attribute are written in order
+     * of their nominal value IDs.
+     *
+     * @param attributes the attributes
+     * @return the encoded schema block
+     */
+    public static byte[] encodeAttributes(List<Attribute> attributes)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writeInt(out, attributes.size());
+        for (Attribute attr : attributes)
+        {
+            writeString(out, attr.getName());
+
+            if (attr.getType() == Attribute.Type.NOMINAL)
+            {
+                int numValues = attr.getNominalValueMap().size();
+                out.write(NOMINAL_TYPE);
+                writeInt(out, numValues);
+                for (int valueId = 0; valueId < numValues; valueId++)
+                {
+                    writeString(out, attr.getNominalValueName(valueId));
+                }
+            }
+            else
+            {
+                out.write(CONTINUOUS_TYPE);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a schema block written by {@code encodeAttributes}.  Decoding
+     * begins at the buffer's current position, and the position is advanced
+     * past the schema block.
+     *
+     * @param buffer a little-endian buffer holding the schema block
+     * @return the decoded attributes
+     */
+    public static List<Attribute> decodeAttributes(ByteBuffer buffer)
+    {
+        int numAttributes = buffer.getInt();
+        List<Attribute> attributes = new ArrayList<>(numAttributes);
+
+        for (int i = 0; i < numAttributes; i++)
+        {
+            String name = readString(buffer);
+            byte type = buffer.get();
+
+            if (type == NOMINAL_TYPE)
+            {
+                String[] values = new String[buffer.getInt()];
+                for (int valueId = 0; valueId < values.length; valueId++)
+                {
+                    values[valueId] = readString(buffer);
+                }
+                attributes.add(new Attribute(name, Attribute.Type.NOMINAL, values));
+            }
+            else if (type == CONTINUOUS_TYPE)
+            {
+                attributes.add(new Attribute(name, Attribute.Type.CONTINUOUS, null));
+            }
+            else
+            {
+                throw new RuntimeException("Error decoding schema. Unknown " +
+                        "type " + type + " for attribute " + name + ".");
+            }
+        }
+
+        return attributes;
+    }
+
+    /**
+     * @param position a position in a file
+     * @return the first 8-byte boundary at or after the position
+     */
+    public static long align(long position)
+    {
+        return (position + 7) & ~7L;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value)
+    {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
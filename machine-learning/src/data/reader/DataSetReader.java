@@ -0,0 +1,26 @@
+package data.reader;
+
+import data.DataSet;
+
+/**
+ * Reads a data set from either an ARFF file or a binary data set file.  The
+ * format of the file is determined by its contents rather than its name.
+ *
+ */
+public class DataSetReader
+{
+    /**
+     * Read and extract a data set from a file
+     *
+     * @param file a path to an ARFF file or a binary data set file
+     * @return a data set storing all data in the file
+     */
+    public static DataSet readFile(String file)
+    {
+        if (BinaryDataSetReader.isBinaryFile(file))
+        {
+            return BinaryDataSetReader.readFile(file);
+        }
+        return ArffReader.readFile(file);
+    }
+}
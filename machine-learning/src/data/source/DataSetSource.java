@@ -0,0 +1,90 @@
+package data.source;
+
+import java.util.List;
+
+import data.AttributeSet;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+
+/**
+ * A {@code RewindableInstanceSource} over the instances of an in-memory
+ * {@code DataSet}.  If the data set is backed by a column store, that store
+ * is returned as a single block without copying.  Otherwise the instances
+ * are copied into blocks of a fixed size.
+ *
+ */
+public class DataSetSource implements RewindableInstanceSource
+{
+    /**
+     * The number of instances copied into each block when the data set is
+     * not backed by a column store
+     */
+    private final static int BLOCK_SIZE = 4096;
+
+    /**
+     * The data set
+     */
+    private final DataSet data;
+
+    /**
+     * The index of the next instance to read
+     */
+    private int next;
+
+    /**
+     * Constructor
+     *
+     * @param data the data set
+     */
+    public DataSetSource(DataSet data)
+    {
+        this.data = data;
+        this.next = 0;
+    }
+
+    @Override
+    public AttributeSet getAttributeSet()
+    {
+        return data.getAttributeSet();
+    }
+
+    @Override
+    public ColumnStore nextBlock()
+    {
+        ColumnStore store = data.getInstanceSet().getColumnStore();
+        int size = data.getInstanceSet().size();
+
+        if (next >= size)
+        {
+            return null;
+        }
+
+        if (store != null)
+        {
+            next = size;
+            return store;
+        }
+
+        List<Instance> instances = data.getInstanceSet().getInstances();
+        int end = Math.min(next + BLOCK_SIZE, size);
+
+        ColumnStore block = new ColumnStore(data.getAttributeSet().getAttributes(), end - next);
+        for (; next < end; next++)
+        {
+            block.addInstance(instances.get(next));
+        }
+        return block;
+    }
+
+    @Override
+    public void rewind()
+    {
+        next = 0;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
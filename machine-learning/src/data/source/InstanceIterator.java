@@ -0,0 +1,73 @@
+package data.source;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import data.ColumnStore;
+import data.Instance;
+
+/**
+ * Iterates over every instance of an {@code InstanceSource}.  Each instance is
+ * a row view of the block it was read in.
+ *
+ */
+public class InstanceIterator implements Iterator<Instance>
+{
+    /**
+     * The source being iterated over
+     */
+    private final InstanceSource source;
+
+    /**
+     * The block holding the next instance
+     */
+    private ColumnStore block;
+
+    /**
+     * The row of the next instance in the current block
+     */
+    private int row;
+
+    /**
+     * Constructor
+     *
+     * @param source the source to iterate over
+     */
+    public InstanceIterator(InstanceSource source)
+    {
+        this.source = source;
+        this.block = null;
+        this.row = 0;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while (block == null || row >= block.getNumRows())
+        {
+            block = source.nextBlock();
+            row = 0;
+            if (block == null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Instance next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        return new Instance(block, row++);
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,33 @@
+package data.source;
+
+import data.AttributeSet;
+import data.ColumnStore;
+
+/**
+ * A source of instances that are read one block at a time rather than held
+ * in memory all at once.  Each block is a {@code ColumnStore} holding a
+ * contiguous run of instances.  A learner that only needs counts can consume
+ * a source without ever holding more than one block in memory.
+ *
+ */
+public interface InstanceSource extends AutoCloseable
+{
+    /**
+     * @return the attributes of every instance in this source
+     */
+    public AttributeSet getAttributeSet();
+
+    /**
+     * Read the next block of instances.  A returned block remains valid after
+     * subsequent calls, but the source does not retain it.
+     *
+     * @return the next block of instances or null if the source is exhausted
+     */
+    public ColumnStore nextBlock();
+
+    /**
+     * Release any resources held by this source
+     */
+    @Override
+    public void close();
+}
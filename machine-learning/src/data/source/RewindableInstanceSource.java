@@ -0,0 +1,15 @@
+package data.source;
+
+/**
+ * An {@code InstanceSource} that can be read more than once.  Learners that
+ * need a bounded number of passes over the data consume this type of source.
+ *
+ */
+public interface RewindableInstanceSource extends InstanceSource
+{
+    /**
+     * Return to the beginning of the source so that the next block read is
+     * the first block of instances
+     */
+    public void rewind();
+}
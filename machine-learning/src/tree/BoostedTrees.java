@@ -0,0 +1,283 @@
+package tree;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import pair.Pair;
+import data.Attribute;
+import data.DataSet;
+
+/**
+ * An ensemble of regression trees grown by gradient boosting.  The score of
+ * an instance is a base score plus the shrunken predictions of every tree.
+ * Under squared loss the score is the predicted value of a continuous class
+ * attribute.  Under logistic loss it is the log-odds that a binary class 
+ * attribute takes its second nominal value.
+ * <br>
+ * <br>
+ * The trees are held compiled, and a batch of instances is scored one tree
+ * at a time over its columns.
+ *
+ */
+public class BoostedTrees
+{
+	/**
+	 * The loss a boosted ensemble minimizes
+	 */
+	public static enum Loss {SQUARED, LOGISTIC};
+
+	/**
+	 * The trees of the ensemble, in the order they were grown
+	 */
+	private final List<FlatDecisionTree> trees;
+
+	/**
+	 * The score of an instance before any tree
+	 */
+	private final double baseScore;
+
+	/**
+	 * The factor multiplying the prediction of every tree
+	 */
+	private final double shrinkage;
+
+	/**
+	 * The loss the ensemble minimizes
+	 */
+	private final Loss loss;
+
+	/**
+	 * The class attribute the ensemble predicts
+	 */
+	private final Attribute classAttribute;
+
+	/**
+	 * Constructor
+	 *
+	 * @param trees the compiled regression trees of the ensemble
+	 * @param baseScore the score of an instance before any tree
+	 * @param shrinkage the factor multiplying the prediction of every tree
+	 * @param loss the loss the ensemble minimizes
+	 * @param classAttribute the class attribute the ensemble predicts
+	 */
+	public BoostedTrees(List<FlatDecisionTree> trees,
+	                    double baseScore,
+	                    double shrinkage,
+	                    Loss loss,
+	                    Attribute classAttribute)
+	{
+		this.trees = trees;
+		this.baseScore = baseScore;
+		this.shrinkage = shrinkage;
+		this.loss = loss;
+		this.classAttribute = classAttribute;
+	}
+
+	/**
+	 * @return the trees of the ensemble, in the order they were grown
+	 */
+	public List<FlatDecisionTree> getTrees()
+	{
+		return trees;
+	}
+
+	/**
+	 * @return the score of an instance before any tree
+	 */
+	public double getBaseScore()
+	{
+		return baseScore;
+	}
+
+	/**
+	 * @return the factor multiplying the prediction of every tree
+	 */
+	public double getShrinkage()
+	{
+		return shrinkage;
+	}
+
+	/**
+	 * @return the loss the ensemble minimizes
+	 */
+	public Loss getLoss()
+	{
+		return loss;
+	}
+
+	/**
+	 * @return the class attribute the ensemble predicts
+	 */
+	public Attribute getClassAttribute()
+	{
+		return classAttribute;
+	}
+
+	/**
+	 * Score a row
+	 *
+	 * @param row the values of an instance indexed by attribute ordinal,
+	 * with {@code NaN} for missing values
+	 * @return the score of the row
+	 */
+	public double predictScore(double[] row)
+	{
+		double score = baseScore;
+		for (FlatDecisionTree tree : trees)
+		{
+			score += shrinkage * tree.predictValue(row);
+		}
+		return score;
+	}
+
+	/**
+	 * Score a batch of rows given column by column
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row, as laid out by
+	 * {@link #toColumns(DataSet)}
+	 * @param scores receives the score of each row
+	 */
+	public void predictScores(double[][] columns, double[] scores)
+	{
+		predictScores(columns, 0, scores.length, scores);
+	}
+
+	/**
+	 * Score a range of a batch of rows given column by column.  Disjoint 
+	 * ranges of the same batch may be scored concurrently.
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row, as laid out by
+	 * {@link #toColumns(DataSet)}
+	 * @param start the index of the first row of the range
+	 * @param end the index after the last row of the range
+	 * @param scores receives the score of each row, indexed by row
+	 */
+	public void predictScores(double[][] columns, int start, int end, double[] scores)
+	{
+		for (int i = start; i < end; i++)
+		{
+			scores[i] = baseScore;
+		}
+		for (FlatDecisionTree tree : trees)
+		{
+			tree.addPredictedValues(columns, start, end, shrinkage, scores);
+		}
+	}
+
+	/**
+	 * Lay out the instances of a data set column by column for batch 
+	 * scoring with this ensemble
+	 *
+	 * @param data the data set
+	 * @return the values of each attribute tested by a tree of the ensemble
+	 * indexed by the ordinal the trees were compiled against, as by
+	 * {@link FlatDecisionTree#toColumns(DataSet, java.util.Collection)}
+	 */
+	public double[][] toColumns(DataSet data)
+	{
+		Set<Attribute> attributes = new LinkedHashSet<Attribute>();
+		for (FlatDecisionTree tree : trees)
+		{
+			attributes.addAll(tree.getTestedAttributes());
+		}
+		return FlatDecisionTree.toColumns(data, attributes);
+	}
+
+	/**
+	 * Predict the value of every instance in a data set.  Under squared 
+	 * loss this is the predicted class value, for use with 
+	 * {@link classify.evaluate.PercentageError}.  Under logistic loss it is
+	 * the probability of the class's second nominal value.
+	 *
+	 * @param data the data set
+	 * @return the prediction of each instance, in instance ID order
+	 */
+	public Double[] predictValues(DataSet data)
+	{
+		double[] scores = new double[data.getInstanceSet().size()];
+		predictScores(toColumns(data), scores);
+
+		Double[] predictions = new Double[scores.length];
+		for (int i = 0; i < scores.length; i++)
+		{
+			predictions[i] = loss == Loss.LOGISTIC ? sigmoid(scores[i]) : scores[i];
+		}
+		return predictions;
+	}
+
+	/**
+	 * Classify a scored row with an ensemble minimizing logistic loss
+	 *
+	 * @param score the score of the row, as given by 
+	 * {@link #predictScore(double[])}
+	 * @return the nominal value ID of the predicted class and the predicted
+	 * probability of that class
+	 */
+	public Pair<Integer, Double> classifyScore(double score)
+	{
+		checkLogistic();
+
+		double probability = sigmoid(score);
+		if (probability >= 0.5)
+		{
+			return new Pair<Integer, Double>(1, probability);
+		}
+		return new Pair<Integer, Double>(0, 1.0 - probability);
+	}
+
+	/**
+	 * Classify a range of scored rows with an ensemble minimizing logistic
+	 * loss, as by {@link #classifyScore(double)}
+	 *
+	 * @param scores the score of each row, indexed by row
+	 * @param start the index of the first row of the range
+	 * @param end the index after the last row of the range
+	 * @param classes receives the nominal value ID of the predicted class of
+	 * each row, indexed by row
+	 * @param confidences receives the predicted probability of each row's
+	 * class, indexed by row
+	 */
+	public void classifyScores(double[] scores, int start, int end, int[] classes, double[] confidences)
+	{
+		checkLogistic();
+
+		for (int i = start; i < end; i++)
+		{
+			double probability = sigmoid(scores[i]);
+			classes[i] = probability >= 0.5 ? 1 : 0;
+			confidences[i] = probability >= 0.5 ? probability : 1.0 - probability;
+		}
+	}
+
+	/**
+	 * Check that the ensemble minimizes logistic loss and so classifies a
+	 * binary class attribute
+	 */
+	private void checkLogistic()
+	{
+		if (loss != Loss.LOGISTIC)
+		{
+			throw new RuntimeException("Error classifying with boosted trees. " +
+					"The ensemble predicts the continuous attribute " +
+					classAttribute.getName() + ".");
+		}
+	}
+
+	/**
+	 * @param score a log-odds
+	 * @return the probability with the log-odds
+	 */
+	public static double sigmoid(double score)
+	{
+		return 1.0 / (1.0 + Math.exp(-score));
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Gradient boosted ensemble of " + trees.size() + " trees";
+	}
+}
@@ -3,12 +3,15 @@ package tree;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import pair.Pair;
 
 import data.Attribute;
 import data.AttributeSet;
+import data.DataSet;
 import data.Instance;
 
 /**
@@ -52,6 +55,14 @@ public class DecisionTree
 		return root;
 	}
 	
+	/**
+	 * @return the class attribute this tree predicts
+	 */
+	public Attribute getClassAttribute()
+	{
+		return classAttribute;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -103,7 +114,11 @@ public class DecisionTree
 			// Print the value at the current node
 			result += node;
 			
-			if (node instanceof DtLeaf)
+			if (node instanceof RegressionLeaf)
+			{
+			    result += ": " + ((RegressionLeaf) node).getMean();
+			}
+			else if (node instanceof DtLeaf)
 			{
 			    result += ": ";
 				String classLabel = classAttribute.getNominalValueName(((DtLeaf) node).getClassLabel());
@@ -128,7 +143,10 @@ public class DecisionTree
 	}
 	
 	/**
-	 * Classify an instance using this decision tree.
+	 * Classify an instance using this decision tree.  If the instance is 
+	 * missing the value tested at a node, the class distributions of all 
+	 * the node's subtrees are combined, each weighted by the number of 
+	 * training instances that reached it.
 	 * 
 	 * @param instance the instance to be classified
 	 * @return the nominal value ID of the class attribute predicted for the
@@ -136,21 +154,37 @@ public class DecisionTree
 	 */
 	public Pair<Integer, Double> classifyInstance(Instance instance)
 	{
+	    if (isRegressionTree())
+	    {
+	        throw new RuntimeException("Error classifying instance. The tree " +
+	                "predicts the continuous attribute " + 
+	                classAttribute.getName() + ".");
+	    }
+	    
 	    DtNode currNode = (DtNode) this.getRoot();
+	    DtNode parent = null;
         	    
         while (!(currNode instanceof DtLeaf))
         {
             @SuppressWarnings("unchecked")
             Set<DtNode> children = ((Set<DtNode>) ((Set<?>) currNode.getChildren()));
         
+            DtNode nextNode = null;
             for (DtNode node : children)
             {
                 if (node.doesInstanceSatisfyNode(instance))
                 {
-                    currNode = node;
+                    nextNode = node;
                     break;
                 }
             }
+            
+            if (nextNode == null)
+            {
+                return classifyByDistribution(currNode, instance);
+            }
+            parent = currNode;
+            currNode = nextNode;
         }
 
         DtLeaf leaf = (DtLeaf) currNode;
@@ -158,19 +192,215 @@ public class DecisionTree
         Integer prediction = leaf.getClassLabel().intValue();
         
         /*
-         *  Get total number of instances that reached the leaf node 
+         * Calculate the confidence.  A leaf that no training instance reached
+         * takes its confidence from the class counts of its parent.
          */
-        Integer totalCount = 0;
-        for (Integer count : leaf.getClassCounts().values())
+        Double confidence = getCountConfidence(leaf.getClassCounts(), prediction);
+        if (confidence == null && parent != null)
         {
-            totalCount += count;
+            confidence = getCountConfidence(parent.getClassCounts(), prediction);
         }
-        
-        /*
-         * Calculate the confidence
-         */
-        Double confidence = (double) (leaf.getClassCounts().get(prediction)) / totalCount;
       
-        return  new Pair<Integer, Double>(prediction, confidence);        
+        return  new Pair<Integer, Double>(prediction, confidence == null ? 0.0 : confidence);        
+	}
+	
+	/**
+	 * @param classCounts the class counts of the training instances that 
+	 * reached a node
+	 * @param classValue a nominal value ID of the class attribute
+	 * @return the fraction of the instances with the class, or null if no
+	 * instance reached the node
+	 */
+	private static Double getCountConfidence(Map<Integer, Integer> classCounts, int classValue)
+	{
+	    Integer totalCount = 0;
+	    for (Integer count : classCounts.values())
+	    {
+	        totalCount += count;
+	    }
+	    if (totalCount == 0)
+	    {
+	        return null;
+	    }
+	    
+	    Integer count = classCounts.get(classValue);
+	    return (double) (count == null ? 0 : count) / totalCount;
+	}
+	
+	/**
+	 * @return true if this tree predicts a continuous class attribute
+	 */
+	public boolean isRegressionTree()
+	{
+	    return classAttribute.getType() == Attribute.Type.CONTINUOUS;
+	}
+	
+	/**
+	 * Predict the value of the continuous class attribute of an instance 
+	 * using this regression tree.  The prediction is the mean class value at
+	 * the leaf the instance reaches.  If the instance is missing the value
+	 * tested at a node, the predictions of all the node's subtrees are 
+	 * averaged, each weighted by the weight of the training instances that
+	 * reached it.
+	 * 
+	 * @param instance the instance
+	 * @return the predicted class value
+	 */
+	public double predictValue(Instance instance)
+	{
+	    if (!isRegressionTree())
+	    {
+	        throw new RuntimeException("Error predicting value. The tree " +
+	                "predicts the nominal attribute " + 
+	                classAttribute.getName() + ".");
+	    }
+	    return predictValue(root, instance);
+	}
+	
+	/**
+	 * Predict the class value of every instance in a data set, for use with
+	 * {@link classify.evaluate.PercentageError}
+	 * 
+	 * @param data the data set
+	 * @return the predicted class value of each instance, in instance ID 
+	 * order
+	 */
+	public Double[] predictValues(DataSet data)
+	{
+	    List<Instance> instances = data.getInstanceSet().getInstances();
+	    Double[] predictions = new Double[instances.size()];
+	    for (int id = 0; id < predictions.length; id++)
+	    {
+	        predictions[id] = predictValue(instances.get(id));
+	    }
+	    return predictions;
+	}
+	
+	/**
+	 * Predict the class value of an instance below a node.  Children that 
+	 * no training instance reached are skipped.
+	 * 
+	 * @param node the node
+	 * @param instance the instance
+	 * @return the predicted class value
+	 */
+	private double predictValue(DtNode node, Instance instance)
+	{
+	    if (node instanceof RegressionLeaf)
+	    {
+	        return ((RegressionLeaf) node).getMean();
+	    }
+	    
+	    @SuppressWarnings("unchecked")
+	    Set<DtNode> children = ((Set<DtNode>) ((Set<?>) node.getChildren()));
+	    for (DtNode child : children)
+	    {
+	        if (child.getWeight() > 0 && child.doesInstanceSatisfyNode(instance))
+	        {
+	            return predictValue(child, instance);
+	        }
+	    }
+	    
+	    double sum = 0.0;
+	    double totalWeight = 0.0;
+	    for (DtNode child : children)
+	    {
+	        if (child.getWeight() > 0)
+	        {
+	            sum += child.getWeight() * predictValue(child, instance);
+	            totalWeight += child.getWeight();
+	        }
+	    }
+	    return totalWeight > 0 ? sum / totalWeight : Double.NaN;
+	}
+	
+	/**
+	 * Classify an instance that satisfies none of a node's children by 
+	 * combining the class distributions of the subtrees below the node.
+	 * 
+	 * @param node the node whose tested value the instance is missing
+	 * @param instance the instance to be classified
+	 * @return the most probable class and its probability
+	 */
+	private Pair<Integer, Double> classifyByDistribution(DtNode node, Instance instance)
+	{
+	    double[] distribution = getClassDistribution(node, instance);
+	    
+	    int prediction = 0;
+	    double total = 0.0;
+	    for (int c = 0; c < distribution.length; c++)
+	    {
+	        total += distribution[c];
+	        if (distribution[c] > distribution[prediction])
+	        {
+	            prediction = c;
+	        }
+	    }
+	    
+	    Double confidence = total > 0 ? distribution[prediction] / total : 0.0;
+	    return new Pair<Integer, Double>(prediction, confidence);
+	}
+	
+	/**
+	 * Compute the class distribution of an instance below a node.  The 
+	 * distribution at a leaf is its class counts.  At an inner node, the
+	 * distribution of the satisfied child is used if there is one.  
+	 * Otherwise the normalized distributions of the children are summed, 
+	 * each weighted by the child's number of training instances.
+	 * 
+	 * @param node the node
+	 * @param instance the instance
+	 * @return the unnormalized class distribution indexed by nominal value ID
+	 */
+	private double[] getClassDistribution(DtNode node, Instance instance)
+	{
+	    int numClasses = classAttribute.getNominalValueMap().size();
+	    double[] distribution = new double[numClasses];
+	    
+	    if (node instanceof DtLeaf)
+	    {
+	        for (Entry<Integer, Integer> entry : node.getClassCounts().entrySet())
+	        {
+	            distribution[entry.getKey()] += entry.getValue();
+	        }
+	        return distribution;
+	    }
+	    
+	    @SuppressWarnings("unchecked")
+	    Set<DtNode> children = ((Set<DtNode>) ((Set<?>) node.getChildren()));
+	    for (DtNode child : children)
+	    {
+	        if (child.doesInstanceSatisfyNode(instance))
+	        {
+	            return getClassDistribution(child, instance);
+	        }
+	    }
+	    
+	    for (DtNode child : children)
+	    {
+	        double[] childDistribution = getClassDistribution(child, instance);
+	        
+	        double childTotal = 0.0;
+	        for (double value : childDistribution)
+	        {
+	            childTotal += value;
+	        }
+	        if (childTotal == 0)
+	        {
+	            continue;
+	        }
+	        
+	        double childWeight = 0.0;
+	        for (Integer count : child.getClassCounts().values())
+	        {
+	            childWeight += count;
+	        }
+	        
+	        for (int c = 0; c < numClasses; c++)
+	        {
+	            distribution[c] += childWeight * childDistribution[c] / childTotal;
+	        }
+	    }
+	    return distribution;
 	}
 }
@@ -60,6 +60,12 @@ public class DtNode extends Node {
 	 */
 	private Map<Integer, Integer> classCounts;
 	
+	/**
+	 * The total weight of the training instances with a class value that 
+	 * reached this node
+	 */
+	private double weight;
+	
 	/**
 	 * The attribute this node tests
 	 */
@@ -91,6 +97,15 @@ public class DtNode extends Node {
 		return this.nodeValue;
 	}
 	
+	/**
+	 * @return how the attribute is tested against the value at this decision
+	 * tree node
+	 */
+	public Relation getRelation()
+	{
+		return this.relation;
+	}
+	
 	public void setClassCounts(Map<Integer, Integer> classLabelCounts)
 	{
 		this.classCounts = classLabelCounts;
@@ -101,10 +116,36 @@ public class DtNode extends Node {
 	    return this.classCounts;
 	}
 	
+	/**
+	 * @param weight the total weight of the training instances with a class
+	 * value that reached this node
+	 */
+	public void setWeight(double weight)
+	{
+		this.weight = weight;
+	}
+	
+	/**
+	 * @return the total weight of the training instances with a class value
+	 * that reached this node.  This is only set in regression trees.
+	 */
+	public double getWeight()
+	{
+		return this.weight;
+	}
+	
 	public Boolean doesInstanceSatisfyNode(Instance instance)
 	{
 		Double instanceAttrValue = instance.getAttributeValue(testedAttribute);
 		
+		/*
+		 *  An instance missing the tested value satisfies no node
+		 */
+		if (instanceAttrValue == null)
+		{
+			return false;
+		}
+		
 		Boolean result = null;
 		
 		switch(this.relation)
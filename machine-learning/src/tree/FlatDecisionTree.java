@@ -0,0 +1,1085 @@
+package tree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import data.Attribute;
+import data.AttributeSet;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+import data.InstanceSet;
+import data.reader.DataSetFormat;
+
+/**
+ * A decision tree compiled into flat parallel arrays for fast inference.
+ * Each node is an index into the arrays.  An inner node holds the ordinal
+ * of the attribute it tests and the offset of its children in a shared
+ * child table.  A leaf holds its class label and confidence, or the mean 
+ * class value of a regression tree.
+ * <br>
+ * <br>
+ * Instances are given as rows of values indexed by the ordinals of the
+ * attributes the tree was compiled against, with nominal values given by
+ * their nominal value ID and missing values given as {@code NaN}.  Predicting a row allocates nothing unless the row is
+ * missing a value tested on its path, in which case the class distributions
+ * of the subtrees are combined as by
+ * {@link DecisionTree#classifyInstance(Instance)}.
+ *
+ */
+public class FlatDecisionTree
+{
+	/**
+	 * The ordinal of the attribute tested at each node, or -1 at a leaf
+	 */
+	private final int[] attributeOrdinals;
+
+	/**
+	 * Whether the attribute tested at each node is nominal
+	 */
+	private final boolean[] nominal;
+
+	/**
+	 * The threshold of each node testing a continuous attribute
+	 */
+	private final double[] thresholds;
+
+	/**
+	 * The offset of each inner node's children in the child table
+	 */
+	private final int[] childOffsets;
+
+	/**
+	 * The number of children of each inner node
+	 */
+	private final int[] numChildren;
+
+	/**
+	 * The children of every inner node.  The children of a node testing a
+	 * nominal attribute are indexed by nominal value ID.  The children of a
+	 * node testing a continuous attribute are the child at or below the
+	 * threshold followed by the child above it.  A value with no child is
+	 * -1.
+	 */
+	private final int[] children;
+
+	/**
+	 * The class label of each leaf
+	 */
+	private final int[] leafClasses;
+
+	/**
+	 * The confidence of each leaf's class label
+	 */
+	private final double[] leafConfidences;
+
+	/**
+	 * The class counts of the training instances that reached each node.
+	 * The counts of node n start at index {@code n * numClasses}.
+	 */
+	private final double[] classCounts;
+
+	/**
+	 * The length in bytes of the header of an encoded tree block
+	 */
+	private static final int TREE_HEADER_LENGTH = 16;
+
+	/**
+	 * The number of values of the class attribute
+	 */
+	private final int numClasses;
+
+	/**
+	 * Whether the tree predicts a continuous class attribute
+	 */
+	private final boolean regression;
+
+	/**
+	 * The mean class value of each leaf of a regression tree
+	 */
+	private final double[] leafValues;
+
+	/**
+	 * The weight of the training instances that reached each node of a
+	 * regression tree
+	 */
+	private final double[] nodeWeights;
+
+	/**
+	 * The attributes tested by the tree, with the ordinals the tree was
+	 * compiled against
+	 */
+	private final List<Attribute> testedAttributes;
+
+	/**
+	 * Constructor.  Compiles a decision tree.  Nodes are numbered in
+	 * breadth-first order from the root.
+	 *
+	 * @param tree the decision tree
+	 */
+	public FlatDecisionTree(DecisionTree tree)
+	{
+		this.regression = tree.isRegressionTree();
+		this.numClasses = regression ? 0 : tree.getClassAttribute().getNominalValueMap().size();
+
+		/*
+		 *  Number the nodes breadth first
+		 */
+		List<DtNode> nodes = new ArrayList<DtNode>();
+		Deque<DtNode> queue = new ArrayDeque<DtNode>();
+		queue.add((DtNode) tree.getRoot());
+		while (!queue.isEmpty())
+		{
+			DtNode node = queue.poll();
+			nodes.add(node);
+			for (DtNode child : getSortedChildren(node))
+			{
+				queue.add(child);
+			}
+		}
+
+		int numNodes = nodes.size();
+		this.attributeOrdinals = new int[numNodes];
+		this.nominal = new boolean[numNodes];
+		this.thresholds = new double[numNodes];
+		this.childOffsets = new int[numNodes];
+		this.numChildren = new int[numNodes];
+		this.leafClasses = new int[numNodes];
+		this.leafConfidences = new double[numNodes];
+		this.classCounts = new double[numNodes * numClasses];
+		this.leafValues = regression ? new double[numNodes] : null;
+		this.nodeWeights = regression ? new double[numNodes] : null;
+		this.testedAttributes = new ArrayList<Attribute>();
+
+		int[] parents = new int[numNodes];
+		parents[0] = -1;
+
+		List<Integer> childTable = new ArrayList<Integer>();
+		int nextNode = 1;
+		for (int n = 0; n < numNodes; n++)
+		{
+			DtNode node = nodes.get(n);
+			double total = 0;
+			if (node.getClassCounts() != null)
+			{
+				for (int c = 0; c < numClasses; c++)
+				{
+					Integer count = node.getClassCounts().get(c);
+					classCounts[n * numClasses + c] = count == null ? 0 : count;
+					total += classCounts[n * numClasses + c];
+				}
+			}
+
+			if (regression)
+			{
+				nodeWeights[n] = node.getWeight();
+			}
+
+			if (node instanceof RegressionLeaf)
+			{
+				attributeOrdinals[n] = -1;
+				leafValues[n] = ((RegressionLeaf) node).getMean();
+				continue;
+			}
+			else if (node instanceof DtLeaf)
+			{
+				int classLabel = ((DtLeaf) node).getClassLabel();
+				attributeOrdinals[n] = -1;
+				leafClasses[n] = classLabel;
+
+				/*
+				 *  A leaf that no training instance reached, such as the
+				 *  branch of an unseen nominal value, takes its confidence
+				 *  from the class counts of its parent
+				 */
+				leafConfidences[n] = total > 0 ? classCounts[n * numClasses + classLabel] / total
+				                               : getCountConfidence(parents[n], classLabel);
+				continue;
+			}
+
+			/*
+			 *  The children of a node all test the same attribute.  Children
+			 *  were numbered consecutively when the node was dequeued.
+			 */
+			List<DtNode> nodeChildren = getSortedChildren(node);
+			Attribute attr = nodeChildren.get(0).getTestedAttribute();
+			if (attr.getOrdinal() < 0)
+			{
+				throw new RuntimeException("Error compiling decision tree. " +
+						"Attribute " + attr.getName() + " has no ordinal.");
+			}
+
+			if (!testedAttributes.contains(attr))
+			{
+				testedAttributes.add(attr);
+			}
+
+			attributeOrdinals[n] = attr.getOrdinal();
+			nominal[n] = attr.getType() == Attribute.Type.NOMINAL;
+			childOffsets[n] = childTable.size();
+			numChildren[n] = nominal[n] ? attr.getNominalValueMap().size() : 2;
+
+			int[] slots = new int[numChildren[n]];
+			Arrays.fill(slots, -1);
+			for (DtNode child : nodeChildren)
+			{
+				int slot;
+				if (nominal[n])
+				{
+					slot = child.getNodevalue().intValue();
+				}
+				else
+				{
+					thresholds[n] = child.getNodevalue();
+					slot = child.getRelation() == DtNode.Relation.LESS_THAN_EQUAL_TO ? 0 : 1;
+				}
+
+				/*
+				 *  A regression child that no training instance reached is
+				 *  numbered but never entered
+				 */
+				if (regression && child.getWeight() <= 0)
+				{
+					nextNode++;
+					continue;
+				}
+				parents[nextNode] = n;
+				slots[slot] = nextNode++;
+			}
+			for (int slot : slots)
+			{
+				childTable.add(slot);
+			}
+		}
+
+		this.children = new int[childTable.size()];
+		for (int i = 0; i < children.length; i++)
+		{
+			children[i] = childTable.get(i);
+		}
+	}
+
+	/**
+	 * @param node a node, or -1
+	 * @param classLabel a nominal value ID of the class attribute
+	 * @return the fraction of the training instances that reached the node
+	 * with the class, or 0 if none did
+	 */
+	private double getCountConfidence(int node, int classLabel)
+	{
+		if (node < 0)
+		{
+			return 0.0;
+		}
+
+		double total = 0;
+		for (int c = 0; c < numClasses; c++)
+		{
+			total += classCounts[node * numClasses + c];
+		}
+		return total > 0 ? classCounts[node * numClasses + classLabel] / total : 0.0;
+	}
+
+	/**
+	 * Constructor for a tree decoded from its arrays
+	 */
+	private FlatDecisionTree(int[] attributeOrdinals,
+	                         boolean[] nominal,
+	                         double[] thresholds,
+	                         int[] childOffsets,
+	                         int[] numChildren,
+	                         int[] children,
+	                         int[] leafClasses,
+	                         double[] leafConfidences,
+	                         double[] classCounts,
+	                         int numClasses,
+	                         boolean regression,
+	                         double[] leafValues,
+	                         double[] nodeWeights,
+	                         List<Attribute> testedAttributes)
+	{
+		this.attributeOrdinals = attributeOrdinals;
+		this.nominal = nominal;
+		this.thresholds = thresholds;
+		this.childOffsets = childOffsets;
+		this.numChildren = numChildren;
+		this.children = children;
+		this.leafClasses = leafClasses;
+		this.leafConfidences = leafConfidences;
+		this.classCounts = classCounts;
+		this.numClasses = numClasses;
+		this.regression = regression;
+		this.leafValues = leafValues;
+		this.nodeWeights = nodeWeights;
+		this.testedAttributes = testedAttributes;
+	}
+
+	/**
+	 * @return the number of nodes in the tree
+	 */
+	public int getNumNodes()
+	{
+		return attributeOrdinals.length;
+	}
+
+	/**
+	 * Predict the class of a row
+	 *
+	 * @param row the values of an instance indexed by attribute ordinal
+	 * @return the nominal value ID of the predicted class
+	 */
+	public int predict(double[] row)
+	{
+		int leaf = findLeaf(null, row, 0);
+		if (leaf >= 0)
+		{
+			return leafClasses[leaf];
+		}
+		return argMax(getClassDistribution(-leaf - 1, null, row, 0));
+	}
+
+	/**
+	 * Predict the class of a row and the confidence of the prediction
+	 *
+	 * @param row the values of an instance indexed by attribute ordinal
+	 * @return the confidence of the class returned by
+	 * {@link #predict(double[])}
+	 */
+	public double predictConfidence(double[] row)
+	{
+		int leaf = findLeaf(null, row, 0);
+		if (leaf >= 0)
+		{
+			return leafConfidences[leaf];
+		}
+		return confidence(getClassDistribution(-leaf - 1, null, row, 0));
+	}
+
+	/**
+	 * Predict the class of a batch of rows given column by column
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row
+	 * @param classes receives the nominal value ID of the predicted class of
+	 * each row
+	 */
+	public void predict(double[][] columns, int[] classes)
+	{
+		predict(columns, classes, null);
+	}
+
+	/**
+	 * Predict the class of a batch of rows given column by column, and the
+	 * confidence of each prediction
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row
+	 * @param classes receives the nominal value ID of the predicted class of
+	 * each row
+	 * @param confidences receives the confidence of each prediction, or null
+	 */
+	public void predict(double[][] columns, int[] classes, double[] confidences)
+	{
+		predict(columns, 0, classes.length, classes, confidences);
+	}
+
+	/**
+	 * Predict the class of a range of a batch of rows given column by 
+	 * column, and the confidence of each prediction.  Disjoint ranges of the
+	 * same batch may be predicted concurrently.
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row
+	 * @param start the index of the first row of the range
+	 * @param end the index after the last row of the range
+	 * @param classes receives the nominal value ID of the predicted class of
+	 * each row, indexed by row
+	 * @param confidences receives the confidence of each prediction indexed
+	 * by row, or null
+	 */
+	public void predict(double[][] columns, int start, int end, int[] classes, double[] confidences)
+	{
+		for (int i = start; i < end; i++)
+		{
+			int leaf = findLeaf(columns, null, i);
+			if (leaf >= 0)
+			{
+				classes[i] = leafClasses[leaf];
+				if (confidences != null)
+				{
+					confidences[i] = leafConfidences[leaf];
+				}
+			}
+			else
+			{
+				double[] distribution = getClassDistribution(-leaf - 1, columns, null, i);
+				classes[i] = argMax(distribution);
+				if (confidences != null)
+				{
+					confidences[i] = confidence(distribution);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the tree predicts a continuous class attribute
+	 */
+	public boolean isRegressionTree()
+	{
+		return regression;
+	}
+
+	/**
+	 * Predict the class value of a row with a regression tree
+	 *
+	 * @param row the values of an instance indexed by attribute ordinal
+	 * @return the predicted class value, as by
+	 * {@link DecisionTree#predictValue(Instance)}
+	 */
+	public double predictValue(double[] row)
+	{
+		return predictValueBelow(0, null, row, 0);
+	}
+
+	/**
+	 * Predict the class value of a batch of rows given column by column 
+	 * with a regression tree, and add each prediction times a factor to a 
+	 * running total.  This accumulates the scores of an ensemble one tree 
+	 * at a time.
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row
+	 * @param factor the factor multiplying each prediction
+	 * @param totals the running total of each row, updated in place
+	 */
+	public void addPredictedValues(double[][] columns, double factor, double[] totals)
+	{
+		addPredictedValues(columns, 0, totals.length, factor, totals);
+	}
+
+	/**
+	 * Predict the class value of a range of a batch of rows given column by
+	 * column with a regression tree, and add each prediction times a factor
+	 * to a running total.  Disjoint ranges of the same batch may be
+	 * predicted concurrently.
+	 *
+	 * @param columns the values of each attribute indexed by attribute
+	 * ordinal, with one entry per row
+	 * @param start the index of the first row of the range
+	 * @param end the index after the last row of the range
+	 * @param factor the factor multiplying each prediction
+	 * @param totals the running total of each row indexed by row, updated
+	 * in place
+	 */
+	public void addPredictedValues(double[][] columns, int start, int end, double factor, double[] totals)
+	{
+		for (int i = start; i < end; i++)
+		{
+			totals[i] += factor * predictValueBelow(0, columns, null, i);
+		}
+	}
+
+	/**
+	 * @return the attributes tested by the tree, with the ordinals the tree
+	 * was compiled against
+	 */
+	public List<Attribute> getTestedAttributes()
+	{
+		return testedAttributes;
+	}
+
+	/**
+	 * Lay out the instances of a data set column by column for batch
+	 * prediction with this tree
+	 *
+	 * @param data the data set
+	 * @return the values of each attribute tested by the tree indexed by the
+	 * ordinal the tree was compiled against, as by
+	 * {@link #toColumns(DataSet, Collection)}
+	 */
+	public double[][] toColumns(DataSet data)
+	{
+		return toColumns(data, testedAttributes);
+	}
+
+	/**
+	 * Lay out the values of some attributes of a data set's instances column
+	 * by column for batch prediction.  Each attribute is looked up in the
+	 * data set by name, so the data set may order its attributes
+	 * differently from the data the trees were compiled from.
+	 *
+	 * @param data the data set
+	 * @param attributes the attributes to lay out, with the ordinals the
+	 * trees were compiled against
+	 * @return the values of each attribute indexed by its ordinal, with
+	 * {@code NaN} for missing values and null for the ordinals of any other
+	 * attributes
+	 */
+	public static double[][] toColumns(DataSet data, Collection<Attribute> attributes)
+	{
+		AttributeSet attributeSet = data.getAttributeSet();
+		InstanceSet instances = data.getInstanceSet();
+		ColumnStore store = instances.getBase().getColumnStore();
+		int[] rows = instances.getRows();
+		List<Instance> instanceList = instances.getInstances();
+
+		int numOrdinals = 0;
+		for (Attribute attr : attributes)
+		{
+			if (attr.getOrdinal() < 0)
+			{
+				throw new RuntimeException("Error laying out data set. " +
+						"Attribute " + attr.getName() + " has no ordinal.");
+			}
+			numOrdinals = Math.max(numOrdinals, attr.getOrdinal() + 1);
+		}
+
+		double[][] columns = new double[numOrdinals][];
+		for (Attribute attr : attributes)
+		{
+			Attribute dataAttr = getMatchingAttribute(attributeSet, attr);
+			double[] column = new double[instances.size()];
+			int col = store == null ? -1 : store.getColumnIndex(dataAttr);
+			for (int id = 0; id < column.length; id++)
+			{
+				if (col >= 0)
+				{
+					int row = rows == null ? id : rows[id];
+					column[id] = store.isMissing(row, col) ? Double.NaN
+					                                       : store.getValue(row, col);
+				}
+				else
+				{
+					Double value = instanceList.get(id).getAttributeValue(dataAttr);
+					column[id] = value == null ? Double.NaN : value;
+				}
+			}
+			columns[attr.getOrdinal()] = column;
+		}
+		return columns;
+	}
+
+	/**
+	 * Find the attribute of a data set that holds the values of an 
+	 * attribute the trees were compiled against
+	 *
+	 * @param attributeSet the attributes of the data set
+	 * @param attr the attribute the trees were compiled against
+	 * @return the attribute of the data set with the same name
+	 */
+	private static Attribute getMatchingAttribute(AttributeSet attributeSet, Attribute attr)
+	{
+		Attribute dataAttr = attributeSet.getAttributeByName(attr.getName());
+		if (dataAttr == null)
+		{
+			throw new RuntimeException("Error laying out data set. The data " +
+					"set has no attribute " + attr.getName() + ".");
+		}
+		if (dataAttr.getType() != attr.getType())
+		{
+			throw new RuntimeException("Error laying out data set. Attribute " +
+					attr.getName() + " is " + dataAttr.getType() + " in the data " +
+					"set but " + attr.getType() + " in the model.");
+		}
+		if (attr.getType() == Attribute.Type.NOMINAL
+				&& !sameNominalValues(attr.getNominalValueMap(), dataAttr.getNominalValueMap()))
+		{
+			throw new RuntimeException("Error laying out data set. Attribute " +
+					attr.getName() + " has different nominal values in the " +
+					"data set and in the model.");
+		}
+		return dataAttr;
+	}
+
+	/**
+	 * @param expected the nominal value map of an attribute of the model
+	 * @param actual the nominal value map of the attribute of a data set
+	 * @return true if both maps give every value name the same ID
+	 */
+	private static boolean sameNominalValues(Map<String, Integer> expected,
+	                                         Map<String, Integer> actual)
+	{
+		if (expected.size() != actual.size())
+		{
+			return false;
+		}
+		for (Map.Entry<String, Integer> entry : expected.entrySet())
+		{
+			if (!entry.getValue().equals(actual.get(entry.getKey())))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Walk a row down the tree
+	 *
+	 * @param columns the batch of rows column by column, or null
+	 * @param row the row, if columns is null
+	 * @param i the index of the row in the batch
+	 * @return the leaf reached, or {@code -n - 1} if the row has no child at
+	 * node n
+	 */
+	private int findLeaf(double[][] columns, double[] row, int i)
+	{
+		int node = 0;
+		while (attributeOrdinals[node] >= 0)
+		{
+			int child = getChild(node, columns, row, i);
+			if (child < 0)
+			{
+				return -node - 1;
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	/**
+	 * @param node an inner node
+	 * @param columns the batch of rows column by column, or null
+	 * @param row the row, if columns is null
+	 * @param i the index of the row in the batch
+	 * @return the child of the node that the row satisfies, or -1 if none
+	 */
+	private int getChild(int node, double[][] columns, double[] row, int i)
+	{
+		int ordinal = attributeOrdinals[node];
+		double value = columns == null ? row[ordinal] : columns[ordinal][i];
+		if (Double.isNaN(value))
+		{
+			return -1;
+		}
+
+		int slot;
+		if (nominal[node])
+		{
+			slot = (int) value;
+			if (slot < 0 || slot >= numChildren[node])
+			{
+				return -1;
+			}
+		}
+		else
+		{
+			slot = value <= thresholds[node] ? 0 : 1;
+		}
+		return children[childOffsets[node] + slot];
+	}
+
+	/**
+	 * Predict the class value of a row below a node of a regression tree.
+	 * At an inner node whose tested value the row is missing, the 
+	 * predictions of the children are averaged, each weighted by the 
+	 * child's weight of training instances.
+	 *
+	 * @param node the node
+	 * @param columns the batch of rows column by column, or null
+	 * @param row the row, if columns is null
+	 * @param i the index of the row in the batch
+	 * @return the predicted class value
+	 */
+	private double predictValueBelow(int node, double[][] columns, double[] row, int i)
+	{
+		if (!regression)
+		{
+			throw new RuntimeException("Error predicting value. The tree " +
+					"predicts a nominal class attribute.");
+		}
+
+		while (attributeOrdinals[node] >= 0)
+		{
+			int child = getChild(node, columns, row, i);
+			if (child < 0)
+			{
+				double sum = 0;
+				double totalWeight = 0;
+				for (int slot = 0; slot < numChildren[node]; slot++)
+				{
+					int other = children[childOffsets[node] + slot];
+					if (other >= 0)
+					{
+						sum += nodeWeights[other] * predictValueBelow(other, columns, row, i);
+						totalWeight += nodeWeights[other];
+					}
+				}
+				return totalWeight > 0 ? sum / totalWeight : Double.NaN;
+			}
+			node = child;
+		}
+		return leafValues[node];
+	}
+
+	/**
+	 * Compute the class distribution of a row below a node.  At a leaf, it
+	 * is the leaf's class counts.  At an inner node, it is the distribution
+	 * of the satisfied child if there is one.  Otherwise the normalized
+	 * distributions of the children are summed, each weighted by the
+	 * child's number of training instances.
+	 *
+	 * @param node the node
+	 * @param columns the batch of rows column by column, or null
+	 * @param row the row, if columns is null
+	 * @param i the index of the row in the batch
+	 * @return the unnormalized class distribution
+	 */
+	private double[] getClassDistribution(int node, double[][] columns, double[] row, int i)
+	{
+		double[] distribution = new double[numClasses];
+		if (attributeOrdinals[node] < 0)
+		{
+			System.arraycopy(classCounts, node * numClasses, distribution, 0, numClasses);
+			return distribution;
+		}
+
+		int satisfied = getChild(node, columns, row, i);
+		if (satisfied >= 0)
+		{
+			return getClassDistribution(satisfied, columns, row, i);
+		}
+
+		for (int slot = 0; slot < numChildren[node]; slot++)
+		{
+			int child = children[childOffsets[node] + slot];
+			if (child < 0)
+			{
+				continue;
+			}
+
+			double[] childDistribution = getClassDistribution(child, columns, row, i);
+			double childTotal = 0;
+			double childWeight = 0;
+			for (int c = 0; c < numClasses; c++)
+			{
+				childTotal += childDistribution[c];
+				childWeight += classCounts[child * numClasses + c];
+			}
+			if (childTotal == 0)
+			{
+				continue;
+			}
+
+			for (int c = 0; c < numClasses; c++)
+			{
+				distribution[c] += childWeight * childDistribution[c] / childTotal;
+			}
+		}
+		return distribution;
+	}
+
+	/**
+	 * @param distribution a class distribution
+	 * @return the most probable class, the lowest on ties
+	 */
+	private static int argMax(double[] distribution)
+	{
+		int best = 0;
+		for (int c = 1; c < distribution.length; c++)
+		{
+			if (distribution[c] > distribution[best])
+			{
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param distribution a class distribution
+	 * @return the probability of the most probable class
+	 */
+	private static double confidence(double[] distribution)
+	{
+		double total = 0;
+		for (double value : distribution)
+		{
+			total += value;
+		}
+		return total > 0 ? distribution[argMax(distribution)] / total : 0.0;
+	}
+
+	/**
+	 * @param node a node
+	 * @return the node's children in a fixed order
+	 */
+	private static List<DtNode> getSortedChildren(DtNode node)
+	{
+		@SuppressWarnings("unchecked")
+		Set<DtNode> nodeChildren = ((Set<DtNode>) ((Set<?>) node.getChildren()));
+		List<DtNode> childList = new ArrayList<DtNode>(nodeChildren);
+		Collections.sort(childList, DtNode.DTNODE_ORDER);
+		return childList;
+	}
+
+	/**
+	 * @return the number of bytes {@link #encode(ByteBuffer)} writes
+	 */
+	int getEncodedLength()
+	{
+		int numNodes = attributeOrdinals.length;
+		long length = TREE_HEADER_LENGTH;
+		length += DataSetFormat.align(4L * numNodes);
+		length += DataSetFormat.align(numNodes);
+		length += 8L * numNodes;
+		length += 2 * DataSetFormat.align(4L * numNodes);
+		length += DataSetFormat.align(4L * children.length);
+		length += DataSetFormat.align(4L * numNodes);
+		length += 8L * numNodes;
+		length += 8L * classCounts.length;
+		if (regression)
+		{
+			length += 16L * numNodes;
+		}
+		return (int) length;
+	}
+
+	/**
+	 * Encode this tree's arrays in the tree block of a binary tree model
+	 * file.  The block begins at the buffer's position, which must be on an
+	 * 8-byte boundary, and every array begins on an 8-byte boundary.
+	 *
+	 * @param buffer a little-endian buffer with at least
+	 * {@link #getEncodedLength()} bytes remaining
+	 */
+	void encode(ByteBuffer buffer)
+	{
+		buffer.putInt(attributeOrdinals.length);
+		buffer.putInt(children.length);
+		buffer.putInt(numClasses);
+		buffer.putInt(regression ? 1 : 0);
+
+		putInts(buffer, attributeOrdinals);
+		for (boolean isNominal : nominal)
+		{
+			buffer.put((byte) (isNominal ? 1 : 0));
+		}
+		pad(buffer);
+		putDoubles(buffer, thresholds);
+		putInts(buffer, childOffsets);
+		putInts(buffer, numChildren);
+		putInts(buffer, children);
+		putInts(buffer, leafClasses);
+		putDoubles(buffer, leafConfidences);
+		putDoubles(buffer, classCounts);
+		if (regression)
+		{
+			putDoubles(buffer, leafValues);
+			putDoubles(buffer, nodeWeights);
+		}
+	}
+
+	/**
+	 * Decode a tree from a tree block written by {@link #encode(ByteBuffer)}.
+	 * Decoding begins at the buffer's position, and the position is advanced
+	 * past the block.  Each array is copied from the buffer in bulk.
+	 *
+	 * @param buffer a little-endian buffer holding the tree block
+	 * @param attributes the attributes of the model, with the ordinals of
+	 * the attributes the tree was compiled from
+	 * @return the decoded tree
+	 */
+	static FlatDecisionTree decode(ByteBuffer buffer, AttributeSet attributes)
+	{
+		int numNodes = buffer.getInt();
+		int childTableLength = buffer.getInt();
+		int numClasses = buffer.getInt();
+		boolean regression = buffer.getInt() != 0;
+
+		int[] attributeOrdinals = getInts(buffer, numNodes);
+		boolean[] nominal = new boolean[numNodes];
+		for (int n = 0; n < numNodes; n++)
+		{
+			nominal[n] = buffer.get() != 0;
+		}
+		skipPadding(buffer);
+		double[] thresholds = getDoubles(buffer, numNodes);
+		int[] childOffsets = getInts(buffer, numNodes);
+		int[] numChildren = getInts(buffer, numNodes);
+		int[] children = getInts(buffer, childTableLength);
+		int[] leafClasses = getInts(buffer, numNodes);
+		double[] leafConfidences = getDoubles(buffer, numNodes);
+		double[] classCounts = getDoubles(buffer, numNodes * numClasses);
+		double[] leafValues = regression ? getDoubles(buffer, numNodes) : null;
+		double[] nodeWeights = regression ? getDoubles(buffer, numNodes) : null;
+
+		List<Attribute> testedAttributes = new ArrayList<Attribute>();
+		for (int ordinal : attributeOrdinals)
+		{
+			if (ordinal < 0)
+			{
+				continue;
+			}
+
+			Attribute attr = attributes.getAttributeByOrdinal(ordinal);
+			if (attr == null)
+			{
+				throw new RuntimeException("Error decoding decision tree. " +
+						"No attribute has ordinal " + ordinal + ".");
+			}
+			if (!testedAttributes.contains(attr))
+			{
+				testedAttributes.add(attr);
+			}
+		}
+
+		return new FlatDecisionTree(attributeOrdinals, nominal, thresholds,
+		                            childOffsets, numChildren, children,
+		                            leafClasses, leafConfidences, classCounts,
+		                            numClasses, regression, leafValues, nodeWeights,
+		                            testedAttributes);
+	}
+
+	/**
+	 * Rebuild the linked nodes of this tree as a decision tree
+	 *
+	 * @param attributes the attributes of the tree, with the ordinals of the
+	 * attributes it was compiled from
+	 * @param classAttribute the class attribute the tree predicts
+	 * @return the decision tree
+	 */
+	DecisionTree toDecisionTree(AttributeSet attributes, Attribute classAttribute)
+	{
+		DtNode root = toNode(0, null, null, null);
+		linkChildren(0, root, attributes);
+		return new DecisionTree(root, classAttribute);
+	}
+
+	/**
+	 * Link the children of a node, and recursively their children
+	 *
+	 * @param n the node's number
+	 * @param node the node
+	 * @param attributes the attributes of the tree
+	 */
+	private void linkChildren(int n, DtNode node, AttributeSet attributes)
+	{
+		if (attributeOrdinals[n] < 0)
+		{
+			return;
+		}
+
+		Attribute attr = attributes.getAttributeByOrdinal(attributeOrdinals[n]);
+		for (int slot = 0; slot < numChildren[n]; slot++)
+		{
+			int child = children[childOffsets[n] + slot];
+			if (child < 0)
+			{
+				continue;
+			}
+
+			DtNode childNode;
+			if (nominal[n])
+			{
+				childNode = toNode(child, attr, (double) slot, DtNode.Relation.EQUALS);
+			}
+			else
+			{
+				childNode = toNode(child, attr, thresholds[n],
+				                   slot == 0 ? DtNode.Relation.LESS_THAN_EQUAL_TO
+				                             : DtNode.Relation.GREATER_THAN);
+			}
+			node.addChild(childNode);
+			linkChildren(child, childNode, attributes);
+		}
+	}
+
+	/**
+	 * @param n a node's number
+	 * @param attr the attribute tested by the node
+	 * @param value the value the attribute is tested against
+	 * @param relation how the attribute is tested against the value
+	 * @return the unlinked decision tree node
+	 */
+	private DtNode toNode(int n, Attribute attr, Double value, DtNode.Relation relation)
+	{
+		DtNode node;
+		if (attributeOrdinals[n] >= 0)
+		{
+			node = new DtNode(attr, value, relation);
+		}
+		else if (regression)
+		{
+			node = new RegressionLeaf(attr, value, relation, leafValues[n]);
+		}
+		else
+		{
+			node = new DtLeaf(attr, value, relation, leafClasses[n]);
+		}
+
+		if (regression)
+		{
+			node.setWeight(nodeWeights[n]);
+		}
+		else
+		{
+			Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+			for (int c = 0; c < numClasses; c++)
+			{
+				counts.put(c, (int) classCounts[n * numClasses + c]);
+			}
+			node.setClassCounts(counts);
+		}
+		return node;
+	}
+
+	private static void putInts(ByteBuffer buffer, int[] values)
+	{
+		buffer.asIntBuffer().put(values);
+		buffer.position(buffer.position() + 4 * values.length);
+		pad(buffer);
+	}
+
+	private static void putDoubles(ByteBuffer buffer, double[] values)
+	{
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + 8 * values.length);
+	}
+
+	private static int[] getInts(ByteBuffer buffer, int length)
+	{
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * length);
+		skipPadding(buffer);
+		return values;
+	}
+
+	private static double[] getDoubles(ByteBuffer buffer, int length)
+	{
+		double[] values = new double[length];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + 8 * length);
+		return values;
+	}
+
+	/**
+	 * Write zeros up to the next 8-byte boundary
+	 */
+	private static void pad(ByteBuffer buffer)
+	{
+		while (buffer.position() % 8 != 0)
+		{
+			buffer.put((byte) 0);
+		}
+	}
+
+	/**
+	 * Advance to the next 8-byte boundary
+	 */
+	private static void skipPadding(ByteBuffer buffer)
+	{
+		buffer.position((int) DataSetFormat.align(buffer.position()));
+	}
+}
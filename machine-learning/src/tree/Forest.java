@@ -1,12 +1,87 @@
 package tree;
 
-import java.util.Set;
+import java.util.List;
 
 import pair.Pair;
+import data.Attribute;
 import data.Instance;
 
-public class Forest 
+/**
+ * An ensemble of decision trees that classifies by majority vote.
+ *
+ */
+public class Forest
 {
-	private Set<DecisionTree> trees;
-	
+	/**
+	 * The trees of the forest
+	 */
+	private final List<DecisionTree> trees;
+
+	/**
+	 * The class attribute that the forest predicts
+	 */
+	private final Attribute classAttribute;
+
+	/**
+	 * Constructor
+	 *
+	 * @param trees the trees of the forest
+	 * @param classAttribute the class attribute the trees predict
+	 */
+	public Forest(List<DecisionTree> trees, Attribute classAttribute)
+	{
+		this.trees = trees;
+		this.classAttribute = classAttribute;
+	}
+
+	/**
+	 * @return the trees of the forest
+	 */
+	public List<DecisionTree> getTrees()
+	{
+		return trees;
+	}
+
+	/**
+	 * @return the class attribute the forest predicts
+	 */
+	public Attribute getClassAttribute()
+	{
+		return classAttribute;
+	}
+
+	/**
+	 * Classify an instance by the majority vote of the trees.  Ties are
+	 * broken in favor of the lowest nominal value ID.
+	 *
+	 * @param instance the instance to be classified
+	 * @return the nominal value ID of the class attribute predicted for the
+	 * given instance and the fraction of trees that voted for it
+	 */
+	public Pair<Integer, Double> classifyInstance(Instance instance)
+	{
+		int[] votes = new int[classAttribute.getNominalValueMap().size()];
+		for (DecisionTree tree : trees)
+		{
+			votes[tree.classifyInstance(instance).getFirst()]++;
+		}
+
+		int prediction = 0;
+		for (int c = 1; c < votes.length; c++)
+		{
+			if (votes[c] > votes[prediction])
+			{
+				prediction = c;
+			}
+		}
+
+		Double confidence = (double) votes[prediction] / trees.size();
+		return new Pair<Integer, Double>(prediction, confidence);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Random forest of " + trees.size() + " trees";
+	}
 }
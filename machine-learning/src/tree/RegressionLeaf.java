@@ -0,0 +1,34 @@
+package tree;
+
+import data.Attribute;
+
+/**
+ * The leaf of a regression tree.  The leaf predicts the mean value of the
+ * continuous class attribute over the training instances that reached it.
+ * 
+ */
+public class RegressionLeaf extends DtLeaf 
+{
+	/**
+	 * The mean class value of the training instances at this leaf
+	 */
+	private final double mean;
+	
+	public RegressionLeaf(Attribute attribute,
+	                      Double value,
+	                      Relation relation, 
+	                      double mean)
+	{
+		super(attribute, value, relation, null);
+		this.mean = mean;
+	}
+	
+	/**
+	 * @return the mean class value of the training instances at this leaf,
+	 * or NaN if no training instance reached it
+	 */
+	public double getMean()
+	{
+		return mean;
+	}
+}
@@ -0,0 +1,238 @@
+package tree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Attribute;
+import data.AttributeSet;
+import data.reader.DataSetFormat;
+
+/**
+ * Reads a file in the binary tree model format described in
+ * {@code DataSetFormat}.  The file is memory-mapped and each tree's node
+ * arrays are copied out of the mapping in bulk, so loading takes time
+ * proportional to the size of the file rather than the number of nodes
+ * built.  The compiled trees can be used for inference directly, or rebuilt
+ * as linked decision trees.
+ * <br>
+ * <br>
+ * The attributes decoded from the file are assigned the ordinals the trees
+ * were compiled against.  Data classified by a loaded model is matched to
+ * these attributes by name, so it may order its attributes differently, but
+ * each attribute tested by the model must have the same type and nominal
+ * values as in the file.
+ *
+ */
+public class TreeModelReader
+{
+	/**
+	 * The contents of a binary tree model file
+	 */
+	private static class ModelFile
+	{
+		private int kind;
+		private AttributeSet attributes;
+		private Attribute classAttribute;
+		private BoostedTrees.Loss loss;
+		private double baseScore;
+		private double shrinkage;
+		private List<FlatDecisionTree> trees;
+	}
+
+	/**
+	 * Read the attributes of a binary tree model file
+	 *
+	 * @param file a path to the binary tree model file
+	 * @return the attributes, with their ordinals, and with the class
+	 * attribute set
+	 */
+	public static AttributeSet readAttributes(String file)
+	{
+		ModelFile model = readFile(file);
+		return model == null ? null : model.attributes;
+	}
+
+	/**
+	 * Read the compiled trees of a binary tree model file of any kind
+	 *
+	 * @param file a path to the binary tree model file
+	 * @return the compiled trees, in the order they were written
+	 */
+	public static List<FlatDecisionTree> readFlatTrees(String file)
+	{
+		ModelFile model = readFile(file);
+		return model == null ? null : model.trees;
+	}
+
+	/**
+	 * Read a decision tree from a binary tree model file
+	 *
+	 * @param file a path to the binary tree model file
+	 * @return the decision tree
+	 */
+	public static DecisionTree readTree(String file)
+	{
+		ModelFile model = readFile(file);
+		if (model == null)
+		{
+			return null;
+		}
+		if (model.kind != DataSetFormat.TREE_MODEL)
+		{
+			throw new RuntimeException("Error reading tree model file " +
+					file + ". The file does not hold a single decision tree.");
+		}
+		return model.trees.get(0).toDecisionTree(model.attributes, model.classAttribute);
+	}
+
+	/**
+	 * Read a random forest from a binary tree model file.  A file holding a
+	 * single decision tree is read as a forest of one tree.
+	 *
+	 * @param file a path to the binary tree model file
+	 * @return the forest
+	 */
+	public static Forest readForest(String file)
+	{
+		ModelFile model = readFile(file);
+		if (model == null)
+		{
+			return null;
+		}
+		if (model.kind == DataSetFormat.BOOSTED_MODEL)
+		{
+			throw new RuntimeException("Error reading tree model file " +
+					file + ". The file holds gradient-boosted trees, not a forest.");
+		}
+
+		List<DecisionTree> trees = new ArrayList<DecisionTree>();
+		for (FlatDecisionTree tree : model.trees)
+		{
+			trees.add(tree.toDecisionTree(model.attributes, model.classAttribute));
+		}
+		return new Forest(trees, model.classAttribute);
+	}
+
+	/**
+	 * Read gradient-boosted trees from a binary tree model file
+	 *
+	 * @param file a path to the binary tree model file
+	 * @return the boosted trees
+	 */
+	public static BoostedTrees readBoostedTrees(String file)
+	{
+		ModelFile model = readFile(file);
+		if (model == null)
+		{
+			return null;
+		}
+		if (model.kind != DataSetFormat.BOOSTED_MODEL)
+		{
+			throw new RuntimeException("Error reading tree model file " +
+					file + ". The file does not hold gradient-boosted trees.");
+		}
+		return new BoostedTrees(model.trees,
+		                        model.baseScore,
+		                        model.shrinkage,
+		                        model.loss,
+		                        model.classAttribute);
+	}
+
+	/**
+	 * Map a binary tree model file and decode its header, schema block and
+	 * tree blocks
+	 *
+	 * @param file a path to the binary tree model file
+	 * @return the contents of the file, or null if the file does not exist
+	 */
+	private static ModelFile readFile(String file)
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ))
+		{
+			if (channel.size() > Integer.MAX_VALUE)
+			{
+				throw new RuntimeException("Error reading tree model file " +
+						file + ". The file exceeds the maximum mappable size.");
+			}
+			if (channel.size() < DataSetFormat.MODEL_HEADER_LENGTH)
+			{
+				throw new RuntimeException("Error reading tree model file " +
+						file + ". The file is not a tree model file.");
+			}
+
+			/*
+			 *  The mapping remains valid after the channel is closed
+			 */
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+			                           .order(DataSetFormat.BYTE_ORDER);
+
+			/*
+			 *  Header
+			 */
+			if (buffer.getInt() != DataSetFormat.MODEL_MAGIC)
+			{
+				throw new RuntimeException("Error reading tree model file " +
+						file + ". The file is not a tree model file.");
+			}
+
+			int version = buffer.getInt();
+			if (version != DataSetFormat.MODEL_VERSION)
+			{
+				throw new RuntimeException("Error reading tree model file " +
+						file + ". Unsupported format version " + version + ".");
+			}
+
+			ModelFile model = new ModelFile();
+			model.kind = buffer.getInt();
+			int numTrees = buffer.getInt();
+			int schemaLength = buffer.getInt();
+			int classOrdinal = buffer.getInt();
+			int lossOrdinal = buffer.getInt();
+			buffer.getInt();
+			model.baseScore = buffer.getDouble();
+			model.shrinkage = buffer.getDouble();
+			model.loss = lossOrdinal < 0 ? null : BoostedTrees.Loss.values()[lossOrdinal];
+
+			/*
+			 *  Schema block.  The attributes are assigned their ordinals
+			 *  by list position.
+			 */
+			List<Attribute> attributes = DataSetFormat.decodeAttributes(buffer);
+			model.attributes = new AttributeSet(attributes);
+			model.classAttribute = model.attributes.getAttributeByOrdinal(classOrdinal);
+			if (model.classAttribute == null)
+			{
+				throw new RuntimeException("Error reading tree model file " +
+						file + ". The class attribute is not in the schema.");
+			}
+			model.attributes.setClass(model.classAttribute.getName());
+
+			/*
+			 *  One block per tree
+			 */
+			buffer.position((int) DataSetFormat.align(DataSetFormat.MODEL_HEADER_LENGTH + schemaLength));
+			model.trees = new ArrayList<FlatDecisionTree>(numTrees);
+			for (int t = 0; t < numTrees; t++)
+			{
+				model.trees.add(FlatDecisionTree.decode(buffer, model.attributes));
+			}
+
+			return model;
+		}
+		catch (NoSuchFileException x)
+		{
+			System.err.format("FileNotFountException: %s%n", x);
+			return null;
+		}
+		catch (IOException x)
+		{
+			throw new RuntimeException("Error reading tree model file " + file + ".", x);
+		}
+	}
+}
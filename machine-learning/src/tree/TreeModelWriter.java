@@ -0,0 +1,167 @@
+package tree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Attribute;
+import data.AttributeSet;
+import data.reader.DataSetFormat;
+
+/**
+ * Writes decision trees, random forests and gradient-boosted trees to files
+ * in the binary tree model format described in {@code DataSetFormat}.  Each
+ * tree is stored as its compiled node arrays, so a file written by this
+ * class can be loaded with {@code TreeModelReader} without rebuilding any
+ * node objects.
+ *
+ */
+public class TreeModelWriter
+{
+	/**
+	 * Write a decision tree to a binary tree model file
+	 *
+	 * @param tree the decision tree
+	 * @param attributes the attributes the tree was built on, including its
+	 * class attribute
+	 * @param file a path to the binary tree model file to write
+	 */
+	public static void writeTree(DecisionTree tree, AttributeSet attributes, String file)
+	{
+		List<FlatDecisionTree> trees = new ArrayList<FlatDecisionTree>();
+		trees.add(new FlatDecisionTree(tree));
+		writeFile(DataSetFormat.TREE_MODEL, trees, attributes,
+		          tree.getClassAttribute(), null, 0, 0, file);
+	}
+
+	/**
+	 * Write a random forest to a binary tree model file
+	 *
+	 * @param forest the forest
+	 * @param attributes the attributes the forest was grown on, including
+	 * its class attribute
+	 * @param file a path to the binary tree model file to write
+	 */
+	public static void writeForest(Forest forest, AttributeSet attributes, String file)
+	{
+		List<FlatDecisionTree> trees = new ArrayList<FlatDecisionTree>();
+		for (DecisionTree tree : forest.getTrees())
+		{
+			trees.add(new FlatDecisionTree(tree));
+		}
+		writeFile(DataSetFormat.FOREST_MODEL, trees, attributes,
+		          forest.getClassAttribute(), null, 0, 0, file);
+	}
+
+	/**
+	 * Write gradient-boosted trees to a binary tree model file
+	 *
+	 * @param model the boosted trees
+	 * @param attributes the attributes the model was trained on, including
+	 * its class attribute
+	 * @param file a path to the binary tree model file to write
+	 */
+	public static void writeBoostedTrees(BoostedTrees model, AttributeSet attributes, String file)
+	{
+		writeFile(DataSetFormat.BOOSTED_MODEL, model.getTrees(), attributes,
+		          model.getClassAttribute(), model.getLoss(),
+		          model.getBaseScore(), model.getShrinkage(), file);
+	}
+
+	/**
+	 * Write the header, schema block and tree blocks of a model.  The whole
+	 * file is encoded in memory and written in one pass.
+	 */
+	private static void writeFile(int kind,
+	                              List<FlatDecisionTree> trees,
+	                              AttributeSet attributes,
+	                              Attribute classAttribute,
+	                              BoostedTrees.Loss loss,
+	                              double baseScore,
+	                              double shrinkage,
+	                              String file)
+	{
+		/*
+		 *  The schema is written in ordinal order so that the ordinals the
+		 *  trees were compiled against are restored by list position
+		 */
+		List<Attribute> schemaAttributes = new ArrayList<Attribute>();
+		for (int ordinal = 0; ordinal < attributes.getNumOrdinals(); ordinal++)
+		{
+			Attribute attr = attributes.getAttributeByOrdinal(ordinal);
+			if (attr == null)
+			{
+				throw new RuntimeException("Error writing tree model file " +
+						file + ". No attribute has ordinal " + ordinal + ".");
+			}
+			schemaAttributes.add(attr);
+		}
+
+		if (classAttribute.getOrdinal() < 0
+				|| classAttribute.getOrdinal() >= schemaAttributes.size()
+				|| !schemaAttributes.get(classAttribute.getOrdinal()).equals(classAttribute))
+		{
+			throw new RuntimeException("Error writing tree model file " +
+					file + ". The class attribute " + classAttribute.getName() +
+					" is not in the attribute set.");
+		}
+
+		byte[] schema = DataSetFormat.encodeAttributes(schemaAttributes);
+		long length = DataSetFormat.align(DataSetFormat.MODEL_HEADER_LENGTH + schema.length);
+		for (FlatDecisionTree tree : trees)
+		{
+			length += tree.getEncodedLength();
+		}
+		if (length > Integer.MAX_VALUE)
+		{
+			throw new RuntimeException("Error writing tree model file " +
+					file + ". The model exceeds the maximum file size.");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(DataSetFormat.BYTE_ORDER);
+
+		/*
+		 *  Header and schema block
+		 */
+		buffer.putInt(DataSetFormat.MODEL_MAGIC);
+		buffer.putInt(DataSetFormat.MODEL_VERSION);
+		buffer.putInt(kind);
+		buffer.putInt(trees.size());
+		buffer.putInt(schema.length);
+		buffer.putInt(classAttribute.getOrdinal());
+		buffer.putInt(loss == null ? -1 : loss.ordinal());
+		buffer.putInt(0);
+		buffer.putDouble(baseScore);
+		buffer.putDouble(shrinkage);
+		buffer.put(schema);
+
+		/*
+		 *  One block per tree
+		 */
+		buffer.position((int) DataSetFormat.align(buffer.position()));
+		for (FlatDecisionTree tree : trees)
+		{
+			tree.encode(buffer);
+		}
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(file),
+		                                            StandardOpenOption.CREATE,
+		                                            StandardOpenOption.WRITE,
+		                                            StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+		}
+		catch (IOException x)
+		{
+			throw new RuntimeException("Error writing tree model file " + file + ".", x);
+		}
+	}
+}
@@ -2,6 +2,8 @@ package tree.algorithms;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import classify.Classifier;
 import tree.DecisionTree;
@@ -9,9 +11,15 @@ import tree.DtLeaf;
 import tree.DtNode;
 import tree.Node;
 import tree.DtNode.Relation;
+import tree.RegressionLeaf;
+import tree.train.EntropyCriterion;
+import tree.train.HistogramIndex;
+import tree.train.ImpurityCriterion;
+import tree.train.SortedIndex;
 import tree.train.Split;
 import tree.train.SplitBranch;
 import tree.train.SplitGenerator;
+import tree.train.SplitIndex;
 import data.Attribute;
 import data.DataSet;
 
@@ -22,6 +30,33 @@ public abstract class DecisionTreeBuilder
 	 * The decision tree under construction
 	 */
 	protected DecisionTree decisionTree = null;
+	
+	/**
+	 * The pool building subtrees in parallel, or null to build serially
+	 */
+	private ForkJoinPool pool = null;
+	
+	/**
+	 * The minimum number of instances at a node for its subtree to be built
+	 * as a separate fork-join task.  Smaller subtrees are built inline.
+	 */
+	private int minTaskInstances = 0;
+	
+	/**
+	 * The largest number of bins each continuous attribute is quantized into
+	 * when searching for splits over histograms, or zero to search exactly
+	 */
+	private int histogramBins = 0;
+	
+	/**
+	 * The criterion scoring the candidate splits
+	 */
+	private ImpurityCriterion criterion = new EntropyCriterion();
+	
+	/**
+	 * The largest depth of a leaf below the root, or zero for no limit
+	 */
+	private int maxDepth = 0;
 
 	/**
 	 * Determine when the recursion should stop and a leaf node should be constructed.
@@ -44,17 +79,122 @@ public abstract class DecisionTreeBuilder
 	 */
 	protected abstract Split determineBestSplit(DataSet data, List<Split> candidateSplits);
 
+	/**
+	 * Choose the attributes whose splits are considered at a node.  Every 
+	 * available attribute is considered unless a subclass narrows them.
+	 * 
+	 * @param availAttrs the attributes available at the node
+	 * @return the attributes to generate candidate splits along
+	 */
+	protected List<Attribute> selectSplitAttributes(List<Attribute> availAttrs)
+	{
+		return availAttrs;
+	}
+
+	/**
+	 * Build the subtrees of large nodes in parallel on a fork-join pool, and
+	 * evaluate the candidate splits of large nodes with one task per 
+	 * attribute.  The tree built is the same as a serial build.  The stopping criteria,
+	 * split selection and split attribute selection of the builder must then 
+	 * be safe to call concurrently, and must not depend on the order in 
+	 * which nodes are built.
+	 * 
+	 * @param pool the pool building the subtrees, or null to build serially
+	 * @param minTaskInstances the minimum number of instances at a node for 
+	 * its subtree to be built as a separate task and its attributes to be
+	 * evaluated in parallel
+	 */
+	public void setParallelBuild(ForkJoinPool pool, int minTaskInstances)
+	{
+		this.pool = pool;
+		this.minTaskInstances = minTaskInstances;
+	}
+
+	/**
+	 * Search for splits along continuous attributes over histograms of 
+	 * quantized values rather than over every distinct value.  Each 
+	 * continuous attribute is quantized once into at most the given number 
+	 * of bins.
+	 * 
+	 * The class attribute must be nominal.
+	 * 
+	 * @param maxBins the largest number of bins per attribute, or zero to
+	 * search exactly
+	 */
+	public void setHistogramBins(int maxBins)
+	{
+		this.histogramBins = maxBins;
+	}
+
+	/**
+	 * Score the candidate splits by an impurity criterion.  Splits are scored
+	 * by information gain unless another criterion is set.  The splits of a
+	 * regression tree, whose class attribute is continuous, are always 
+	 * scored by variance reduction.
+	 * 
+	 * @param criterion the criterion scoring the candidate splits
+	 */
+	public void setImpurityCriterion(ImpurityCriterion criterion)
+	{
+		this.criterion = criterion;
+	}
+
+	/**
+	 * Stop growing the tree at a depth.  Nodes at the largest depth become
+	 * leaves.
+	 * 
+	 * @param maxDepth the largest depth of a leaf, where the children of the
+	 * root are at depth one, or zero for no limit
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		this.maxDepth = maxDepth;
+	}
+
 	public DecisionTree buildDecisionTree(DataSet data)
 	{
 		List<Attribute> availAttributes = new ArrayList<>(data.getAttributeSet().getAttributes());
 		availAttributes.remove(data.getClassAttribute());
 
-		DtNode root = makeSubTree( 
+		/*
+		 *  Sort or quantize the instances by each continuous attribute once.  
+		 *  The index is projected onto each subset down the tree.
+		 */
+		SplitIndex index = histogramBins > 0 ? new HistogramIndex(data, histogramBins)
+		                                     : new SortedIndex(data);
+		return buildDecisionTree(data, index, availAttributes);
+	}
+
+	/**
+	 * Build a decision tree over a subset of the attributes from a split 
+	 * index built beforehand.  This lets an index built once be reused by
+	 * many trees over the same instances, as when boosting.
+	 * 
+	 * @param data the training data
+	 * @param index the split index of the training data.  If it is not an
+	 * index of the data, the data is sorted anew.
+	 * @param availAttributes the attributes the tree may split on
+	 * @return the decision tree
+	 */
+	public DecisionTree buildDecisionTree(DataSet data, 
+	                                      SplitIndex index, 
+	                                      List<Attribute> availAttributes)
+	{
+		if (!index.isIndexOf(data))
+		{
+			index = new SortedIndex(data);
+		}
+		
+		SubTreeTask rootTask = new SubTreeTask( 
 				data, 
+				index,
 				null,
 				null,
 				null,
-				availAttributes);
+				availAttributes,
+				0);
+		
+		DtNode root = pool == null ? rootTask.compute() : pool.invoke(rootTask);
 		
 		decisionTree = new DecisionTree(root, data.getClassAttribute());
 		return decisionTree;	
@@ -62,41 +202,88 @@ public abstract class DecisionTreeBuilder
 
 	private DtNode makeSubTree(
 			DataSet data,
+			SplitIndex index,
 			Attribute attribute,
 			Double value,
 			DtNode.Relation relation,
-			List<Attribute> availAttrs)
+			List<Attribute> availAttrs,
+			int depth)
 	{		
 		DtNode newNode = null;
-		List<Split> candidateSplits = SplitGenerator.generateSplits(data, availAttrs);
+		
+		/*
+		 *  A node at the largest depth considers no splits
+		 */
+		List<Attribute> splitAttrs = maxDepth > 0 && depth >= maxDepth 
+				? new ArrayList<Attribute>() 
+				: selectSplitAttributes(availAttrs);
+		
+		/*
+		 *  Evaluate the attributes of large nodes in parallel
+		 */
+		ForkJoinPool splitPool = data.getInstanceSet().size() >= minTaskInstances ? pool : null;
+		List<Split> candidateSplits = SplitGenerator.generateSplits(data,
+		                                                            splitAttrs,
+		                                                            index,
+		                                                            splitPool,
+		                                                            criterion);
 
 		/*
 		 *  If the stopping criteria is met, create a leaf node with a decision 
-		 *  class label that is the majority class of the instances at this node
+		 *  class label that is the majority class of the instances at this node.
+		 *  A leaf of a regression tree predicts the mean class value instead.
 		 */ 
-		if (checkStoppingCriteria(data, availAttrs, candidateSplits))
+		boolean regression = data.getClassAttribute().getType() == Attribute.Type.CONTINUOUS;
+		if (candidateSplits.isEmpty() ||
+		    checkStoppingCriteria(data, availAttrs, candidateSplits))
 		{
-			DtLeaf leaf = new DtLeaf(attribute, 
-					value, 
-					relation, 
-					data.getMajorityClass());
-			leaf.setClassCounts(data.getClassCounts());
-			newNode = leaf;
+			if (regression)
+			{
+				newNode = new RegressionLeaf(attribute, 
+						value, 
+						relation, 
+						data.getClassMean());
+			}
+			else
+			{
+				newNode = new DtLeaf(attribute, 
+						value, 
+						relation, 
+						data.getMajorityClass());
+				newNode.setClassCounts(data.getClassCounts());
+			}
 		}
 		else
 		{
 			newNode = new DtNode(attribute, value, relation);
-			newNode.setClassCounts(data.getClassCounts());
+			if (!regression)
+			{
+				newNode.setClassCounts(data.getClassCounts());
+			}
 
 			/*
 			 *   Find the best split among the candidate splits. For each branch of the best split, create a 
 			 *   new node that roots a subtree
 			 */
 			Split bestSplit = determineBestSplit(data, candidateSplits);
-			for (SplitBranch branch : bestSplit.getSplitBranches())
+			if (!bestSplit.isSplit())
+			{
+				bestSplit.splitInstances(data, criterion);
+			}
+			List<SplitBranch> branches = bestSplit.getSplitBranches();
+			List<DataSet> branchData = new ArrayList<>();
+			for (SplitBranch branch : branches)
+			{
+				branchData.add(branch.getData());
+			}
+			List<SplitIndex> branchIndices = index.project(branchData);
+			
+			SubTreeTask[] tasks = new SubTreeTask[branches.size()];
+			DtNode[] children = new DtNode[branches.size()];
+			for (int b = 0; b < branches.size(); b++)
 			{	
-				DataSet subsetData = new DataSet(data.getAttributeSet(), branch.getInstanceSet());
-				subsetData.setClassAttribute(data.getClassAttribute().getName());
+				SplitBranch branch = branches.get(b);
+				DataSet subsetData = branch.getData();
 
 				/*
 				 *  Determine attributes that are still available after the split.  
@@ -114,20 +301,83 @@ public abstract class DecisionTreeBuilder
 				}
 
 				/*
-				 *  Make the recursive call to make a subtree at each child node
+				 *  Make the recursive call to make a subtree at each child node.
+				 *  Large subtrees are forked when building in parallel.
 				 */
-				Node child = makeSubTree(
+				SubTreeTask task = new SubTreeTask(
 						subsetData,
+						branchIndices.get(b),
 						bestSplit.getAttribute(),
 						branch.getValue(),
 						branch.getRelation(),
-						newAvailAttrs);
-
+						newAvailAttrs,
+						depth + 1);
+				
+				if (pool != null && subsetData.getInstanceSet().size() >= minTaskInstances)
+				{
+					tasks[b] = task;
+					task.fork();
+				}
+				else
+				{
+					children[b] = task.compute();
+				}
+			}
+			
+			/*
+			 *  Add the children in branch order
+			 */
+			for (int b = 0; b < children.length; b++)
+			{
+				Node child = tasks[b] != null ? tasks[b].join() : children[b];
 				newNode.addChild(child);
 			}
 		}
 		
+		if (regression)
+		{
+			newNode.setWeight(data.getClassMoments()[0]);
+		}
 		return newNode;
 	}
 	
+	/**
+	 * Builds the subtree rooted at a node.  A task is either run inline by 
+	 * calling {@link #compute()} or forked on the builder's pool.
+	 */
+	private class SubTreeTask extends RecursiveTask<DtNode>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final DataSet data;
+		private final SplitIndex index;
+		private final Attribute attribute;
+		private final Double value;
+		private final DtNode.Relation relation;
+		private final List<Attribute> availAttrs;
+		private final int depth;
+		
+		public SubTreeTask(DataSet data,
+				SplitIndex index,
+				Attribute attribute,
+				Double value,
+				DtNode.Relation relation,
+				List<Attribute> availAttrs,
+				int depth)
+		{
+			this.data = data;
+			this.index = index;
+			this.attribute = attribute;
+			this.value = value;
+			this.relation = relation;
+			this.availAttrs = availAttrs;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected DtNode compute()
+		{
+			return makeSubTree(data, index, attribute, value, relation, availAttrs, depth);
+		}
+	}
 }
@@ -0,0 +1,545 @@
+package tree.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import tree.BoostedTrees;
+import tree.BoostedTrees.Loss;
+import tree.DecisionTree;
+import tree.FlatDecisionTree;
+import tree.train.SortedIndex;
+import data.Attribute;
+import data.AttributeSet;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+import data.InstanceSet;
+
+/**
+ * Builds an ensemble of regression trees by gradient boosting.  Each round
+ * fits a regression tree to the negative gradient of the loss at the
+ * current scores of the training instances, and adds its shrunken
+ * predictions to the scores.
+ * <br>
+ * <br>
+ * Under squared loss each tree fits the residuals of a continuous class
+ * attribute.  Under logistic loss the class attribute must have two
+ * nominal values, and each tree takes a Newton step as in LogitBoost: it
+ * fits the gradient divided by the Hessian, with each instance weighted by
+ * the Hessian, so that the mean value at each leaf is the sum of the
+ * gradients over the sum of the Hessians.
+ * <br>
+ * <br>
+ * The attributes of the training instances are copied once into a column
+ * store that also holds the response each tree fits, and are sorted once.
+ * Every round then rewrites the response column and projects the sorted
+ * index onto its sample of instances, so no round sorts again.
+ *
+ */
+public class GradientBoostingBuilder
+{
+	/**
+	 * The smallest Hessian of an instance under logistic loss
+	 */
+	private static final double MIN_HESSIAN = 1e-6;
+
+	/**
+	 * The largest magnitude of a response under logistic loss
+	 */
+	private static final double MAX_RESPONSE = 4.0;
+
+	/**
+	 * The loss the ensemble minimizes
+	 */
+	private final Loss loss;
+
+	/**
+	 * The largest number of trees in the ensemble
+	 */
+	private final int numRounds;
+
+	/**
+	 * The factor multiplying the prediction of every tree
+	 */
+	private final double shrinkage;
+
+	/**
+	 * The largest depth of each tree
+	 */
+	private final int maxDepth;
+
+	/**
+	 * The minimum number of instances at a leaf node
+	 */
+	private final int minInstances;
+
+	/**
+	 * The seed of the row and column sampling
+	 */
+	private final long seed;
+
+	/**
+	 * The fraction of the training instances each tree is grown on
+	 */
+	private double rowSampleRate = 1.0;
+
+	/**
+	 * The fraction of the attributes each tree may split on
+	 */
+	private double columnSampleRate = 1.0;
+
+	/**
+	 * The number of rounds without improvement of the validation loss after
+	 * which training stops, or zero to never stop early
+	 */
+	private int earlyStoppingRounds = 0;
+
+	/**
+	 * The pool building each tree in parallel, or null to build serially
+	 */
+	private ForkJoinPool pool = null;
+
+	/**
+	 * The minimum number of instances at a node for its subtree to be built
+	 * as a separate fork-join task
+	 */
+	private int minTaskInstances = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param loss the loss the ensemble minimizes
+	 * @param numRounds the largest number of trees in the ensemble
+	 * @param shrinkage the factor multiplying the prediction of every tree
+	 * @param maxDepth the largest depth of each tree, or zero for no limit
+	 * @param minInstances the minimum number of instances at a leaf node
+	 * @param seed the seed of the row and column sampling
+	 */
+	public GradientBoostingBuilder(Loss loss,
+	                               int numRounds,
+	                               double shrinkage,
+	                               int maxDepth,
+	                               int minInstances,
+	                               long seed)
+	{
+		if (numRounds < 1)
+		{
+			throw new RuntimeException("Error creating gradient boosting " +
+					"builder. The number of rounds must be at least 1.");
+		}
+		if (shrinkage <= 0 || shrinkage > 1)
+		{
+			throw new RuntimeException("Error creating gradient boosting " +
+					"builder. The shrinkage must be in (0, 1].");
+		}
+
+		this.loss = loss;
+		this.numRounds = numRounds;
+		this.shrinkage = shrinkage;
+		this.maxDepth = maxDepth;
+		this.minInstances = minInstances;
+		this.seed = seed;
+	}
+
+	/**
+	 * Grow each tree on a random sample of the training instances, drawn
+	 * without replacement, and let it split on a random sample of the
+	 * attributes.
+	 *
+	 * @param rowSampleRate the fraction of the training instances each tree
+	 * is grown on
+	 * @param columnSampleRate the fraction of the attributes each tree may
+	 * split on
+	 */
+	public void setSubsampling(double rowSampleRate, double columnSampleRate)
+	{
+		if (rowSampleRate <= 0 || rowSampleRate > 1 ||
+		    columnSampleRate <= 0 || columnSampleRate > 1)
+		{
+			throw new RuntimeException("Error setting subsampling. The " +
+					"sample rates must be in (0, 1].");
+		}
+
+		this.rowSampleRate = rowSampleRate;
+		this.columnSampleRate = columnSampleRate;
+	}
+
+	/**
+	 * Stop training once the loss on the validation data has not improved
+	 * for a number of rounds.  The ensemble is then cut back to the round
+	 * with the lowest validation loss.
+	 *
+	 * @param rounds the number of rounds without improvement, or zero to
+	 * never stop early
+	 */
+	public void setEarlyStoppingRounds(int rounds)
+	{
+		this.earlyStoppingRounds = rounds;
+	}
+
+	/**
+	 * Build each tree in parallel on a fork-join pool
+	 *
+	 * @param pool the pool building each tree, or null to build serially
+	 * @param minTaskInstances the minimum number of instances at a node for
+	 * its subtree to be built as a separate task
+	 * @see DecisionTreeBuilder#setParallelBuild(ForkJoinPool, int)
+	 */
+	public void setParallelBuild(ForkJoinPool pool, int minTaskInstances)
+	{
+		this.pool = pool;
+		this.minTaskInstances = minTaskInstances;
+	}
+
+	/**
+	 * Build a boosted ensemble without early stopping
+	 *
+	 * @param trainData the training data.  Its class attribute must be set.
+	 * @return the ensemble
+	 */
+	public BoostedTrees buildModel(DataSet trainData)
+	{
+		return buildModel(trainData, null);
+	}
+
+	/**
+	 * Build a boosted ensemble, tracking the loss on validation data after
+	 * every round
+	 *
+	 * @param trainData the training data.  Its class attribute must be set.
+	 * @param validationData the validation data, with the same attributes
+	 * as the training data, or null
+	 * @return the ensemble, cut back to the round with the lowest
+	 * validation loss if early stopping is set
+	 */
+	public BoostedTrees buildModel(DataSet trainData, DataSet validationData)
+	{
+		Attribute classAttr = trainData.getClassAttribute();
+		checkClassAttribute(classAttr);
+
+		List<Attribute> features = new ArrayList<>(trainData.getAttributeSet().getAttributes());
+		features.remove(classAttr);
+
+		/*
+		 *  Copy the attributes once into a store whose first column holds
+		 *  the response, and sort the instances once
+		 */
+		String responseName = classAttr.getName() + " gradient";
+		while (trainData.getAttributeSet().containsAttrWithName(responseName))
+		{
+			responseName += "'";
+		}
+		Attribute response = new Attribute(responseName, Attribute.Type.CONTINUOUS, null);
+		List<Attribute> storeAttrs = new ArrayList<>();
+		storeAttrs.add(response);
+		storeAttrs.addAll(features);
+
+		List<Instance> instances = trainData.getInstanceSet().getInstances();
+		ColumnStore store = new ColumnStore(storeAttrs, instances.size());
+		for (Instance instance : instances)
+		{
+			store.addInstance(instance);
+		}
+		DataSet boostData = new DataSet(new AttributeSet(storeAttrs), new InstanceSet(store));
+		boostData.setClassAttribute(responseName);
+		SortedIndex index = new SortedIndex(boostData);
+		double[][] trainColumns = FlatDecisionTree.toColumns(boostData, features);
+
+		/*
+		 *  Only instances with a class value are fit
+		 */
+		double[] labels = getLabels(trainData);
+		int numLabeled = 0;
+		for (double label : labels)
+		{
+			if (!Double.isNaN(label))
+			{
+				numLabeled++;
+			}
+		}
+		int[] labeledIds = new int[numLabeled];
+		for (int id = 0, i = 0; id < labels.length; id++)
+		{
+			if (!Double.isNaN(labels[id]))
+			{
+				labeledIds[i++] = id;
+			}
+		}
+		if (numLabeled == 0)
+		{
+			throw new RuntimeException("Error building boosted trees. No " +
+					"training instance has a class value.");
+		}
+
+		double baseScore = getBaseScore(labels, labeledIds);
+		double[] scores = new double[labels.length];
+		Arrays.fill(scores, baseScore);
+
+		double[][] validationColumns = null;
+		double[] validationLabels = null;
+		double[] validationScores = null;
+		if (validationData != null)
+		{
+			validationColumns = FlatDecisionTree.toColumns(validationData, features);
+			validationLabels = getLabels(validationData);
+			validationScores = new double[validationLabels.length];
+			Arrays.fill(validationScores, baseScore);
+		}
+
+		Random random = new Random(seed);
+		double[] weights = loss == Loss.LOGISTIC ? new double[labels.length] : null;
+		List<FlatDecisionTree> trees = new ArrayList<>();
+		int bestNumTrees = 0;
+		double bestLoss = Double.POSITIVE_INFINITY;
+		for (int round = 0; round < numRounds; round++)
+		{
+			/*
+			 *  Write the response of each instance to the response column
+			 */
+			for (int id : labeledIds)
+			{
+				double value;
+				if (loss == Loss.LOGISTIC)
+				{
+					double p = BoostedTrees.sigmoid(scores[id]);
+					double hessian = Math.max(p * (1.0 - p), MIN_HESSIAN);
+					value = (labels[id] - p) / hessian;
+					value = Math.max(-MAX_RESPONSE, Math.min(MAX_RESPONSE, value));
+					weights[id] = hessian;
+				}
+				else
+				{
+					value = labels[id] - scores[id];
+				}
+				store.setContinuous(id, 0, value);
+			}
+
+			/*
+			 *  Grow a regression tree on a sample of the instances and
+			 *  attributes from the projected index
+			 */
+			DataSet sample = sampleInstances(boostData, labeledIds, weights, random);
+			ID3TreeBuilder builder = new ID3TreeBuilder(minInstances);
+			builder.setMaxDepth(maxDepth);
+			builder.setParallelBuild(pool, minTaskInstances);
+			DecisionTree tree = builder.buildDecisionTree(sample,
+			                                              index.project(sample),
+			                                              sampleAttributes(features, random));
+
+			FlatDecisionTree flatTree = new FlatDecisionTree(tree);
+			trees.add(flatTree);
+			flatTree.addPredictedValues(trainColumns, shrinkage, scores);
+
+			if (validationData == null)
+			{
+				bestNumTrees = trees.size();
+				continue;
+			}
+
+			flatTree.addPredictedValues(validationColumns, shrinkage, validationScores);
+			double validationLoss = getLoss(validationLabels, validationScores);
+			if (validationLoss < bestLoss)
+			{
+				bestLoss = validationLoss;
+				bestNumTrees = trees.size();
+			}
+			else if (earlyStoppingRounds > 0 &&
+			         trees.size() - bestNumTrees >= earlyStoppingRounds)
+			{
+				break;
+			}
+		}
+
+		if (earlyStoppingRounds == 0)
+		{
+			bestNumTrees = trees.size();
+		}
+		return new BoostedTrees(new ArrayList<>(trees.subList(0, bestNumTrees)),
+		                        baseScore,
+		                        shrinkage,
+		                        loss,
+		                        classAttr);
+	}
+
+	/**
+	 * @param classAttr the class attribute
+	 */
+	private void checkClassAttribute(Attribute classAttr)
+	{
+		if (classAttr == null)
+		{
+			throw new RuntimeException("Error building boosted trees. The " +
+					"class attribute has not been set.");
+		}
+		if (loss == Loss.SQUARED && classAttr.getType() != Attribute.Type.CONTINUOUS)
+		{
+			throw new RuntimeException("Error building boosted trees. " +
+					"Squared loss requires a continuous class attribute.");
+		}
+		if (loss == Loss.LOGISTIC &&
+		    (classAttr.getType() != Attribute.Type.NOMINAL ||
+		     classAttr.getNominalValueMap().size() != 2))
+		{
+			throw new RuntimeException("Error building boosted trees. " +
+					"Logistic loss requires a class attribute with two " +
+					"nominal values.");
+		}
+	}
+
+	/**
+	 * @param data the data set
+	 * @return the class value of each instance, which is the nominal value
+	 * ID of a nominal class, or NaN if the instance is missing its class
+	 */
+	private static double[] getLabels(DataSet data)
+	{
+		Attribute classAttr = data.getClassAttribute();
+		List<Instance> instances = data.getInstanceSet().getInstances();
+
+		double[] labels = new double[instances.size()];
+		for (int id = 0; id < labels.length; id++)
+		{
+			Double classValue = instances.get(id).getAttributeValue(classAttr);
+			labels[id] = classValue == null ? Double.NaN : classValue;
+		}
+		return labels;
+	}
+
+	/**
+	 * The score minimizing the loss before any tree, which is the mean class
+	 * value under squared loss and the log-odds of the second class under
+	 * logistic loss
+	 *
+	 * @param labels the class value of each instance
+	 * @param labeledIds the IDs of the instances with a class value
+	 * @return the base score
+	 */
+	private double getBaseScore(double[] labels, int[] labeledIds)
+	{
+		double sum = 0;
+		for (int id : labeledIds)
+		{
+			sum += labels[id];
+		}
+		double mean = sum / labeledIds.length;
+
+		if (loss == Loss.LOGISTIC)
+		{
+			double p = Math.max(MIN_HESSIAN, Math.min(1.0 - MIN_HESSIAN, mean));
+			return Math.log(p / (1.0 - p));
+		}
+		return mean;
+	}
+
+	/**
+	 * @param labels the class value of each instance, or NaN if missing
+	 * @param scores the score of each instance
+	 * @return the mean loss over the instances with a class value
+	 */
+	private double getLoss(double[] labels, double[] scores)
+	{
+		double total = 0;
+		int count = 0;
+		for (int i = 0; i < labels.length; i++)
+		{
+			if (Double.isNaN(labels[i]))
+			{
+				continue;
+			}
+
+			if (loss == Loss.LOGISTIC)
+			{
+				/*
+				 *  log(1 + e^F) - yF, computed without overflow
+				 */
+				double score = scores[i];
+				double softplus = score > 0 ? score + Math.log1p(Math.exp(-score))
+				                            : Math.log1p(Math.exp(score));
+				total += softplus - labels[i] * score;
+			}
+			else
+			{
+				double error = labels[i] - scores[i];
+				total += error * error;
+			}
+			count++;
+		}
+		return count > 0 ? total / count : 0.0;
+	}
+
+	/**
+	 * Draw the instances a tree is grown on.  Each instance with a class
+	 * value is kept with probability of the row sample rate.  The IDs of
+	 * the sample are in data set order.
+	 *
+	 * @param data the boosting data set
+	 * @param labeledIds the IDs of the instances with a class value
+	 * @param weights the weight of each instance, or null if unweighted
+	 * @param random the random number generator
+	 * @return a view of the sampled instances
+	 */
+	private DataSet sampleInstances(DataSet data,
+	                                int[] labeledIds,
+	                                double[] weights,
+	                                Random random)
+	{
+		int[] ids = labeledIds;
+		if (rowSampleRate < 1.0)
+		{
+			int[] sampled = new int[labeledIds.length];
+			int size = 0;
+			for (int id : labeledIds)
+			{
+				if (random.nextDouble() < rowSampleRate)
+				{
+					sampled[size++] = id;
+				}
+			}
+			if (size == 0)
+			{
+				sampled[size++] = labeledIds[random.nextInt(labeledIds.length)];
+			}
+			ids = Arrays.copyOf(sampled, size);
+		}
+
+		double[] sampleWeights = null;
+		if (weights != null)
+		{
+			sampleWeights = new double[ids.length];
+			for (int i = 0; i < ids.length; i++)
+			{
+				sampleWeights[i] = weights[ids[i]];
+			}
+		}
+		return data.subset(ids, sampleWeights);
+	}
+
+	/**
+	 * Draw the attributes a tree may split on
+	 *
+	 * @param features the attributes other than the class attribute
+	 * @param random the random number generator
+	 * @return the sampled attributes
+	 */
+	private List<Attribute> sampleAttributes(List<Attribute> features, Random random)
+	{
+		if (columnSampleRate >= 1.0)
+		{
+			return features;
+		}
+
+		int numAttrs = Math.max(1, (int) Math.round(columnSampleRate * features.size()));
+		List<Attribute> shuffled = new ArrayList<>(features);
+		for (int i = 0; i < numAttrs; i++)
+		{
+			int j = i + random.nextInt(shuffled.size() - i);
+			Attribute swap = shuffled.get(i);
+			shuffled.set(i, shuffled.get(j));
+			shuffled.set(j, swap);
+		}
+		return new ArrayList<>(shuffled.subList(0, numAttrs));
+	}
+}
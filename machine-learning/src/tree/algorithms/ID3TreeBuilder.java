@@ -2,7 +2,9 @@ package tree.algorithms;
 
 import java.util.List;
 
+import tree.train.ImpurityCriterion;
 import tree.train.Split;
+import tree.train.Variance;
 import data.Attribute;
 import data.DataSet;
 
@@ -12,6 +14,16 @@ import data.DataSet;
  * iteration.  The stopping criteria is met when either a minimum number of 
  * instances are found at the leaf node, all instances at the leaf node are of 
  * the same class, or there are no more splits to split on.
+ * <br>
+ * <br>
+ * Splits may instead be scored by another impurity criterion, such as the
+ * Gini impurity of CART or the gain ratio of C4.5.
+ * <br>
+ * <br>
+ * If the class attribute is continuous, a regression tree is built.  Splits
+ * are determined by maximal variance reduction, and the instances at a leaf
+ * are of the same class when their class values are equal up to rounding
+ * noise.
  * 
  */
 public class ID3TreeBuilder extends DecisionTreeBuilder
@@ -27,21 +39,32 @@ public class ID3TreeBuilder extends DecisionTreeBuilder
 		this.minInstances = minInstances;
 	}
 	
+	/**
+	 * Constructor for a builder scoring splits by an impurity criterion
+	 * 
+	 * @param minInstances the minimum number of instances at a leaf node
+	 * @param criterion the criterion scoring the candidate splits
+	 */
+	public ID3TreeBuilder(Integer minInstances, ImpurityCriterion criterion)
+	{
+		this(minInstances);
+		setImpurityCriterion(criterion);
+	}
+	
 	@Override
 	public boolean checkStoppingCriteria(DataSet data, 
 			List<Attribute> availAttributes,
 			List<Split> candidateSplits) {
 		
-		 int numInstances = data.getInstanceSet().getInstances().size();
-			return isAllCandidateSplitsNegativeInfoGain(candidateSplits) || 
+		 int numInstances = data.getInstanceSet().size();
+			return isAllCandidateSplitsNegativeInfoGain(data, candidateSplits) || 
 			       availAttributes.isEmpty() ||
 			       numInstances < minInstances ||
 			       isAllInstancesOfSameClass(data);
 	}
 	
 	/**
-	 * Find the Split with the highest information gain among the candidate 
-	 * splits
+	 * Find the Split with the highest gain among the candidate splits
 	 * 
 	 * @param data
 	 * @param candidateSplits
@@ -64,15 +87,23 @@ public class ID3TreeBuilder extends DecisionTreeBuilder
 	}
 	
 	/**
+	 * @param data the dataset
 	 * @param candidateSplits all candidate splits
-	 * @return true if all candidate splits have negative information gain. 
+	 * @return true if no candidate split has a positive information gain,
+	 * or for a regression tree a variance reduction above rounding noise.
 	 * False otherwise.
 	 */
-	private boolean isAllCandidateSplitsNegativeInfoGain(List<Split> candidateSplits) 
+	private boolean isAllCandidateSplitsNegativeInfoGain(DataSet data, List<Split> candidateSplits) 
 	{
+        double minGain = 0;
+        if (data.getClassAttribute().getType() == Attribute.Type.CONTINUOUS)
+        {
+            minGain = Variance.tolerance(data.getClassMoments());
+        }
+        
         for (Split split : candidateSplits)
         {
-            if (split.getInfoGain() > 0)
+            if (split.getInfoGain() > minGain)
             {
                 return false;
             }
@@ -86,9 +117,14 @@ public class ID3TreeBuilder extends DecisionTreeBuilder
 	 */
 	private boolean isAllInstancesOfSameClass(DataSet data)
 	{
+        if (data.getClassAttribute().getType() == Attribute.Type.CONTINUOUS)
+        {
+            return Variance.isConstant(data.getClassMoments());
+        }
+        
         for (Integer count : data.getClassCounts().values()) 
         {
-            int numInstances = data.getInstanceSet().getInstances().size();
+            int numInstances = data.getInstanceSet().size();
             if (count == numInstances)
             {
                 return true;
@@ -1,30 +1,188 @@
 package tree.algorithms;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
-import data.AttributeSet;
 import data.DataSet;
-import data.InstanceSet;
 import tree.DecisionTree;
+import tree.Forest;
 
-public class RandomForestBuilder 
+/**
+ * Builds a random forest.  Each tree is grown on a bootstrap sample of the
+ * training instances, and the splits at each node of a tree are drawn from
+ * a random subset of the attributes.  The bootstrap samples are index views
+ * of the training data, so no instances are copied.
+ * <br>
+ * <br>
+ * The trees are grown concurrently as separate tasks on an executor.  Each
+ * tree draws from its own random number generator, seeded from the forest's
+ * seed, so a forest is reproducible regardless of the executor.
+ *
+ */
+public class RandomForestBuilder
 {
+	/**
+	 * The number of trees in the forest
+	 */
+	private final int numTrees;
 
-	private DataSet sampleDataSet(DataSet fullData)
+	/**
+	 * The number of attributes whose splits are considered at each node, or
+	 * zero to use the square root of the number of attributes
+	 */
+	private final int numSplitAttributes;
+
+	/**
+	 * The minimum number of instances at a leaf node
+	 */
+	private final int minInstances;
+
+	/**
+	 * The seed of the forest
+	 */
+	private final long seed;
+
+	/**
+	 * The executor growing the trees
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor for a builder that grows its trees on the common fork-join
+	 * pool
+	 *
+	 * @param numTrees the number of trees in the forest
+	 * @param numSplitAttributes the number of attributes whose splits are
+	 * considered at each node, or zero to use the square root of the number
+	 * of attributes
+	 * @param minInstances the minimum number of instances at a leaf node
+	 * @param seed the seed of the forest
+	 */
+	public RandomForestBuilder(int numTrees,
+	                           int numSplitAttributes,
+	                           int minInstances,
+	                           long seed)
 	{
-		AttributeSet attributes = sampleAttributes(fullData.getAttributeSet());
-		InstanceSet instances = sampleInstances(fullData.getInstanceSet());
-		return new DataSet(attributes, instances);
+		this(numTrees, numSplitAttributes, minInstances, seed,
+		     ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param numTrees the number of trees in the forest
+	 * @param numSplitAttributes the number of attributes whose splits are
+	 * considered at each node, or zero to use the square root of the number
+	 * of attributes
+	 * @param minInstances the minimum number of instances at a leaf node
+	 * @param seed the seed of the forest
+	 * @param executor the executor growing the trees
+	 */
+	public RandomForestBuilder(int numTrees,
+	                           int numSplitAttributes,
+	                           int minInstances,
+	                           long seed,
+	                           ExecutorService executor)
+	{
+		if (numTrees < 1)
+		{
+			throw new RuntimeException("Error creating random forest. " +
+					"The number of trees must be at least 1.");
+		}
+
+		this.numTrees = numTrees;
+		this.numSplitAttributes = numSplitAttributes;
+		this.minInstances = minInstances;
+		this.seed = seed;
+		this.executor = executor;
 	}
-	
-	private AttributeSet sampleAttributes(AttributeSet fullAttributeSet)
+
+	/**
+	 * Build a random forest
+	 *
+	 * @param data the training data.  Its class attribute must be set.
+	 * @return the forest
+	 */
+	public Forest buildForest(final DataSet data)
 	{
-		return null;
+		int numAttributes = data.getAttributeSet().getAttributes().size() - 1;
+		final int numAttrs = numSplitAttributes > 0 ? numSplitAttributes :
+			Math.max(1, (int) Math.round(Math.sqrt(numAttributes)));
+
+		/*
+		 *  Draw the seed of each tree up front so that the forest does not
+		 *  depend on the order in which the trees are grown
+		 */
+		Random forestRandom = new Random(seed);
+		List<Callable<DecisionTree>> tasks = new ArrayList<>();
+		for (int t = 0; t < numTrees; t++)
+		{
+			final long treeSeed = forestRandom.nextLong();
+			tasks.add(new Callable<DecisionTree>()
+			{
+				@Override
+				public DecisionTree call()
+				{
+					Random random = new Random(treeSeed);
+					DataSet sample = sampleInstances(data, random);
+
+					RandomTreeBuilder builder =
+							new RandomTreeBuilder(minInstances, numAttrs, random);
+					return builder.buildDecisionTree(sample);
+				}
+			});
+		}
+
+		List<DecisionTree> trees = new ArrayList<>();
+		try
+		{
+			for (Future<DecisionTree> future : executor.invokeAll(tasks))
+			{
+				trees.add(future.get());
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Error building random forest. " +
+					"The build was interrupted.", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException("Error building random forest. " +
+					"A tree failed.", e.getCause());
+		}
+
+		return new Forest(trees, data.getClassAttribute());
 	}
-	
-	private InstanceSet sampleInstances(InstanceSet fullInstanceSet)
+
+	/**
+	 * Draw a bootstrap sample of the instances of a data set.  The sample
+	 * holds as many instances as the data set, drawn with replacement.  Its
+	 * IDs are sorted so that the sample's instances are in data set order.
+	 *
+	 * @param data the data set
+	 * @param random the random number generator
+	 * @return a view of the sampled instances
+	 */
+	private static DataSet sampleInstances(DataSet data, Random random)
 	{
-		return null;
+		int numInstances = data.getInstanceSet().size();
+
+		int[] ids = new int[numInstances];
+		for (int i = 0; i < numInstances; i++)
+		{
+			ids[i] = random.nextInt(numInstances);
+		}
+		Arrays.sort(ids);
+
+		return data.subset(ids);
 	}
-	
 }
@@ -0,0 +1,65 @@
+package tree.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import data.Attribute;
+
+/**
+ * Builds a decision tree for a random forest.  The tree is grown as by ID3, 
+ * except that the candidate splits at each node are drawn from a random 
+ * subset of the available attributes.  The attributes are drawn from a 
+ * single generator in the order nodes are built, so the tree must be built
+ * serially to be reproducible.
+ * 
+ */
+public class RandomTreeBuilder extends ID3TreeBuilder
+{
+	/**
+	 * The number of attributes whose splits are considered at each node
+	 */
+	private final int numSplitAttributes;
+	
+	/**
+	 * The random number generator choosing the attributes at each node.  It
+	 * is owned by this builder, so each tree draws its own sequence.
+	 */
+	private final Random random;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param minInstances the minimum number of instances at a leaf node
+	 * @param numSplitAttributes the number of attributes whose splits are 
+	 * considered at each node
+	 * @param random the random number generator choosing the attributes
+	 */
+	public RandomTreeBuilder(int minInstances, int numSplitAttributes, Random random)
+	{
+		super(minInstances);
+		this.numSplitAttributes = numSplitAttributes;
+		this.random = random;
+	}
+	
+	@Override
+	protected List<Attribute> selectSplitAttributes(List<Attribute> availAttrs)
+	{
+		if (availAttrs.size() <= numSplitAttributes)
+		{
+			return availAttrs;
+		}
+		
+		/*
+		 *  Partial Fisher-Yates shuffle of the available attributes
+		 */
+		List<Attribute> attrs = new ArrayList<Attribute>(availAttrs);
+		for (int i = 0; i < numSplitAttributes; i++)
+		{
+			Collections.swap(attrs, i, i + random.nextInt(attrs.size() - i));
+		}
+		
+		return new ArrayList<Attribute>(attrs.subList(0, numSplitAttributes));
+	}
+}
@@ -0,0 +1,108 @@
+package tree.classifiers;
+
+import java.util.concurrent.ForkJoinPool;
+
+import classify.ClassificationResult;
+import classify.Classifier;
+import classify.ParallelClassification;
+import tree.BoostedTrees;
+import tree.algorithms.GradientBoostingBuilder;
+import data.DataSet;
+
+/**
+ * Classifies a binary class attribute with an ensemble of trees boosted
+ * under logistic loss.  The test instances are laid out as one batch and
+ * blocks of rows are scored concurrently, each one tree at a time.
+ *
+ */
+public class GradientBoostingClassifier implements Classifier
+{
+    /**
+     * The boosted ensemble
+     */
+    private final BoostedTrees model;
+
+    /**
+     * Constructor for a classifier that boosts its ensemble without 
+     * subsampling or early stopping
+     *
+     * @param numRounds the number of trees in the ensemble
+     * @param shrinkage the factor multiplying the prediction of every tree
+     * @param maxDepth the largest depth of each tree
+     * @param minInstances the minimum number of instances at a leaf node
+     * @param trainData the training data
+     */
+    public GradientBoostingClassifier(int numRounds,
+                                      double shrinkage,
+                                      int maxDepth,
+                                      int minInstances,
+                                      DataSet trainData)
+    {
+        this(new GradientBoostingBuilder(BoostedTrees.Loss.LOGISTIC,
+                                         numRounds,
+                                         shrinkage,
+                                         maxDepth,
+                                         minInstances,
+                                         0L).buildModel(trainData));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param model an ensemble boosted under logistic loss
+     */
+    public GradientBoostingClassifier(BoostedTrees model)
+    {
+        if (model.getLoss() != BoostedTrees.Loss.LOGISTIC)
+        {
+            throw new RuntimeException("Error creating gradient boosting " +
+                    "classifier. The ensemble must be boosted under logistic loss.");
+        }
+        this.model = model;
+    }
+
+    @Override
+    public ClassificationResult classifyData(DataSet testData)
+    {
+        int[] classes = new int[testData.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        classifyData(testData, classes, confidences);
+        return new ClassificationResult(classes, confidences, testData);
+    }
+
+    @Override
+    public void classifyData(DataSet testData, int[] classes, double[] confidences)
+    {
+        /*
+         *  Lay the test dataset out column by column once, then score blocks
+         *  of rows through every tree concurrently
+         */
+        final double[][] columns = model.toColumns(testData);
+        final double[] scores = new double[classes.length];
+        ParallelClassification.classifyData(classes.length, 
+                new ParallelClassification.BatchClassifier()
+                {
+                    @Override
+                    public void classifyRange(int start, int end, int[] classes, double[] confidences)
+                    {
+                        model.predictScores(columns, start, end, scores);
+                        model.classifyScores(scores, start, end, classes, confidences);
+                    }
+                }, 
+                ForkJoinPool.commonPool(), 
+                classes, 
+                confidences);
+    }
+
+    @Override
+    public Object getModel()
+    {
+        return this.model;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Gradient Boosting\n\n" + model;
+    }
+}
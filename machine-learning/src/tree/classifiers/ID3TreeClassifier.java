@@ -1,43 +1,87 @@
 package tree.classifiers;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import classify.ClassificationResult;
 import classify.Classifier;
+import classify.ParallelClassification;
 import pair.Pair;
 import tree.DecisionTree;
+import tree.FlatDecisionTree;
 import tree.algorithms.ID3TreeBuilder;
 import data.DataSet;
 import data.Instance;
 
 public class ID3TreeClassifier implements Classifier
 {
-    private DecisionTree dtTree;
+    private final DecisionTree dtTree;
+    
+    /**
+     * The tree compiled for batch classification, or null for a regression
+     * tree
+     */
+    private final FlatDecisionTree flatTree;
     
     public ID3TreeClassifier(int minInstances, DataSet trainData)
     {
         ID3TreeBuilder id3Builder = new ID3TreeBuilder(minInstances);       
         dtTree = id3Builder.buildDecisionTree(trainData);
+        flatTree = dtTree.isRegressionTree() ? null : new FlatDecisionTree(dtTree);
     }
     
     @Override
     public ClassificationResult classifyData(DataSet testData) 
     {
+        int[] classes = new int[testData.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        classifyData(testData, classes, confidences);
+
         /*
-         *  Classify each instance in the test dataset 
+         *  Process the results 
          */
-        List<Pair<Integer, Double>> resultList = new ArrayList<>();
-        for (Instance instance : testData.getInstanceSet().getInstances())
-        { 
-            resultList.add( dtTree.classifyInstance(instance) );
+        return new ClassificationResult(classes, confidences, testData);
+    }
+    
+    @Override
+    public void classifyData(DataSet testData, int[] classes, double[] confidences)
+    {
+        if (flatTree == null)
+        {
+            /*
+             *  A regression tree has no compiled classification path
+             */
+            ParallelClassification.classifyData(testData, 
+                    new ParallelClassification.InstanceClassifier()
+                    {
+                        @Override
+                        public Pair<Integer, Double> classifyInstance(Instance instance)
+                        {
+                            return dtTree.classifyInstance(instance);
+                        }
+                    }, 
+                    ForkJoinPool.commonPool(), 
+                    classes, 
+                    confidences);
+            return;
         }
-
+        
         /*
-         *  Process the results 
+         *  Lay the test dataset out column by column once, then walk blocks
+         *  of rows down the compiled tree concurrently
          */
-        ClassificationResult result = new ClassificationResult(resultList, testData);
-        return result;
+        final double[][] columns = flatTree.toColumns(testData);
+        ParallelClassification.classifyData(classes.length, 
+                new ParallelClassification.BatchClassifier()
+                {
+                    @Override
+                    public void classifyRange(int start, int end, int[] classes, double[] confidences)
+                    {
+                        flatTree.predict(columns, start, end, classes, confidences);
+                    }
+                }, 
+                ForkJoinPool.commonPool(), 
+                classes, 
+                confidences);
     }
     
     @Override
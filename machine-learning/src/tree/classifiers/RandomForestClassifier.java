@@ -1,11 +1,100 @@
 package tree.classifiers;
 
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
-import tree.DecisionTree;
+import classify.ClassificationResult;
+import classify.Classifier;
+import classify.ParallelClassification;
+import pair.Pair;
+import tree.Forest;
+import tree.algorithms.RandomForestBuilder;
+import data.DataSet;
+import data.Instance;
 
-public class RandomForestClassifier 
+/**
+ * Classifies by the majority vote of a random forest.  The test instances
+ * are divided into blocks that are voted on concurrently.
+ *
+ */
+public class RandomForestClassifier implements Classifier
 {
-	private Set<DecisionTree> trees;
+    /**
+     * The forest
+     */
+    private final Forest forest;
 
+    /**
+     * The executor voting on the test instances
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for a classifier that grows its forest and votes on the
+     * common fork-join pool.  The splits at each node are drawn from the
+     * square root of the number of attributes.
+     *
+     * @param numTrees the number of trees in the forest
+     * @param minInstances the minimum number of instances at a leaf node
+     * @param seed the seed of the forest
+     * @param trainData the training data
+     */
+    public RandomForestClassifier(int numTrees,
+                                  int minInstances,
+                                  long seed,
+                                  DataSet trainData)
+    {
+        this(new RandomForestBuilder(numTrees, 0, minInstances, seed).buildForest(trainData),
+             ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param forest the forest
+     * @param executor the executor voting on the test instances
+     */
+    public RandomForestClassifier(Forest forest, ExecutorService executor)
+    {
+        this.forest = forest;
+        this.executor = executor;
+    }
+
+    @Override
+    public ClassificationResult classifyData(DataSet testData)
+    {
+        int[] classes = new int[testData.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        classifyData(testData, classes, confidences);
+        return new ClassificationResult(classes, confidences, testData);
+    }
+
+    @Override
+    public void classifyData(DataSet testData, int[] classes, double[] confidences)
+    {
+        ParallelClassification.classifyData(testData,
+                new ParallelClassification.InstanceClassifier()
+                {
+                    @Override
+                    public Pair<Integer, Double> classifyInstance(Instance instance)
+                    {
+                        return forest.classifyInstance(instance);
+                    }
+                },
+                executor,
+                classes,
+                confidences);
+    }
+
+    @Override
+    public Object getModel()
+    {
+        return this.forest;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Random Forest\n\n" + forest;
+    }
 }
@@ -1,10 +1,6 @@
 package tree.evaluate;
 
-import java.util.Set;
-
 import tree.DecisionTree;
-import tree.DtLeaf;
-import tree.DtNode;
 import data.Attribute;
 import data.DataSet;
 import data.Instance;
@@ -15,33 +11,23 @@ public class BiClassTest
 	{
 		BiClassTestResults results = new BiClassTestResults();
 		
+		Attribute classAttr = data.getClassAttribute();
+		
 		for (Instance instance : data.getInstanceSet().getInstances())
 		{
-			DtNode currNode = (DtNode) dt.getRoot();
-			
-			while (!(currNode instanceof DtLeaf))
+			/*
+			 *  An instance with a missing class cannot be scored
+			 */
+			Double classValue = instance.getAttributeValue(classAttr);
+			if (classValue == null)
 			{
-				@SuppressWarnings("unchecked")
-                Set<DtNode> children = ((Set<DtNode>) ((Set<?>) currNode.getChildren()));
-			
-				for (DtNode node : children)
-				{
-					if (node.doesInstanceSatisfyNode(instance))
-					{
-						currNode = node;
-						break;
-					}
-				}
+				continue;
 			}
-
-			Attribute classAttr = data.getClassAttribute();
 			
-			DtLeaf leaf = (DtLeaf) currNode;
+			int predictionId = dt.classifyInstance(instance).getFirst();
 			
-			String prediction = data.getClassAttribute().getNominalValueName(
-					leaf.getClassLabel().intValue() );
-			String truth = data.getClassAttribute().getNominalValueName(
-					instance.getAttributeValue(classAttr).intValue() );
+			String prediction = classAttr.getNominalValueName(predictionId);
+			String truth = classAttr.getNominalValueName(classValue.intValue());
 			
 			// Print result of classification
 			System.out.print(prediction);
@@ -50,8 +36,7 @@ public class BiClassTest
 			System.out.print("\n");
 			
 			// Add the prediction to the test results
-			results.addClassification(leaf.getClassLabel().intValue(),
-									  instance.getAttributeValue(classAttr).intValue());
+			results.addClassification(predictionId, classValue.intValue());
 		}
 		
 		System.out.println("\n");
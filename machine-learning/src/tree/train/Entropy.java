@@ -1,6 +1,5 @@
 package tree.train;
 
-import java.util.Map;
 
 
 import data.DataSet;
@@ -54,16 +53,32 @@ public class Entropy
 	 * @return the entropy of the class attribute
 	 */
 	public static Double entropy(DataSet data)
+	{
+		return entropy(data.getClassWeights());
+	}
+	
+	/**
+	 * Calculate the entropy of the class attribute from the total weight of
+	 * the instances of each class.  For unweighted instances the weights are
+	 * the class counts.
+	 * 
+	 * @param classWeights the total weight of the instances of each class
+	 * @return the entropy of the class attribute
+	 */
+	public static double entropy(double[] classWeights)
 	{
 		double entropy = 0;
-	    double totalInstances = data.getInstanceSet().getInstances().size();
-		Map<Integer, Integer> classCounts = data.getClassCounts();
+		double totalInstances = 0;
+		for (double weight : classWeights)
+		{
+			totalInstances += weight;
+		}
 
 		/*
 		 *  Calculate the entropy by summer P*log(P) for each P,
 		 *  where P is the probability of seeing a class label 
 		 */
-		for (Integer count : classCounts.values())
+		for (double count : classWeights)
 		{
 			if (count > 0)
 			{
@@ -77,6 +92,47 @@ public class Entropy
 		return entropy;
 	}
 	
+	/**
+	 * Calculate the information gain of the class attribute on a split from
+	 * the class weights of the instances reaching each branch.  This is
+	 * H(C) - H(C | X) over the instances whose value of the split's attribute
+	 * is known.
+	 * 
+	 * @param classWeights the total weight of the instances of each class 
+	 * over all branches
+	 * @param branchClassWeights the total weight of the instances of each
+	 * class in each branch
+	 * @return the information gain
+	 */
+	public static double informationGain(double[] classWeights, 
+	                                     double[][] branchClassWeights)
+	{
+		double entropy = entropy(classWeights);
+		
+		double totalInstances = 0;
+		for (double weight : classWeights)
+		{
+			totalInstances += weight;
+		}
+		
+		double conditionalEntropy = 0;
+		if (totalInstances > 0)
+		{
+			for (double[] branchWeights : branchClassWeights)
+			{
+				double branchNumInstances = 0;
+				for (double weight : branchWeights)
+				{
+					branchNumInstances += weight;
+				}
+				conditionalEntropy += 
+						((branchNumInstances / totalInstances) * entropy(branchWeights));
+			}
+		}
+		
+		return entropy - conditionalEntropy;
+	}
+	
 	/**
 	 * Calculate the conditional entropy of the class attribute given another
 	 * attribute.  That is, this method calculates
@@ -96,16 +152,23 @@ public class Entropy
 	public static Double conditionalEntropy(DataSet data, Split split)
 	{
 		double conditionalEntropy = 0;	
-		double totalInstances = data.getInstanceSet().getInstances().size();
+		double totalInstances = 0;
+		for (double weight : data.getClassWeights())
+		{
+			totalInstances += weight;
+		}
 		
 		if (totalInstances > 0)
 		{
 			for (SplitBranch branch : split.getSplitBranches())
 			{
-				DataSet branchData = new DataSet(data.getAttributeSet(), branch.getInstanceSet());
-				branchData.setClassAttribute(data.getClassAttribute().getName());
+				DataSet branchData = branch.getData();
 				
-				int branchNumInstances = branchData.getInstanceSet().getInstances().size();
+				double branchNumInstances = 0;
+				for (double weight : branchData.getClassWeights())
+				{
+					branchNumInstances += weight;
+				}
 				conditionalEntropy += 
 						((branchNumInstances / totalInstances) * entropy(branchData));
 			}
@@ -0,0 +1,20 @@
+package tree.train;
+
+/**
+ * Scores splits by their information gain, H(C) - H(C | X), as in ID3.
+ *
+ */
+public class EntropyCriterion implements ImpurityCriterion
+{
+	@Override
+	public double gain(double[] classWeights, double[][] branchClassWeights)
+	{
+		return Entropy.informationGain(classWeights, branchClassWeights);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Information gain";
+	}
+}
@@ -0,0 +1,39 @@
+package tree.train;
+
+/**
+ * Scores splits by their gain ratio, as in C4.5.  The information gain of a
+ * split is divided by the entropy of the distribution of instances over its
+ * branches, which penalizes splits into many small branches.
+ *
+ */
+public class GainRatioCriterion implements ImpurityCriterion
+{
+	@Override
+	public double gain(double[] classWeights, double[][] branchClassWeights)
+	{
+		double[] branchWeights = new double[branchClassWeights.length];
+		for (int b = 0; b < branchClassWeights.length; b++)
+		{
+			for (double weight : branchClassWeights[b])
+			{
+				branchWeights[b] += weight;
+			}
+		}
+		
+		/*
+		 *  A split sending every instance down one branch gains nothing
+		 */
+		double splitInfo = Entropy.entropy(branchWeights);
+		if (splitInfo <= 0)
+		{
+			return 0.0;
+		}
+		return Entropy.informationGain(classWeights, branchClassWeights) / splitInfo;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Gain ratio";
+	}
+}
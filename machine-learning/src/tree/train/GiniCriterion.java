@@ -0,0 +1,76 @@
+package tree.train;
+
+/**
+ * Scores splits by the decrease in Gini impurity, as in CART.  The Gini
+ * impurity of a set of instances is
+ * <br>
+ * <br>
+ * 1 - sum P(c)^2
+ * <br>
+ * <br>
+ * where P(c) is the probability of seeing class label c.
+ *
+ */
+public class GiniCriterion implements ImpurityCriterion
+{
+	@Override
+	public double gain(double[] classWeights, double[][] branchClassWeights)
+	{
+		double totalWeight = 0;
+		for (double weight : classWeights)
+		{
+			totalWeight += weight;
+		}
+		if (totalWeight <= 0)
+		{
+			return 0.0;
+		}
+		
+		double conditionalImpurity = 0;
+		for (double[] branchWeights : branchClassWeights)
+		{
+			double branchWeight = 0;
+			for (double weight : branchWeights)
+			{
+				branchWeight += weight;
+			}
+			conditionalImpurity += (branchWeight / totalWeight) * impurity(branchWeights);
+		}
+		
+		return impurity(classWeights) - conditionalImpurity;
+	}
+	
+	/**
+	 * Calculate the Gini impurity of the class attribute from the total 
+	 * weight of the instances of each class
+	 * 
+	 * @param classWeights the total weight of the instances of each class
+	 * @return the Gini impurity
+	 */
+	public static double impurity(double[] classWeights)
+	{
+		double totalWeight = 0;
+		for (double weight : classWeights)
+		{
+			totalWeight += weight;
+		}
+		if (totalWeight <= 0)
+		{
+			return 0.0;
+		}
+		
+		double sumSquares = 0;
+		for (double weight : classWeights)
+		{
+			double P = weight / totalWeight;
+			sumSquares += P * P;
+		}
+		return 1.0 - sumSquares;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Gini";
+	}
+}
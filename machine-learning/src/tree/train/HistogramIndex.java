@@ -0,0 +1,476 @@
+package tree.train;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import data.Attribute;
+import data.DataSet;
+import data.Instance;
+import data.InstanceSet;
+
+/**
+ * Searches for splits along continuous attributes over histograms of
+ * quantized values.  Each continuous attribute is quantized once for the
+ * training set into at most a fixed number of bins, and each instance's
+ * bin is stored as a {@code short} code.  Each node of the tree then holds,
+ * for each attribute, the class weights of its instances in each bin, and
+ * candidate thresholds lie only between bins.
+ * <br>
+ * <br>
+ * The histograms of the children of a node are built by scanning all but
+ * the largest child.  The histograms of the largest child are the node's
+ * histograms minus those of its siblings, since the class weights of a
+ * node's instances are divided among its children.
+ * <br>
+ * <br>
+ * An attribute with no more distinct values than bins gets one bin per
+ * value, so that the splits are the same as the exact search.
+ *
+ */
+public class HistogramIndex extends SplitIndex
+{
+	/**
+	 * The largest number of bins an attribute may be quantized into
+	 */
+	public static final int MAX_BINS = Short.MAX_VALUE;
+
+	/**
+	 * Residual weights left by subtracting histograms that are at most this
+	 * size are treated as zero
+	 */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * The quantization of the training set, shared by every node's index
+	 */
+	private final Quantization quantization;
+
+	/**
+	 * The instance set whose instances are counted in the histograms
+	 */
+	private final InstanceSet instances;
+
+	/**
+	 * The histogram of each continuous attribute.  The class weights of the
+	 * instances in bin b are stored from index {@code b * numClasses}.  The
+	 * last bin holds the class weights of the instances missing the value.
+	 */
+	private final Map<Attribute, double[]> histograms;
+
+	/**
+	 * Constructor.  Quantizes each continuous attribute of a data set other
+	 * than the class attribute, and builds the histograms of the data set.
+	 *
+	 * @param data the training data.  Its class attribute must be set and
+	 * must be nominal.
+	 * @param maxBins the largest number of bins per attribute
+	 */
+	public HistogramIndex(DataSet data, int maxBins)
+	{
+		if (maxBins < 2 || maxBins > MAX_BINS)
+		{
+			throw new RuntimeException("Error creating histogram index. " +
+					"The number of bins must be between 2 and " + MAX_BINS + ".");
+		}
+		if (data.getClassAttribute().getType() != Attribute.Type.NOMINAL)
+		{
+			throw new RuntimeException("Error creating histogram index. " +
+					"The class attribute must be nominal.");
+		}
+
+		this.quantization = new Quantization(data, maxBins);
+		this.instances = data.getInstanceSet();
+		this.histograms = quantization.buildHistograms(instances);
+	}
+
+	/**
+	 * Constructor for the index of a node below the root
+	 *
+	 * @param quantization the quantization of the training set
+	 * @param instances the instances of the node
+	 * @param histograms the histograms of the node
+	 */
+	private HistogramIndex(Quantization quantization,
+	                       InstanceSet instances,
+	                       Map<Attribute, double[]> histograms)
+	{
+		this.quantization = quantization;
+		this.instances = instances;
+		this.histograms = histograms;
+	}
+
+	@Override
+	public boolean isIndexOf(DataSet data)
+	{
+		return data.getInstanceSet() == instances;
+	}
+
+	@Override
+	public List<SplitIndex> project(List<DataSet> subsets)
+	{
+		/*
+		 *  Scan all children but the largest
+		 */
+		int largest = 0;
+		for (int i = 0; i < subsets.size(); i++)
+		{
+			InstanceSet subset = subsets.get(i).getInstanceSet();
+			if (subset.getBase() != instances.getBase())
+			{
+				throw new RuntimeException("Error projecting histogram index. " +
+						"The subsets must select instances of the training set.");
+			}
+			if (subset.size() > subsets.get(largest).getInstanceSet().size())
+			{
+				largest = i;
+			}
+		}
+
+		List<SplitIndex> indices = new ArrayList<SplitIndex>();
+		Map<Attribute, double[]> largestHistograms = null;
+		for (int i = 0; i < subsets.size(); i++)
+		{
+			InstanceSet subset = subsets.get(i).getInstanceSet();
+			if (i == largest)
+			{
+				largestHistograms = new HashMap<Attribute, double[]>();
+				for (Map.Entry<Attribute, double[]> entry : histograms.entrySet())
+				{
+					largestHistograms.put(entry.getKey(), entry.getValue().clone());
+				}
+				indices.add(new HistogramIndex(quantization, subset, largestHistograms));
+			}
+			else
+			{
+				indices.add(new HistogramIndex(quantization, subset,
+						quantization.buildHistograms(subset)));
+			}
+		}
+
+		/*
+		 *  The largest child holds what its siblings do not
+		 */
+		for (int i = 0; i < subsets.size(); i++)
+		{
+			if (i == largest)
+			{
+				continue;
+			}
+
+			Map<Attribute, double[]> siblingHistograms =
+					((HistogramIndex) indices.get(i)).histograms;
+			for (Map.Entry<Attribute, double[]> entry : largestHistograms.entrySet())
+			{
+				double[] histogram = entry.getValue();
+				double[] sibling = siblingHistograms.get(entry.getKey());
+				for (int j = 0; j < histogram.length; j++)
+				{
+					histogram[j] -= sibling[j];
+				}
+			}
+		}
+
+		for (double[] histogram : largestHistograms.values())
+		{
+			for (int j = 0; j < histogram.length; j++)
+			{
+				if (histogram[j] < EPSILON)
+				{
+					histogram[j] = 0;
+				}
+			}
+		}
+
+		return indices;
+	}
+
+	/**
+	 * Generate all possible splits along a continuous attribute.  The bins
+	 * are swept once in order, accumulating the class weights at or below
+	 * each threshold.  A threshold is placed between two adjacent non-empty
+	 * bins by the same rule as the exact search, with each bin standing for
+	 * its values, halfway between the largest value of the lower bin and the
+	 * smallest value of the higher.  Splits are returned in order of 
+	 * decreasing threshold.
+	 *
+	 * @param attr the continuous attribute along which we wish to make the
+	 * split
+	 * @param data the data set to be split
+	 * @param classLabels unused; the histograms hold the class weights
+	 * @param criterion the criterion scoring the splits
+	 * @return all splits along this continuous attribute
+	 */
+	@Override
+	List<Split> createSplitsContinuous(Attribute attr,
+	                                   DataSet data,
+	                                   int[] classLabels,
+	                                   ImpurityCriterion criterion)
+	{
+		List<Split> contSplits = new ArrayList<Split>();
+
+		double[] histogram = histograms.get(attr);
+		double[] binMin = quantization.binMin.get(attr);
+		double[] binMax = quantization.binMax.get(attr);
+		int numClasses = quantization.numClasses;
+		int numBins = binMax.length;
+
+		/*
+		 *  The class weights of all instances with a value, and whether any
+		 *  instance is missing the value
+		 */
+		double[] totalClassWeights = new double[numClasses];
+		double totalWeight = 0;
+		boolean hasMissing = false;
+		for (int c = 0; c < numClasses; c++)
+		{
+			for (int b = 0; b < numBins; b++)
+			{
+				totalClassWeights[c] += histogram[b * numClasses + c];
+			}
+			double missingWeight = histogram[numBins * numClasses + c];
+			hasMissing |= missingWeight > 0;
+			totalWeight += totalClassWeights[c] + missingWeight;
+		}
+
+		double[] belowClassWeights = new double[numClasses];
+		boolean[] binClasses = new boolean[numClasses];
+		boolean[] prevBinClasses = new boolean[numClasses];
+		int prevBin = -1;
+		for (int b = 0; b < numBins; b++)
+		{
+			int numBinClasses = 0;
+			for (int c = 0; c < numClasses; c++)
+			{
+				binClasses[c] = histogram[b * numClasses + c] > 0;
+				if (binClasses[c])
+				{
+					numBinClasses++;
+				}
+			}
+			if (numBinClasses == 0)
+			{
+				continue;
+			}
+
+			if (prevBin >= 0 &&
+			    (numBinClasses > 1 || !Arrays.equals(binClasses, prevBinClasses)))
+			{
+				Split split = SplitGenerator.createSplitContinuous(attr,
+				                                                   (binMax[prevBin] + binMin[b]) / 2.0);
+				split.setGain(SplitGenerator.gain(criterion,
+				                                  belowClassWeights,
+				                                  totalClassWeights,
+				                                  hasMissing,
+				                                  totalWeight));
+				contSplits.add(split);
+			}
+
+			for (int c = 0; c < numClasses; c++)
+			{
+				belowClassWeights[c] += histogram[b * numClasses + c];
+				prevBinClasses[c] = binClasses[c];
+			}
+			prevBin = b;
+		}
+
+		Collections.reverse(contSplits);
+		return contSplits;
+	}
+
+	/**
+	 * The bins of each continuous attribute of the training set and the bin
+	 * code of each row
+	 */
+	private static class Quantization
+	{
+		/**
+		 * The number of values of the class attribute
+		 */
+		private final int numClasses;
+
+		/**
+		 * The class label of each row of the training set's base instance
+		 * set, or -1 if missing
+		 */
+		private final int[] classLabels;
+
+		/**
+		 * The bin code of each row of the training set's base instance set
+		 * for each attribute, or -1 if the value is missing
+		 */
+		private final Map<Attribute, short[]> codes;
+
+		/**
+		 * The smallest training value in each bin of each attribute
+		 */
+		private final Map<Attribute, double[]> binMin;
+
+		/**
+		 * The largest training value in each bin of each attribute
+		 */
+		private final Map<Attribute, double[]> binMax;
+
+		public Quantization(DataSet data, int maxBins)
+		{
+			InstanceSet base = data.getInstanceSet().getBase();
+			List<Instance> baseInstances = base.getInstances();
+			Attribute classAttr = data.getClassAttribute();
+
+			this.numClasses = classAttr.getNominalValueMap().size();
+			this.classLabels = new int[baseInstances.size()];
+			for (int row = 0; row < classLabels.length; row++)
+			{
+				Double classValue = baseInstances.get(row).getAttributeValue(classAttr);
+				classLabels[row] = classValue == null ? -1 : classValue.intValue();
+			}
+
+			this.codes = new HashMap<Attribute, short[]>();
+			this.binMin = new HashMap<Attribute, double[]>();
+			this.binMax = new HashMap<Attribute, double[]>();
+			for (Attribute attr : data.getAttributeSet().getAttributes())
+			{
+				if (attr.getType() == Attribute.Type.CONTINUOUS && !attr.equals(classAttr))
+				{
+					quantize(attr, data, baseInstances, maxBins);
+				}
+			}
+		}
+
+		/**
+		 * Place the bins of an attribute at quantiles of the training set's
+		 * values and code each row of the base instance set
+		 *
+		 * @param attr the continuous attribute
+		 * @param data the training set
+		 * @param baseInstances the instances of the base instance set
+		 * @param maxBins the largest number of bins
+		 */
+		private void quantize(Attribute attr,
+		                      DataSet data,
+		                      List<Instance> baseInstances,
+		                      int maxBins)
+		{
+			/*
+			 *  Sort the training set's values
+			 */
+			List<Instance> instances = data.getInstanceSet().getInstances();
+			double[] values = new double[instances.size()];
+			int numValues = 0;
+			for (Instance instance : instances)
+			{
+				Double value = instance.getAttributeValue(attr);
+				if (value != null)
+				{
+					values[numValues++] = value;
+				}
+			}
+			values = Arrays.copyOf(values, numValues);
+			Arrays.sort(values);
+
+			/*
+			 *  Each bin ends at a distinct value, at roughly equal numbers of
+			 *  values apart.  If there are no more distinct values than bins,
+			 *  each distinct value gets its own bin.
+			 */
+			int numDistinct = 0;
+			for (int i = 0; i < numValues; i++)
+			{
+				if (i == 0 || Double.compare(values[i], values[i - 1]) != 0)
+				{
+					numDistinct++;
+				}
+			}
+			int maxAttrBins = Math.min(maxBins, numDistinct);
+
+			double[] attrBinMin = new double[maxAttrBins];
+			double[] attrBinMax = new double[maxAttrBins];
+			int numBins = 0;
+			int start = 0;
+			while (start < numValues)
+			{
+				int end = numDistinct <= maxBins ? start + 1 :
+					(int) ((long) numValues * (numBins + 1) / maxAttrBins);
+				end = Math.min(Math.max(end, start + 1), numValues);
+				while (end < numValues && Double.compare(values[end], values[end - 1]) == 0)
+				{
+					end++;
+				}
+				attrBinMin[numBins] = values[start];
+				attrBinMax[numBins] = values[end - 1];
+				numBins++;
+				start = end;
+			}
+			attrBinMin = Arrays.copyOf(attrBinMin, numBins);
+			attrBinMax = Arrays.copyOf(attrBinMax, numBins);
+
+			/*
+			 *  A bin's values lie at or below the threshold halfway to the
+			 *  next bin
+			 */
+			double[] thresholds = new double[Math.max(numBins - 1, 0)];
+			for (int b = 0; b < thresholds.length; b++)
+			{
+				thresholds[b] = (attrBinMax[b] + attrBinMin[b + 1]) / 2.0;
+			}
+
+			/*
+			 *  Code each row by the first bin whose threshold it does not
+			 *  exceed
+			 */
+			short[] attrCodes = new short[baseInstances.size()];
+			for (int row = 0; row < attrCodes.length; row++)
+			{
+				Double value = baseInstances.get(row).getAttributeValue(attr);
+				if (value == null)
+				{
+					attrCodes[row] = -1;
+					continue;
+				}
+				int bin = Arrays.binarySearch(thresholds, value);
+				attrCodes[row] = (short) (bin >= 0 ? bin : -bin - 1);
+			}
+
+			codes.put(attr, attrCodes);
+			binMin.put(attr, attrBinMin);
+			binMax.put(attr, attrBinMax);
+		}
+
+		/**
+		 * Build the histograms of a set of instances by scanning them
+		 *
+		 * @param instances an instance set with the same base as the
+		 * training set
+		 * @return the histogram of each attribute
+		 */
+		public Map<Attribute, double[]> buildHistograms(InstanceSet instances)
+		{
+			int[] rows = instances.getRows();
+
+			Map<Attribute, double[]> histograms = new HashMap<Attribute, double[]>();
+			for (Map.Entry<Attribute, short[]> entry : codes.entrySet())
+			{
+				short[] attrCodes = entry.getValue();
+				int numBins = binMax.get(entry.getKey()).length;
+				double[] histogram = new double[(numBins + 1) * numClasses];
+
+				for (int id = 0; id < instances.size(); id++)
+				{
+					int row = rows == null ? id : rows[id];
+					if (classLabels[row] < 0)
+					{
+						continue;
+					}
+					int bin = attrCodes[row] < 0 ? numBins : attrCodes[row];
+					histogram[bin * numClasses + classLabels[row]] += instances.getWeight(id);
+				}
+
+				histograms.put(entry.getKey(), histogram);
+			}
+			return histograms;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package tree.train;
+
+/**
+ * A measure of the quality of a split of a set of instances, computed 
+ * purely from the total weight of the instances of each class reaching each
+ * branch.  For unweighted instances the weights are the class counts.  The
+ * split generators accumulate these weights incrementally, so a split is
+ * scored without giving any branch its subset of the data.
+ *
+ */
+public interface ImpurityCriterion
+{
+	/**
+	 * Calculate the gain of a split, which is higher for better splits and 
+	 * at most zero for splits that do not separate the classes at all.
+	 * 
+	 * @param classWeights the total weight of the instances of each class 
+	 * over all branches
+	 * @param branchClassWeights the total weight of the instances of each
+	 * class in each branch
+	 * @return the gain of the split
+	 */
+	public double gain(double[] classWeights, double[][] branchClassWeights);
+}
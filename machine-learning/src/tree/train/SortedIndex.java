@@ -0,0 +1,478 @@
+package tree.train;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import data.Attribute;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+import data.InstanceSet;
+
+/**
+ * Holds the instances of a data set sorted by the value of each continuous
+ * attribute, in the manner of SLIQ and SPRINT.  The instances are sorted
+ * once for the full training set.  The index of each subset produced by a
+ * split is then projected from the index of its parent in a single linear
+ * pass, which preserves the sorted order without sorting again.
+ * <br>
+ * <br>
+ * Instances are identified by their ID in the indexed instance set.
+ * Instances missing the value of an attribute are left out of that
+ * attribute's order.
+ *
+ */
+public class SortedIndex extends SplitIndex
+{
+	/**
+	 * The instance set whose instance IDs are sorted
+	 */
+	private final InstanceSet instances;
+
+	/**
+	 * The instance IDs sorted by the value of each continuous attribute
+	 */
+	private final Map<Attribute, int[]> sortedIds;
+
+	/**
+	 * The value of each continuous attribute, aligned with its sorted IDs
+	 */
+	private final Map<Attribute, double[]> sortedValues;
+
+	/**
+	 * Constructor.  Sorts the instances of a data set by each of its
+	 * continuous attributes other than the class attribute.
+	 *
+	 * @param data the data set
+	 */
+	public SortedIndex(DataSet data)
+	{
+		this.instances = data.getInstanceSet();
+		this.sortedIds = new HashMap<Attribute, int[]>();
+		this.sortedValues = new HashMap<Attribute, double[]>();
+
+		for (Attribute attr : data.getAttributeSet().getAttributes())
+		{
+			if (attr.getType() == Attribute.Type.CONTINUOUS &&
+			    !attr.equals(data.getClassAttribute()))
+			{
+				sortAttribute(attr);
+			}
+		}
+	}
+
+	/**
+	 * Constructor for a projected index
+	 *
+	 * @param instances the indexed instance set
+	 * @param sortedIds the sorted instance IDs of each attribute
+	 * @param sortedValues the sorted values of each attribute
+	 */
+	private SortedIndex(InstanceSet instances,
+	                    Map<Attribute, int[]> sortedIds,
+	                    Map<Attribute, double[]> sortedValues)
+	{
+		this.instances = instances;
+		this.sortedIds = sortedIds;
+		this.sortedValues = sortedValues;
+	}
+
+	@Override
+	public boolean isIndexOf(DataSet data)
+	{
+		return data.getInstanceSet() == instances;
+	}
+
+	/**
+	 * @param attr a continuous attribute
+	 * @return the IDs of the instances with a value of the attribute, sorted
+	 * by that value, or null if the attribute is not indexed
+	 */
+	public int[] getSortedIds(Attribute attr)
+	{
+		return sortedIds.get(attr);
+	}
+
+	/**
+	 * @param attr a continuous attribute
+	 * @return the values of the attribute in sorted order, aligned with
+	 * {@link #getSortedIds(Attribute)}, or null if the attribute is not
+	 * indexed
+	 */
+	public double[] getSortedValues(Attribute attr)
+	{
+		return sortedValues.get(attr);
+	}
+
+	@Override
+	public List<SplitIndex> project(List<DataSet> subsets)
+	{
+		List<SplitIndex> indices = new ArrayList<SplitIndex>();
+		for (DataSet subset : subsets)
+		{
+			indices.add(project(subset));
+		}
+		return indices;
+	}
+
+	/**
+	 * Project this index onto a subset of its instances.  The subset must be
+	 * a view selecting instances of this index's instance set in order, such
+	 * as the data of a split branch.  Any other data set is sorted anew.
+	 *
+	 * @param subset the subset of this index's instances
+	 * @return the sorted index of the subset
+	 */
+	public SortedIndex project(DataSet subset)
+	{
+		InstanceSet subsetInstances = subset.getInstanceSet();
+		if (!subsetInstances.isView() ||
+		    subsetInstances.getBase() != instances.getBase())
+		{
+			return new SortedIndex(subset);
+		}
+
+		/*
+		 *  Map each of our instance IDs to its ID in the subset by walking
+		 *  both row lists in step
+		 */
+		int[] parentRows = instances.isView() ? instances.getRows() : null;
+		int[] subsetRows = subsetInstances.getRows();
+		int[] subsetIdOf = new int[instances.size()];
+		Arrays.fill(subsetIdOf, -1);
+
+		int subsetId = 0;
+		for (int id = 0; id < subsetIdOf.length && subsetId < subsetRows.length; id++)
+		{
+			int row = parentRows == null ? id : parentRows[id];
+			if (row == subsetRows[subsetId])
+			{
+				subsetIdOf[id] = subsetId++;
+			}
+		}
+		if (subsetId < subsetRows.length)
+		{
+			return new SortedIndex(subset);
+		}
+
+		/*
+		 *  Filter each sorted list, keeping its order
+		 */
+		Map<Attribute, int[]> projectedIds = new HashMap<Attribute, int[]>();
+		Map<Attribute, double[]> projectedValues = new HashMap<Attribute, double[]>();
+		for (Map.Entry<Attribute, int[]> entry : sortedIds.entrySet())
+		{
+			int[] ids = entry.getValue();
+			double[] values = sortedValues.get(entry.getKey());
+
+			int[] newIds = new int[Math.min(ids.length, subsetRows.length)];
+			double[] newValues = new double[newIds.length];
+			int size = 0;
+			for (int i = 0; i < ids.length; i++)
+			{
+				int newId = subsetIdOf[ids[i]];
+				if (newId >= 0)
+				{
+					newIds[size] = newId;
+					newValues[size] = values[i];
+					size++;
+				}
+			}
+
+			projectedIds.put(entry.getKey(), Arrays.copyOf(newIds, size));
+			projectedValues.put(entry.getKey(), Arrays.copyOf(newValues, size));
+		}
+
+		return new SortedIndex(subsetInstances, projectedIds, projectedValues);
+	}
+
+	/**
+	 * Generate all possible splits along a continuous attribute.  The 
+	 * instances are swept once in sorted order, accumulating the class 
+	 * weights at or below each threshold, so that the gain of every 
+	 * candidate threshold is computed in a single pass.
+	 * <br>
+	 * <br>
+	 * A threshold is placed between two adjacent distinct values if the 
+	 * higher value is held by instances of more than one class or if the 
+	 * two values are held by different sets of classes.  Splits are returned
+	 * in order of decreasing threshold.
+	 * 
+	 * @param attr the continuous attribute along which we wish to make the 
+	 * split
+	 * @param data the data set to be split
+	 * @param classLabels the class label of each instance, or -1 if missing
+	 * @param criterion the criterion scoring the splits
+	 * @return all splits along this continuous attribute
+	 */
+	@Override
+	List<Split> createSplitsContinuous(Attribute attr, 
+	                                   DataSet data,
+	                                   int[] classLabels,
+	                                   ImpurityCriterion criterion)
+	{
+		List<Split> contSplits = new ArrayList<Split>();
+		
+		InstanceSet instanceSet = data.getInstanceSet();
+		int[] ids = sortedIds.get(attr);
+		double[] values = sortedValues.get(attr);
+		int numClasses = data.getClassAttribute().getNominalValueMap().size();
+		
+		/*
+		 *  The class weights of all instances with a value
+		 */
+		double[] totalClassWeights = new double[numClasses];
+		for (int id : ids)
+		{
+			if (classLabels[id] >= 0)
+			{
+				totalClassWeights[classLabels[id]] += instanceSet.getWeight(id);
+			}
+		}
+		
+		/*
+		 *  Instances missing the value scale the gain by the fraction of the
+		 *  data set's weight held by the known instances
+		 */
+		int numMissing = instanceSet.size() - ids.length;
+		double totalWeight = numMissing > 0 ? SplitGenerator.getTotalClassWeight(data) 
+		                                    : 0.0;
+		
+		double[] belowClassWeights = new double[numClasses];
+		double[] groupClassWeights = new double[numClasses];
+		boolean[] groupClasses = new boolean[numClasses];
+		boolean[] prevGroupClasses = new boolean[numClasses];
+		boolean hasPrevGroup = false;
+		double prevValue = 0;
+		
+		/*
+		 *  Sweep over the groups of instances sharing a value.  Instances 
+		 *  missing the class do not place thresholds.
+		 */
+		int start = 0;
+		while (start < ids.length)
+		{
+			double value = values[start];
+			int end = start;
+			int numGroupClasses = 0;
+			boolean hasClass = false;
+			while (end < ids.length && Double.compare(values[end], value) == 0)
+			{
+				int label = classLabels[ids[end]];
+				if (label >= 0)
+				{
+					if (!groupClasses[label])
+					{
+						groupClasses[label] = true;
+						numGroupClasses++;
+					}
+					groupClassWeights[label] += instanceSet.getWeight(ids[end]);
+					hasClass = true;
+				}
+				end++;
+			}
+			
+			if (hasClass)
+			{
+				if (hasPrevGroup && 
+				    (numGroupClasses > 1 || 
+				     !Arrays.equals(groupClasses, prevGroupClasses)))
+				{
+					Split split = SplitGenerator.createSplitContinuous(attr, 
+					                                    (prevValue + value) / 2.0);
+					split.setGain(SplitGenerator.gain(criterion,
+					                                  belowClassWeights, 
+					                                  totalClassWeights, 
+					                                  numMissing > 0,
+					                                  totalWeight));
+					contSplits.add(split);
+				}
+				
+				for (int c = 0; c < numClasses; c++)
+				{
+					belowClassWeights[c] += groupClassWeights[c];
+					prevGroupClasses[c] = groupClasses[c];
+				}
+				hasPrevGroup = true;
+				prevValue = value;
+			}
+			
+			Arrays.fill(groupClassWeights, 0);
+			Arrays.fill(groupClasses, false);
+			start = end;
+		}
+		
+		Collections.reverse(contSplits);
+		return contSplits;
+	}
+	
+	/**
+	 * Generate all possible splits along a continuous attribute for a 
+	 * continuous class attribute.  The instances are swept once in sorted 
+	 * order, accumulating the moments of the class values at or below each
+	 * threshold, so that the variance reduction of every candidate threshold
+	 * is computed in a single pass.  A threshold is placed between every two
+	 * adjacent distinct values held by instances with a class value.  Splits
+	 * are returned in order of decreasing threshold.
+	 * 
+	 * @param attr the continuous attribute along which we wish to make the 
+	 * split
+	 * @param data the data set to be split
+	 * @param classValues the class value of each instance, or NaN if missing
+	 * @return all splits along this continuous attribute
+	 */
+	@Override
+	List<Split> createRegressionSplitsContinuous(Attribute attr,
+	                                             DataSet data,
+	                                             double[] classValues)
+	{
+		List<Split> contSplits = new ArrayList<Split>();
+		
+		InstanceSet instanceSet = data.getInstanceSet();
+		int[] ids = sortedIds.get(attr);
+		double[] values = sortedValues.get(attr);
+		
+		/*
+		 *  The moments of the class values of all instances with a value
+		 */
+		double[] totalMoments = new double[3];
+		for (int id : ids)
+		{
+			addMoments(totalMoments, classValues[id], instanceSet.getWeight(id));
+		}
+		
+		int numMissing = instanceSet.size() - ids.length;
+		double totalWeight = numMissing > 0 ? SplitGenerator.getTotalClassWeight(data) 
+		                                    : 0.0;
+		
+		double[] belowMoments = new double[3];
+		double[] groupMoments = new double[3];
+		boolean hasPrevGroup = false;
+		double prevValue = 0;
+		
+		/*
+		 *  Sweep over the groups of instances sharing a value
+		 */
+		int start = 0;
+		while (start < ids.length)
+		{
+			double value = values[start];
+			int end = start;
+			while (end < ids.length && Double.compare(values[end], value) == 0)
+			{
+				addMoments(groupMoments, classValues[ids[end]], instanceSet.getWeight(ids[end]));
+				end++;
+			}
+			
+			if (groupMoments[0] > 0)
+			{
+				if (hasPrevGroup)
+				{
+					Split split = SplitGenerator.createSplitContinuous(attr, 
+					                                    (prevValue + value) / 2.0);
+					split.setGain(SplitGenerator.varianceGain(belowMoments, 
+					                                          totalMoments, 
+					                                          numMissing > 0,
+					                                          totalWeight));
+					contSplits.add(split);
+				}
+				
+				for (int m = 0; m < 3; m++)
+				{
+					belowMoments[m] += groupMoments[m];
+				}
+				hasPrevGroup = true;
+				prevValue = value;
+			}
+			
+			Arrays.fill(groupMoments, 0);
+			start = end;
+		}
+		
+		Collections.reverse(contSplits);
+		return contSplits;
+	}
+	
+	/**
+	 * Add a weighted class value to a set of moments
+	 * 
+	 * @param moments the total weight, weighted sum and weighted sum of 
+	 * squares
+	 * @param classValue the class value, or NaN if missing
+	 * @param weight the weight of the instance
+	 */
+	private static void addMoments(double[] moments, double classValue, double weight)
+	{
+		if (!Double.isNaN(classValue))
+		{
+			moments[0] += weight;
+			moments[1] += weight * classValue;
+			moments[2] += weight * classValue * classValue;
+		}
+	}
+	
+	/**
+	 * Sort the instances by the value of an attribute
+	 *
+	 * @param attr the continuous attribute
+	 */
+	private void sortAttribute(Attribute attr)
+	{
+		List<Instance> instanceList = instances.getInstances();
+		ColumnStore store = instances.getColumnStore();
+		int col = store == null ? -1 : store.getColumnIndex(attr);
+
+		/*
+		 *  Gather the instances that have a value
+		 */
+		final double[] values = new double[instanceList.size()];
+		Integer[] ids = new Integer[instanceList.size()];
+		int size = 0;
+		for (int id = 0; id < values.length; id++)
+		{
+			if (col >= 0)
+			{
+				if (store.isMissing(id, col))
+				{
+					continue;
+				}
+				values[id] = store.getContinuous(id, col);
+			}
+			else
+			{
+				Double value = instanceList.get(id).getAttributeValue(attr);
+				if (value == null)
+				{
+					continue;
+				}
+				values[id] = value;
+			}
+			ids[size++] = id;
+		}
+
+		ids = Arrays.copyOf(ids, size);
+		Arrays.sort(ids, new Comparator<Integer>()
+		{
+			public int compare(Integer id1, Integer id2)
+			{
+				return Double.compare(values[id1], values[id2]);
+			}
+		});
+
+		int[] attrIds = new int[size];
+		double[] attrValues = new double[size];
+		for (int i = 0; i < size; i++)
+		{
+			attrIds[i] = ids[i];
+			attrValues[i] = values[ids[i]];
+		}
+
+		sortedIds.put(attr, attrIds);
+		sortedValues.put(attr, attrValues);
+	}
+}
@@ -30,7 +30,12 @@ public class Split
 	private Attribute attribute;
 	
 	/**
-	 *	The information gain on this split
+	 * Marks an instance missing the value of this split's attribute
+	 */
+	private static final int MISSING = -2;
+	
+	/**
+	 *	The gain of this split under the impurity criterion it was scored by
 	 */
 	private Double infoGain;
 	
@@ -54,14 +59,26 @@ public class Split
 	}
 	
 	/**
-	 * @return the information gain along this split for the dataset's
-	 * class attribute.
+	 * @return the gain along this split for the dataset's class attribute
+	 * under the impurity criterion it was scored by.  This is the 
+	 * information gain unless another criterion was given.
 	 */
 	public Double getInfoGain()
 	{
 		return infoGain;
 	}
 	
+	/**
+	 * Set the gain of this split when it was computed by a sweep over sorted
+	 * or binned values instead of by splitting the data
+	 * 
+	 * @param gain the gain along this split
+	 */
+	void setGain(double gain)
+	{
+		this.infoGain = gain;
+	}
+	
 	// TODO: REFACTOR THIS!
 	@Deprecated
 	public void setInfoGain(Double infoGain)
@@ -70,25 +87,215 @@ public class Split
 	}
 	
 	/**
-	 * Split a set of instances along this split.
+	 * Split a set of instances along this split.  Each branch receives a
+	 * subset view of the data set selecting the IDs of the instances that
+	 * make the branch.  No instances are copied.
+	 * <br>
+	 * <br>
+	 * Instances missing the value of this split's attribute are handled as 
+	 * in C4.5.  They are divided among all branches as fractional instances
+	 * weighted by the share of the known instances reaching each branch, and
+	 * the information gain is calculated over the known instances and 
+	 * scaled by the fraction of the data set's weight they hold.
+	 * <br>
+	 * <br>
+	 * If the class attribute is continuous, the split is scored by the 
+	 * reduction in the variance of the class values instead.
 	 * 
 	 * @param data the dataset containing the instances to be split
 	 */
 	public void splitInstances(DataSet data)
+	{
+		splitInstances(data, new EntropyCriterion());
+	}
+	
+	/**
+	 * Split a set of instances along this split, scoring it by an impurity
+	 * criterion rather than by information gain.
+	 * 
+	 * @param data the dataset containing the instances to be split
+	 * @param criterion the criterion scoring the split
+	 */
+	public void splitInstances(DataSet data, ImpurityCriterion criterion)
+	{
+		partition(data, true, criterion);
+	}
+	
+	/**
+	 * Calculate the information gain of this split without splitting the 
+	 * instances.  The gain is the same as calculated by 
+	 * {@link #splitInstances(DataSet)}, but the branches receive no data.
+	 * 
+	 * @param data the dataset containing the instances to be split
+	 */
+	public void evaluate(DataSet data)
+	{
+		evaluate(data, new EntropyCriterion());
+	}
+	
+	/**
+	 * Score this split by an impurity criterion without splitting the 
+	 * instances.  Only the class weights of each branch are counted.
+	 * 
+	 * @param data the dataset containing the instances to be split
+	 * @param criterion the criterion scoring the split
+	 */
+	public void evaluate(DataSet data, ImpurityCriterion criterion)
+	{
+		partition(data, false, criterion);
+	}
+	
+	/**
+	 * Find the branch of each instance and calculate the gain of this split
+	 * 
+	 * @param data the dataset containing the instances to be split
+	 * @param materialize whether to give each branch its subset of the data
+	 * @param criterion the criterion scoring the split
+	 */
+	private void partition(DataSet data, 
+	                       boolean materialize, 
+	                       ImpurityCriterion criterion)
     {
-	    InstanceSet instances = data.getInstanceSet();
+	    InstanceSet instanceSet = data.getInstanceSet();
+	    List<Instance> instances = instanceSet.getInstances();
+	    int numInstances = instances.size();
+	    Attribute classAttr = data.getClassAttribute();
+	    boolean regression = classAttr.getType() == Attribute.Type.CONTINUOUS;
 	    
-        for (Instance instance : instances.getInstances())
+	    /*
+	     *  Find the branch made by each instance, the size of each branch and
+	     *  the class weights of the instances with a known value.  For a
+	     *  continuous class the moments of the class values are gathered 
+	     *  instead.
+	     */
+	    int[] branchOfInstance = new int[numInstances];
+	    int[] branchSizes = new int[branches.size()];
+	    double[][] branchClassWeights = new double[branches.size()]
+	            [regression ? 3 : classAttr.getNominalValueMap().size()];
+	    int numMissing = 0;
+        for (int id = 0; id < numInstances; id++)
+        {
+            Instance instance = instances.get(id);
+            Double value = instance.getAttributeValue(attribute);
+            if (value == null)
+            {
+                branchOfInstance[id] = MISSING;
+                numMissing++;
+                continue;
+            }
+            
+            branchOfInstance[id] = -1;
+            for (int b = 0; b < branches.size(); b++)
+            {
+                if (branches.get(b).doesValueMakeSplit(value))
+                {
+                    branchOfInstance[id] = b;
+                    branchSizes[b]++;
+                    
+                    Double classValue = instance.getAttributeValue(classAttr);
+                    if (classValue != null)
+                    {
+                        double weight = instanceSet.getWeight(id);
+                        if (regression)
+                        {
+                            branchClassWeights[b][0] += weight;
+                            branchClassWeights[b][1] += weight * classValue;
+                            branchClassWeights[b][2] += weight * classValue * classValue;
+                        }
+                        else
+                        {
+                            branchClassWeights[b][classValue.intValue()] += weight;
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        
+        /*
+         *  The weight of the known instances in each branch and overall
+         */
+        double[] knownClassWeights = new double[branchClassWeights[0].length];
+        double[] branchWeights = new double[branches.size()];
+        double knownWeight = 0;
+        for (int b = 0; b < branches.size(); b++)
         {
-            for (SplitBranch branch : this.branches)
+            for (int c = 0; c < knownClassWeights.length; c++)
+            {
+                knownClassWeights[c] += branchClassWeights[b][c];
+                if (!regression)
+                {
+                    branchWeights[b] += branchClassWeights[b][c];
+                }
+            }
+            if (regression)
             {
-                branch.tryAddInstance(instance);
+                branchWeights[b] = branchClassWeights[b][0];
             }
+            knownWeight += branchWeights[b];
         }
         
-       this.infoGain = Entropy.informationGain(data, this);
+        /*
+         *  Gather the instance IDs of each branch, in increasing order.  
+         *  Instances with a missing value go to every branch.
+         */
+        if (materialize)
+        {
+            boolean weighted = numMissing > 0 || instanceSet.getWeights() != null;
+            for (int b = 0; b < branches.size(); b++)
+            {
+                double share = knownWeight > 0 ? branchWeights[b] / knownWeight 
+                                               : 1.0 / branches.size();
+                
+                int[] ids = new int[branchSizes[b] + numMissing];
+                double[] weights = weighted ? new double[ids.length] : null;
+                int size = 0;
+                for (int id = 0; id < numInstances; id++)
+                {
+                    if (branchOfInstance[id] == b || branchOfInstance[id] == MISSING)
+                    {
+                        if (weighted)
+                        {
+                            weights[size] = instanceSet.getWeight(id) * 
+                                    (branchOfInstance[id] == MISSING ? share : 1.0);
+                        }
+                        ids[size++] = id;
+                    }
+                }
+                
+                branches.get(b).setData(data.subset(ids, weights));
+            }
+        }
+        
+        /*
+         *  Gain over the known instances, scaled by their fraction of the 
+         *  data set's weight.  A continuous class is scored by its variance
+         *  reduction.
+         */
+        if (regression)
+        {
+            this.infoGain = Variance.varianceReduction(knownClassWeights, branchClassWeights);
+        }
+        else
+        {
+            this.infoGain = criterion.gain(knownClassWeights, branchClassWeights);
+        }
+        if (numMissing > 0)
+        {
+            double totalWeight = SplitGenerator.getTotalClassWeight(data);
+            this.infoGain *= totalWeight > 0 ? knownWeight / totalWeight : 0.0;
+        }
     }
 	
+	/**
+	 * @return true if the instances have been split along this split and 
+	 * each branch holds its subset of the data
+	 */
+	public boolean isSplit()
+	{
+		return !branches.isEmpty() && branches.get(0).getData() != null;
+	}
+	
 	/**
 	 * @return each branch along this split
 	 */
@@ -2,6 +2,7 @@ package tree.train;
 
 import tree.DtNode;
 import data.Attribute;
+import data.DataSet;
 import data.Instance;
 import data.InstanceSet;
 
@@ -34,9 +35,10 @@ public class SplitBranch
 	private Attribute attribute;
 	
 	/**
-	 * All instances that fall to this branch
+	 * A subset view of the split data set holding all instances that fall to
+	 * this branch.  This is null until the split's instances are split.
 	 */
-	private InstanceSet instanceSet;
+	private DataSet data;
 		
 	/**
 	 * Constructor 
@@ -51,7 +53,7 @@ public class SplitBranch
 	                      Double branchValue, 
 	                      DtNode.Relation relation)
 	{
-		this.instanceSet = new InstanceSet();
+		this.data = null;
 		this.attribute = attribute;
 		this.branchValue = branchValue;
 		this.relation = relation;
@@ -62,21 +64,26 @@ public class SplitBranch
 	 */
 	public InstanceSet getInstanceSet()
 	{
-		return instanceSet;
+		return data.getInstanceSet();
 	}
 	
 	/**
-	 * Attempt to add an instance to the this split branch.  The instance is only
-	 * add if it passes this branches test.
-	 * 
-	 * @param instance
+	 * @return a subset view of the split data set holding the instances that
+	 * have made this branch.  Its class counts are calculated on first use
+	 * and cached.
 	 */
-	public void tryAddInstance(Instance instance)
-	{		
-		if (this.doesInstanceMakeSplit(instance))
-		{
-			instanceSet.addInstance(instance);
-		}
+	public DataSet getData()
+	{
+		return data;
+	}
+	
+	/**
+	 * @param data a subset view of the split data set holding the instances
+	 * that have made this branch
+	 */
+	protected void setData(DataSet data)
+	{
+		this.data = data;
 	}
 	
 	/**
@@ -113,15 +120,35 @@ public class SplitBranch
 	public Boolean doesInstanceMakeSplit(Instance instance)
 	{		
 		Double instanceAttrValue = instance.getAttributeValue(this.attribute);
-				
+		
+		/*
+		 *  An instance missing the value makes no single branch
+		 */
+		if (instanceAttrValue == null)
+		{
+			return false;
+		}
+		
+		return doesValueMakeSplit(instanceAttrValue);
+	}
+	
+	/**
+	 * Tests whether a value of this branch's attribute makes this split 
+	 * branch
+	 * 
+	 * @param value the value of the attribute
+	 * @return true if the value makes the split branch. False otherwise.
+	 */
+	public boolean doesValueMakeSplit(double value)
+	{
 		switch(this.relation)
 		{
 		case EQUALS:
-			return (instanceAttrValue.doubleValue() == branchValue.doubleValue());
+			return (value == branchValue.doubleValue());
 		case GREATER_THAN:
-			return (instanceAttrValue.doubleValue() > branchValue.doubleValue());
+			return (value > branchValue.doubleValue());
 		case LESS_THAN_EQUAL_TO:
-			return (instanceAttrValue.doubleValue() <= branchValue.doubleValue());
+			return (value <= branchValue.doubleValue());
 		default:
 			throw new RuntimeException("Error testing instance in branch.  " +
 					"This branch's relation is not set to a valid relation.");
@@ -3,9 +3,10 @@ package tree.train;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import tree.DtNode;
 
@@ -25,39 +26,206 @@ public class SplitGenerator
 	/**
 	 * Generate all possible splits along a set of attribute
 	 * 
-	 * @param attrId the attribute ID of the attribute we wish to split on
+	 * @param data the data set to be split
+	 * @param availAttrs the attributes we wish to split on
 	 * @return a list of Splits
 	 */
 	public static List<Split> generateSplits(DataSet data, 
 	                                              List<Attribute> availAttrs)
 	{
-		List<Split> splits = new ArrayList<Split>();
-		
+		return generateSplits(data, availAttrs, null);
+	}
+	
+	/**
+	 * Generate all possible splits along a set of attributes.  Each split is
+	 * evaluated without splitting any instances; only its information gain 
+	 * is set, and {@link Split#splitInstances(DataSet)} must be called on the
+	 * split that is chosen.  Splits along continuous attributes are 
+	 * evaluated from the split index.
+	 * 
+	 * @param data the data set to be split
+	 * @param availAttrs the attributes we wish to split on
+	 * @param index the split index of the data set.  If null or not an index 
+	 * of the data set, the data set is sorted here.
+	 * @return a list of Splits
+	 */
+	public static List<Split> generateSplits(DataSet data, 
+	                                         List<Attribute> availAttrs,
+	                                         SplitIndex index)
+	{
+		return generateSplits(data, availAttrs, index, null);
+	}
+	
+	/**
+	 * Generate all possible splits along a set of attributes, evaluating the
+	 * splits along each attribute as a separate task on a fork-join pool.  
+	 * The splits are returned in the same order as a serial generation.
+	 * 
+	 * @param data the data set to be split
+	 * @param availAttrs the attributes we wish to split on
+	 * @param index the split index of the data set.  If null or not an index 
+	 * of the data set, the data set is sorted here.
+	 * @param pool the pool evaluating the attributes, or null to evaluate 
+	 * them serially
+	 * @return a list of Splits
+	 */
+	public static List<Split> generateSplits(DataSet data, 
+	                                         List<Attribute> availAttrs,
+	                                         SplitIndex index,
+	                                         ForkJoinPool pool)
+	{
+		return generateSplits(data, availAttrs, index, pool, new EntropyCriterion());
+	}
+	
+	/**
+	 * Generate all possible splits along a set of attributes, scoring each 
+	 * split by an impurity criterion.  The splits of each attribute are 
+	 * scored from the class weights of their branches alone, which are 
+	 * accumulated in a single pass over the instances.  If the class 
+	 * attribute is continuous, the splits are scored by the reduction in the 
+	 * variance of the class values instead.
+	 * 
+	 * @param data the data set to be split
+	 * @param availAttrs the attributes we wish to split on
+	 * @param index the split index of the data set.  If null or not an index 
+	 * of the data set, the data set is sorted here.
+	 * @param pool the pool evaluating the attributes, or null to evaluate 
+	 * them serially
+	 * @param criterion the criterion scoring the splits of a nominal class
+	 * attribute
+	 * @return a list of Splits
+	 */
+	public static List<Split> generateSplits(final DataSet data, 
+	                                         List<Attribute> availAttrs,
+	                                         SplitIndex index,
+	                                         ForkJoinPool pool,
+	                                         final ImpurityCriterion criterion)
+	{
+		/*
+		 *  Prepare the state shared by all attributes before any are 
+		 *  evaluated 
+		 */
+		boolean regression = data.getClassAttribute().getType() == Attribute.Type.CONTINUOUS;
+		int[] classLabels = null;
+		double[] classValues = null;
 		for (Attribute currAttr : availAttrs)
-		{	
-			if (currAttr.getType() == Attribute.Type.NOMINAL)
+		{
+			if (currAttr.getType() == Attribute.Type.CONTINUOUS)
+			{
+				if (index == null || !index.isIndexOf(data))
+				{
+					index = new SortedIndex(data);
+				}
+				if (regression)
+				{
+					classValues = getClassValues(data);
+				}
+				else
+				{
+					classLabels = getClassLabels(data);
+				}
+				break;
+			}
+		}
+		getTotalClassWeight(data);
+		
+		if (pool == null || availAttrs.size() < 2)
+		{
+			List<Split> splits = new ArrayList<Split>();
+			for (Attribute currAttr : availAttrs)
 			{
-				Split nominalSplit = createSplitNominal(currAttr);
-				nominalSplit.splitInstances(data);
-				splits.add(nominalSplit);
+				splits.addAll(createSplits(currAttr, data, index, classLabels, 
+				                           classValues, criterion));
 			}
-			else if (currAttr.getType() == Attribute.Type.CONTINUOUS)
+			return splits;
+		}
+		
+		final SplitIndex splitIndex = index;
+		final int[] labels = classLabels;
+		final double[] values = classValues;
+		final List<RecursiveTask<List<Split>>> tasks = new ArrayList<>();
+		for (final Attribute currAttr : availAttrs)
+		{
+			tasks.add(new RecursiveTask<List<Split>>()
 			{
-				/*
-				 *  Create all possible splits along the continuous attribute 
-				 */
-				ArrayList<Split> allContinuousSplits  
-				                    = createSplitsContinuous(currAttr, data);
-				for (Split split : allContinuousSplits)
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected List<Split> compute()
 				{
-					split.splitInstances(data);
-					splits.add(split);
+					return createSplits(currAttr, data, splitIndex, labels, values, criterion);
 				}
-			}
-			
+			});
 		}
 		
-		return splits;
+		RecursiveTask<List<Split>> allTasks = new RecursiveTask<List<Split>>()
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected List<Split> compute()
+			{
+				ForkJoinTask.invokeAll(tasks);
+				
+				List<Split> splits = new ArrayList<Split>();
+				for (RecursiveTask<List<Split>> task : tasks)
+				{
+					splits.addAll(task.join());
+				}
+				return splits;
+			}
+		};
+		
+		/*
+		 *  Join the pool's work if already running in it, as when subtrees
+		 *  are built in parallel
+		 */
+		if (ForkJoinTask.getPool() == pool)
+		{
+			return allTasks.invoke();
+		}
+		return pool.invoke(allTasks);
+	}
+	
+	/**
+	 * Generate and evaluate all possible splits along one attribute
+	 * 
+	 * @param attr the attribute
+	 * @param data the data set to be split
+	 * @param index the split index of the data set
+	 * @param classLabels the class label of each instance, or -1 if missing.
+	 * Null for a continuous class attribute.
+	 * @param classValues the value of the continuous class attribute of each
+	 * instance, or NaN if missing.  Null for a nominal class attribute.
+	 * @param criterion the criterion scoring the splits
+	 * @return the splits along the attribute
+	 */
+	private static List<Split> createSplits(Attribute attr,
+	                                        DataSet data,
+	                                        SplitIndex index,
+	                                        int[] classLabels,
+	                                        double[] classValues,
+	                                        ImpurityCriterion criterion)
+	{
+		if (attr.getType() == Attribute.Type.NOMINAL)
+		{
+			Split nominalSplit = createSplitNominal(attr);
+			nominalSplit.evaluate(data, criterion);
+			return Collections.singletonList(nominalSplit);
+		}
+		else if (attr.getType() == Attribute.Type.CONTINUOUS)
+		{
+			/*
+			 *  Create and evaluate all possible splits along the continuous
+			 *  attribute 
+			 */
+			if (classValues != null)
+			{
+				return index.createRegressionSplitsContinuous(attr, data, classValues);
+			}
+			return index.createSplitsContinuous(attr, data, classLabels, criterion);
+		}
+		return Collections.emptyList();
 	}
 	
 	/**
@@ -82,121 +250,150 @@ public class SplitGenerator
 	}
 	
 	/**
-	 * A helper method for generating all possible splits along a continuous 
-	 * attribute
+	 * Create a binary split at a threshold of a continuous attribute
 	 * 
-	 * @param attr the continuous attribute along which we wish to make the 
-	 * split
-	 * @return all splits along this continuous attribute
+	 * @param attr the continuous attribute
+	 * @param splitValue the threshold
+	 * @return the split
 	 */
-	private static ArrayList<Split> createSplitsContinuous(Attribute attr, 
-	                                                       DataSet data)
+	static Split createSplitContinuous(Attribute attr, double splitValue)
 	{
-		ArrayList<Split> contSplits = new ArrayList<Split>();
-		
-		Map<Double, Bin> bins = new HashMap<Double, Bin>();
-		
-		/*
-		 * Bin instances by their attribute value.  We create one bin per unique
-		 * continuous value of this attribute.
-		 */ 
-		for (Instance instance : data.getInstanceSet().getInstances())
-		{
-			double value = instance.getAttributeValue(attr);
-			Attribute classAttr = data.getClassAttribute();
-			Integer instanceClassLabel = instance.getAttributeValue(classAttr).intValue();
-			
-			if (bins.containsKey(value))
-			{
-				bins.get(value).includeInstance(instanceClassLabel);
-			}
-			else
-			{
-				Double binValue = instance.getAttributeValue(attr);
-				Bin newBin = new Bin(binValue);
-				newBin.includeInstance(instanceClassLabel);
-				bins.put(binValue, newBin);
-			}
+		Split split = new Split(attr);
+		SplitBranch leftBranch = new SplitBranch(attr, 
+		                                         new Double(splitValue), 
+		                                         DtNode.Relation.LESS_THAN_EQUAL_TO);
+		SplitBranch rightBranch = new SplitBranch(attr, 
+		                                          new Double(splitValue), 
+		                                          DtNode.Relation.GREATER_THAN);
+		split.addBranch(leftBranch);
+		split.addBranch(rightBranch);
+		return split;
+	}
+	
+	/**
+	 * Compute the gain of a binary split from the class weights of the known
+	 * instances below the threshold.  This matches the gain computed by 
+	 * {@link Split#splitInstances(DataSet, ImpurityCriterion)}.
+	 * 
+	 * @param criterion the criterion scoring the split
+	 * @param belowClassWeights the class weights at or below the threshold
+	 * @param totalClassWeights the class weights of all known instances
+	 * @param hasMissing whether any instance is missing the attribute's value
+	 * @param totalWeight the class weight of the whole data set
+	 * @return the gain of the split
+	 */
+	static double gain(ImpurityCriterion criterion,
+	                   double[] belowClassWeights,
+	                   double[] totalClassWeights,
+	                   boolean hasMissing,
+	                   double totalWeight)
+	{
+		int numClasses = totalClassWeights.length;
+		double[][] branchClassWeights = new double[2][numClasses];
+		double[] knownClassWeights = new double[numClasses];
+		double knownWeight = 0;
+		for (int c = 0; c < numClasses; c++)
+		{
+			branchClassWeights[0][c] = belowClassWeights[c];
+			branchClassWeights[1][c] = totalClassWeights[c] - belowClassWeights[c];
+			knownClassWeights[c] = branchClassWeights[0][c] + branchClassWeights[1][c];
+			knownWeight += knownClassWeights[c];
 		}
 		
-		List<Bin> binList = new ArrayList<Bin>(bins.values());
-		Collections.sort(binList, Bin.BIN_ORDER);
-		
-		for (int i = 0; i < binList.size() - 1; i++)
+		double gain = criterion.gain(knownClassWeights, branchClassWeights);
+		if (hasMissing)
 		{
-			boolean generateSplit = false;
-			
-			/*
-			 *  Determine if there exists a pair of instances (i1, i2) where i1
-			 *  is in bin1, i2 is in bin2, and i1's class does not equal i2's 
-			 *  class
-			 */
-			if (binList.get(i).getExistenceMap().size() > 1)
-			{
-				generateSplit = true;
-			}
-			else if (!binsHaveSameClasses(binList.get(i), binList.get(i+1)))
-			{
-				generateSplit = true;
-			}
-			
-			/*
-			 *  If we have found such a pair of instances between the two bins, 
-			 *  generate a candidate split
-			 */
-			if (generateSplit)
-			{
-				double splitValue = (binList.get(i).getValue() + 
-				                     binList.get(i+1).getValue()) / 2.0;
-								
-				Split split = new Split(attr);
-				SplitBranch leftBranch = new SplitBranch(attr, 
-				                                         new Double(splitValue), 
-				                                         DtNode.Relation.LESS_THAN_EQUAL_TO);
-				SplitBranch rightBranch = new SplitBranch(attr, 
-				                                          new Double(splitValue), 
-				                                          DtNode.Relation.GREATER_THAN);
-				split.addBranch(leftBranch);
-				split.addBranch(rightBranch);
-				
-				contSplits.add(split);
-			}
+			gain *= totalWeight > 0 ? knownWeight / totalWeight : 0.0;
+		}
+		return gain;
+	}
+	
+	/**
+	 * Compute the variance reduction of a binary split from the moments of 
+	 * the class values of the known instances below the threshold.  This 
+	 * matches the gain computed by {@link Split#splitInstances(DataSet)} 
+	 * for a continuous class attribute.
+	 * 
+	 * @param belowMoments the class moments at or below the threshold
+	 * @param totalMoments the class moments of all known instances
+	 * @param hasMissing whether any instance is missing the attribute's value
+	 * @param totalWeight the class weight of the whole data set
+	 * @return the variance reduction
+	 */
+	static double varianceGain(double[] belowMoments,
+	                           double[] totalMoments,
+	                           boolean hasMissing,
+	                           double totalWeight)
+	{
+		double[][] branchMoments = new double[2][3];
+		for (int m = 0; m < 3; m++)
+		{
+			branchMoments[0][m] = belowMoments[m];
+			branchMoments[1][m] = totalMoments[m] - belowMoments[m];
 		}
 		
+		double gain = Variance.varianceReduction(totalMoments, branchMoments);
+		if (hasMissing)
+		{
+			gain *= totalWeight > 0 ? totalMoments[0] / totalWeight : 0.0;
+		}
+		return gain;
+	}
+	
+	/**
+	 * @param data the data set
+	 * @return the total weight of the instances with a class value
+	 */
+	static double getTotalClassWeight(DataSet data)
+	{
+		if (data.getClassAttribute().getType() == Attribute.Type.CONTINUOUS)
+		{
+			return data.getClassMoments()[0];
+		}
 		
-		return contSplits;
+		double totalWeight = 0;
+		for (double weight : data.getClassWeights())
+		{
+			totalWeight += weight;
+		}
+		return totalWeight;
 	}
 	
 	/**
-	 * Determines if two bins' existence maps are equal.  That is, if two
-	 * bins have the same set of class attribute values represented in their
-	 * bins, this method returns true.  
-	 * 
-	 * @param bin1 the first bin
-	 * @param bin2 the second bin
-	 * @return return true if the two bins have the same set of class attribute 
-	 * values represented in their bins.  Otherwise, return false.
+	 * @param data the data set
+	 * @return the value of the continuous class attribute of each instance,
+	 * or NaN if the instance is missing its class
 	 */
-	private static boolean binsHaveSameClasses(Bin bin1, Bin bin2)
+	private static double[] getClassValues(DataSet data)
 	{
-		Map<Integer, Boolean> map1 = bin1.getExistenceMap();
-		Map<Integer, Boolean> map2 = bin2.getExistenceMap();
+		Attribute classAttr = data.getClassAttribute();
+		List<Instance> instances = data.getInstanceSet().getInstances();
 		
-		if (map1.size() != map2.size())
+		double[] classValues = new double[instances.size()];
+		for (int id = 0; id < classValues.length; id++)
 		{
-			return false;
+			Double classValue = instances.get(id).getAttributeValue(classAttr);
+			classValues[id] = classValue == null ? Double.NaN : classValue;
 		}
-		else
+		return classValues;
+	}
+	
+	/**
+	 * @param data the data set
+	 * @return the nominal value ID of the class of each instance, or -1 if
+	 * the instance is missing its class
+	 */
+	private static int[] getClassLabels(DataSet data)
+	{
+		Attribute classAttr = data.getClassAttribute();
+		List<Instance> instances = data.getInstanceSet().getInstances();
+		
+		int[] classLabels = new int[instances.size()];
+		for (int id = 0; id < classLabels.length; id++)
 		{
-			for (Integer key : map1.keySet())
-			{
-				if (map1.get(key) != map2.get(key))
-				{
-					return false;
-				}
-			}
-			
-			return true;
+			Double classValue = instances.get(id).getAttributeValue(classAttr);
+			classLabels[id] = classValue == null ? -1 : classValue.intValue();
 		}
+		return classLabels;
 	}
 }
@@ -0,0 +1,67 @@
+package tree.train;
+
+import java.util.List;
+
+import data.Attribute;
+import data.DataSet;
+
+/**
+ * An index of the instances of a data set that speeds up the search for 
+ * splits along continuous attributes.  The index is built once for the 
+ * training set and projected onto the data of each branch down the tree.
+ *
+ */
+public abstract class SplitIndex
+{
+	/**
+	 * @param data a data set
+	 * @return true if this index indexes the instances of the data set
+	 */
+	public abstract boolean isIndexOf(DataSet data);
+	
+	/**
+	 * Project this index onto the data of each branch of a split of the 
+	 * indexed data set.
+	 * 
+	 * @param subsets the data of each branch, which together hold all of 
+	 * the indexed instances
+	 * @return the index of each branch's data, in branch order
+	 */
+	public abstract List<SplitIndex> project(List<DataSet> subsets);
+	
+	/**
+	 * Generate and evaluate all possible splits along a continuous attribute.
+	 * The splits are not split, only their gain under the criterion is set.
+	 * Splits are returned in order of decreasing threshold.
+	 * 
+	 * @param attr the continuous attribute
+	 * @param data the indexed data set
+	 * @param classLabels the class label of each instance, or -1 if missing
+	 * @param criterion the criterion scoring the splits
+	 * @return all splits along the attribute
+	 */
+	abstract List<Split> createSplitsContinuous(Attribute attr, 
+	                                            DataSet data, 
+	                                            int[] classLabels,
+	                                            ImpurityCriterion criterion);
+	
+	/**
+	 * Generate and evaluate all possible splits along a continuous attribute
+	 * for a continuous class attribute.  The splits are scored by the 
+	 * reduction in the variance of the class values.  Splits are returned 
+	 * in order of decreasing threshold.  Indices that cannot search for
+	 * regression splits throw an exception.
+	 * 
+	 * @param attr the continuous attribute
+	 * @param data the indexed data set
+	 * @param classValues the class value of each instance, or NaN if missing
+	 * @return all splits along the attribute
+	 */
+	List<Split> createRegressionSplitsContinuous(Attribute attr,
+	                                             DataSet data,
+	                                             double[] classValues)
+	{
+		throw new RuntimeException("Error generating splits. The split " +
+				"index does not support a continuous class attribute.");
+	}
+}
@@ -0,0 +1,97 @@
+package tree.train;
+
+/**
+ * Used for calculating the variance reduction of splits in a regression 
+ * tree.  The values of a continuous class attribute reaching a node are 
+ * summarized by their moments: the total weight, the weighted sum and the
+ * weighted sum of squares of the values.  Moments are additive, so the 
+ * moments of every branch are accumulated in a single pass.
+ *
+ */
+public class Variance
+{
+	/**
+	 * The variance, relative to the squared mean plus one, at or below which
+	 * the class values are treated as constant.  Computing the variance as
+	 * E[Y^2] - E[Y]^2 leaves rounding noise of about this size.
+	 */
+	public static final double RELATIVE_TOLERANCE = 1e-12;
+	
+	/**
+	 * Calculate the variance of the class attribute from its moments
+	 * 
+	 * @param moments the total weight, weighted sum and weighted sum of 
+	 * squares of the class values
+	 * @return the weighted variance of the class values
+	 */
+	public static double variance(double[] moments)
+	{
+		if (moments[0] <= 0)
+		{
+			return 0.0;
+		}
+		
+		double mean = moments[1] / moments[0];
+		double variance = moments[2] / moments[0] - mean * mean;
+		
+		/*
+		 *  Rounding may leave a constant set of values with a slightly 
+		 *  negative variance
+		 */
+		return Math.max(variance, 0.0);
+	}
+	
+	/**
+	 * Calculate the variance below which a variance or variance reduction
+	 * of the class attribute cannot be told apart from rounding noise
+	 * 
+	 * @param moments the total weight, weighted sum and weighted sum of 
+	 * squares of the class values
+	 * @return the tolerance
+	 */
+	public static double tolerance(double[] moments)
+	{
+		double mean = moments[0] > 0 ? moments[1] / moments[0] : 0.0;
+		return RELATIVE_TOLERANCE * (mean * mean + 1);
+	}
+	
+	/**
+	 * @param moments the total weight, weighted sum and weighted sum of 
+	 * squares of the class values
+	 * @return true if the class values are constant up to rounding noise
+	 */
+	public static boolean isConstant(double[] moments)
+	{
+		return variance(moments) <= tolerance(moments);
+	}
+	
+	/**
+	 * Calculate the reduction in the variance of the class attribute from
+	 * splitting the instances into branches.  This is
+	 * <br>
+	 * <br>
+	 * Var(Y) - sum (w_b / w) Var(Y | b)
+	 * <br>
+	 * <br>
+	 * where w_b is the weight of the instances reaching branch b.
+	 * 
+	 * @param moments the moments of the class values over all branches
+	 * @param branchMoments the moments of the class values in each branch
+	 * @return the variance reduction
+	 */
+	public static double varianceReduction(double[] moments, double[][] branchMoments)
+	{
+		if (moments[0] <= 0)
+		{
+			return 0.0;
+		}
+		
+		double conditionalVariance = 0;
+		for (double[] branch : branchMoments)
+		{
+			conditionalVariance += (branch[0] / moments[0]) * variance(branch);
+		}
+		
+		return variance(moments) - conditionalVariance;
+	}
+}
@@ -0,0 +1,124 @@
+package bayes;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class BNStructureTest
+{
+    /**
+     * Search the graph for a directed path of one or more edges
+     */
+    private static boolean isReachable(BNNode from, BNNode to)
+    {
+        Set<BNNode> visited = new HashSet<BNNode>();
+        Deque<BNNode> stack = new ArrayDeque<BNNode>(from.getChildren());
+        while (!stack.isEmpty())
+        {
+            BNNode node = stack.pop();
+            if (node.equals(to))
+            {
+                return true;
+            }
+            if (visited.add(node))
+            {
+                stack.addAll(node.getChildren());
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void test_edgeValidityMatchesGraphSearch()
+    {
+        final int numNodes = 8;
+        SyntheticDataBuilder builder = new SyntheticDataBuilder();
+        for (int i = 0; i < numNodes; i++)
+        {
+            builder.addNominal("N" + i, "v0", "v1");
+        }
+
+        Random rand = new Random(13);
+        DataSet data = builder.build(50, rand, new SyntheticDataBuilder.RowGenerator()
+        {
+            @Override
+            public void generate(int r, Random random, double[] values)
+            {
+                for (int col = 0; col < numNodes; col++)
+                {
+                    values[col] = random.nextInt(2);
+                }
+            }
+        });
+
+        BNStructure structure = new BNStructure();
+        List<BNNode> nodes = new ArrayList<BNNode>();
+        for (int i = 0; i < numNodes; i++)
+        {
+            BNNode node = new BNNode(data.getAttributeByName("N" + i));
+            structure.addNode(node, data, 1);
+            nodes.add(node);
+        }
+
+        for (int step = 0; step < 300; step++)
+        {
+            BNNode parent = nodes.get(rand.nextInt(numNodes));
+            BNNode child = nodes.get(rand.nextInt(numNodes));
+
+            /*
+             *  Validity agrees with searching the graph
+             */
+            for (BNNode from : nodes)
+            {
+                for (BNNode to : nodes)
+                {
+                    assertEquals(isReachable(from, to), structure.pathExists(from, to));
+
+                    boolean exists = structure.edgeExists(from, to);
+                    assertEquals(!exists && !from.equals(to) && !isReachable(to, from),
+                                 structure.isValidEdge(from, to));
+
+                    boolean reverseValid = false;
+                    if (exists)
+                    {
+                        structure.removeEdge(from, to, data, 1);
+                        reverseValid = !isReachable(from, to);
+                        structure.createEdge(from, to, data, 1);
+                    }
+                    assertEquals(reverseValid, structure.isValidReverseEdge(from, to));
+                }
+            }
+
+            /*
+             *  Apply a random valid operation
+             */
+            if (structure.edgeExists(parent, child))
+            {
+                if (rand.nextBoolean() && structure.isValidReverseEdge(parent, child))
+                {
+                    structure.reverseEdge(parent, child, data, 1);
+                }
+                else
+                {
+                    structure.removeEdge(parent, child, data, 1);
+                }
+            }
+            else if (structure.isValidEdge(parent, child))
+            {
+                structure.createEdge(parent, child, data, 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package bayes.cpd;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import data.Attribute;
+import data.AttributeSet;
+
+
+public class CPDQueryTest
+{
+    private static Attribute createAttribute(String name)
+    {
+        return new Attribute(name, Attribute.Type.NOMINAL, new String[] {"a", "b", "c"});
+    }
+
+    @Test
+    public void test_attributesWithoutOwnOrdinal()
+    {
+        Attribute first = createAttribute("First");
+        Attribute second = createAttribute("Second");
+        Attribute fresh = createAttribute("Fresh");
+        new AttributeSet(ImmutableList.of(first));
+        new AttributeSet(ImmutableList.of(second));
+
+        /*
+         *  second has the same ordinal as first, and fresh has no ordinal
+         */
+        CPDQuery query = new CPDQuery();
+        query.addQueryItem(first, 1);
+        query.addQueryItem(second, 2);
+        query.addQueryItem(fresh, 0);
+
+        assertEquals(1, query.getValue(first));
+        assertEquals(2, query.getValue(second));
+        assertEquals(Integer.valueOf(0), query.getValueForQueryAttribute(fresh));
+        assertEquals("CPD(First = b, Second = c, Fresh = a)", query.toString());
+
+        query.addQueryItem(second, 0);
+        assertEquals(0, query.getValue(second));
+        assertEquals(1, query.getValue(createAttribute("First")));
+        assertFalse(query.containsAttribute(createAttribute("Missing")));
+    }
+}
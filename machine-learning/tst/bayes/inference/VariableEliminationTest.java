@@ -0,0 +1,153 @@
+package bayes.inference;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bayes.BNConditionalQuery;
+import bayes.BNJointQuery;
+import bayes.BNNode;
+import bayes.BayesianNetwork;
+import bayes.cpd.CPDQuery;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class VariableEliminationTest
+{
+    /**
+     * Build a network A -> B, A -> C, B -> D, C -> D, D -> E with random
+     * data
+     */
+    private static BayesianNetwork createNetwork(List<BNNode> nodes)
+    {
+        DataSet data = new SyntheticDataBuilder()
+                .addNominal("A", "x", "y")
+                .addNominal("B", "x", "y", "z")
+                .addNominal("C", "x", "y")
+                .addNominal("D", "x", "y")
+                .addNominal("E", "x", "y")
+                .build(200, new Random(17), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int r, Random rand, double[] values)
+                    {
+                        int a = rand.nextInt(2);
+                        int b = rand.nextInt(4) == 0 ? rand.nextInt(3) : a;
+                        int c = rand.nextInt(3) == 0 ? 1 - a : a;
+                        int d = rand.nextInt(5) == 0 ? rand.nextInt(2) : (b + c) % 2;
+                        values[0] = a;
+                        values[1] = b;
+                        values[2] = c;
+                        values[3] = d;
+                        values[4] = rand.nextInt(4) == 0 ? 1 - d : d;
+                    }
+                });
+
+        BayesianNetwork net = new BayesianNetwork();
+        for (String name : new String[] {"A", "B", "C", "D", "E"})
+        {
+            BNNode node = new BNNode(data.getAttributeByName(name));
+            net.addNode(node, data, 1);
+            nodes.add(node);
+        }
+        net.createEdge(nodes.get(0), nodes.get(1), data, 1);
+        net.createEdge(nodes.get(0), nodes.get(2), data, 1);
+        net.createEdge(nodes.get(1), nodes.get(3), data, 1);
+        net.createEdge(nodes.get(2), nodes.get(3), data, 1);
+        net.createEdge(nodes.get(3), nodes.get(4), data, 1);
+        return net;
+    }
+
+    /**
+     * Sum the full joint distribution over the assignments consistent with
+     * some fixed values
+     */
+    private static double bruteForce(List<BNNode> nodes, int[] fixed)
+    {
+        double total = 0.0;
+        int[] assignment = new int[nodes.size()];
+        while (true)
+        {
+            boolean consistent = true;
+            for (int i = 0; i < nodes.size(); i++)
+            {
+                consistent &= fixed[i] < 0 || fixed[i] == assignment[i];
+            }
+
+            if (consistent)
+            {
+                double product = 1.0;
+                for (int i = 0; i < nodes.size(); i++)
+                {
+                    BNNode node = nodes.get(i);
+                    CPDQuery query = new CPDQuery();
+                    query.addQueryItem(node.getAttribute(), assignment[i]);
+                    for (BNNode parent : node.getParents())
+                    {
+                        query.addQueryItem(parent.getAttribute(), assignment[nodes.indexOf(parent)]);
+                    }
+                    product *= node.query(query);
+                }
+                total += product;
+            }
+
+            int i = nodes.size() - 1;
+            while (i >= 0 && ++assignment[i] == nodes.get(i).getNumNominalValues())
+            {
+                assignment[i--] = 0;
+            }
+            if (i < 0)
+            {
+                return total;
+            }
+        }
+    }
+
+    @Test
+    public void test_jointMatchesBruteForce()
+    {
+        List<BNNode> nodes = new ArrayList<BNNode>();
+        BayesianNetwork net = createNetwork(nodes);
+
+        BNJointQuery query = new BNJointQuery();
+        query.addVariable(nodes.get(4).getAttribute(), 1);
+        query.addVariable(nodes.get(1).getAttribute(), 2);
+
+        assertEquals(bruteForce(nodes, new int[] {-1, 2, -1, -1, 1}),
+                     net.queryJointProbability(query), 1e-12);
+    }
+
+    @Test
+    public void test_conditionalMatchesBruteForce()
+    {
+        List<BNNode> nodes = new ArrayList<BNNode>();
+        BayesianNetwork net = createNetwork(nodes);
+
+        BNConditionalQuery query = new BNConditionalQuery();
+        query.setTargetVariable(nodes.get(0).getAttribute(), 0);
+        query.addConditionVariable(nodes.get(4).getAttribute(), 1);
+        query.addConditionVariable(nodes.get(2).getAttribute(), 0);
+
+        double expected = bruteForce(nodes, new int[] {0, -1, 0, -1, 1})
+                / bruteForce(nodes, new int[] {-1, -1, 0, -1, 1});
+        assertEquals(expected, net.queryConditionalProbability(query), 1e-12);
+    }
+
+    @Test
+    public void test_factorOperations()
+    {
+        Factor f = new Factor(new int[] {0, 1}, new int[] {2, 3}, new double[] {1, 2, 3, 4, 5, 6});
+        Factor g = new Factor(new int[] {1}, new int[] {3}, new double[] {10, 20, 30});
+
+        Factor product = f.multiply(g);
+        assertArrayEquals(new double[] {10, 40, 90, 40, 100, 180}, product.getValues(), 0.0);
+        assertArrayEquals(new double[] {5, 7, 9}, f.sumOut(0).getValues(), 0.0);
+        assertArrayEquals(new double[] {2, 5}, f.reduce(1, 1).getValues(), 0.0);
+        assertEquals(21.0, f.sum(), 0.0);
+    }
+}
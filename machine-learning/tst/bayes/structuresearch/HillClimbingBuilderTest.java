@@ -0,0 +1,59 @@
+package bayes.structuresearch;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import bayes.BayesianNetwork;
+import bayes.structuresearch.score.BIC;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class HillClimbingBuilderTest
+{
+    private static DataSet createData(int numInstances)
+    {
+        return new SyntheticDataBuilder()
+                .addNominal("A", "a0", "a1")
+                .addNominal("B", "b0", "b1", "b2")
+                .addNominal("C", "c0", "c1")
+                .addNominal("D", "d0", "d1")
+                .build(numInstances, new Random(11), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random rand, double[] values)
+                    {
+                        int aId = rand.nextInt(2);
+                        int bId = rand.nextInt(5) == 0 ? rand.nextInt(3) : aId;
+                        int cId = rand.nextInt(4) == 0 ? 1 - aId : aId;
+                        values[0] = aId;
+                        values[1] = bId;
+                        values[2] = cId;
+                        values[3] = rand.nextInt(6) == 0 ? rand.nextInt(2) : (bId + cId) % 2;
+                    }
+                });
+    }
+
+    @Test
+    public void test_parallelScoringMatchesSerial()
+    {
+        DataSet data = createData(400);
+
+        HillClimbingBuilder serial = new HillClimbingBuilder();
+        serial.verbose = 0;
+        BayesianNetwork serialNet = serial.buildNetwork(data, 1, new BIC(), null);
+
+        HillClimbingBuilder parallel = new HillClimbingBuilder();
+        parallel.verbose = 0;
+        parallel.setParallelScoring(new ForkJoinPool(4), 2);
+        BayesianNetwork parallelNet = parallel.buildNetwork(data, 1, new BIC(), null);
+
+        assertTrue(serialNet.getNumEdges() > 0);
+        assertEquals(serialNet.toString(), parallelNet.toString());
+        assertEquals(new BIC().scoreNet(serialNet, data), new BIC().scoreNet(parallelNet, data), 1e-8);
+    }
+}
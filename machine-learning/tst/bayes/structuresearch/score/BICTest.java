@@ -0,0 +1,107 @@
+package bayes.structuresearch.score;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bayes.BNConditionalQuery;
+import bayes.BNEvaluator;
+import bayes.BNNode;
+import bayes.BayesianNetwork;
+import bayes.structuresearch.NaiveBayesBuilder;
+import data.Attribute;
+import data.DataSet;
+import data.Instance;
+import data.SyntheticDataBuilder;
+
+
+public class BICTest
+{
+    private static DataSet createData(int numInstances)
+    {
+        return new SyntheticDataBuilder()
+                .addNominal("A", "a0", "a1", "a2")
+                .addNominal("B", "b0", "b1")
+                .addNominal("class", "t", "f")
+                .setClassAttribute("class")
+                .build(numInstances, new Random(7), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random rand, double[] values)
+                    {
+                        int clsId = rand.nextInt(2);
+                        values[0] = rand.nextInt(4) == 0 ? rand.nextInt(3) : clsId;
+                        values[1] = rand.nextInt(3) == 0 ? 1 - clsId : clsId;
+                        values[2] = clsId;
+                    }
+                });
+    }
+
+    @Test
+    public void test_familyScoresSumToNetScore()
+    {
+        DataSet data = createData(200);
+        BayesianNetwork net = new NaiveBayesBuilder().buildNetwork(data, 1);
+        BIC bic = new BIC();
+
+        double familySum = 0.0;
+        for (BNNode node : net.getNodes())
+        {
+            List<Attribute> parents = new ArrayList<Attribute>();
+            for (BNNode parent : node.getParents())
+            {
+                parents.add(parent.getAttribute());
+            }
+            familySum += bic.scoreFamily(node.getAttribute(), parents, data, 1);
+        }
+
+        assertEquals(bic.scoreNet(net, data), familySum, 1e-8);
+    }
+
+    @Test
+    public void test_cacheScoresChangedFamilies()
+    {
+        DataSet data = createData(200);
+        BayesianNetwork net = new NaiveBayesBuilder().buildNetwork(data, 1);
+        BIC bic = new BIC();
+        FamilyScoreCache cache = new FamilyScoreCache(bic, data, 1);
+
+        BNNode a = net.getNode(data.getAttributeSet().getAttributeByName("A"));
+        BNNode b = net.getNode(data.getAttributeSet().getAttributeByName("B"));
+        double before = cache.scoreNet(net.getNodes());
+        assertEquals(bic.scoreNet(net, data), before, 1e-8);
+
+        /*
+         *  The delta of adding an edge matches rescoring the changed network
+         */
+        double delta = cache.getScore(b, a, true) - cache.getScore(b);
+        net.createEdge(a, b, data, 1);
+        assertEquals(bic.scoreNet(net, data), before + delta, 1e-8);
+        assertEquals(before + delta, cache.scoreNet(net.getNodes()), 1e-8);
+    }
+
+    @Test
+    public void test_countLogLikelihoodMatchesQueries()
+    {
+        DataSet train = createData(200);
+        DataSet test = createData(50);
+        BayesianNetwork net = new NaiveBayesBuilder().buildNetwork(train, 1);
+        BIC bic = new BIC();
+
+        double expected = 0.0;
+        for (Instance instance : test.getInstanceSet().getInstances())
+        {
+            for (BNConditionalQuery query : bic.createQueries(instance, net, test))
+            {
+                expected += -Math.log(net.queryConditionalProbability(query));
+            }
+        }
+
+        assertEquals(expected, bic.calculateLogLikelihood(net, test), 1e-8);
+        assertEquals(expected, BNEvaluator.calculateLogLikelihood(net, test), 1e-8);
+    }
+}
@@ -0,0 +1,120 @@
+package classify;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import pair.Pair;
+import tree.DecisionTree;
+import tree.classifiers.ID3TreeClassifier;
+import bayes.classifiers.NaiveBayesClassifier;
+import data.DataSet;
+import data.Instance;
+import data.SyntheticDataBuilder;
+
+
+public class ParallelClassificationTest
+{
+    private static DataSet createData(int numInstances)
+    {
+        return new SyntheticDataBuilder()
+                .addNominal("Color", "Red", "Yellow", "Blue")
+                .addNominal("Size", "S", "M", "L")
+                .addNominal("class", "t", "f")
+                .setClassAttribute("class")
+                .build(numInstances, new Random(5), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random rand, double[] values)
+                    {
+                        int colorId = rand.nextInt(3);
+                        int sizeId = rand.nextInt(3);
+                        values[0] = colorId;
+                        values[1] = sizeId;
+                        values[2] = colorId == 2 || sizeId == 0 || rand.nextInt(10) == 0 ? 0 : 1;
+                    }
+                });
+    }
+
+    @Test
+    public void test_parallelMatchesSerial()
+    {
+        DataSet data = createData(1000);
+        final ID3TreeClassifier classifier = new ID3TreeClassifier(2, data);
+        final DecisionTree tree = (DecisionTree) classifier.getModel();
+
+        List<Pair<Integer, Double>> resultList = new ArrayList<>();
+        for (Instance instance : data.getInstanceSet().getInstances())
+        {
+            resultList.add(tree.classifyInstance(instance));
+        }
+
+        int[] classes = new int[data.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            ParallelClassification.classifyData(data,
+                    new ParallelClassification.InstanceClassifier()
+                    {
+                        @Override
+                        public Pair<Integer, Double> classifyInstance(Instance instance)
+                        {
+                            return tree.classifyInstance(instance);
+                        }
+                    },
+                    executor,
+                    classes,
+                    confidences);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        for (int id = 0; id < classes.length; id++)
+        {
+            assertEquals(resultList.get(id).getFirst().intValue(), classes[id]);
+            assertEquals(resultList.get(id).getSecond(), confidences[id], 0.0);
+        }
+
+        /*
+         *  The classifier walks blocks of rows down its compiled tree
+         */
+        int[] batchClasses = new int[classes.length];
+        double[] batchConfidences = new double[classes.length];
+        classifier.classifyData(data, batchClasses, batchConfidences);
+        assertArrayEquals(classes, batchClasses);
+        assertArrayEquals(confidences, batchConfidences, 1e-12);
+
+        ClassificationResult serial = new ClassificationResult(resultList, data);
+        assertEquals(serial.toString(), new ClassificationResult(classes, confidences, data).toString());
+        assertEquals(serial.toString(), classifier.classifyData(data).toString());
+    }
+
+    @Test
+    public void test_naiveBayesBatchMatchesInstances()
+    {
+        DataSet data = createData(300);
+        NaiveBayesClassifier classifier = new NaiveBayesClassifier(data, 1, false);
+
+        int[] classes = new int[data.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        classifier.classifyData(data, classes, confidences);
+
+        for (int id = 0; id < classes.length; id++)
+        {
+            Pair<Integer, Double> expected =
+                    classifier.classifyInstance(data.getInstanceSet().getInstanceById(id));
+            assertEquals(expected.getFirst().intValue(), classes[id]);
+            assertEquals(expected.getSecond(), confidences[id], 0.0);
+        }
+        assertTrue(classifier.classifyData(data).getAccuracy() > 0.8);
+    }
+}
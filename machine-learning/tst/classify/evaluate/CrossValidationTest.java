@@ -0,0 +1,154 @@
+package classify.evaluate;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import pair.Pair;
+import tree.classifiers.ID3TreeClassifier;
+import classify.ClassificationResult;
+import classify.Classifier;
+import classify.ClassifierTrainer;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+import data.fold.KFoldCreator;
+
+
+public class CrossValidationTest
+{
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        data = new SyntheticDataBuilder()
+                .addNominal("Color", "Red", "Yellow", "Blue")
+                .addContinuous("Weight")
+                .addNominal("class", "t", "f")
+                .setClassAttribute("class")
+                .build(203, new Random(3), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random rand, double[] values)
+                    {
+                        int c = rand.nextInt(3);
+                        double w = rand.nextDouble();
+                        values[0] = c;
+                        values[1] = w;
+                        values[2] = (c == 0 || w > 0.8) ? 0 : 1;
+                    }
+                });
+    }
+
+    @Test
+    public void test_stratifiedFoldsPartitionInstances()
+    {
+        List<Pair<DataSet, DataSet>> folds = KFoldCreator.createStratified(data, 10, 42);
+
+        int[] timesTested = new int[data.getInstanceSet().size()];
+        for (Pair<DataSet, DataSet> fold : folds)
+        {
+            assertEquals(data.getInstanceSet().size(),
+                    fold.getFirst().getInstanceSet().size() + fold.getSecond().getInstanceSet().size());
+
+            int testSize = fold.getSecond().getInstanceSet().size();
+            assertTrue(testSize == 20 || testSize == 21);
+
+            /*
+             *  Each class is dealt evenly across the folds
+             */
+            for (int classValue = 0; classValue < 2; classValue++)
+            {
+                double expected = data.getClassCounts().get(classValue) / 10.0;
+                assertEquals(expected, fold.getSecond().getClassCounts().get(classValue), 1.0);
+            }
+
+            for (int id : fold.getSecond().getInstanceSet().getRows())
+            {
+                timesTested[id]++;
+            }
+        }
+
+        for (int times : timesTested)
+        {
+            assertEquals(1, times);
+        }
+
+        assertArrayEquals(folds.get(3).getSecond().getInstanceSet().getRows(),
+                KFoldCreator.createStratified(data, 10, 42).get(3).getSecond().getInstanceSet().getRows());
+    }
+
+    @Test
+    public void test_stratifiedFoldsOfSubset()
+    {
+        /*
+         *  The class values of a view are read through its rows
+         */
+        DataSet train = KFoldCreator.createStratified(data, 4, 7).get(0).getFirst();
+        List<Pair<DataSet, DataSet>> folds = KFoldCreator.createStratified(train, 5, 42);
+        for (Pair<DataSet, DataSet> fold : folds)
+        {
+            for (int classValue = 0; classValue < 2; classValue++)
+            {
+                double expected = train.getClassCounts().get(classValue) / 5.0;
+                assertEquals(expected, fold.getSecond().getClassCounts().get(classValue), 1.0);
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_stratifiedFoldsRequireNominalClass()
+    {
+        DataSet regression = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addContinuous("Y")
+                .setClassAttribute("Y")
+                .build(20, new Random(3), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        values[0] = random.nextGaussian();
+                        values[1] = 2 * values[0];
+                    }
+                });
+        KFoldCreator.createStratified(regression, 5, 42);
+    }
+
+    @Test
+    public void test_parallelMatchesSerial()
+    {
+        ClassifierTrainer trainer = new ClassifierTrainer()
+        {
+            @Override
+            public Classifier train(DataSet trainData)
+            {
+                return new ID3TreeClassifier(5, trainData);
+            }
+        };
+
+        ExecutorService serial = Executors.newSingleThreadExecutor();
+        ExecutorService parallel = Executors.newFixedThreadPool(4);
+        try
+        {
+            ClassificationResult serialResult = new CrossValidation(5, 7, serial).run(data, trainer);
+            ClassificationResult parallelResult = new CrossValidation(5, 7, parallel).run(data, trainer);
+
+            assertEquals(203, serialResult.getTestDataSize().intValue());
+            assertEquals(serialResult.getCorrectCount(), parallelResult.getCorrectCount());
+            assertEquals(serialResult.toString(), parallelResult.toString());
+            assertTrue(serialResult.getAccuracy() > 0.9);
+        }
+        finally
+        {
+            serial.shutdown();
+            parallel.shutdown();
+        }
+    }
+}
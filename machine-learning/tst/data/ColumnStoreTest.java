@@ -0,0 +1,161 @@
+package data;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+
+public class ColumnStoreTest
+{
+    private Attribute color;
+    private Attribute weight;
+    private ColumnStore store;
+
+    @Before
+    public void before()
+    {
+        color = new Attribute("Color", Attribute.Type.NOMINAL, new String[] {"Red", "Yellow", "Blue"});
+        weight = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+
+        List<Attribute> attributes = ImmutableList.of(color, weight);
+        store = new ColumnStore(attributes, 1);
+    }
+
+    @Test
+    public void test_addRowsGrowsColumns()
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            int row = store.addRow();
+            store.setNominal(row, 0, i % 3);
+            store.setContinuous(row, 1, i * 0.5);
+        }
+
+        assertEquals(100, store.getNumRows());
+        assertEquals(2, store.getNominal(98, 0));
+        assertEquals(49.0, store.getContinuous(98, 1), 0.0);
+    }
+
+    @Test
+    public void test_rowView()
+    {
+        int row = store.addRow();
+        store.setNominal(row, 0, 1);
+        store.setMissing(row, 1);
+
+        Instance instance = new Instance(store, row);
+
+        assertEquals(Double.valueOf(1.0), instance.getAttributeValue(color));
+        assertNull(instance.getAttributeValue(weight));
+
+        instance.addAttributeValue(weight, 3.5);
+        assertFalse(store.isMissing(row, 1));
+        assertEquals(3.5, store.getContinuous(row, 1), 0.0);
+    }
+
+    @Test
+    public void test_addInstance()
+    {
+        Instance instance = new Instance();
+        instance.addAttributeValue(color, 2.0);
+
+        InstanceSet instances = new InstanceSet(store);
+        instances.addInstance(instance);
+
+        assertEquals(1, instances.size());
+        assertEquals(2, store.getNominal(0, 0));
+        assertTrue(store.isMissing(0, 1));
+        assertEquals(instance, instances.getInstanceById(0));
+    }
+
+    @Test
+    public void test_ordinalsAssignedByPosition()
+    {
+        assertEquals(0, color.getOrdinal());
+        assertEquals(1, weight.getOrdinal());
+
+        /*
+         *  An attribute keeps its ordinal in every later set
+         */
+        AttributeSet reordered = new AttributeSet(ImmutableList.of(weight, color));
+        assertEquals(0, color.getOrdinal());
+        assertSame(color, reordered.getAttributeByOrdinal(0));
+        assertEquals(2, reordered.getNumOrdinals());
+
+        assertEquals(1, store.getColumnIndex(weight.getOrdinal()));
+
+        /*
+         *  An equal attribute from another schema is still found by name
+         */
+        Attribute copy = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+        new AttributeSet(ImmutableList.of(copy, color));
+        assertEquals(1, store.getColumnIndex(copy));
+    }
+
+    @Test
+    public void test_newAttributeTakesFreeOrdinal()
+    {
+        /*
+         *  Position 0 is held by color, so the new attribute takes the
+         *  smallest free ordinal
+         */
+        Attribute response = new Attribute("Response", Attribute.Type.CONTINUOUS, null);
+        List<Attribute> attributes = ImmutableList.of(response, color);
+        AttributeSet attributeSet = new AttributeSet(attributes);
+        assertEquals(1, response.getOrdinal());
+        assertSame(color, attributeSet.getAttributeByOrdinal(0));
+        assertSame(response, attributeSet.getAttributeByOrdinal(1));
+
+        ColumnStore responseStore = new ColumnStore(attributes);
+        assertEquals(0, responseStore.getColumnIndex(response.getOrdinal()));
+        assertEquals(1, responseStore.getColumnIndex(color.getOrdinal()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_ordinalCollisionRejected()
+    {
+        Attribute first = new Attribute("First", Attribute.Type.CONTINUOUS, null);
+        Attribute second = new Attribute("Second", Attribute.Type.CONTINUOUS, null);
+        new AttributeSet(ImmutableList.of(first));
+        new AttributeSet(ImmutableList.of(second));
+        new AttributeSet(ImmutableList.of(first, second));
+    }
+
+    @Test
+    public void test_attributesWithoutOwnOrdinal()
+    {
+        /*
+         *  An attribute without an ordinal and one whose ordinal slot is
+         *  already taken are both stored by the instance
+         */
+        Attribute fresh = new Attribute("Fresh", Attribute.Type.CONTINUOUS, null);
+        Attribute other = new Attribute("Other", Attribute.Type.CONTINUOUS, null);
+        new AttributeSet(ImmutableList.of(other));
+
+        Instance instance = new Instance();
+        instance.addAttributeValue(color, 1.0);
+        instance.addAttributeValue(fresh, 2.5);
+        instance.addAttributeValue(other, 4.0);
+        assertEquals(-1, fresh.getOrdinal());
+        assertEquals(color.getOrdinal(), other.getOrdinal());
+
+        assertEquals(Double.valueOf(1.0), instance.getAttributeValue(color));
+        assertEquals(Double.valueOf(2.5), instance.getAttributeValue(fresh));
+        assertEquals(Double.valueOf(4.0), instance.getAttributeValue(other));
+
+        /*
+         *  An equal attribute from another schema finds the same value
+         */
+        Attribute copy = new Attribute("Color", Attribute.Type.NOMINAL, new String[] {"Red", "Yellow", "Blue"});
+        new AttributeSet(ImmutableList.of(weight, copy));
+        assertEquals(Double.valueOf(1.0), instance.getAttributeValue(copy));
+
+        instance.addAttributeValue(fresh, null);
+        assertNull(instance.getAttributeValue(fresh));
+    }
+}
@@ -0,0 +1,68 @@
+package data;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+
+public class InstanceSetTest
+{
+    private Attribute color;
+    private Attribute weight;
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        color = new Attribute("Color", Attribute.Type.NOMINAL, new String[] {"Red", "Yellow", "Blue"});
+        weight = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+
+        List<Attribute> attributes = ImmutableList.of(color, weight);
+        ColumnStore store = new ColumnStore(attributes);
+        for (int i = 0; i < 10; i++)
+        {
+            int row = store.addRow();
+            store.setNominal(row, 0, i % 3);
+            store.setContinuous(row, 1, i);
+        }
+
+        data = new DataSet(new AttributeSet(attributes), new InstanceSet(store));
+        data.setClassAttribute("Color");
+    }
+
+    @Test
+    public void test_viewOfViewSelectsBaseRows()
+    {
+        DataSet evens = data.subset(new int[] {0, 2, 4, 6, 8});
+        DataSet view = evens.subset(new int[] {1, 3, 4});
+
+        assertEquals(3, view.getInstanceSet().size());
+        assertSame(data.getInstanceSet(), view.getInstanceSet().getBase());
+        assertArrayEquals(new int[] {2, 6, 8}, view.getInstanceSet().getRows());
+        assertEquals(6.0, view.getInstanceSet().getInstances().get(1).getAttributeValue(weight), 0.0);
+        assertNull(view.getInstanceSet().getColumnStore());
+    }
+
+    @Test
+    public void test_viewClassCountsAreLazy()
+    {
+        DataSet view = data.subset(new int[] {0, 1, 3, 6, 9});
+
+        assertSame(color, view.getClassAttribute());
+        assertEquals(Integer.valueOf(4), view.getClassCounts().get(0));
+        assertEquals(Integer.valueOf(1), view.getClassCounts().get(1));
+        assertEquals(Integer.valueOf(0), view.getClassCounts().get(2));
+        assertEquals(4, view.getCounts().getCount(color, 0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_viewIsReadOnly()
+    {
+        data.subset(new int[] {0}).getInstanceSet().addInstance(new Instance());
+    }
+}
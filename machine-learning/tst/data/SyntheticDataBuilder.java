@@ -0,0 +1,118 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds small synthetic data sets for tests.  The attributes are declared
+ * one at a time and each row is drawn by a generator from a seeded random
+ * number generator, so a data set is fully determined by its seed.
+ *
+ */
+public class SyntheticDataBuilder
+{
+    /**
+     * Draws the values of one row of a synthetic data set
+     */
+    public static interface RowGenerator
+    {
+        /**
+         * @param row the index of the row
+         * @param random the random number generator the data set is drawn
+         * from
+         * @param values receives the value of each attribute, in the order
+         * the attributes were declared.  Nominal values are given as their
+         * nominal value ID and missing values as NaN.
+         */
+        public void generate(int row, Random random, double[] values);
+    }
+
+    private final List<Attribute> attributes = new ArrayList<Attribute>();
+
+    private String classAttribute;
+
+    /**
+     * Declare a nominal attribute
+     *
+     * @param name the name of the attribute
+     * @param values the names of the attribute's nominal values
+     * @return this builder
+     */
+    public SyntheticDataBuilder addNominal(String name, String... values)
+    {
+        return addAttribute(new Attribute(name, Attribute.Type.NOMINAL, values));
+    }
+
+    /**
+     * Declare a continuous attribute
+     *
+     * @param name the name of the attribute
+     * @return this builder
+     */
+    public SyntheticDataBuilder addContinuous(String name)
+    {
+        return addAttribute(new Attribute(name, Attribute.Type.CONTINUOUS, null));
+    }
+
+    /**
+     * Declare an attribute created by the test
+     *
+     * @param attr the attribute
+     * @return this builder
+     */
+    public SyntheticDataBuilder addAttribute(Attribute attr)
+    {
+        attributes.add(attr);
+        return this;
+    }
+
+    /**
+     * @param name the name of the declared attribute to use as the class
+     * attribute of the data set
+     * @return this builder
+     */
+    public SyntheticDataBuilder setClassAttribute(String name)
+    {
+        this.classAttribute = name;
+        return this;
+    }
+
+    /**
+     * Draw a data set
+     *
+     * @param numRows the number of rows
+     * @param random the random number generator to draw the rows from
+     * @param generator draws the values of each row
+     * @return the data set, backed by a column store
+     */
+    public DataSet build(int numRows, Random random, RowGenerator generator)
+    {
+        ColumnStore store = new ColumnStore(attributes, numRows);
+        double[] values = new double[attributes.size()];
+        for (int i = 0; i < numRows; i++)
+        {
+            generator.generate(i, random, values);
+
+            int row = store.addRow();
+            for (int col = 0; col < values.length; col++)
+            {
+                if (Double.isNaN(values[col]))
+                {
+                    store.setMissing(row, col);
+                }
+                else
+                {
+                    store.setValue(row, col, values[col]);
+                }
+            }
+        }
+
+        DataSet data = new DataSet(new AttributeSet(attributes), new InstanceSet(store));
+        if (classAttribute != null)
+        {
+            data.setClassAttribute(classAttribute);
+        }
+        return data;
+    }
+}
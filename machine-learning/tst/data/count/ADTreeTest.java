@@ -0,0 +1,117 @@
+package data.count;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import data.Attribute;
+import data.ColumnStore;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class ADTreeTest
+{
+    private Attribute a;
+    private Attribute b;
+    private Attribute c;
+    private Attribute d;
+    private Attribute weight;
+    private ColumnStore store;
+
+    @Before
+    public void before()
+    {
+        a = new Attribute("A", Attribute.Type.NOMINAL, new String[] {"a0", "a1"});
+        b = new Attribute("B", Attribute.Type.NOMINAL, new String[] {"b0", "b1", "b2"});
+        c = new Attribute("C", Attribute.Type.NOMINAL, new String[] {"c0", "c1", "c2", "c3"});
+        d = new Attribute("D", Attribute.Type.NOMINAL, new String[] {"d0", "d1"});
+        weight = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+
+        /*
+         * Enough rows, skewed towards some values and with some missing
+         * values, that the tree has both internal nodes and leaf-lists
+         */
+        DataSet data = new SyntheticDataBuilder()
+                .addAttribute(a)
+                .addAttribute(weight)
+                .addAttribute(b)
+                .addAttribute(c)
+                .addAttribute(d)
+                .build(2000, new Random(7), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random rand, double[] values)
+                    {
+                        values[0] = rand.nextInt(4) == 0 ? 1 : 0;
+                        values[1] = rand.nextDouble();
+                        values[2] = Math.min(rand.nextInt(4), 2);
+                        values[3] = rand.nextInt(4);
+                        values[4] = rand.nextInt(10) == 0 ? Double.NaN : rand.nextInt(2);
+                    }
+                });
+        store = data.getInstanceSet().getColumnStore();
+    }
+
+    @Test
+    public void test_tablesMatchScan()
+    {
+        ADTree tree = new ADTree(store);
+        assertEquals(2000, tree.getNumInstances());
+
+        List<List<Attribute>> attributeLists = new ArrayList<>();
+        attributeLists.add(Arrays.asList(a));
+        attributeLists.add(Arrays.asList(d));
+        attributeLists.add(Arrays.asList(c, a));
+        attributeLists.add(Arrays.asList(a, b, c));
+        attributeLists.add(Arrays.asList(d, c, b, a));
+        attributeLists.add(Arrays.asList(b, d));
+
+        for (List<Attribute> attrs : attributeLists)
+        {
+            ContingencyTable expected = scan(attrs);
+            ContingencyTable actual = tree.getContingencyTable(attrs);
+
+            assertEquals(expected.getTotal(), actual.getTotal());
+            for (int i = 0; i < expected.getNumCells(); i++)
+            {
+                assertEquals(expected.getCount(i), actual.getCount(i));
+            }
+        }
+    }
+
+    @Test
+    public void test_countsMatchScan()
+    {
+        ADTree tree = new ADTree(store);
+        ContingencyTable expected = scan(Arrays.asList(b, d, a));
+
+        for (int bVal = 0; bVal < 3; bVal++)
+        {
+            for (int dVal = 0; dVal < 2; dVal++)
+            {
+                for (int aVal = 0; aVal < 2; aVal++)
+                {
+                    assertEquals(expected.getCount(bVal, dVal, aVal),
+                                 tree.getCount(Arrays.asList(b, d, a), bVal, dVal, aVal));
+                }
+            }
+        }
+
+        assertEquals(scan(Arrays.asList(d)).getCount(1), tree.getCount(d, 1));
+        assertEquals(0, tree.getCount(Arrays.asList(a, a), 0, 1));
+    }
+
+    private ContingencyTable scan(List<Attribute> attrs)
+    {
+        ContingencyTable table = new ContingencyTable(attrs);
+        table.add(store);
+        return table;
+    }
+}
@@ -0,0 +1,162 @@
+package data.reader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import data.ColumnStore;
+import data.DataSet;
+
+
+public class ArffReaderTest
+{
+    private static final String[] CLASSES = {"low", "mid", "high"};
+
+    /**
+     * The tokens written for each row, or null for a missing value
+     */
+    private List<String[]> rows;
+
+    private String file;
+
+    /**
+     * Format a random value in one of the forms a continuous ARFF value can
+     * take.  Some forms fall back to {@code Double.parseDouble}.
+     */
+    private static String formatValue(Random random)
+    {
+        double value = random.nextGaussian() * Math.pow(10, random.nextInt(9) - 4);
+        switch (random.nextInt(8))
+        {
+        case 0:
+            return Integer.toString(random.nextInt(2000) - 1000);
+        case 1:
+            return String.format("%.3f", value);
+        case 2:
+            return Double.toString(value);
+        case 3:
+            return String.format("%.6e", value);
+        case 4:
+            return "+" + random.nextInt(100) + "." + random.nextInt(100);
+        case 5:
+            return "." + random.nextInt(1000);
+        case 6:
+            return "3.14159265358979323846";
+        default:
+            return random.nextInt(10) + "E" + (random.nextInt(60) - 30);
+        }
+    }
+
+    @Before
+    public void before() throws IOException
+    {
+        StringBuilder arff = new StringBuilder();
+        arff.append("% A comment before the relation\r\n");
+        arff.append("@relation test\r\n\r\n");
+        arff.append("@attribute 'petal width' numeric\r\n");
+        arff.append("@attribute \"sepal length\" REAL\r\n");
+        arff.append("@attribute count integer\r\n");
+        arff.append("@attribute class {low, mid, high}\r\n");
+        arff.append("@data\r\n");
+
+        Random random = new Random(3);
+        rows = new ArrayList<>();
+        for (int r = 0; r < 400; r++)
+        {
+            if (r % 37 == 0)
+            {
+                arff.append("% a comment between rows\r\n\r\n");
+            }
+
+            String[] row = new String[4];
+            for (int col = 0; col < 3; col++)
+            {
+                row[col] = random.nextInt(10) == 0 ? null : formatValue(random);
+            }
+            row[3] = random.nextInt(10) == 0 ? null : CLASSES[random.nextInt(3)];
+            rows.add(row);
+
+            for (int col = 0; col < row.length; col++)
+            {
+                arff.append(col == 0 ? "" : random.nextBoolean() ? ", " : ",");
+                arff.append(row[col] == null ? "?" : row[col]);
+            }
+            arff.append(r % 2 == 0 ? "\r\n" : "\n");
+        }
+
+        File temp = File.createTempFile("data", ".arff");
+        temp.deleteOnExit();
+        Files.write(temp.toPath(), arff.toString().getBytes(StandardCharsets.UTF_8));
+        file = temp.getPath();
+    }
+
+    /**
+     * Check every value of a data set read from the file against the tokens
+     * written for it
+     */
+    private void checkValues(DataSet data)
+    {
+        assertEquals(rows.size(), data.getInstanceSet().size());
+        ColumnStore store = data.getInstanceSet().getColumnStore();
+
+        for (int r = 0; r < rows.size(); r++)
+        {
+            String[] row = rows.get(r);
+            for (int col = 0; col < 3; col++)
+            {
+                assertEquals(row[col] == null, store.isMissing(r, col));
+                if (row[col] != null)
+                {
+                    assertEquals(row[col], Double.parseDouble(row[col]),
+                                 store.getContinuous(r, col), 0.0);
+                }
+            }
+
+            assertEquals(row[3] == null, store.isMissing(r, 3));
+            if (row[3] != null)
+            {
+                assertEquals(row[3], CLASSES[store.getNominal(r, 3)]);
+            }
+        }
+    }
+
+    @Test
+    public void test_header()
+    {
+        DataSet data = ArffReader.readFile(file);
+
+        assertNotNull(data.getAttributeByName("petal width"));
+        assertNotNull(data.getAttributeByName("sepal length"));
+        assertNotNull(data.getAttributeByName("count"));
+        assertEquals("high", data.getAttributeByName("class").getNominalValueName(2));
+        assertEquals(4, data.getAttributeSet().getNumOrdinals());
+    }
+
+    @Test
+    public void test_singleChunk()
+    {
+        checkValues(ArffReader.readFile(file));
+    }
+
+    @Test
+    public void test_manyChunks()
+    {
+        /*
+         *  Chunks of a few lines each, so chunk boundaries fall on CRLF,
+         *  blank and comment lines
+         */
+        for (int chunkSize : new int[] {1, 50, 333})
+        {
+            checkValues(ArffReader.readFile(file, chunkSize));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package data.reader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import data.Attribute;
+import data.AttributeSet;
+import data.ColumnStore;
+import data.DataSet;
+import data.InstanceSet;
+
+
+public class BinaryDataSetTest
+{
+    private Attribute color;
+    private Attribute weight;
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        color = new Attribute("Color", Attribute.Type.NOMINAL, new String[] {"Red", "Yellow", "Blue"});
+        weight = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+
+        List<Attribute> attributes = ImmutableList.of(color, weight);
+        ColumnStore store = new ColumnStore(attributes);
+        for (int i = 0; i < 130; i++)
+        {
+            int row = store.addRow();
+            store.setNominal(row, 0, i % 3);
+            if (i % 7 == 0)
+            {
+                store.setMissing(row, 1);
+            }
+            else
+            {
+                store.setContinuous(row, 1, i * 0.25);
+            }
+        }
+
+        data = new DataSet(new AttributeSet(attributes), new InstanceSet(store));
+    }
+
+    @Test
+    public void test_roundTrip() throws IOException
+    {
+        File file = File.createTempFile("dataset", ".bin");
+        file.deleteOnExit();
+
+        BinaryDataSetWriter.writeFile(data, file.getPath());
+        assertTrue(BinaryDataSetReader.isBinaryFile(file.getPath()));
+
+        DataSet read = DataSetReader.readFile(file.getPath());
+        ColumnStore store = read.getInstanceSet().getColumnStore();
+
+        assertEquals(130, read.getInstanceSet().size());
+        assertEquals("Blue", read.getAttributeByName("Color").getNominalValueName(2));
+        assertEquals(Attribute.Type.CONTINUOUS, read.getAttributeByName("Weight").getType());
+
+        for (int row = 0; row < 130; row++)
+        {
+            assertEquals(row % 3, store.getNominal(row, 0));
+            assertFalse(store.isMissing(row, 0));
+            assertEquals(row % 7 == 0, store.isMissing(row, 1));
+            if (row % 7 != 0)
+            {
+                assertEquals(row * 0.25, store.getContinuous(row, 1), 0.0);
+            }
+        }
+        assertEquals(data.getInstanceSet().getInstanceById(12), read.getInstanceSet().getInstanceById(12));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_mappedStoreIsReadOnly() throws IOException
+    {
+        File file = File.createTempFile("dataset", ".bin");
+        file.deleteOnExit();
+
+        BinaryDataSetWriter.writeFile(data, file.getPath());
+        BinaryDataSetReader.readFile(file.getPath()).getInstanceSet().getColumnStore().setNominal(0, 0, 1);
+    }
+
+    @Test
+    public void test_missingFileMatchesArffReader() throws IOException
+    {
+        File file = File.createTempFile("dataset", ".bin");
+        file.delete();
+
+        DataSet binary = BinaryDataSetReader.readFile(file.getPath());
+        DataSet arff = ArffReader.readFile(file.getPath());
+        assertEquals(0, binary.getInstanceSet().size());
+        assertEquals(arff.getInstanceSet().size(), binary.getInstanceSet().size());
+        assertEquals(arff.getAttributeSet().getAttributes(), binary.getAttributeSet().getAttributes());
+    }
+}
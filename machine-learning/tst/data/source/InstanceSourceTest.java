@@ -0,0 +1,105 @@
+package data.source;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import data.Attribute;
+import data.ColumnStore;
+import data.Instance;
+import data.count.ContingencyTable;
+import data.reader.ArffReader;
+
+
+public class InstanceSourceTest
+{
+    private File file;
+
+    @Before
+    public void before() throws IOException
+    {
+        file = File.createTempFile("source", ".arff");
+        file.deleteOnExit();
+
+        PrintWriter out = new PrintWriter(file);
+        out.println("@relation test");
+        out.println("@attribute Color {Red, Yellow, Blue}");
+        out.println("@attribute Weight real");
+        out.println("@attribute class {t, f}");
+        out.println("@data");
+        out.println("Red, 1.5, t");
+        out.println("% comment");
+        out.println("Blue, ?, f");
+        out.println("Red, 2.0, f");
+        out.println("?, 3.0, t");
+        out.close();
+    }
+
+    @Test
+    public void test_arffSourceRewinds()
+    {
+        RewindableInstanceSource source = ArffReader.openSource(file.getPath());
+        Attribute weight = source.getAttributeSet().getAttributeByName("Weight");
+
+        for (int pass = 0; pass < 2; pass++)
+        {
+            source.rewind();
+
+            int count = 0;
+            double sum = 0.0;
+            InstanceIterator it = new InstanceIterator(source);
+            while (it.hasNext())
+            {
+                Instance instance = it.next();
+                if (instance.getAttributeValue(weight) != null)
+                {
+                    sum += instance.getAttributeValue(weight);
+                }
+                count++;
+            }
+
+            assertEquals(4, count);
+            assertEquals(6.5, sum, 0.0);
+        }
+        source.close();
+    }
+
+    @Test
+    public void test_countsSkipMissing()
+    {
+        RewindableInstanceSource source = ArffReader.openSource(file.getPath());
+        Attribute color = source.getAttributeSet().getAttributeByName("Color");
+        Attribute cls = source.getAttributeSet().getAttributeByName("class");
+
+        ContingencyTable table = ContingencyTable.count(source, Arrays.asList(color, cls));
+        source.close();
+
+        assertEquals(3, table.getTotal());
+        assertEquals(1, table.getCount(0, 0));
+        assertEquals(1, table.getCount(0, 1));
+        assertEquals(1, table.getCount(2, 1));
+        assertEquals(0, table.getCount(1, 0));
+
+        ContingencyTable classCounts = table.marginalize(Arrays.asList(cls));
+        assertEquals(1, classCounts.getCount(0));
+        assertEquals(2, classCounts.getCount(1));
+    }
+
+    @Test
+    public void test_dataSetSourceReturnsStore()
+    {
+        ColumnStore store = ArffReader.readFile(file.getPath()).getInstanceSet().getColumnStore();
+        DataSetSource source = new DataSetSource(ArffReader.readFile(file.getPath()));
+
+        assertEquals(store.getNumRows(), source.nextBlock().getNumRows());
+        assertNull(source.nextBlock());
+        source.rewind();
+        assertNotNull(source.nextBlock());
+    }
+}
@@ -0,0 +1,251 @@
+package tree;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import pair.Pair;
+import tree.algorithms.ID3TreeBuilder;
+import data.DataSet;
+import data.Instance;
+import data.SyntheticDataBuilder;
+
+
+public class FlatDecisionTreeTest
+{
+    @Test
+    public void test_flatTreeMatchesTree()
+    {
+        DataSet data = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addNominal("Color", "Red", "Green", "Blue")
+                .addNominal("Label", "pos", "neg")
+                .setClassAttribute("Label")
+                .build(400, new Random(9), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double value = random.nextGaussian();
+                        int colorId = random.nextInt(3);
+                        values[0] = value;
+                        values[1] = colorId;
+                        values[2] = (value > 0) == (colorId == 2) || random.nextInt(8) == 0 ? 0 : 1;
+
+                        /*
+                         *  Some instances are missing a tested value
+                         */
+                        if (i % 13 == 0)
+                        {
+                            values[i % 2] = Double.NaN;
+                        }
+                    }
+                });
+
+        DecisionTree tree = new ID3TreeBuilder(2).buildDecisionTree(data);
+        FlatDecisionTree flat = new FlatDecisionTree(tree);
+        assertTrue(flat.getNumNodes() > 3);
+
+        double[][] columns = flat.toColumns(data);
+        int[] classes = new int[data.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        flat.predict(columns, classes, confidences);
+
+        double[] row = new double[columns.length];
+        for (int id = 0; id < classes.length; id++)
+        {
+            Instance instance = data.getInstanceSet().getInstanceById(id);
+            Pair<Integer, Double> expected = tree.classifyInstance(instance);
+
+            for (int ordinal = 0; ordinal < row.length; ordinal++)
+            {
+                row[ordinal] = columns[ordinal] == null ? Double.NaN : columns[ordinal][id];
+            }
+
+            assertEquals(expected.getFirst().intValue(), classes[id]);
+            assertEquals(expected.getSecond(), confidences[id], 1e-12);
+            assertEquals(classes[id], flat.predict(row));
+            assertEquals(confidences[id], flat.predictConfidence(row), 0.0);
+        }
+    }
+
+    @Test
+    public void test_flatRegressionTreeMatchesTree()
+    {
+        DataSet data = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addNominal("Color", "Red", "Green", "Blue")
+                .addContinuous("Latency")
+                .setClassAttribute("Latency")
+                .build(300, new Random(4), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double value = random.nextGaussian();
+                        int colorId = random.nextInt(3);
+                        values[0] = value;
+                        values[1] = colorId;
+                        values[2] = 10 * value + colorId + random.nextGaussian();
+                        if (i % 11 == 0)
+                        {
+                            values[i % 2] = Double.NaN;
+                        }
+                    }
+                });
+
+        DecisionTree tree = new ID3TreeBuilder(10).buildDecisionTree(data);
+        FlatDecisionTree flat = new FlatDecisionTree(tree);
+        assertTrue(flat.isRegressionTree());
+
+        double[][] columns = flat.toColumns(data);
+        double[] totals = new double[data.getInstanceSet().size()];
+        flat.addPredictedValues(columns, 2.0, totals);
+
+        List<Instance> instances = data.getInstanceSet().getInstances();
+        for (int id = 0; id < instances.size(); id++)
+        {
+            double expected = tree.predictValue(instances.get(id));
+            assertEquals(expected, 0.5 * totals[id], 1e-9);
+
+            double[] row = new double[columns.length];
+            for (int ordinal = 0; ordinal < columns.length; ordinal++)
+            {
+                row[ordinal] = columns[ordinal] == null ? Double.NaN : columns[ordinal][id];
+            }
+            assertEquals(expected, flat.predictValue(row), 1e-9);
+        }
+    }
+
+    /**
+     * Build a tree whose class depends on both X and Color
+     */
+    private static DecisionTree createTree()
+    {
+        DataSet data = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addNominal("Color", "Red", "Green", "Blue")
+                .addNominal("Label", "pos", "neg")
+                .setClassAttribute("Label")
+                .build(300, new Random(3), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double value = random.nextGaussian();
+                        int colorId = random.nextInt(3);
+                        values[0] = value;
+                        values[1] = colorId;
+                        values[2] = (value > 0) == (colorId == 2) ? 0 : 1;
+                    }
+                });
+        return new ID3TreeBuilder(2).buildDecisionTree(data);
+    }
+
+    @Test
+    public void test_columnsMatchedByName()
+    {
+        DecisionTree tree = createTree();
+        FlatDecisionTree flat = new FlatDecisionTree(tree);
+
+        /*
+         *  The test set declares its attributes in another order and has no
+         *  class attribute, so its attributes take other ordinals
+         */
+        DataSet test = new SyntheticDataBuilder()
+                .addNominal("Color", "Red", "Green", "Blue")
+                .addContinuous("X")
+                .build(100, new Random(4), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        values[0] = random.nextInt(3);
+                        values[1] = i % 9 == 0 ? Double.NaN : random.nextGaussian();
+                    }
+                });
+        assertEquals(0, test.getAttributeByName("Color").getOrdinal());
+
+        int[] classes = new int[test.getInstanceSet().size()];
+        flat.predict(flat.toColumns(test), classes);
+        for (int id = 0; id < classes.length; id++)
+        {
+            Instance instance = test.getInstanceSet().getInstanceById(id);
+            assertEquals(tree.classifyInstance(instance).getFirst().intValue(), classes[id]);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_missingColumnRejected()
+    {
+        FlatDecisionTree flat = new FlatDecisionTree(createTree());
+        DataSet test = new SyntheticDataBuilder()
+                .addNominal("Color", "Red", "Green", "Blue")
+                .build(10, new Random(5), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        values[0] = random.nextInt(3);
+                    }
+                });
+        flat.toColumns(test);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_differentNominalValuesRejected()
+    {
+        FlatDecisionTree flat = new FlatDecisionTree(createTree());
+        DataSet test = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addNominal("Color", "Blue", "Green", "Red")
+                .build(10, new Random(6), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        values[0] = random.nextGaussian();
+                        values[1] = random.nextInt(3);
+                    }
+                });
+        flat.toColumns(test);
+    }
+
+    @Test
+    public void test_emptyLeafConfidence()
+    {
+        /*
+         *  No training instance is Blue, so the Blue branch is an empty leaf
+         */
+        DataSet data = new SyntheticDataBuilder()
+                .addNominal("Color", "Red", "Green", "Blue")
+                .addNominal("Label", "pos", "neg")
+                .setClassAttribute("Label")
+                .build(50, new Random(1), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        int colorId = random.nextInt(2);
+                        values[0] = colorId;
+                        values[1] = colorId;
+                    }
+                });
+
+        DecisionTree tree = new ID3TreeBuilder(2).buildDecisionTree(data);
+        FlatDecisionTree flat = new FlatDecisionTree(tree);
+        Instance instance = new Instance();
+        instance.addAttributeValue(data.getAttributeByName("Color"), 2.0);
+
+        Pair<Integer, Double> expected = tree.classifyInstance(instance);
+        assertFalse(expected.getSecond().isNaN());
+        assertEquals(data.getClassCounts().get(expected.getFirst()) / 50.0, expected.getSecond(), 1e-12);
+
+        double[] row = new double[] {2.0, Double.NaN};
+        assertEquals(expected.getFirst().intValue(), flat.predict(row));
+        assertEquals(expected.getSecond(), flat.predictConfidence(row), 1e-12);
+    }
+}
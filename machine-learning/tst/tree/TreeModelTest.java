@@ -0,0 +1,157 @@
+package tree;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import tree.algorithms.GradientBoostingBuilder;
+import tree.algorithms.ID3TreeBuilder;
+import tree.algorithms.RandomForestBuilder;
+import data.AttributeSet;
+import data.DataSet;
+import data.Instance;
+import data.SyntheticDataBuilder;
+
+
+public class TreeModelTest
+{
+    /**
+     * Create a data set whose class is a noisy function of two attributes
+     */
+    private static DataSet createData(int numInstances, final boolean nominalClass, long seed)
+    {
+        SyntheticDataBuilder builder = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addNominal("Color", "Red", "Green", "Blue");
+        if (nominalClass)
+        {
+            builder.addNominal("Label", "neg", "pos").setClassAttribute("Label");
+        }
+        else
+        {
+            builder.addContinuous("Latency").setClassAttribute("Latency");
+        }
+
+        return builder.build(numInstances, new Random(seed), new SyntheticDataBuilder.RowGenerator()
+        {
+            @Override
+            public void generate(int i, Random random, double[] values)
+            {
+                double value = random.nextGaussian();
+                int colorId = random.nextInt(3);
+                double signal = Math.sin(2 * value) + (colorId == 1 ? 1.0 : 0.0);
+
+                values[0] = i % 11 == 0 ? Double.NaN : value;
+                values[1] = colorId;
+                values[2] = nominalClass
+                        ? (signal + 0.3 * random.nextGaussian() > 0.5 ? 1 : 0)
+                        : 10 + signal + 0.1 * random.nextGaussian();
+            }
+        });
+    }
+
+    private static String createTempFile() throws IOException
+    {
+        File file = File.createTempFile("model", ".mltm");
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    @Test
+    public void test_treeRoundTrip() throws IOException
+    {
+        DataSet data = createData(400, true, 1);
+        DecisionTree tree = new ID3TreeBuilder(2).buildDecisionTree(data);
+
+        String file = createTempFile();
+        TreeModelWriter.writeTree(tree, data.getAttributeSet(), file);
+
+        AttributeSet attributes = TreeModelReader.readAttributes(file);
+        assertEquals("Label", attributes.getClassAttrName());
+        assertEquals(3, attributes.getNumOrdinals());
+        assertEquals("Blue", attributes.getAttributeByName("Color").getNominalValueName(2));
+
+        DecisionTree loaded = TreeModelReader.readTree(file);
+        assertEquals(tree.toString(), loaded.toString());
+        for (Instance instance : data.getInstanceSet().getInstances())
+        {
+            assertEquals(tree.classifyInstance(instance).getFirst(),
+                         loaded.classifyInstance(instance).getFirst());
+            assertEquals(tree.classifyInstance(instance).getSecond(),
+                         loaded.classifyInstance(instance).getSecond(), 1e-12);
+        }
+
+        FlatDecisionTree loadedFlat = TreeModelReader.readFlatTrees(file).get(0);
+        double[][] columns = loadedFlat.toColumns(data);
+        int[] expected = new int[data.getInstanceSet().size()];
+        int[] actual = new int[expected.length];
+        new FlatDecisionTree(tree).predict(columns, expected);
+        loadedFlat.predict(columns, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void test_regressionTreeRoundTrip() throws IOException
+    {
+        DataSet data = createData(400, false, 2);
+        DecisionTree tree = new ID3TreeBuilder(5).buildDecisionTree(data);
+
+        String file = createTempFile();
+        TreeModelWriter.writeTree(tree, data.getAttributeSet(), file);
+        DecisionTree loaded = TreeModelReader.readTree(file);
+
+        assertTrue(loaded.isRegressionTree());
+        assertArrayEquals(tree.predictValues(data), loaded.predictValues(data));
+    }
+
+    @Test
+    public void test_forestRoundTrip() throws IOException
+    {
+        DataSet data = createData(300, true, 3);
+        Forest forest = new RandomForestBuilder(10, 0, 2, 7).buildForest(data);
+
+        String file = createTempFile();
+        TreeModelWriter.writeForest(forest, data.getAttributeSet(), file);
+        Forest loaded = TreeModelReader.readForest(file);
+
+        assertEquals(10, loaded.getTrees().size());
+        for (Instance instance : data.getInstanceSet().getInstances())
+        {
+            assertEquals(forest.classifyInstance(instance).getFirst(),
+                         loaded.classifyInstance(instance).getFirst());
+        }
+    }
+
+    @Test
+    public void test_boostedTreesRoundTrip() throws IOException
+    {
+        DataSet train = createData(400, false, 4);
+        DataSet test = createData(200, false, 5);
+        BoostedTrees model = new GradientBoostingBuilder(BoostedTrees.Loss.SQUARED, 20, 0.3, 3, 5, 7)
+                .buildModel(train);
+
+        String file = createTempFile();
+        TreeModelWriter.writeBoostedTrees(model, train.getAttributeSet(), file);
+        BoostedTrees loaded = TreeModelReader.readBoostedTrees(file);
+
+        assertEquals(BoostedTrees.Loss.SQUARED, loaded.getLoss());
+        assertEquals(model.getBaseScore(), loaded.getBaseScore(), 0.0);
+        assertEquals(model.getShrinkage(), loaded.getShrinkage(), 0.0);
+        assertArrayEquals(model.predictValues(test), loaded.predictValues(test));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_readTreeRejectsForest() throws IOException
+    {
+        DataSet data = createData(100, true, 6);
+        Forest forest = new RandomForestBuilder(3, 0, 2, 7).buildForest(data);
+
+        String file = createTempFile();
+        TreeModelWriter.writeForest(forest, data.getAttributeSet(), file);
+        TreeModelReader.readTree(file);
+    }
+}
@@ -0,0 +1,91 @@
+package tree.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tree.DecisionTree;
+import data.DataSet;
+import data.Instance;
+import data.SyntheticDataBuilder;
+
+
+public class DecisionTreeBuilderTest
+{
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        data = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addContinuous("Y")
+                .addNominal("Color", "Red", "Green", "Blue")
+                .addNominal("Label", "pos", "neg")
+                .setClassAttribute("Label")
+                .build(500, new Random(5), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double value = random.nextGaussian();
+                        int colorId = random.nextInt(3);
+                        values[0] = value;
+                        values[1] = i % 23 == 0 ? Double.NaN : Math.round(random.nextGaussian() * 4) / 4.0;
+                        values[2] = colorId;
+                        values[3] = (value > 0.3) == (colorId == 1) || random.nextInt(10) == 0 ? 0 : 1;
+                    }
+                });
+    }
+
+    @Test
+    public void test_parallelBuildMatchesSerial()
+    {
+        String serial = new ID3TreeBuilder(2).buildDecisionTree(data).toString();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            ID3TreeBuilder builder = new ID3TreeBuilder(2);
+            builder.setParallelBuild(pool, 1);
+            assertEquals(serial, builder.buildDecisionTree(data).toString());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test_histogramBuild()
+    {
+        String exact = new ID3TreeBuilder(2).buildDecisionTree(data).toString();
+
+        /*
+         *  With a bin for every distinct value the search is exact
+         */
+        ID3TreeBuilder builder = new ID3TreeBuilder(2);
+        builder.setHistogramBins(1000);
+        assertEquals(exact, builder.buildDecisionTree(data).toString());
+
+        /*
+         *  With few bins the tree still separates the classes
+         */
+        builder.setHistogramBins(8);
+        DecisionTree tree = builder.buildDecisionTree(data);
+        int correct = 0;
+        for (Instance instance : data.getInstanceSet().getInstances())
+        {
+            Double truth = instance.getAttributeValue(data.getClassAttribute());
+            if (tree.classifyInstance(instance).getFirst() == truth.intValue())
+            {
+                correct++;
+            }
+        }
+        assertTrue(correct > 450);
+    }
+}
@@ -0,0 +1,146 @@
+package tree.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import classify.ClassificationResult;
+import pair.Pair;
+import tree.BoostedTrees;
+import tree.FlatDecisionTree;
+import tree.classifiers.GradientBoostingClassifier;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class GradientBoostingTest
+{
+    /**
+     * Create a data set whose class is a noisy function of two attributes
+     */
+    private static DataSet createData(int numInstances, final boolean binary, long seed)
+    {
+        SyntheticDataBuilder builder = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addNominal("Color", "Red", "Green", "Blue");
+        if (binary)
+        {
+            builder.addNominal("Label", "neg", "pos").setClassAttribute("Label");
+        }
+        else
+        {
+            builder.addContinuous("Latency").setClassAttribute("Latency");
+        }
+
+        return builder.build(numInstances, new Random(seed), new SyntheticDataBuilder.RowGenerator()
+        {
+            @Override
+            public void generate(int i, Random random, double[] values)
+            {
+                double value = random.nextGaussian();
+                int colorId = random.nextInt(3);
+                double signal = Math.sin(2 * value) + (colorId == 1 ? 1.0 : 0.0);
+
+                values[0] = i % 17 == 0 ? Double.NaN : value;
+                values[1] = colorId;
+                values[2] = binary
+                        ? (signal + 0.2 * random.nextGaussian() > 0.5 ? 1 : 0)
+                        : 10 + signal + 0.1 * random.nextGaussian();
+            }
+        });
+    }
+
+    private static double meanSquaredError(Double[] predictions, DataSet data)
+    {
+        double total = 0;
+        for (int id = 0; id < predictions.length; id++)
+        {
+            double truth = data.getInstanceSet().getInstances().get(id)
+                    .getAttributeValue(data.getClassAttribute());
+            total += (truth - predictions[id]) * (truth - predictions[id]);
+        }
+        return total / predictions.length;
+    }
+
+    @Test
+    public void test_squaredLoss()
+    {
+        DataSet train = createData(600, false, 1);
+        DataSet test = createData(300, false, 2);
+
+        GradientBoostingBuilder builder =
+                new GradientBoostingBuilder(BoostedTrees.Loss.SQUARED, 60, 0.2, 3, 5, 7);
+        builder.setSubsampling(0.8, 1.0);
+        BoostedTrees model = builder.buildModel(train);
+        assertEquals(60, model.getTrees().size());
+
+        /*
+         *  The ensemble explains most of the variance around the mean
+         */
+        double mse = meanSquaredError(model.predictValues(test), test);
+        BoostedTrees baseline = new BoostedTrees(
+                ImmutableList.<FlatDecisionTree>of(), model.getBaseScore(), 1.0,
+                BoostedTrees.Loss.SQUARED, model.getClassAttribute());
+        double baselineMse = meanSquaredError(baseline.predictValues(test), test);
+        assertTrue(mse < 0.2 * baselineMse);
+    }
+
+    @Test
+    public void test_logisticLoss()
+    {
+        DataSet train = createData(600, true, 3);
+        DataSet test = createData(300, true, 4);
+
+        GradientBoostingClassifier classifier = new GradientBoostingClassifier(40, 0.3, 3, 5, train);
+        ClassificationResult result = classifier.classifyData(test);
+        assertTrue(result.getAccuracy() > 0.85);
+
+        /*
+         *  Blocks of rows scored concurrently match scoring each row
+         */
+        BoostedTrees model = (BoostedTrees) classifier.getModel();
+        double[][] columns = model.toColumns(test);
+        int[] classes = new int[test.getInstanceSet().size()];
+        double[] confidences = new double[classes.length];
+        classifier.classifyData(test, classes, confidences);
+
+        double[] row = new double[columns.length];
+        for (int id = 0; id < classes.length; id++)
+        {
+            for (int ordinal = 0; ordinal < row.length; ordinal++)
+            {
+                row[ordinal] = columns[ordinal] == null ? Double.NaN : columns[ordinal][id];
+            }
+            Pair<Integer, Double> expected = model.classifyScore(model.predictScore(row));
+            assertEquals(expected.getFirst().intValue(), classes[id]);
+            assertEquals(expected.getSecond(), confidences[id], 1e-12);
+        }
+    }
+
+    @Test
+    public void test_earlyStopping()
+    {
+        DataSet train = createData(300, true, 5);
+        DataSet validation = createData(300, true, 6);
+
+        GradientBoostingBuilder builder =
+                new GradientBoostingBuilder(BoostedTrees.Loss.LOGISTIC, 300, 0.5, 0, 2, 7);
+        builder.setSubsampling(0.7, 0.5);
+        builder.setEarlyStoppingRounds(10);
+        BoostedTrees model = builder.buildModel(train, validation);
+
+        assertTrue(model.getTrees().size() > 0);
+        assertTrue(model.getTrees().size() < 300);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_logisticLossRequiresBinaryClass()
+    {
+        new GradientBoostingBuilder(BoostedTrees.Loss.LOGISTIC, 10, 0.1, 3, 5, 7)
+                .buildModel(createData(50, false, 8));
+    }
+}
@@ -0,0 +1,77 @@
+package tree.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import classify.ClassificationResult;
+import tree.Forest;
+import tree.classifiers.RandomForestClassifier;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class RandomForestTest
+{
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        /*
+         *  The label is whether a point lies inside the unit circle
+         */
+        data = new SyntheticDataBuilder()
+                .addContinuous("X")
+                .addContinuous("Y")
+                .addNominal("Noise", "a", "b")
+                .addNominal("Label", "in", "out")
+                .setClassAttribute("Label")
+                .build(300, new Random(3), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double px = random.nextDouble() * 2.5 - 1.25;
+                        double py = random.nextDouble() * 2.5 - 1.25;
+                        values[0] = px;
+                        values[1] = py;
+                        values[2] = random.nextInt(2);
+                        values[3] = px * px + py * py < 1 ? 0 : 1;
+                    }
+                });
+    }
+
+    @Test
+    public void test_forestIsReproducible()
+    {
+        ExecutorService serial = Executors.newSingleThreadExecutor();
+        try
+        {
+            Forest parallelForest = new RandomForestBuilder(20, 0, 2, 11L).buildForest(data);
+            Forest serialForest = new RandomForestBuilder(20, 0, 2, 11L, serial).buildForest(data);
+            assertEquals(20, parallelForest.getTrees().size());
+
+            for (int t = 0; t < 20; t++)
+            {
+                assertEquals(serialForest.getTrees().get(t).toString(),
+                             parallelForest.getTrees().get(t).toString());
+            }
+
+            ClassificationResult parallel = new RandomForestClassifier(parallelForest, serial).classifyData(data);
+            ClassificationResult votes = new RandomForestClassifier(20, 2, 11L, data).classifyData(data);
+            assertEquals(parallel.getCorrectCount(), votes.getCorrectCount());
+            assertEquals(Integer.valueOf(300), votes.getTestDataSize());
+            assertTrue(votes.getAccuracy() > 0.9);
+        }
+        finally
+        {
+            serial.shutdown();
+        }
+    }
+}
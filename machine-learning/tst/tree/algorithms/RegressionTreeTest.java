@@ -0,0 +1,135 @@
+package tree.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import classify.evaluate.PercentageError;
+import tree.DecisionTree;
+import tree.FlatDecisionTree;
+import tree.train.Split;
+import tree.train.SplitGenerator;
+import data.Attribute;
+import data.DataSet;
+import data.Instance;
+import data.SyntheticDataBuilder;
+
+
+public class RegressionTreeTest
+{
+    private Attribute x;
+    private Attribute color;
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        x = new Attribute("X", Attribute.Type.CONTINUOUS, null);
+        color = new Attribute("Color", Attribute.Type.NOMINAL, new String[] {"Red", "Green", "Blue"});
+
+        data = new SyntheticDataBuilder()
+                .addAttribute(x)
+                .addAttribute(color)
+                .addContinuous("Latency")
+                .setClassAttribute("Latency")
+                .build(400, new Random(3), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double value = random.nextInt(100) / 10.0;
+                        int colorId = random.nextInt(3);
+                        values[0] = value;
+                        values[1] = colorId;
+                        values[2] = latency(value, colorId);
+                    }
+                });
+    }
+
+    private static double latency(double value, int colorId)
+    {
+        return (value > 5.0 ? 100.0 : 50.0) + 10.0 * colorId;
+    }
+
+    @Test
+    public void test_sweepMatchesSplitInstances()
+    {
+        List<Split> splits = SplitGenerator.generateSplits(data, ImmutableList.of(x, color));
+        assertFalse(splits.isEmpty());
+
+        for (Split split : splits)
+        {
+            double gain = split.getInfoGain();
+            split.splitInstances(data);
+            assertEquals(split.getInfoGain(), gain, 1e-9);
+        }
+    }
+
+    @Test
+    public void test_predictsLeafMeans()
+    {
+        DecisionTree tree = new ID3TreeBuilder(2).buildDecisionTree(data);
+        assertTrue(tree.isRegressionTree());
+
+        /*
+         *  The class is a step function of the attributes, so the tree 
+         *  fits every instance exactly
+         */
+        List<Instance> instances = data.getInstanceSet().getInstances();
+        for (Instance instance : instances)
+        {
+            double expected = latency(instance.getAttributeValue(x),
+                                      instance.getAttributeValue(color).intValue());
+            assertEquals(expected, tree.predictValue(instance), 1e-9);
+        }
+
+        Double[] truth = new Double[instances.size()];
+        for (int id = 0; id < truth.length; id++)
+        {
+            truth[id] = instances.get(id).getAttributeValue(data.getClassAttribute());
+        }
+        double error = PercentageError.meanPercentageError(truth, tree.predictValues(data));
+        assertEquals(0.0, error, 1e-9);
+    }
+
+    @Test
+    public void test_constantLeavesStopSplitting()
+    {
+        /*
+         *  Values such as 0.1 and 0.3 have no exact binary form, so the 
+         *  variance of a constant leaf is only zero up to rounding
+         */
+        DataSet steps = new SyntheticDataBuilder()
+                .addAttribute(x)
+                .addAttribute(color)
+                .addContinuous("Latency")
+                .setClassAttribute("Latency")
+                .build(400, new Random(4), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        double value = random.nextInt(100) / 10.0;
+                        values[0] = value;
+                        values[1] = random.nextInt(3);
+                        values[2] = value > 5.0 ? 0.3 : 0.1;
+                    }
+                });
+
+        FlatDecisionTree tree = new FlatDecisionTree(new ID3TreeBuilder(2).buildDecisionTree(steps));
+        assertEquals(3, tree.getNumNodes());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_classifyRegressionTree()
+    {
+        DecisionTree tree = new ID3TreeBuilder(2).buildDecisionTree(data);
+        tree.classifyInstance(data.getInstanceSet().getInstances().get(0));
+    }
+}
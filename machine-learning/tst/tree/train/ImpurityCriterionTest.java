@@ -0,0 +1,116 @@
+package tree.train;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import data.Attribute;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class ImpurityCriterionTest
+{
+    private Attribute weight;
+    private Attribute color;
+    private Attribute play;
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        weight = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+        color = new Attribute("Color", Attribute.Type.NOMINAL, new String[] {"Red", "Green", "Blue"});
+        play = new Attribute("Play", Attribute.Type.NOMINAL, new String[] {"Yes", "No"});
+
+        data = new SyntheticDataBuilder()
+                .addAttribute(weight)
+                .addAttribute(color)
+                .addAttribute(play)
+                .setClassAttribute("Play")
+                .build(150, new Random(11), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        values[0] = i % 13 == 0 ? Double.NaN : random.nextInt(30) / 2.0;
+                        values[1] = random.nextInt(3);
+                        values[2] = random.nextInt(3) == 0 ? 1 : 0;
+                    }
+                });
+    }
+
+    @Test
+    public void test_gini()
+    {
+        assertEquals(0.5, GiniCriterion.impurity(new double[] {5, 5}), 1e-12);
+        assertEquals(0.0, GiniCriterion.impurity(new double[] {0, 4}), 1e-12);
+
+        /*
+         *  A perfect split removes all of the impurity
+         */
+        double gain = new GiniCriterion().gain(new double[] {4, 4},
+                new double[][] {{4, 0}, {0, 4}});
+        assertEquals(0.5, gain, 1e-12);
+    }
+
+    @Test
+    public void test_gainRatio()
+    {
+        double[] classWeights = {4, 4};
+        double[][] branchClassWeights = {{4, 0}, {0, 4}};
+        assertEquals(1.0, new GainRatioCriterion().gain(classWeights, branchClassWeights), 1e-12);
+
+        /*
+         *  Splitting into four pure branches gains twice the information but
+         *  has twice the split information
+         */
+        double[][] fourBranches = {{2, 0}, {2, 0}, {0, 2}, {0, 2}};
+        assertEquals(1.0, new EntropyCriterion().gain(classWeights, fourBranches), 1e-12);
+        assertEquals(0.5, new GainRatioCriterion().gain(classWeights, fourBranches), 1e-12);
+
+        double[][] oneBranch = {{4, 4}, {0, 0}};
+        assertEquals(0.0, new GainRatioCriterion().gain(classWeights, oneBranch), 1e-12);
+    }
+
+    @Test
+    public void test_sweepMatchesSplitInstances()
+    {
+        ImpurityCriterion[] criteria = {new GiniCriterion(), new GainRatioCriterion()};
+        for (ImpurityCriterion criterion : criteria)
+        {
+            List<Split> splits = SplitGenerator.generateSplits(data,
+                    ImmutableList.of(weight, color), null, null, criterion);
+            assertFalse(splits.isEmpty());
+
+            for (Split split : splits)
+            {
+                double gain = split.getInfoGain();
+                split.splitInstances(data, criterion);
+                assertEquals(split.getInfoGain(), gain, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void test_histogramMatchesSortedSweep()
+    {
+        ImpurityCriterion criterion = new GiniCriterion();
+        List<Split> exact = SplitGenerator.generateSplits(data,
+                ImmutableList.of(weight), new SortedIndex(data), null, criterion);
+        List<Split> binned = SplitGenerator.generateSplits(data,
+                ImmutableList.of(weight), new HistogramIndex(data, 64), null, criterion);
+
+        assertEquals(exact.size(), binned.size());
+        for (int i = 0; i < exact.size(); i++)
+        {
+            assertEquals(exact.get(i).getInfoGain(), binned.get(i).getInfoGain(), 1e-12);
+        }
+    }
+}
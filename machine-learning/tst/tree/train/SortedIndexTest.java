@@ -0,0 +1,84 @@
+package tree.train;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import data.Attribute;
+import data.DataSet;
+import data.SyntheticDataBuilder;
+
+
+public class SortedIndexTest
+{
+    private Attribute weight;
+    private Attribute play;
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        weight = new Attribute("Weight", Attribute.Type.CONTINUOUS, null);
+        play = new Attribute("Play", Attribute.Type.NOMINAL, new String[] {"Yes", "No"});
+
+        data = new SyntheticDataBuilder()
+                .addAttribute(weight)
+                .addAttribute(play)
+                .setClassAttribute("Play")
+                .build(200, new Random(7), new SyntheticDataBuilder.RowGenerator()
+                {
+                    @Override
+                    public void generate(int i, Random random, double[] values)
+                    {
+                        values[0] = i % 17 == 0 ? Double.NaN : random.nextInt(40) / 4.0;
+                        values[1] = random.nextInt(3) == 0 ? 1 : 0;
+                    }
+                });
+    }
+
+    @Test
+    public void test_sweepMatchesSplitInstances()
+    {
+        List<Split> splits = SplitGenerator.generateSplits(data, ImmutableList.of(weight));
+        assertFalse(splits.isEmpty());
+
+        double prevThreshold = Double.MAX_VALUE;
+        for (Split split : splits)
+        {
+            assertFalse(split.isSplit());
+            double threshold = split.getSplitBranches().get(0).getValue();
+            assertTrue(threshold < prevThreshold);
+            prevThreshold = threshold;
+
+            double gain = split.getInfoGain();
+            split.splitInstances(data);
+            assertTrue(split.isSplit());
+            assertEquals(split.getInfoGain(), gain, 1e-12);
+        }
+    }
+
+    @Test
+    public void test_projectionKeepsOrder()
+    {
+        SortedIndex index = new SortedIndex(data);
+        assertEquals(200 - 12, index.getSortedIds(weight).length);
+
+        Split split = SplitGenerator.generateSplits(data, ImmutableList.of(weight)).get(3);
+        split.splitInstances(data);
+        for (SplitBranch branch : split.getSplitBranches())
+        {
+            SortedIndex projected = index.project(branch.getData());
+            SortedIndex sorted = new SortedIndex(branch.getData());
+
+            assertTrue(projected.isIndexOf(branch.getData()));
+            assertArrayEquals(sorted.getSortedIds(weight), projected.getSortedIds(weight));
+            assertArrayEquals(sorted.getSortedValues(weight), projected.getSortedValues(weight), 0.0);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package tree.train;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import pair.Pair;
+import tree.DecisionTree;
+import tree.algorithms.ID3TreeBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+import data.Attribute;
+import data.AttributeSet;
+import data.ColumnStore;
+import data.DataSet;
+import data.Instance;
+import data.InstanceSet;
+
+
+public class SplitTest
+{
+    private Attribute outlook;
+    private Attribute play;
+    private DataSet data;
+
+    @Before
+    public void before()
+    {
+        outlook = new Attribute("Outlook", Attribute.Type.NOMINAL, new String[] {"Sunny", "Rainy"});
+        play = new Attribute("Play", Attribute.Type.NOMINAL, new String[] {"Yes", "No"});
+
+        /*
+         *  The last two instances are missing the outlook
+         */
+        int[][] rows = {{0, 0}, {0, 0}, {1, 1}, {1, 0}, {-1, 1}, {-1, 0}};
+
+        List<Attribute> attributes = ImmutableList.of(outlook, play);
+        ColumnStore store = new ColumnStore(attributes);
+        for (int[] values : rows)
+        {
+            int row = store.addRow();
+            for (int col = 0; col < values.length; col++)
+            {
+                if (values[col] < 0)
+                {
+                    store.setMissing(row, col);
+                }
+                else
+                {
+                    store.setNominal(row, col, values[col]);
+                }
+            }
+        }
+
+        data = new DataSet(new AttributeSet(attributes), new InstanceSet(store));
+        data.setClassAttribute("Play");
+    }
+
+    @Test
+    public void test_missingValuesSplitFractionally()
+    {
+        Split split = SplitGenerator.generateSplits(data, ImmutableList.of(outlook)).get(0);
+        assertFalse(split.isSplit());
+        double gain = split.getInfoGain();
+        split.splitInstances(data);
+        assertEquals(gain, split.getInfoGain(), 0.0);
+
+        /*
+         *  Gain over the four known instances, scaled by their share 4/6
+         */
+        double known = -0.75 * Math.log(0.75) / Math.log(2) - 0.25 * Math.log(0.25) / Math.log(2);
+        assertEquals((known - 0.5) * 4.0 / 6.0, split.getInfoGain(), 1e-12);
+
+        SplitBranch sunny = null;
+        for (SplitBranch branch : split.getSplitBranches())
+        {
+            if (branch.getValue() == 0.0)
+            {
+                sunny = branch;
+            }
+        }
+        InstanceSet instances = sunny.getInstanceSet();
+        assertArrayEquals(new int[] {0, 1, 4, 5}, instances.getRows());
+        assertEquals(1.0, instances.getWeight(0), 0.0);
+        assertEquals(0.5, instances.getWeight(3), 0.0);
+
+        double[] classWeights = sunny.getData().getClassWeights();
+        assertEquals(2.5, classWeights[0], 1e-12);
+        assertEquals(0.5, classWeights[1], 1e-12);
+        assertEquals(Integer.valueOf(0), sunny.getData().getMajorityClass());
+    }
+
+    @Test
+    public void test_missingValueClassifiesByDistribution()
+    {
+        DecisionTree tree = new ID3TreeBuilder(1).buildDecisionTree(data);
+
+        Instance instance = new Instance();
+        instance.addAttributeValue(play, 1.0);
+
+        Pair<Integer, Double> result = tree.classifyInstance(instance);
+        assertEquals(Integer.valueOf(0), result.getFirst());
+        assertEquals(5.0 / 8.0, result.getSecond(), 1e-12);
+    }
+}